@@ -0,0 +1,13 @@
+package com.truward.brikar.log.alert;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receiver of the spike alerts.
+ *
+ * @author Alexander Shabanov
+ */
+public interface AlertSink {
+
+  void accept(@Nonnull SpikeAlert alert);
+}
@@ -0,0 +1,85 @@
+package com.truward.brikar.log.alert;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Alert on the rate of failures of a single logger or operation, that has gone far above its baseline.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SpikeAlert {
+  private final String dimension;
+  private final String key;
+  private final long time;
+  private final int count;
+  private final double baseline;
+  private final double deviation;
+
+  public SpikeAlert(@Nonnull String dimension, @Nonnull String key, long time, int count, double baseline,
+                    double deviation) {
+    this.dimension = Objects.requireNonNull(dimension, "dimension");
+    this.key = Objects.requireNonNull(key, "key");
+    this.time = time;
+    this.count = count;
+    this.baseline = baseline;
+    this.deviation = deviation;
+  }
+
+  /**
+   * @return What the key is, either {@link SpikeDetector#LOGGER_DIMENSION} or
+   *         {@link SpikeDetector#OPERATION_DIMENSION}
+   */
+  @Nonnull
+  public String getDimension() {
+    return dimension;
+  }
+
+  /**
+   * @return Logger name or operation
+   */
+  @Nonnull
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return Time the alert has been raised
+   */
+  public long getTime() {
+    return time;
+  }
+
+  /**
+   * @return Number of failures within the last interval
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * @return Average number of failures per interval before this one
+   */
+  public double getBaseline() {
+    return baseline;
+  }
+
+  /**
+   * @return Standard deviation of the number of failures per interval before this one
+   */
+  public double getDeviation() {
+    return deviation;
+  }
+
+  @Override
+  public String toString() {
+    return "SpikeAlert{" +
+        "dimension='" + dimension + '\'' +
+        ", key='" + key + '\'' +
+        ", time=" + time +
+        ", count=" + count +
+        ", baseline=" + baseline +
+        ", deviation=" + deviation +
+        '}';
+  }
+}
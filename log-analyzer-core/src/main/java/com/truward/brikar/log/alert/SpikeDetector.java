@@ -0,0 +1,232 @@
+package com.truward.brikar.log.alert;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.util.Hashing;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Detects bursts of failures per logger and per operation. Failures are the records of ERROR and WARN severity
+ * and the metrics with <code>failed=true</code>. They are counted per interval, which ends on each
+ * {@link #tick(long)}, and once the count goes above the baseline by the given number of standard deviations,
+ * alert is passed to the sink. Baseline is an exponentially weighted moving average of the counts, variance is
+ * weighted the same way, so a lasting change of the rate becomes the new baseline.
+ * <p>
+ * State is fixed: each dimension has a table of the fixed size, kept in primitive arrays. Keys are placed by
+ * linear probing and once there is no free slot within a few probes, the key with the least failures is evicted.
+ * Per record work is a hash table lookup, the rest is done on tick, which should be called every second or so.
+ * <p>
+ * All the methods are thread safe, sink is called outside of the lock.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SpikeDetector implements LogMessageSink {
+  public static final String LOGGER_DIMENSION = "logger";
+  public static final String OPERATION_DIMENSION = "op";
+  public static final String OPERATION_ATTRIBUTE = "op";
+  public static final String FAILED_ATTRIBUTE = "failed";
+
+  public static final int DEFAULT_CAPACITY = 4096;
+  public static final int DEFAULT_BASELINE_INTERVALS = 60;
+  public static final double DEFAULT_THRESHOLD = 4.0;
+  public static final int DEFAULT_MIN_COUNT = 10;
+
+  private static final int MAX_PROBES = 8;
+  private static final double MIN_DEVIATION = 1.0;
+
+  private final AlertSink sink;
+  private final double alpha;
+  private final int warmupIntervals;
+  private final double threshold;
+  private final int minCount;
+  private final KeyTable loggers;
+  private final KeyTable operations;
+  private long intervals;
+
+  /**
+   * @param sink Receiver of the alerts
+   * @param capacity Number of keys per dimension, tables are sized for; they have twice as many slots, so that
+   *                 probe sequences stay short
+   * @param baselineIntervals Number of intervals, the baseline is averaged over; no alerts are raised until
+   *                          that many intervals have passed
+   * @param threshold Number of standard deviations above the baseline, at which alert is raised
+   * @param minCount Minimum number of failures within the interval to raise alert
+   */
+  public SpikeDetector(@Nonnull AlertSink sink, int capacity, int baselineIntervals, double threshold,
+                       int minCount) {
+    if (capacity <= 0 || baselineIntervals <= 0 || minCount <= 0) {
+      throw new IllegalArgumentException("Capacity, baseline intervals and min count should be positive numbers");
+    }
+    if (threshold <= 0.0) {
+      throw new IllegalArgumentException("Threshold should be a positive number");
+    }
+
+    this.sink = Objects.requireNonNull(sink, "sink");
+    this.alpha = 2.0 / (baselineIntervals + 1);
+    this.warmupIntervals = baselineIntervals;
+    this.threshold = threshold;
+    this.minCount = minCount;
+    this.loggers = new KeyTable(LOGGER_DIMENSION, capacity);
+    this.operations = new KeyTable(OPERATION_DIMENSION, capacity);
+  }
+
+  public SpikeDetector(@Nonnull AlertSink sink) {
+    this(sink, DEFAULT_CAPACITY, DEFAULT_BASELINE_INTERVALS, DEFAULT_THRESHOLD, DEFAULT_MIN_COUNT);
+  }
+
+  @Override
+  public void accept(@Nonnull LogMessage message) {
+    if (message.isNull() || message.isMultiLinePart() || !isFailure(message)) {
+      return;
+    }
+
+    final String logger = message.getLoggerName();
+    final Object operation = message.getAttributes().get(OPERATION_ATTRIBUTE);
+    synchronized (this) {
+      loggers.increment(logger);
+      if (operation != null) {
+        operations.increment(operation.toString());
+      }
+    }
+  }
+
+  /**
+   * Completes the current interval: compares failure counts to the baselines, then updates baselines.
+   *
+   * @param now Current time
+   */
+  public void tick(long now) {
+    final List<SpikeAlert> alerts = new ArrayList<>(0);
+    synchronized (this) {
+      final boolean warm = intervals >= warmupIntervals;
+      loggers.tick(now, warm, alerts);
+      operations.tick(now, warm, alerts);
+      ++intervals;
+    }
+
+    for (final SpikeAlert alert : alerts) {
+      sink.accept(alert);
+    }
+  }
+
+  /**
+   * @return Number of keys tracked in the given dimension
+   */
+  public synchronized int getKeyCount(@Nonnull String dimension) {
+    return LOGGER_DIMENSION.equals(dimension) ? loggers.size : operations.size;
+  }
+
+  /**
+   * @return Number of keys evicted from all the dimensions
+   */
+  public synchronized long getEvictionCount() {
+    return loggers.evictions + operations.evictions;
+  }
+
+  //
+  // Private
+  //
+
+  private static boolean isFailure(LogMessage message) {
+    final Severity severity = message.getSeverity();
+    if (severity == Severity.ERROR || severity == Severity.WARN) {
+      return true;
+    }
+    final Object failed = message.getAttributes().get(FAILED_ATTRIBUTE);
+    return failed != null && "true".equals(failed.toString());
+  }
+
+  /**
+   * Open addressing hash table of the per key failure statistics.
+   */
+  private final class KeyTable {
+    private final String dimension;
+    private final int mask;
+    private final String[] keys;
+    private final int[] hashes;
+    private final int[] counts;
+    private final double[] means;
+    private final double[] variances;
+    private final boolean[] alerting;
+    private int size;
+    private long evictions;
+
+    KeyTable(String dimension, int capacity) {
+      final int length = Integer.highestOneBit(Math.max(capacity, MAX_PROBES) * 2 - 1);
+      this.dimension = dimension;
+      this.mask = length - 1;
+      this.keys = new String[length];
+      this.hashes = new int[length];
+      this.counts = new int[length];
+      this.means = new double[length];
+      this.variances = new double[length];
+      this.alerting = new boolean[length];
+    }
+
+    void increment(String key) {
+      final int hash = (int) Hashing.mix(key.hashCode()); // spreads keys, that differ in the last char
+      int victim = -1;
+      for (int i = 0; i < MAX_PROBES; ++i) {
+        final int slot = (hash + i) & mask;
+        final String slotKey = keys[slot];
+        if (slotKey == null) {
+          put(slot, key, hash);
+          ++size;
+          return;
+        }
+        if (hashes[slot] == hash && slotKey.equals(key)) {
+          ++counts[slot];
+          return;
+        }
+        if (victim < 0 || weight(slot) < weight(victim)) {
+          victim = slot;
+        }
+      }
+
+      // slots are never freed, so that probe sequences stay intact, the least significant key is replaced instead
+      put(victim, key, hash);
+      ++evictions;
+    }
+
+    void tick(long now, boolean warm, List<SpikeAlert> alerts) {
+      for (int slot = 0; slot < keys.length; ++slot) {
+        if (keys[slot] == null) {
+          continue;
+        }
+
+        final int count = counts[slot];
+        final double mean = means[slot];
+        final double deviation = Math.sqrt(variances[slot]);
+        final boolean spike = count >= minCount && count > mean + threshold * Math.max(deviation, MIN_DEVIATION);
+        if (spike && warm && !alerting[slot]) {
+          alerts.add(new SpikeAlert(dimension, keys[slot], now, count, mean, deviation));
+        }
+        alerting[slot] = spike; // alert is raised once per spike
+
+        final double diff = count - mean;
+        final double increment = alpha * diff;
+        means[slot] = mean + increment;
+        variances[slot] = (1.0 - alpha) * (variances[slot] + diff * increment);
+        counts[slot] = 0;
+      }
+    }
+
+    private void put(int slot, String key, int hash) {
+      keys[slot] = key;
+      hashes[slot] = hash;
+      counts[slot] = 1;
+      means[slot] = 0.0;
+      variances[slot] = 0.0;
+      alerting[slot] = false;
+    }
+
+    private double weight(int slot) {
+      return counts[slot] + means[slot];
+    }
+  }
+}
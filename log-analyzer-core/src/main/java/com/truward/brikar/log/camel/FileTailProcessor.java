@@ -0,0 +1,130 @@
+package com.truward.brikar.log.camel;
+
+import com.truward.brikar.log.governor.ResourceGovernor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Processor, that sets the message body to the complete lines appended to the file since the previous call,
+ * so that a timer route could tail the file reading many lines per exchange. Incomplete trailing line is left
+ * for the next call unless it does not fit into the chunk. Truncated file is read from the beginning.
+ * Reads could be paced by {@link ResourceGovernor}, then the timer thread waits while it is over the budget.
+ * <p>
+ * This class is not thread safe, it is expected to be called from the single timer thread.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FileTailProcessor implements Processor, Service {
+  public static final int DEFAULT_MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final Path path;
+  private final ByteBuffer buffer;
+  private final ResourceGovernor governor;
+
+  private FileChannel channel;
+  private volatile long position;
+
+  public FileTailProcessor(@Nonnull Path path, int maxChunkSize, @Nullable ResourceGovernor governor) {
+    if (maxChunkSize <= 0) {
+      throw new IllegalArgumentException("Max chunk size should be a positive number");
+    }
+    this.path = Objects.requireNonNull(path, "path");
+    this.buffer = ByteBuffer.allocate(maxChunkSize);
+    this.governor = governor;
+  }
+
+  public FileTailProcessor(@Nonnull Path path, int maxChunkSize) {
+    this(path, maxChunkSize, null);
+  }
+
+  public FileTailProcessor(@Nonnull Path path) {
+    this(path, DEFAULT_MAX_CHUNK_SIZE);
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    exchange.getIn().setBody(readLines());
+  }
+
+  /**
+   * @return Offset of the lines read so far
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  @Override
+  public void start() throws Exception {
+    // channel is opened on the first read, file may not exist yet
+  }
+
+  @Override
+  public void stop() throws Exception {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  //
+  // Private
+  //
+
+  @Nonnull
+  private String readLines() throws IOException, InterruptedException {
+    if (channel == null) {
+      try {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+      } catch (NoSuchFileException e) {
+        return "";
+      }
+    }
+
+    final long size = channel.size();
+    if (size < position) {
+      log.info("File {} has been truncated, reading from the beginning", path);
+      position = 0;
+    }
+    if (size == position) {
+      return "";
+    }
+
+    buffer.clear();
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) <= 0) {
+        break;
+      }
+    }
+
+    final byte[] bytes = buffer.array();
+    int end = buffer.position();
+    while (end > 0 && bytes[end - 1] != '\n') {
+      --end;
+    }
+    if (end == 0 && !buffer.hasRemaining()) {
+      end = buffer.position(); // line does not fit into the chunk
+    }
+
+    if (governor != null) {
+      governor.pace(buffer.position());
+    }
+
+    position += end;
+    return new String(bytes, 0, end, StandardCharsets.UTF_8);
+  }
+}
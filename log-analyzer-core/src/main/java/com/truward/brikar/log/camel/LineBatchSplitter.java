@@ -0,0 +1,108 @@
+package com.truward.brikar.log.camel;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.support.ExpressionAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Splitter expression, that cuts the message body into batches of lines without using regular expressions.
+ * Each batch is a list of up to the given number of non-empty lines, carriage returns are stripped.
+ * <p>
+ * Empty body produces a single empty batch, so that the processor downstream gets a chance to complete
+ * time-bounded state when source has nothing new.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LineBatchSplitter extends ExpressionAdapter {
+  public static final int DEFAULT_BATCH_SIZE = 512;
+
+  private final int batchSize;
+
+  public LineBatchSplitter(int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size should be a positive number");
+    }
+    this.batchSize = batchSize;
+  }
+
+  public LineBatchSplitter() {
+    this(DEFAULT_BATCH_SIZE);
+  }
+
+  @Override
+  public Object evaluate(Exchange exchange) {
+    final String body = exchange.getIn().getBody(String.class);
+    if (body == null || body.isEmpty()) {
+      return Collections.singletonList(Collections.<String>emptyList()).iterator();
+    }
+    return new BatchIterator(body, batchSize);
+  }
+
+  @Override
+  public String toString() {
+    return "LineBatchSplitter{batchSize=" + batchSize + '}';
+  }
+
+  //
+  // Private
+  //
+
+  private static final class BatchIterator implements Iterator<List<String>> {
+    private final String text;
+    private final int batchSize;
+    private int position;
+    private List<String> next;
+
+    BatchIterator(String text, int batchSize) {
+      this.text = text;
+      this.batchSize = batchSize;
+      this.next = readBatch();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public List<String> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      final List<String> result = next;
+      next = readBatch();
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    private List<String> readBatch() {
+      final List<String> batch = new ArrayList<>(Math.min(batchSize, 64));
+      final int length = text.length();
+      while (position < length && batch.size() < batchSize) {
+        int end = text.indexOf('\n', position);
+        if (end < 0) {
+          end = length;
+        }
+
+        int lineEnd = end;
+        if (lineEnd > position && text.charAt(lineEnd - 1) == '\r') {
+          --lineEnd;
+        }
+        if (lineEnd > position) {
+          batch.add(text.substring(position, lineEnd));
+        }
+        position = end + 1;
+      }
+      return batch.isEmpty() ? null : batch;
+    }
+  }
+}
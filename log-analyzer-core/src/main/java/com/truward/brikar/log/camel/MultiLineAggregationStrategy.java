@@ -41,7 +41,7 @@ public final class MultiLineAggregationStrategy implements AggregationStrategy {
     }
 
     // append new message to the old one in a form of new line
-    oldMsg.addLine(newMsg.getLogEntry());
+    oldMsg.addLine(newMsg);
     oldExchange.getIn().setBody(oldMsg);
     return oldExchange;
   }
@@ -0,0 +1,30 @@
+package com.truward.brikar.log.camel;
+
+import com.truward.brikar.log.model.LogMessage;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+/**
+ * Processor, that sets the {@link #HEADER} to the number of the record the parsed message belongs to:
+ * record start gets the next number and multiline parts get the number of the preceding record.
+ * The result is used to aggregate multiline records.
+ * <p>
+ * This is the only order-dependent step of the per-line route, so messages should come in the same order
+ * as they appear in the source log file.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecordIdProcessor implements Processor {
+  public static final String HEADER = "id";
+
+  private int count = 0;
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final LogMessage logMessage = exchange.getIn().getBody(LogMessage.class);
+    if (!logMessage.isMultiLinePart()) {
+      ++count;
+    }
+    exchange.getIn().setHeader(HEADER, count);
+  }
+}
@@ -0,0 +1,31 @@
+package com.truward.brikar.log.camel;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.sink.LogMessageSink;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Processor, that passes assembled log message to the given sink, leaving exchange body as is.
+ * It lets local consumers, such as rollups, see the records before they are converted for the endpoint.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecordTapProcessor implements Processor {
+  private final LogMessageSink sink;
+
+  public RecordTapProcessor(@Nonnull LogMessageSink sink) {
+    this.sink = Objects.requireNonNull(sink, "sink");
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final LogMessage logMessage = exchange.getIn().getBody(LogMessage.class);
+    if (logMessage != null && !logMessage.isNull()) {
+      sink.accept(logMessage);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.truward.brikar.log.camel;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.routing.RoutedRecord;
+import com.truward.brikar.log.routing.RoutingTable;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Processor, that puts the endpoints of the record to {@link #ENDPOINTS_PROPERTY} exchange property,
+ * so that route sends it by the recipient list. If body is a log message, it is evaluated against the routing
+ * table and left as is, if body is a {@link RoutedRecord}, that has been routed before, it is unwrapped.
+ * Property is used instead of header, since headers are not kept by the processors, that set the out message.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RoutingProcessor implements Processor {
+  public static final String ENDPOINTS_PROPERTY = "LogRecordEndpoints";
+
+  private final RoutingTable routingTable;
+
+  public RoutingProcessor(@Nonnull RoutingTable routingTable) {
+    this.routingTable = Objects.requireNonNull(routingTable, "routingTable");
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final Object body = exchange.getIn().getBody();
+    if (body instanceof RoutedRecord) {
+      final RoutedRecord record = (RoutedRecord) body;
+      exchange.setProperty(ENDPOINTS_PROPERTY, record.getEndpoints());
+      exchange.getIn().setBody(record.getBody());
+      return;
+    }
+
+    final LogMessage logMessage = exchange.getIn().getBody(LogMessage.class);
+    if (logMessage != null && !logMessage.isNull()) {
+      exchange.setProperty(ENDPOINTS_PROPERTY, routingTable.route(logMessage));
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.truward.brikar.log.engine;
+
+import com.truward.brikar.log.model.LogMessage;
+
+/**
+ * Reusable slot of the ring buffer. Line buffer is allocated once and grows only when longer line comes in.
+ *
+ * @author Alexander Shabanov
+ */
+final class RecordSlot {
+  // written by reader
+  byte[] buffer;
+  int length;
+  boolean flush;
+
+  // written by parser
+  LogMessage parsed;
+
+  // written by assembler to the slot that holds the first line of the record
+  LogMessage record;
+
+  RecordSlot(int initialLineCapacity) {
+    this.buffer = new byte[initialLineCapacity];
+  }
+
+  void setLine(byte[] source, int offset, int lineLength) {
+    if (buffer.length < lineLength) {
+      buffer = new byte[Math.max(lineLength, buffer.length * 2)];
+    }
+    System.arraycopy(source, offset, buffer, 0, lineLength);
+    length = lineLength;
+    flush = false;
+  }
+
+  void setFlush() {
+    length = 0;
+    flush = true;
+  }
+}
@@ -0,0 +1,305 @@
+package com.truward.brikar.log.engine;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.util.MultiLineAssembler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Ingestion engine, that does not use Camel: lines are published to the pre-allocated ring buffer of reusable
+ * slots and go through parser, assembler and sink stages, each running in its own thread and processing all
+ * the slots available at once. Besides the parsed messages themselves nothing is allocated per line.
+ * <p>
+ * Parser stage may be split between several threads, each one parsing every N-th slot. Assembler waits for all
+ * of them, so records are assembled in the order lines have been published. In this case parser is shared
+ * between the threads and should be thread safe.
+ * <p>
+ * Lines should be published from a single thread. Sink is called from the sink stage thread, if sink implements
+ * {@link Flushable} it is flushed at the end of each batch.
+ * <p>
+ * Records are not copied: those produced by the parser, that reads the bytes in place, are backed by the slot
+ * buffers. Slots are released to the publisher only once the sink stage has finished the batch, so the record
+ * stays valid until the sink returns from {@code accept} or, for the flushable sink, until the flush at the end
+ * of the batch returns. Sink, that keeps records longer, should detach them from the slots with
+ * {@link com.truward.brikar.log.model.ByteSliceLogMessage#compact()}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RingBufferEngine implements AutoCloseable {
+  public static final int DEFAULT_RING_SIZE = 16384;
+  public static final int DEFAULT_LINE_CAPACITY = 256;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final RecordSlot[] slots;
+  private final int mask;
+  private final LogLineParser parser;
+  private final LogMessageSink sink;
+  private final MultiLineAssembler assembler;
+
+  // sequences
+  private final Sequence cursor = new Sequence();
+  private final Sequence[] parserSequences;
+  private final Sequence assemblerSequence = new Sequence();
+  private final Sequence sinkSequence = new Sequence();
+
+  // producer state
+  private long nextSequence = 0L;
+  private long cachedGate = Sequence.INITIAL;
+
+  // assembler state
+  private long pendingRecordSequence = Sequence.INITIAL;
+
+  private final Thread[] threads;
+  private volatile boolean halted;
+
+  public RingBufferEngine(@Nonnull LogLineParser parser, @Nonnull LogMessageSink sink, int ringSize, int maxLines,
+                          int parserThreads) {
+    if (parserThreads <= 0) {
+      throw new IllegalArgumentException("Parser threads count should be a positive number");
+    }
+    if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+      throw new IllegalArgumentException("Ring size should be a power of two");
+    }
+    if (maxLines <= 0 || maxLines >= ringSize) {
+      // pending record holds its slots until it is complete, so it should always fit the ring
+      throw new IllegalArgumentException("Max lines should be a positive number less than ring size");
+    }
+
+    this.parser = Objects.requireNonNull(parser, "parser");
+    this.sink = Objects.requireNonNull(sink, "sink");
+    this.slots = new RecordSlot[ringSize];
+    for (int i = 0; i < ringSize; ++i) {
+      slots[i] = new RecordSlot(DEFAULT_LINE_CAPACITY);
+    }
+    this.mask = ringSize - 1;
+    this.assembler = new MultiLineAssembler(maxLines, new AssembledRecordSink());
+
+    this.parserSequences = new Sequence[parserThreads];
+    this.threads = new Thread[parserThreads + 2];
+    for (int i = 0; i < parserThreads; ++i) {
+      parserSequences[i] = new Sequence();
+      threads[i] = new Thread(new ParserStage(i, parserThreads, parserSequences[i]), "ring-parser-" + i);
+    }
+    threads[parserThreads] = new Thread(new AssemblerStage(), "ring-assembler");
+    threads[parserThreads + 1] = new Thread(new SinkStage(), "ring-sink");
+  }
+
+  public RingBufferEngine(@Nonnull LogLineParser parser, @Nonnull LogMessageSink sink, int ringSize, int maxLines) {
+    this(parser, sink, ringSize, maxLines, 1);
+  }
+
+  public void start() {
+    for (final Thread thread : threads) {
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Publishes the line, waits if ring buffer is full. Line bytes are copied, so the buffer can be reused right away.
+   *
+   * @param buffer Buffer, containing UTF-8 encoded line
+   * @param offset Line offset
+   * @param length Line length, excluding line terminator
+   */
+  public void publish(@Nonnull byte[] buffer, int offset, int length) {
+    claim().setLine(buffer, offset, length);
+    commit();
+  }
+
+  /**
+   * Completes the pending record, if any.
+   */
+  public void publishFlush() {
+    claim().setFlush();
+    commit();
+  }
+
+  public long getPublishedCount() {
+    return cursor.get() + 1;
+  }
+
+  /**
+   * Completes the pending record, waits until all the published lines are processed and stops stage threads.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    if (halted) {
+      return;
+    }
+
+    publishFlush();
+    sinkSequence.waitFor(cursor.get(), this);
+    halted = true;
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  boolean isHalted() {
+    return halted;
+  }
+
+  //
+  // Private
+  //
+
+  private RecordSlot claim() {
+    if (halted) {
+      throw new IllegalStateException("Engine has been stopped");
+    }
+
+    final long wrapPoint = nextSequence - slots.length;
+    if (cachedGate < wrapPoint) {
+      cachedGate = sinkSequence.waitFor(wrapPoint, this);
+    }
+    return slots[(int) (nextSequence & mask)];
+  }
+
+  private void commit() {
+    cursor.set(nextSequence);
+    ++nextSequence;
+  }
+
+  /**
+   * Base class for the consumer stages: each one waits for the previous stage and processes the available slots
+   * in a single batch.
+   */
+  private abstract class Stage implements Runnable {
+    private final Sequence[] dependencies;
+    private final Sequence own;
+
+    Stage(Sequence[] dependencies, Sequence own) {
+      this.dependencies = dependencies;
+      this.own = own;
+    }
+
+    @Override
+    public final void run() {
+      long processed = Sequence.INITIAL;
+      while (!halted) {
+        long available = Long.MAX_VALUE;
+        for (final Sequence dependency : dependencies) {
+          available = Math.min(available, dependency.waitFor(processed + 1, RingBufferEngine.this));
+        }
+        if (available <= processed) {
+          continue; // halted
+        }
+
+        for (long sequence = processed + 1; sequence <= available; ++sequence) {
+          try {
+            onSlot(slots[(int) (sequence & mask)], sequence);
+          } catch (RuntimeException e) {
+            log.error("Unable to process record", e);
+          }
+        }
+        onEndOfBatch();
+
+        processed = available;
+        own.set(getReleasedSequence(processed));
+      }
+    }
+
+    abstract void onSlot(RecordSlot slot, long sequence);
+
+    void onEndOfBatch() {
+    }
+
+    long getReleasedSequence(long processed) {
+      return processed;
+    }
+  }
+
+  private final class ParserStage extends Stage {
+    private final int index;
+    private final int count;
+
+    ParserStage(int index, int count, Sequence own) {
+      super(new Sequence[] {cursor}, own);
+      this.index = index;
+      this.count = count;
+    }
+
+    @Override
+    void onSlot(RecordSlot slot, long sequence) {
+      if (sequence % count != index) {
+        return; // parsed by another thread
+      }
+      slot.parsed = (slot.flush || slot.length == 0) ? null : parser.parse(slot.buffer, 0, slot.length);
+    }
+  }
+
+  private final class AssemblerStage extends Stage {
+    AssemblerStage() {
+      super(parserSequences, assemblerSequence);
+    }
+
+    @Override
+    void onSlot(RecordSlot slot, long sequence) {
+      final LogMessage message = slot.parsed;
+      slot.parsed = null;
+
+      if (slot.flush) {
+        assembler.flush();
+        return;
+      }
+
+      if (message == null) {
+        return;
+      }
+
+      if (!message.isNull() && !message.isMultiLinePart()) {
+        // complete the previous record while its first slot is still known
+        assembler.flush();
+        pendingRecordSequence = sequence;
+      }
+      assembler.accept(message);
+    }
+
+    @Override
+    long getReleasedSequence(long processed) {
+      // slots of the pending record may still be referenced by it, so they are not released
+      return assembler.hasPending() ? pendingRecordSequence - 1 : processed;
+    }
+  }
+
+  private final class AssembledRecordSink implements LogMessageSink {
+    @Override
+    public void accept(@Nonnull LogMessage message) {
+      slots[(int) (pendingRecordSequence & mask)].record = message;
+    }
+  }
+
+  private final class SinkStage extends Stage {
+    SinkStage() {
+      super(new Sequence[] {assemblerSequence}, sinkSequence);
+    }
+
+    @Override
+    void onSlot(RecordSlot slot, long sequence) {
+      final LogMessage record = slot.record;
+      if (record != null) {
+        slot.record = null;
+        sink.accept(record);
+      }
+    }
+
+    @Override
+    void onEndOfBatch() {
+      if (sink instanceof Flushable) {
+        try {
+          ((Flushable) sink).flush();
+        } catch (IOException e) {
+          log.error("Unable to flush sink", e);
+        }
+      }
+    }
+  }
+}
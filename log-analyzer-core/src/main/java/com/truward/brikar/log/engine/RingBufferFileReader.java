@@ -0,0 +1,183 @@
+package com.truward.brikar.log.engine;
+
+import com.truward.brikar.log.governor.ResourceGovernor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Reads lines of the log file and publishes them to the {@link RingBufferEngine} right from the read buffer.
+ * When following the file, reader waits for the new data on reaching end of file, otherwise it stops there.
+ * Reads could be paced by {@link ResourceGovernor}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RingBufferFileReader implements Runnable {
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final Path path;
+  private final RingBufferEngine engine;
+  private final int bufferSize;
+  private final boolean follow;
+  private final long scanDelayMillis;
+  private final long flushDelayMillis;
+  private final ResourceGovernor governor;
+  private volatile boolean stopped;
+  private volatile long position;
+
+  public RingBufferFileReader(@Nonnull Path path,
+                              @Nonnull RingBufferEngine engine,
+                              int bufferSize,
+                              boolean follow,
+                              long scanDelayMillis,
+                              long flushDelayMillis,
+                              @Nullable ResourceGovernor governor) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size should be a positive number");
+    }
+    if (scanDelayMillis <= 0) {
+      throw new IllegalArgumentException("Scan delay should be a positive number");
+    }
+    if (flushDelayMillis <= 0) {
+      throw new IllegalArgumentException("Flush delay should be a positive number");
+    }
+
+    this.path = Objects.requireNonNull(path, "path");
+    this.engine = Objects.requireNonNull(engine, "engine");
+    this.bufferSize = bufferSize;
+    this.follow = follow;
+    this.scanDelayMillis = scanDelayMillis;
+    this.flushDelayMillis = flushDelayMillis;
+    this.governor = governor;
+  }
+
+  public RingBufferFileReader(@Nonnull Path path,
+                              @Nonnull RingBufferEngine engine,
+                              int bufferSize,
+                              boolean follow,
+                              long scanDelayMillis,
+                              long flushDelayMillis) {
+    this(path, engine, bufferSize, follow, scanDelayMillis, flushDelayMillis, null);
+  }
+
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * @return Offset of the data read so far
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  @Override
+  public void run() {
+    final byte[] buffer = new byte[bufferSize];
+    final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    int carry = 0;
+    long lastDataMillis = 0L;
+    boolean flushed = true;
+
+    try (final FileChannel channel = open()) {
+      while (!stopped) {
+        byteBuffer.clear().position(carry);
+        final int read = channel.read(byteBuffer);
+        if (read <= 0) {
+          if (!follow) {
+            if (carry > 0) {
+              publishLine(buffer, 0, carry);
+            }
+            engine.publishFlush();
+            return;
+          }
+
+          if (channel.size() < channel.position()) {
+            log.info("File {} has been truncated, reading from the beginning", path);
+            channel.position(0L);
+            position = 0L;
+            carry = 0;
+            continue;
+          }
+
+          if (!flushed && (System.currentTimeMillis() - lastDataMillis) >= flushDelayMillis) {
+            engine.publishFlush();
+            flushed = true;
+          }
+
+          Thread.sleep(scanDelayMillis);
+          continue;
+        }
+
+        position = channel.position();
+        lastDataMillis = System.currentTimeMillis();
+        flushed = false;
+        if (governor != null) {
+          governor.pace(read);
+        }
+        carry = publishLines(buffer, carry + read);
+      }
+    } catch (ClosedByInterruptException | InterruptedException ignored) {
+      // stop requested
+    } catch (IOException e) {
+      log.error("Unable to read {}", path, e);
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private FileChannel open() throws IOException, InterruptedException {
+    for (;;) {
+      try {
+        return FileChannel.open(path, StandardOpenOption.READ);
+      } catch (NoSuchFileException e) {
+        if (!follow || stopped) {
+          throw e;
+        }
+        Thread.sleep(scanDelayMillis); // file is not created yet
+      }
+    }
+  }
+
+  private int publishLines(byte[] buffer, int end) {
+    int start = 0;
+    for (int i = 0; i < end; ++i) {
+      if (buffer[i] == '\n') {
+        publishLine(buffer, start, i);
+        start = i + 1;
+      }
+    }
+
+    if (start == 0 && end == buffer.length) {
+      // line is longer than the buffer - publish what has been read so far
+      publishLine(buffer, 0, end);
+      start = end;
+    }
+
+    final int carry = end - start;
+    System.arraycopy(buffer, start, buffer, 0, carry);
+    return carry;
+  }
+
+  private void publishLine(byte[] buffer, int start, int end) {
+    if (end > start && buffer[end - 1] == '\r') {
+      --end;
+    }
+    if (end > start) {
+      engine.publish(buffer, start, end - start);
+    }
+  }
+}
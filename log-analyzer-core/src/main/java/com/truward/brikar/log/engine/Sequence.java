@@ -0,0 +1,77 @@
+package com.truward.brikar.log.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+// fields of the superclass are laid out before the fields of the subclass, so the value is surrounded by
+// the padding of the classes below and above it in the hierarchy, whatever order fields of one class get
+
+abstract class SequenceLeftPadding {
+  @SuppressWarnings("unused") long p1, p2, p3, p4, p5, p6, p7;
+}
+
+abstract class SequenceValue extends SequenceLeftPadding {
+  volatile long value = Sequence.INITIAL;
+}
+
+/**
+ * Sequence of the ring buffer stage. The value is a plain volatile field, padded on both sides by the fields
+ * of the super- and subclass, so that it does not share the cache line with sequences of other stages.
+ *
+ * @author Alexander Shabanov
+ */
+final class Sequence extends SequenceValue {
+  static final long INITIAL = -1L;
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 100;
+  private static final long PARK_NANOS = 50000L;
+
+  private static final VarHandle VALUE;
+
+  static {
+    try {
+      VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  @SuppressWarnings("unused") private long q1, q2, q3, q4, q5, q6, q7;
+
+  long get() {
+    return value;
+  }
+
+  void set(long newValue) {
+    VALUE.setRelease(this, newValue); // the only writer of the sequence does not need the full fence
+  }
+
+  /**
+   * Waits until this sequence reaches the given one.
+   *
+   * @param sequence Sequence to wait for
+   * @param engine Engine, used to abort waiting when it is stopped
+   * @return Current value, which is greater or equal to the given sequence or less than it if engine is halted
+   */
+  long waitFor(long sequence, RingBufferEngine engine) {
+    int tries = 0;
+    long available;
+    while ((available = get()) < sequence) {
+      if (engine.isHalted()) {
+        return available;
+      }
+
+      ++tries;
+      if (tries < SPIN_TRIES) {
+        Thread.onSpinWait();
+      } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+    }
+    return available;
+  }
+}
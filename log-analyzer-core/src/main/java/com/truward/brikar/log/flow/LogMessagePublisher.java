@@ -0,0 +1,241 @@
+package com.truward.brikar.log.flow;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.stream.LogRecordReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Publisher of the records of the log file or stream, for embedding the analyzer without Camel.
+ * Each subscriber gets its own stream from the source, so the file publisher could be subscribed to many times,
+ * while the stream one could be subscribed to only once, the subsequent subscribers get
+ * {@link IllegalStateException} in {@link Flow.Subscriber#onError(Throwable)}.
+ * <p>
+ * Records are read only as they are requested: source is read in blocks of the given size, but lines are parsed
+ * and assembled into records only until the requested number of records is signalled, so records are never
+ * buffered beyond the demand. Besides the record, that is pending until its next line is read, at most one
+ * complete record is kept until the next request, that is the one consisting of the single line, that has
+ * completed the previous record, when max lines is 1.
+ * <p>
+ * Subscriber is signalled from the given executor, one task per each batch of requested records, signals are
+ * never concurrent and follow the Reactive Streams rules. Source is closed once it is read to the end, once it
+ * fails or once subscription is cancelled.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LogMessagePublisher implements Flow.Publisher<LogMessage> {
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private static final Logger log = LoggerFactory.getLogger(LogMessagePublisher.class);
+
+  private static final Executor DEFAULT_EXECUTOR = task -> Thread.ofVirtual().name("log-publisher").start(task);
+
+  private final Callable<? extends InputStream> source;
+  private final Supplier<? extends LogLineParser> parserFactory;
+  private final int maxLines;
+  private final int bufferSize;
+  private final Executor executor;
+
+  /**
+   * @param source Opens the stream for each subscriber, may throw to reject the subscriber
+   * @param parserFactory Creates the parser for each subscriber, so that parsers are not required to be
+   *                      thread safe
+   * @param maxLines Maximum number of lines in record
+   * @param bufferSize Size of the blocks, source is read by
+   * @param executor Executor, that runs reading and signalling subscribers
+   */
+  public LogMessagePublisher(@Nonnull Callable<? extends InputStream> source,
+                             @Nonnull Supplier<? extends LogLineParser> parserFactory,
+                             int maxLines,
+                             int bufferSize,
+                             @Nonnull Executor executor) {
+    if (maxLines <= 0) {
+      throw new IllegalArgumentException("Max lines should be a positive number");
+    }
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size should be a positive number");
+    }
+    this.source = Objects.requireNonNull(source, "source");
+    this.parserFactory = Objects.requireNonNull(parserFactory, "parserFactory");
+    this.maxLines = maxLines;
+    this.bufferSize = bufferSize;
+    this.executor = Objects.requireNonNull(executor, "executor");
+  }
+
+  /**
+   * @return Publisher, that reads the file from the beginning for each subscriber, on virtual threads
+   */
+  @Nonnull
+  public static LogMessagePublisher ofFile(@Nonnull final Path path,
+                                           @Nonnull Supplier<? extends LogLineParser> parserFactory,
+                                           int maxLines) {
+    Objects.requireNonNull(path, "path");
+    return new LogMessagePublisher(() -> Files.newInputStream(path), parserFactory, maxLines, DEFAULT_BUFFER_SIZE,
+        DEFAULT_EXECUTOR);
+  }
+
+  /**
+   * @return Publisher, that reads the given stream for the first subscriber only, on a virtual thread
+   */
+  @Nonnull
+  public static LogMessagePublisher ofStream(@Nonnull final InputStream stream,
+                                             @Nonnull Supplier<? extends LogLineParser> parserFactory,
+                                             int maxLines) {
+    Objects.requireNonNull(stream, "stream");
+    final AtomicBoolean subscribed = new AtomicBoolean();
+    return new LogMessagePublisher(() -> {
+      if (subscribed.getAndSet(true)) {
+        throw new IllegalStateException("Stream publisher allows only one subscriber");
+      }
+      return stream;
+    }, parserFactory, maxLines, DEFAULT_BUFFER_SIZE, DEFAULT_EXECUTOR);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super LogMessage> subscriber) {
+    Objects.requireNonNull(subscriber, "subscriber");
+    final RecordSubscription subscription = new RecordSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+    subscription.schedule(); // opens the source, so that rejection is signalled without waiting for demand
+  }
+
+  //
+  // Private
+  //
+
+  /**
+   * Subscription, that reads and signals records in the executor task. Task is scheduled whenever there is
+   * something to do and no task is running, the running one repeats while it has missed any request or cancel.
+   */
+  private final class RecordSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super LogMessage> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pendingRuns = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile IllegalArgumentException invalidRequest;
+
+    // state of the executor task
+    private LogRecordReader reader;
+    private boolean done;
+
+    RecordSubscription(Flow.Subscriber<? super LogMessage> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("Non-positive number of records requested: " + n);
+      } else {
+        // demand is capped by Long.MAX_VALUE, which means unbounded
+        demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      schedule(); // source is closed by the task, as it might be being read right now
+    }
+
+    void schedule() {
+      if (pendingRuns.getAndIncrement() == 0) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        if (!done) {
+          signalRecords();
+        }
+        missed = pendingRuns.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void signalRecords() {
+      try {
+        if (reader == null) {
+          if (cancelled) {
+            done = true;
+            return;
+          }
+          reader = new LogRecordReader(source.call(), parserFactory.get(), maxLines, bufferSize);
+        }
+
+        long requested = demand.get();
+        long signalled = 0;
+        while (!cancelled && invalidRequest == null) {
+          if (signalled == requested) {
+            // demand might have been added meanwhile, avoid rescheduling for it
+            requested = demand.addAndGet(-signalled);
+            signalled = 0;
+            if (requested == 0) {
+              break;
+            }
+          }
+
+          final LogMessage record = reader.next();
+          if (record == null) {
+            finish();
+            subscriber.onComplete();
+            return;
+          }
+          try {
+            subscriber.onNext(record);
+          } catch (RuntimeException e) {
+            // subscriber is not supposed to throw, consider subscription cancelled and do not signal it anymore
+            log.error("Subscriber has failed to process the record, cancelling subscription", e);
+            finish();
+            return;
+          }
+          ++signalled;
+        }
+        demand.addAndGet(-signalled);
+
+        if (invalidRequest != null) {
+          finish();
+          subscriber.onError(invalidRequest);
+        } else if (cancelled) {
+          finish();
+        } else if (reader.isComplete()) {
+          finish();
+          subscriber.onComplete();
+        }
+      } catch (Exception e) {
+        finish();
+        subscriber.onError(e);
+      }
+    }
+
+    private void finish() {
+      done = true;
+      cancelled = true;
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          log.warn("Unable to close the source", e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package com.truward.brikar.log.governor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits CPU time and read bandwidth of the analyzer, so that it could run next to the latency sensitive services
+ * without taking all the cores while catching up. Readers call {@link #pace(int)} after each read and wait there
+ * while the analyzer is over the budget. Parsers are paced along with them, as they only get the chunks the readers
+ * have handed over and the number of chunks in flight is bounded.
+ * <p>
+ * Both limits are token buckets. CPU time of all the JVM threads is sampled with {@link ThreadMXBean} every
+ * {@link #SAMPLE_INTERVAL_MILLIS} milliseconds and debited from the CPU bucket, that is credited with the given
+ * share of a core per each nanosecond of wall time. Read bucket is debited with the bytes read and credited at the
+ * given rate. Buckets keep no more than {@link #BURST_MILLIS} milliseconds worth of the budget, so idle time is not
+ * saved up for the later bursts: catch-up runs at the budget and no faster, while the live traffic, that is below it,
+ * is never throttled.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class ResourceGovernor {
+  public static final long SAMPLE_INTERVAL_MILLIS = 10L;
+  public static final long BURST_MILLIS = 100L;
+
+  private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MILLIS);
+  private static final long BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(BURST_MILLIS);
+  private static final long USAGE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1L);
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+  private static final Logger log = LoggerFactory.getLogger(ResourceGovernor.class);
+
+  private final double cpuShare;
+  private final long readBytesPerSecond;
+  private final LongSupplier cpuTime;
+
+  // buckets, guarded by this
+  private double cpuBalance;
+  private double readBalance;
+  private long lastRefill;
+  private long lastSample;
+  private long lastCpuTime;
+  private long usageStart;
+  private long usageStartCpuTime;
+
+  private volatile double cpuUsage;
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder throttledNanos = new LongAdder();
+  private final AtomicInteger throttledCount = new AtomicInteger();
+
+  /**
+   * @param cpuShare Number of cores, e.g. 0.5 for the half of a core, or 0 for no CPU limit
+   * @param readBytesPerSecond Read bandwidth or 0 for no read limit
+   */
+  public ResourceGovernor(double cpuShare, long readBytesPerSecond) {
+    this(cpuShare, readBytesPerSecond, cpuShare > 0 ? createCpuTimeSupplier() : () -> 0L);
+  }
+
+  /**
+   * @param cpuTime Supplier of the CPU time in nanoseconds, used by the analyzer so far
+   */
+  ResourceGovernor(double cpuShare, long readBytesPerSecond, @Nonnull LongSupplier cpuTime) {
+    if (cpuShare < 0 || Double.isNaN(cpuShare) || Double.isInfinite(cpuShare)) {
+      throw new IllegalArgumentException("CPU share should be a non-negative number");
+    }
+    if (readBytesPerSecond < 0) {
+      throw new IllegalArgumentException("Read bandwidth should not be negative");
+    }
+
+    this.cpuShare = cpuShare;
+    this.readBytesPerSecond = readBytesPerSecond;
+    this.cpuTime = Objects.requireNonNull(cpuTime, "cpuTime");
+
+    final long now = System.nanoTime();
+    this.lastRefill = now;
+    this.lastSample = now;
+    this.usageStart = now;
+    this.lastCpuTime = cpuTime.getAsLong();
+    this.usageStartCpuTime = lastCpuTime;
+  }
+
+  /**
+   * Accounts for the bytes, that have been read, and waits while CPU time or read bandwidth is over the budget.
+   *
+   * @param bytes Number of bytes read
+   * @throws InterruptedException If interrupted while waiting
+   */
+  public void pace(int bytes) throws InterruptedException {
+    bytesRead.add(bytes);
+    if (cpuShare == 0 && readBytesPerSecond == 0) {
+      return;
+    }
+
+    long waitNanos = reserve(bytes);
+    if (waitNanos <= 0) {
+      return;
+    }
+
+    throttledCount.incrementAndGet();
+    final long start = System.nanoTime();
+    try {
+      do {
+        // budget is checked again after a while, as the other readers are debiting the same buckets
+        TimeUnit.NANOSECONDS.sleep(Math.min(waitNanos, BURST_NANOS));
+        waitNanos = reserve(0);
+      } while (waitNanos > 0);
+    } finally {
+      throttledNanos.add(System.nanoTime() - start);
+      throttledCount.decrementAndGet();
+    }
+  }
+
+  public double getCpuShare() {
+    return cpuShare;
+  }
+
+  public long getReadBytesPerSecond() {
+    return readBytesPerSecond;
+  }
+
+  /**
+   * @return Number of cores used during the last second or so, sampled only if CPU share is limited
+   */
+  public double getCpuUsage() {
+    return cpuUsage;
+  }
+
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  /**
+   * @return Total time, readers have been waiting for the budget
+   */
+  public long getThrottledMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(throttledNanos.sum());
+  }
+
+  /**
+   * @return Number of readers, that are waiting for the budget right now
+   */
+  public int getThrottledCount() {
+    return throttledCount.get();
+  }
+
+  @Override
+  public String toString() {
+    return "ResourceGovernor{" +
+        "cpuShare=" + cpuShare +
+        ", cpuUsage=" + String.format("%.2f", cpuUsage) +
+        ", readBytesPerSecond=" + readBytesPerSecond +
+        ", bytesRead=" + getBytesRead() +
+        ", throttledMillis=" + getThrottledMillis() +
+        ", throttledCount=" + getThrottledCount() +
+        '}';
+  }
+
+  //
+  // Private
+  //
+
+  @Nonnull
+  private static LongSupplier createCpuTimeSupplier() {
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!threads.isThreadCpuTimeSupported()) {
+      throw new IllegalStateException("Thread CPU time is not supported by this JVM");
+    }
+    if (!threads.isThreadCpuTimeEnabled()) {
+      threads.setThreadCpuTimeEnabled(true);
+      log.info("Thread CPU time measurement has been enabled");
+    }
+
+    return () -> {
+      long result = 0;
+      for (final long id : threads.getAllThreadIds()) {
+        final long threadCpuTime = threads.getThreadCpuTime(id);
+        if (threadCpuTime > 0) {
+          result += threadCpuTime; // thread might have terminated meanwhile
+        }
+      }
+      return result;
+    };
+  }
+
+  /**
+   * Refills the buckets and debits the given number of bytes.
+   *
+   * @return Time to wait before the buckets have no debt
+   */
+  private synchronized long reserve(int bytes) {
+    final long now = System.nanoTime();
+
+    long waitNanos = 0;
+    if (readBytesPerSecond > 0) {
+      final double rate = readBytesPerSecond / NANOS_PER_SECOND;
+      readBalance = Math.min(readBalance + rate * (now - lastRefill), rate * BURST_NANOS) - bytes;
+      if (readBalance < 0) {
+        waitNanos = (long) (-readBalance / rate);
+      }
+    }
+    lastRefill = now;
+
+    if (cpuShare > 0) {
+      if (now - lastSample >= SAMPLE_INTERVAL_NANOS) {
+        sampleCpuTime(now);
+      }
+      if (cpuBalance < 0) {
+        waitNanos = Math.max(waitNanos, (long) (-cpuBalance / cpuShare));
+      }
+    }
+    return waitNanos;
+  }
+
+  private void sampleCpuTime(long now) {
+    // CPU time of the terminated threads is not counted anymore, so the sum might decrease
+    final long currentCpuTime = cpuTime.getAsLong();
+    final long used = Math.max(0L, currentCpuTime - lastCpuTime);
+    cpuBalance = Math.min(cpuBalance + cpuShare * (now - lastSample), cpuShare * BURST_NANOS) - used;
+    lastCpuTime = currentCpuTime;
+    lastSample = now;
+
+    if (now - usageStart >= USAGE_WINDOW_NANOS) {
+      cpuUsage = Math.max(0L, currentCpuTime - usageStartCpuTime) / (double) (now - usageStart);
+      usageStart = now;
+      usageStartCpuTime = currentCpuTime;
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package com.truward.brikar.log.lane;
+
+import com.truward.brikar.log.metric.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded queue of items with its own sender threads, that pass the items to the sink in batches. Sender waits for
+ * the batch to fill no longer than the linger time after its first item has been taken, so that small batches and
+ * short linger give low latency, while large batches and long linger let the sink amortize the cost per item.
+ * <p>
+ * Senders are not shared between the lanes, so the items of one lane never wait for the sink capacity taken by
+ * another one. Producers are blocked while the queue is full. Time from {@link #put(Object)} till the item has been
+ * accepted by the sink is kept in {@link #getLatency()}, in microseconds. Items, rejected by the sink, are counted
+ * as failed and are not retried, the rest of the batch is still counted as sent.
+ *
+ * @param <T> Item type
+ * @author Alexander Shabanov
+ */
+public final class Lane<T> implements AutoCloseable {
+  private static final long POLL_MILLIS = 100L;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final String name;
+  private final BlockingQueue<Entry<T>> queue;
+  private final int batchSize;
+  private final long lingerNanos;
+  private final Sink<T> sink;
+  private final Thread[] senders;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final AtomicLong sentCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private volatile boolean closed;
+
+  /**
+   * @param name Lane name, used for the sender thread names and in the logs
+   * @param capacity Maximum number of queued items
+   * @param batchSize Maximum number of items passed to the sink at once
+   * @param lingerMillis Maximum time to wait for the batch to fill, zero means the batch is sent with the items,
+   *                     that are queued when it is taken
+   * @param senderCount Number of sender threads
+   * @param sink Receiver of the batches, it is called by several threads if there are several senders
+   */
+  public Lane(@Nonnull String name, int capacity, int batchSize, long lingerMillis, int senderCount,
+              @Nonnull Sink<T> sink) {
+    if (capacity <= 0 || batchSize <= 0 || senderCount <= 0) {
+      throw new IllegalArgumentException("Capacity, batch size and sender count should be positive numbers");
+    }
+    if (lingerMillis < 0) {
+      throw new IllegalArgumentException("Linger time should not be negative");
+    }
+
+    this.name = Objects.requireNonNull(name, "name");
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.batchSize = batchSize;
+    this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    this.sink = Objects.requireNonNull(sink, "sink");
+
+    this.senders = new Thread[senderCount];
+    for (int i = 0; i < senderCount; ++i) {
+      senders[i] = new Thread(this::send, "lane-" + name + "-" + i);
+      senders[i].setDaemon(true);
+      senders[i].start();
+    }
+  }
+
+  /**
+   * Queues the item, waiting for the room if queue is full.
+   */
+  public void put(@Nonnull T item) throws InterruptedException {
+    Objects.requireNonNull(item, "item");
+    if (closed) {
+      throw new IllegalStateException("Lane " + name + " has been closed");
+    }
+    queue.put(new Entry<>(item, System.nanoTime()));
+  }
+
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return Number of queued items
+   */
+  public int getDepth() {
+    return queue.size();
+  }
+
+  public long getSentCount() {
+    return sentCount.get();
+  }
+
+  /**
+   * @return Number of items, that have been rejected by the sink
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  @Nonnull
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Stops accepting the items, waits for the queued ones to be sent.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    closed = true;
+    for (final Thread sender : senders) {
+      sender.join();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Lane{" +
+        "name=" + name +
+        ", depth=" + getDepth() +
+        ", sent=" + getSentCount() +
+        ", failed=" + getFailedCount() +
+        ", latency(us)=" + latency +
+        '}';
+  }
+
+  /**
+   * Receiver of the batches.
+   *
+   * @param <T> Item type
+   */
+  public interface Sink<T> {
+
+    /**
+     * Sends the items of the batch, failure of one item should not prevent the rest of them from being sent.
+     *
+     * @param batch Items to send, the list is reused once this method returns
+     * @return Number of items, that have not been sent, the whole batch is counted as failed if exception is thrown
+     */
+    int send(@Nonnull List<T> batch);
+  }
+
+  //
+  // Private
+  //
+
+  private static final class Entry<T> {
+    final T item;
+    final long queuedNanos;
+
+    Entry(T item, long queuedNanos) {
+      this.item = item;
+      this.queuedNanos = queuedNanos;
+    }
+  }
+
+  private void send() {
+    final List<Entry<T>> batch = new ArrayList<>(batchSize);
+    final List<T> items = new ArrayList<>(batchSize);
+    try {
+      for (;;) {
+        final Entry<T> first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          if (closed) {
+            return; // nothing left to send
+          }
+          continue;
+        }
+
+        batch.add(first);
+        fill(batch);
+        for (final Entry<T> entry : batch) {
+          items.add(entry.item);
+        }
+
+        try {
+          final int failed = sink.send(items);
+          sentCount.addAndGet(items.size() - failed);
+          if (failed > 0) {
+            failedCount.addAndGet(failed);
+            log.error("Unable to send {} of {} item(s) of lane {}", failed, items.size(), name);
+          }
+        } catch (RuntimeException e) {
+          failedCount.addAndGet(items.size());
+          log.error("Unable to send batch of {} item(s) of lane {}", items.size(), name, e);
+        }
+
+        final long now = System.nanoTime();
+        for (final Entry<T> entry : batch) {
+          latency.record(TimeUnit.NANOSECONDS.toMicros(now - entry.queuedNanos));
+        }
+        batch.clear();
+        items.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void fill(List<Entry<T>> batch) throws InterruptedException {
+    queue.drainTo(batch, batchSize - batch.size());
+    if (lingerNanos == 0 || closed) {
+      return;
+    }
+
+    final long deadline = batch.get(0).queuedNanos + lingerNanos;
+    while (batch.size() < batchSize) {
+      final long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return;
+      }
+      final Entry<T> entry = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (entry == null) {
+        return;
+      }
+      batch.add(entry);
+      queue.drainTo(batch, batchSize - batch.size());
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package com.truward.brikar.log.merge;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.stream.LogRecordReader;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the records of several sources into the single stream ordered by the record time. Each source is expected
+ * to be ordered by time, except for the records, that are out of order by no more than the tolerance, e.g. when
+ * threads of the service write records a few milliseconds apart.
+ * <p>
+ * Records are read ahead into the buffer ordered by time, source and position in the source. Buffered record
+ * is passed to the sink once no source could produce an earlier one: that is once its time does not exceed the
+ * watermark, the minimum of the latest record times of the sources minus the tolerance. Next record is always read
+ * from the source, that holds back the watermark, so only the records within the tolerance of the slowest source
+ * are buffered, no matter how far apart the sources are in time. Records are assembled by the readers, so multiline
+ * records are kept intact.
+ * <p>
+ * Buffer is bounded: once it is full, the earliest record is passed to the sink anyway. Records, that are earlier
+ * than the record passed to the sink before them, either because of that or because they are out of order by more
+ * than the tolerance, are passed to the sink as soon as possible and counted as late.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecordMerger {
+  public static final long DEFAULT_TOLERANCE_MILLIS = 1000L;
+  public static final int DEFAULT_MAX_BUFFERED = 100000;
+
+  private final List<Source> sources;
+  private final long toleranceMillis;
+  private final int maxBuffered;
+  private final PriorityQueue<Buffered> buffer = new PriorityQueue<>();
+
+  private long lastTime = Long.MIN_VALUE;
+  private long lateCount;
+
+  /**
+   * @param readers Sources to merge, the order defines the order of the records with the same time
+   * @param toleranceMillis Maximum time, by which records of the same source could be out of order
+   * @param maxBuffered Maximum number of records read ahead
+   */
+  public RecordMerger(@Nonnull List<LogRecordReader> readers, long toleranceMillis, int maxBuffered) {
+    if (toleranceMillis < 0) {
+      throw new IllegalArgumentException("Tolerance should not be negative");
+    }
+    if (maxBuffered <= 0) {
+      throw new IllegalArgumentException("Max buffered records should be a positive number");
+    }
+
+    this.sources = new ArrayList<>(readers.size());
+    for (final LogRecordReader reader : readers) {
+      sources.add(new Source(sources.size(), Objects.requireNonNull(reader, "reader")));
+    }
+    this.toleranceMillis = toleranceMillis;
+    this.maxBuffered = maxBuffered;
+  }
+
+  /**
+   * Reads all the sources to the end, readers are not closed.
+   *
+   * @param sink Sink for the merged records
+   * @return Number of records passed to the sink
+   * @throws IOException On I/O error
+   */
+  public long merge(@Nonnull LogMessageSink sink) throws IOException {
+    Objects.requireNonNull(sink, "sink");
+
+    long count = 0;
+    for (;;) {
+      final Source slowest = getSlowestSource();
+      final long watermark = slowest == null ? Long.MAX_VALUE : slowest.getWatermark();
+      while (!buffer.isEmpty() && (buffer.peek().time <= watermark || buffer.size() >= maxBuffered)) {
+        emit(buffer.poll(), sink);
+        ++count;
+      }
+
+      if (slowest == null) {
+        return count;
+      }
+      slowest.read();
+    }
+  }
+
+  /**
+   * @return Number of records, that have been passed to the sink after a later one
+   */
+  public long getLateCount() {
+    return lateCount;
+  }
+
+  //
+  // Private
+  //
+
+  private Source getSlowestSource() {
+    Source result = null;
+    for (final Source source : sources) {
+      if (!source.exhausted && (result == null || source.latestTime < result.latestTime)) {
+        result = source;
+      }
+    }
+    return result;
+  }
+
+  private void emit(Buffered buffered, LogMessageSink sink) {
+    if (buffered.time < lastTime) {
+      ++lateCount;
+    } else {
+      lastTime = buffered.time;
+    }
+    sink.accept(buffered.record);
+  }
+
+  private final class Source {
+    final int index;
+    final LogRecordReader reader;
+    long latestTime = Long.MIN_VALUE;
+    long position;
+    boolean exhausted;
+
+    Source(int index, LogRecordReader reader) {
+      this.index = index;
+      this.reader = reader;
+    }
+
+    long getWatermark() {
+      return latestTime == Long.MIN_VALUE ? Long.MIN_VALUE : latestTime - toleranceMillis;
+    }
+
+    void read() throws IOException {
+      final LogMessage record = reader.next();
+      if (record == null) {
+        exhausted = true;
+        return;
+      }
+
+      final long time = record.getUnixTime();
+      latestTime = Math.max(latestTime, time);
+      buffer.add(new Buffered(record, time, index, position++));
+    }
+  }
+
+  private static final class Buffered implements Comparable<Buffered> {
+    final LogMessage record;
+    final long time;
+    final int source;
+    final long position;
+
+    Buffered(LogMessage record, long time, int source, long position) {
+      this.record = record;
+      this.time = time;
+      this.source = source;
+      this.position = position;
+    }
+
+    @Override
+    public int compareTo(Buffered other) {
+      if (time != other.time) {
+        return Long.compare(time, other.time);
+      }
+      if (source != other.source) {
+        return Integer.compare(source, other.source);
+      }
+      return Long.compare(position, other.position);
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package com.truward.brikar.log.metric;
+
+import com.truward.brikar.log.model.Severity;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Freshness lags of a single window, see {@link FreshnessTracker}. Severities, that have no records in the window,
+ * are omitted.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FreshnessReport {
+  private final long start;
+  private final long end;
+  private final Map<String, LatencyHistogram> lagBySource;
+  private final Map<Severity, LatencyHistogram> lagBySeverity;
+  private final Map<String, Long> readerLag;
+
+  public FreshnessReport(long start, long end, @Nonnull Map<String, LatencyHistogram> lagBySource,
+                         @Nonnull Map<Severity, LatencyHistogram> lagBySeverity, @Nonnull Map<String, Long> readerLag) {
+    this.start = start;
+    this.end = end;
+    this.lagBySource = Collections.unmodifiableMap(new TreeMap<>(lagBySource));
+    final Map<Severity, LatencyHistogram> severities = new EnumMap<>(Severity.class);
+    for (final Map.Entry<Severity, LatencyHistogram> entry : lagBySeverity.entrySet()) {
+      if (entry.getValue().getCount() > 0) {
+        severities.put(entry.getKey(), entry.getValue());
+      }
+    }
+    this.lagBySeverity = Collections.unmodifiableMap(severities);
+    this.readerLag = Collections.unmodifiableMap(new TreeMap<>(readerLag));
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * @return Freshness lags in milliseconds by source
+   */
+  @Nonnull
+  public Map<String, LatencyHistogram> getLagBySource() {
+    return lagBySource;
+  }
+
+  /**
+   * @return Freshness lags in milliseconds by severity
+   */
+  @Nonnull
+  public Map<Severity, LatencyHistogram> getLagBySeverity() {
+    return lagBySeverity;
+  }
+
+  /**
+   * @return Bytes the readers are behind the end of the sources by source
+   */
+  @Nonnull
+  public Map<String, Long> getReaderLag() {
+    return readerLag;
+  }
+
+  @Override
+  public String toString() {
+    return "FreshnessReport{" +
+        "lagBySource=" + lagBySource +
+        ", lagBySeverity=" + lagBySeverity +
+        ", readerLag=" + readerLag +
+        '}';
+  }
+}
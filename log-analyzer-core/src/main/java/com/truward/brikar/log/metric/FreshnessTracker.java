@@ -0,0 +1,120 @@
+package com.truward.brikar.log.metric;
+
+import com.truward.brikar.log.model.Severity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracks how stale the delivered records are: freshness lag is the time from the record has been written
+ * till the endpoint has accepted it, in milliseconds. Lags are kept in histograms per source and per severity,
+ * which cover the current window, see {@link #rotate(long)}. Besides that, tracker keeps the last known reader
+ * lag per source, i.e. number of bytes the reader is behind the end of the file.
+ * <p>
+ * This class is thread safe, recording is lock-free.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FreshnessTracker {
+  private final ConcurrentMap<String, Long> readerLag = new ConcurrentHashMap<>();
+  private volatile Window window;
+
+  public FreshnessTracker(long now) {
+    this.window = new Window(now);
+  }
+
+  /**
+   * Records freshness lag of the delivered record.
+   *
+   * @param source Source of the record, e.g. file name
+   * @param severity Severity of the record or null if unknown
+   * @param recordTime Time the record has been written
+   * @param now Time the record has been delivered
+   */
+  public void record(@Nonnull String source, @Nullable Severity severity, long recordTime, long now) {
+    final long lag = now - recordTime;
+    final Window current = window;
+    current.bySource.computeIfAbsent(source, key -> new LatencyHistogram()).record(lag);
+    if (severity != null) {
+      current.bySeverity.get(severity).record(lag);
+    }
+  }
+
+  /**
+   * Updates reader lag of the given source.
+   *
+   * @param source Source, e.g. file name
+   * @param bytes Number of bytes the reader is behind the end of the source
+   */
+  public void setReaderLag(@Nonnull String source, long bytes) {
+    readerLag.put(Objects.requireNonNull(source, "source"), Math.max(0L, bytes));
+  }
+
+  /**
+   * Forgets reader lag of the source, which is not read anymore.
+   */
+  public void removeReaderLag(@Nonnull String source) {
+    readerLag.remove(source);
+  }
+
+  /**
+   * @return Current reader lags by source
+   */
+  @Nonnull
+  public Map<String, Long> getReaderLag() {
+    return Collections.unmodifiableMap(new TreeMap<>(readerLag));
+  }
+
+  /**
+   * @return Lags of the current window by source
+   */
+  @Nonnull
+  public Map<String, LatencyHistogram> getLagBySource() {
+    return Collections.unmodifiableMap(new TreeMap<>(window.bySource));
+  }
+
+  /**
+   * @return Lags of the current window by severity
+   */
+  @Nonnull
+  public Map<Severity, LatencyHistogram> getLagBySeverity() {
+    return Collections.unmodifiableMap(window.bySeverity);
+  }
+
+  /**
+   * Closes the current window and starts the next one.
+   *
+   * @param now End of the current window
+   * @return Lags of the closed window and current reader lags
+   */
+  @Nonnull
+  public FreshnessReport rotate(long now) {
+    final Window closed = window;
+    window = new Window(now);
+    return new FreshnessReport(closed.start, now, closed.bySource, closed.bySeverity, readerLag);
+  }
+
+  //
+  // Private
+  //
+
+  private static final class Window {
+    final long start;
+    final ConcurrentMap<String, LatencyHistogram> bySource = new ConcurrentHashMap<>();
+    final Map<Severity, LatencyHistogram> bySeverity = new EnumMap<>(Severity.class);
+
+    Window(long start) {
+      this.start = start;
+      for (final Severity severity : Severity.values()) {
+        bySeverity.put(severity, new LatencyHistogram()); // never modified after that, so safe to read concurrently
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.truward.brikar.log.metric;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values, such as latencies, with fixed memory footprint. Values are put to
+ * log-linear buckets: each power of two range is split into {@link #SUB_BUCKETS} buckets, so relative error
+ * of the reported percentiles does not exceed 1/{@value #SUB_BUCKETS}.
+ * <p>
+ * This class is thread safe, recording is lock-free.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LatencyHistogram {
+  public static final int SUB_BUCKETS = 16;
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+    if (value < 0) {
+      value = 0; // clock skew
+    }
+
+    counts.incrementAndGet(bucketIndex(value));
+    totalCount.incrementAndGet();
+    sum.addAndGet(value);
+
+    long current;
+    while ((current = max.get()) < value) {
+      if (max.compareAndSet(current, value)) {
+        break;
+      }
+    }
+  }
+
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    final long count = totalCount.get();
+    return count == 0 ? 0.0 : ((double) sum.get()) / count;
+  }
+
+  /**
+   * Returns value at the given percentile, approximated by the upper bound of the bucket.
+   *
+   * @param percentile Percentile, in range from 0 to 100
+   * @return Value or 0 if histogram is empty
+   */
+  public long getPercentile(double percentile) {
+    if (percentile < 0.0 || percentile > 100.0) {
+      throw new IllegalArgumentException("Percentile should be in range [0, 100]");
+    }
+
+    final long count = totalCount.get();
+    if (count == 0) {
+      return 0L;
+    }
+
+    final long rank = Math.max(1L, (long) Math.ceil(count * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(bucketUpperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * Adds all the values recorded in the given histogram to this one.
+   *
+   * @param other Other histogram
+   */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      final long value = other.counts.get(i);
+      if (value > 0) {
+        counts.addAndGet(i, value);
+      }
+    }
+    totalCount.addAndGet(other.totalCount.get());
+    sum.addAndGet(other.sum.get());
+
+    final long otherMax = other.max.get();
+    long current;
+    while ((current = max.get()) < otherMax) {
+      if (max.compareAndSet(current, otherMax)) {
+        break;
+      }
+    }
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      counts.set(i, 0L);
+    }
+    totalCount.set(0L);
+    sum.set(0L);
+    max.set(0L);
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram{" +
+        "count=" + getCount() +
+        ", p50=" + getPercentile(50.0) +
+        ", p99=" + getPercentile(99.0) +
+        ", p999=" + getPercentile(99.9) +
+        ", max=" + getMax() +
+        '}';
+  }
+
+  //
+  // Private
+  //
+
+  private static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int magnitude = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+    final int shift = magnitude - SUB_BUCKET_BITS;
+    final int subBucket = (int) (value >>> shift) - SUB_BUCKETS; // in [0, SUB_BUCKETS)
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long bucketUpperBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKETS - 1;
+    final long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
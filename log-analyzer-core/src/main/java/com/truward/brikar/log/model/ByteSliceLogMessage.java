@@ -0,0 +1,255 @@
+package com.truward.brikar.log.model;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Represents log message, backed by slices of the read buffer. Header fields are expected to be parsed
+ * by the creator right from the bytes, lines are decoded to strings only when requested.
+ * <p>
+ * Buffers are not copied, so the creator should not reuse the buffer once slice of it is given to the message.
+ *
+ * @author Alexander Shabanov
+ */
+public final class ByteSliceLogMessage extends LogMessage {
+  private static final int INITIAL_LINE_CAPACITY = 4;
+
+  private final boolean multiLinePart;
+  private final long unixTime;
+  private final Severity severity;
+  private final int loggerStart;
+  private final int loggerLength;
+  private final int messageStart;
+  private final Map<String, Object> attributes;
+
+  // line slices
+  private byte[][] lineBuffers = new byte[INITIAL_LINE_CAPACITY][];
+  private int[] lineOffsets = new int[INITIAL_LINE_CAPACITY];
+  private int[] lineLengths = new int[INITIAL_LINE_CAPACITY];
+  private int lineCount;
+
+  // lazily decoded lines
+  private List<String> lines;
+
+  private ByteSliceLogMessage(boolean multiLinePart, long unixTime, @Nullable Severity severity,
+                              @Nonnull byte[] buffer, int offset, int length, int loggerStart, int loggerLength,
+                              int messageStart) {
+    if (loggerStart < 0 || loggerLength < 0 || loggerStart + loggerLength > length) {
+      throw new IndexOutOfBoundsException("loggerStart=" + loggerStart + ", loggerLength=" + loggerLength);
+    }
+    if (messageStart < 0 || messageStart > length) {
+      throw new IndexOutOfBoundsException("messageStart=" + messageStart);
+    }
+    this.multiLinePart = multiLinePart;
+    this.unixTime = unixTime;
+    this.severity = severity;
+    this.loggerStart = loggerStart;
+    this.loggerLength = loggerLength;
+    this.messageStart = messageStart;
+    this.attributes = multiLinePart ? Collections.<String, Object>emptyMap() : new HashMap<String, Object>();
+    appendSlice(buffer, offset, length);
+  }
+
+  /**
+   * Creates the record, logger name and message are slices of the same line.
+   *
+   * @param unixTime Record time
+   * @param severity Record severity
+   * @param buffer Buffer, containing the line
+   * @param offset Line offset
+   * @param length Line length
+   * @param loggerOffset Offset of the logger name in the buffer
+   * @param loggerLength Length of the logger name
+   * @param messageOffset Offset of the message in the buffer, message spans till the end of the line
+   * @return New record
+   */
+  @Nonnull
+  public static ByteSliceLogMessage record(long unixTime, @Nonnull Severity severity,
+                                           @Nonnull byte[] buffer, int offset, int length,
+                                           int loggerOffset, int loggerLength, int messageOffset) {
+    return new ByteSliceLogMessage(false, unixTime, Objects.requireNonNull(severity, "severity"),
+        buffer, offset, length, loggerOffset - offset, loggerLength, messageOffset - offset);
+  }
+
+  @Nonnull
+  public static ByteSliceLogMessage record(long unixTime, @Nonnull Severity severity,
+                                           @Nonnull byte[] buffer, int offset, int length) {
+    return record(unixTime, severity, buffer, offset, length, offset, 0, offset);
+  }
+
+  @Nonnull
+  public static ByteSliceLogMessage multiLinePart(@Nonnull byte[] buffer, int offset, int length) {
+    return new ByteSliceLogMessage(true, 0L, null, buffer, offset, length, 0, 0, 0);
+  }
+
+  @Override
+  public boolean isMultiLinePart() {
+    return multiLinePart;
+  }
+
+  @Override
+  public long getUnixTime() {
+    checkRecord();
+    return unixTime;
+  }
+
+  @Nonnull
+  @Override
+  public Severity getSeverity() {
+    checkRecord();
+    return severity;
+  }
+
+  @Nonnull
+  @Override
+  public String getLoggerName() {
+    checkRecord();
+    return new String(lineBuffers[0], lineOffsets[0] + loggerStart, loggerLength, StandardCharsets.UTF_8);
+  }
+
+  @Nonnull
+  @Override
+  public String getMessage() {
+    checkRecord();
+    return new String(lineBuffers[0], lineOffsets[0] + messageStart, lineLengths[0] - messageStart,
+        StandardCharsets.UTF_8);
+  }
+
+  @Nonnull
+  @Override
+  public Map<String, Object> getAttributes() {
+    checkRecord();
+    return Collections.unmodifiableMap(attributes);
+  }
+
+  @Override
+  public void putAttribute(@Nonnull String key, @Nullable Object value) {
+    checkRecord();
+    attributes.put(key, value);
+  }
+
+  @Nonnull
+  @Override
+  public String getLogEntry() {
+    if (lines != null) {
+      return lines.get(0);
+    }
+    return decode(0);
+  }
+
+  @Nonnull
+  @Override
+  public List<String> getLines() {
+    if (lines == null) {
+      final List<String> result = new ArrayList<>(lineCount);
+      for (int i = 0; i < lineCount; ++i) {
+        result.add(decode(i));
+      }
+      lines = Collections.unmodifiableList(result);
+    }
+    return lines;
+  }
+
+  @Override
+  public int getLineCount() {
+    return lineCount;
+  }
+
+  @Override
+  public void addLine(@Nonnull String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    appendSlice(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public void addLine(@Nonnull LogMessage part) {
+    if (!(part instanceof ByteSliceLogMessage)) {
+      super.addLine(part);
+      return;
+    }
+
+    final ByteSliceLogMessage other = (ByteSliceLogMessage) part;
+    for (int i = 0; i < other.lineCount; ++i) {
+      appendSlice(other.lineBuffers[i], other.lineOffsets[i], other.lineLengths[i]);
+    }
+  }
+
+  /**
+   * Copies all the line slices into a single buffer owned by this message, so that buffers the slices were
+   * taken from could be reused.
+   */
+  public void compact() {
+    int size = 0;
+    for (int i = 0; i < lineCount; ++i) {
+      size += lineLengths[i];
+    }
+
+    final byte[] buffer = new byte[size];
+    int offset = 0;
+    for (int i = 0; i < lineCount; ++i) {
+      System.arraycopy(lineBuffers[i], lineOffsets[i], buffer, offset, lineLengths[i]);
+      lineBuffers[i] = buffer;
+      lineOffsets[i] = offset;
+      offset += lineLengths[i];
+    }
+  }
+
+  @Override
+  public void forEachLineUtf8(@Nonnull Utf8LineConsumer consumer) throws IOException {
+    for (int i = 0; i < lineCount; ++i) {
+      consumer.accept(lineBuffers[i], lineOffsets[i], lineLengths[i]);
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (multiLinePart) {
+      return "ByteSliceLogMessage{line='" + getLogEntry() + "'}";
+    }
+
+    return "ByteSliceLogMessage{" +
+        "unixTime=" + getUnixTime() +
+        ", severity=" + getSeverity() +
+        ", loggerName=" + getLoggerName() +
+        ", attributes=" + getAttributes() +
+        ", logEntry='" + getLogEntry() + '\'' +
+        ", stacktrace=" + getLines() +
+        '}';
+  }
+
+  //
+  // Private
+  //
+
+  private void checkRecord() {
+    if (multiLinePart) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private String decode(int index) {
+    return new String(lineBuffers[index], lineOffsets[index], lineLengths[index], StandardCharsets.UTF_8);
+  }
+
+  private void appendSlice(@Nonnull byte[] buffer, int offset, int length) {
+    if (offset < 0 || length < 0 || offset + length > buffer.length) {
+      throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length);
+    }
+
+    if (lineCount == lineBuffers.length) {
+      final int capacity = lineCount * 2;
+      lineBuffers = Arrays.copyOf(lineBuffers, capacity);
+      lineOffsets = Arrays.copyOf(lineOffsets, capacity);
+      lineLengths = Arrays.copyOf(lineLengths, capacity);
+    }
+
+    lineBuffers[lineCount] = buffer;
+    lineOffsets[lineCount] = offset;
+    lineLengths[lineCount] = length;
+    ++lineCount;
+    lines = null;
+  }
+}
@@ -1,6 +1,9 @@
 package com.truward.brikar.log.model;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -33,10 +36,39 @@ public abstract class LogMessage {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * @return Number of lines, implementations should not decode the lines to count them
+   */
+  public int getLineCount() {
+    return getLines().size();
+  }
+
   public void addLine(@Nonnull String value) {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Appends lines of the given multiline part to this message.
+   *
+   * @param part Multiline part
+   */
+  public void addLine(@Nonnull LogMessage part) {
+    addLine(part.getLogEntry());
+  }
+
+  /**
+   * Passes UTF-8 encoded lines to the given consumer, implementations that keep raw bytes pass them as is.
+   *
+   * @param consumer Line consumer
+   * @throws IOException On I/O error in consumer
+   */
+  public void forEachLineUtf8(@Nonnull Utf8LineConsumer consumer) throws IOException {
+    for (final String line : getLines()) {
+      final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+      consumer.accept(bytes, 0, bytes.length);
+    }
+  }
+
   public long getUnixTime() {
     throw new UnsupportedOperationException();
   }
@@ -46,8 +78,28 @@ public abstract class LogMessage {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * @return Name of the logger, usually a class name, that has written this message or empty string if unknown
+   */
+  @Nonnull
+  public String getLoggerName() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return Message text of the first line, that follows the header with time, severity, logger and variables
+   */
+  @Nonnull
+  public String getMessage() {
+    throw new UnsupportedOperationException();
+  }
+
   @Nonnull
   public Map<String, Object> getAttributes() {
     throw new UnsupportedOperationException();
   }
+
+  public void putAttribute(@Nonnull String key, @Nullable Object value) {
+    throw new UnsupportedOperationException();
+  }
 }
@@ -12,15 +12,39 @@ import java.util.*;
 public final class MaterializedLogMessage extends LogMessage {
   private final long unixTime;
   private final Severity severity;
+  private final String loggerName;
+  private final int messageStart;
   private List<String> lines = new ArrayList<>();
   private Map<String, Object> attributes = new HashMap<>();
 
-  public MaterializedLogMessage(long unixTime, @Nonnull Severity severity, @Nonnull String logEntry) {
+  /**
+   * @param unixTime Record time
+   * @param severity Record severity
+   * @param loggerName Logger name
+   * @param logEntry First line of the record
+   * @param messageStart Position of the message in the first line
+   */
+  public MaterializedLogMessage(long unixTime, @Nonnull Severity severity, @Nonnull String loggerName,
+                                @Nonnull String logEntry, int messageStart) {
+    if (messageStart < 0 || messageStart > logEntry.length()) {
+      throw new IndexOutOfBoundsException("messageStart=" + messageStart);
+    }
     this.unixTime = unixTime;
     this.severity = Objects.requireNonNull(severity, "severity");
+    this.loggerName = Objects.requireNonNull(loggerName, "loggerName");
+    this.messageStart = messageStart;
     this.lines.add(Objects.requireNonNull(logEntry, "logEntry"));
   }
 
+  public MaterializedLogMessage(long unixTime, @Nonnull Severity severity, @Nonnull String loggerName,
+                                @Nonnull String logEntry) {
+    this(unixTime, severity, loggerName, logEntry, 0);
+  }
+
+  public MaterializedLogMessage(long unixTime, @Nonnull Severity severity, @Nonnull String logEntry) {
+    this(unixTime, severity, "", logEntry);
+  }
+
   @Override
   public long getUnixTime() {
     return unixTime;
@@ -32,12 +56,29 @@ public final class MaterializedLogMessage extends LogMessage {
     return severity;
   }
 
+  @Nonnull
+  @Override
+  public String getLoggerName() {
+    return loggerName;
+  }
+
+  @Nonnull
+  @Override
+  public String getMessage() {
+    return lines.get(0).substring(messageStart);
+  }
+
   @Nonnull
   @Override
   public List<String> getLines() {
     return Collections.unmodifiableList(lines);
   }
 
+  @Override
+  public int getLineCount() {
+    return lines.size();
+  }
+
   @Nonnull
   @Override
   public Map<String, Object> getAttributes() {
@@ -49,6 +90,7 @@ public final class MaterializedLogMessage extends LogMessage {
     this.lines.add(value);
   }
 
+  @Override
   public void putAttribute(@Nonnull String key, @Nullable Object value) {
     this.attributes.put(key, value);
   }
@@ -58,6 +100,7 @@ public final class MaterializedLogMessage extends LogMessage {
     return "MaterializedLogMessage{" +
             "unixTime=" + getUnixTime() +
             ", severity=" + getSeverity() +
+            ", loggerName=" + getLoggerName() +
             ", attributes=" + getAttributes() +
             ", logEntry='" + getLogEntry() + '\'' +
             ", stacktrace=" + getLines() +
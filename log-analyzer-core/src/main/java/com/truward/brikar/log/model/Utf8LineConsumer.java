@@ -0,0 +1,22 @@
+package com.truward.brikar.log.model;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * Receiver of UTF-8 encoded lines of the log message.
+ *
+ * @author Alexander Shabanov
+ */
+public interface Utf8LineConsumer {
+
+  /**
+   * Accepts the line. Given buffer should not be modified or retained after this method returns.
+   *
+   * @param buffer Buffer, containing UTF-8 encoded line
+   * @param offset Offset of the line in the buffer
+   * @param length Length of the line in bytes, excluding line terminator
+   * @throws IOException On I/O error
+   */
+  void accept(@Nonnull byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,687 @@
+package com.truward.brikar.log.parser;
+
+import com.truward.brikar.log.model.ByteSliceLogMessage;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.NullLogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.util.AsciiDateTimeParser;
+
+import javax.annotation.Nonnull;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Parser of the JSON lines, i.e. logs, where each record is written as a single JSON object. Line is scanned once
+ * right from the bytes, only the values of the configured fields are decoded, the rest of them, including nested
+ * objects and arrays, are skipped without creating any objects.
+ * <p>
+ * Record should have the time field, either ISO-8601 timestamp or number of milliseconds or seconds since epoch.
+ * Level is matched regardless of case, <code>WARNING</code>, <code>FATAL</code> and numeric levels of
+ * Bunyan and Pino are understood as well, unknown level becomes {@link Severity#WARN} like it does for the text
+ * records. Members of the MDC object and the given top level fields become attributes. Message and stack trace
+ * are split into lines, stack trace could also be an array of lines.
+ * <p>
+ * Lines, that do not start with an object, are returned as multiline parts, malformed objects, including the
+ * strings with malformed escapes, as {@link NullLogMessage#INSTANCE}. Field names are matched as is, escaped names
+ * are not unescaped. Parsing is stateless, so the same instance could be used from many threads.
+ *
+ * @author Alexander Shabanov
+ */
+public final class JsonLineParser implements LogLineParser {
+  public static final String DEFAULT_TIME_FIELD = "@timestamp";
+  public static final String DEFAULT_LEVEL_FIELD = "level";
+  public static final String DEFAULT_LOGGER_FIELD = "logger_name";
+  public static final String DEFAULT_MESSAGE_FIELD = "message";
+  public static final String DEFAULT_MDC_FIELD = "mdc";
+  public static final String DEFAULT_STACKTRACE_FIELD = "stack_trace";
+
+  private static final int OTHER = -1;
+  private static final int TIME = 0;
+  private static final int LEVEL = 1;
+  private static final int LOGGER = 2;
+  private static final int MESSAGE = 3;
+  private static final int MDC = 4;
+  private static final int STACKTRACE = 5;
+  private static final int ATTRIBUTE = 6; // the first one, the rest follow it
+
+  private static final int MAX_LINE_CAPACITY = 256; // initial one, lines of the stack trace are usually shorter
+  private static final long MIN_MILLIS_TIME = 100_000_000_000L; // smaller numbers are considered seconds
+
+  // strings are scanned eight bytes at a time, looking for the quote or backslash in the word
+  private static final VarHandle WORDS = MethodHandles.byteArrayViewVarHandle(long[].class,
+      ByteOrder.LITTLE_ENDIAN);
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+  private static final long QUOTES = '"' * ONES;
+  private static final long BACKSLASHES = '\\' * ONES;
+
+  private static final byte[][] LEVEL_NAMES = {
+      toBytes("INFO"), toBytes("DEBUG"), toBytes("ERROR"), toBytes("WARN"), toBytes("TRACE"), toBytes("WARNING"),
+      toBytes("FATAL"), toBytes("CRITICAL"), toBytes("SEVERE"), toBytes("ERR"), toBytes("NOTICE"),
+      toBytes("INFORMATION"), toBytes("FINE"), toBytes("FINER"), toBytes("FINEST")
+  };
+  private static final Severity[] LEVEL_SEVERITIES = {
+      Severity.INFO, Severity.DEBUG, Severity.ERROR, Severity.WARN, Severity.TRACE, Severity.WARN,
+      Severity.ERROR, Severity.ERROR, Severity.ERROR, Severity.ERROR, Severity.INFO,
+      Severity.INFO, Severity.DEBUG, Severity.DEBUG, Severity.DEBUG
+  };
+
+  private final byte[][] fieldNames;
+  private final String[] attributeNames;
+
+  public JsonLineParser(@Nonnull String timeField,
+                        @Nonnull String levelField,
+                        @Nonnull String loggerField,
+                        @Nonnull String messageField,
+                        @Nonnull String mdcField,
+                        @Nonnull String stackTraceField,
+                        @Nonnull Collection<String> attributeFields) {
+    final List<byte[]> names = new ArrayList<>();
+    this.attributeNames = new String[attributeFields.size()];
+    names.add(toBytes(Objects.requireNonNull(timeField, "timeField")));
+    names.add(toBytes(Objects.requireNonNull(levelField, "levelField")));
+    names.add(toBytes(Objects.requireNonNull(loggerField, "loggerField")));
+    names.add(toBytes(Objects.requireNonNull(messageField, "messageField")));
+    names.add(toBytes(Objects.requireNonNull(mdcField, "mdcField")));
+    names.add(toBytes(Objects.requireNonNull(stackTraceField, "stackTraceField")));
+    for (final String field : attributeFields) {
+      attributeNames[names.size() - ATTRIBUTE] = Objects.requireNonNull(field, "field");
+      names.add(toBytes(field));
+    }
+    this.fieldNames = names.toArray(new byte[names.size()][]);
+  }
+
+  public JsonLineParser() {
+    this(DEFAULT_TIME_FIELD, DEFAULT_LEVEL_FIELD, DEFAULT_LOGGER_FIELD, DEFAULT_MESSAGE_FIELD, DEFAULT_MDC_FIELD,
+        DEFAULT_STACKTRACE_FIELD, new ArrayList<String>());
+  }
+
+  @Nonnull
+  @Override
+  public LogMessage parse(@Nonnull String line) {
+    final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+    return parse(bytes, 0, bytes.length);
+  }
+
+  @Nonnull
+  @Override
+  public LogMessage parse(@Nonnull byte[] buffer, int offset, int length) {
+    final int end = offset + length;
+    final int start = skipWhitespace(buffer, offset, end);
+    if (start >= end || buffer[start] != '{') {
+      return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+    }
+
+    // bounds of the values of the configured fields, found by the single scan of the object, the record is then
+    // built right from them, without collecting the fields into intermediate objects
+    final int[] values = new int[fieldNames.length * 2];
+    if (!scanObject(buffer, start, end, values)) {
+      return NullLogMessage.INSTANCE;
+    }
+
+    final long time = values[TIME * 2] > 0 ? readTime(buffer, values[TIME * 2], values[TIME * 2 + 1])
+        : AsciiDateTimeParser.MALFORMED;
+    if (time == AsciiDateTimeParser.MALFORMED) {
+      return NullLogMessage.INSTANCE;
+    }
+
+    final String message = readString(buffer, values, MESSAGE);
+    final int newline = message.indexOf('\n');
+    final MaterializedLogMessage result = new MaterializedLogMessage(time, readSeverity(buffer, values),
+        readString(buffer, values, LOGGER), newline < 0 ? message : firstLine(message, newline));
+    if (newline >= 0) {
+      addLines(result, message.substring(newline + 1));
+    }
+
+    final int stackTraceStart = values[STACKTRACE * 2];
+    if (stackTraceStart > 0) {
+      if (buffer[stackTraceStart] == '"') {
+        addDecodedLines(result, buffer, stackTraceStart + 1, values[STACKTRACE * 2 + 1] - 1);
+      } else if (buffer[stackTraceStart] == '[' && !readStackTraceArray(buffer, stackTraceStart, end, result)) {
+        return NullLogMessage.INSTANCE;
+      }
+    }
+
+    final int mdcStart = values[MDC * 2];
+    if (mdcStart > 0 && buffer[mdcStart] == '{' && !readMdc(buffer, mdcStart, end, result)) {
+      return NullLogMessage.INSTANCE;
+    }
+    for (int i = ATTRIBUTE; i < fieldNames.length; ++i) {
+      final int valueStart = values[i * 2];
+      if (valueStart > 0) {
+        putScalar(result, attributeNames[i - ATTRIBUTE], buffer, valueStart, values[i * 2 + 1]);
+      }
+    }
+    return result;
+  }
+
+  //
+  // Private
+  //
+
+  private static byte[] toBytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private int fieldOf(byte[] buffer, int start, int end) {
+    final int length = end - start;
+    outer:
+    for (int i = 0; i < fieldNames.length; ++i) {
+      final byte[] name = fieldNames[i];
+      if (name.length != length) {
+        continue;
+      }
+      for (int j = 0; j < length; ++j) {
+        if (buffer[start + j] != name[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return OTHER;
+  }
+
+  private static int skipWhitespace(byte[] buffer, int pos, int end) {
+    while (pos < end && (buffer[pos] == ' ' || buffer[pos] == '\t' || buffer[pos] == '\r' || buffer[pos] == '\n')) {
+      ++pos;
+    }
+    return pos;
+  }
+
+  /**
+   * Finds the end of the string and validates its escapes, so that the string could be decoded later without checks.
+   *
+   * @param pos Position of the opening quote
+   * @return Position of the closing quote or -1 if there is none or if the string has malformed escape
+   */
+  private static int stringEnd(byte[] buffer, int pos, int end) {
+    for (++pos; pos < end; ++pos) {
+      pos = skipPlainWords(buffer, pos, end);
+      if (pos >= end) {
+        break;
+      }
+      if (buffer[pos] == '"') {
+        return pos;
+      }
+      if (buffer[pos] == '\\') {
+        pos = escapeEnd(buffer, pos, end);
+        if (pos < 0) {
+          return -1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return Position of the first word, that may contain quote or backslash, or of the last bytes, that do not
+   * fill the word
+   */
+  private static int skipPlainWords(byte[] buffer, int pos, int end) {
+    for (; pos + Long.BYTES <= end; pos += Long.BYTES) {
+      final long word = (long) WORDS.get(buffer, pos);
+      final long found = zeroBytes(word ^ QUOTES) | zeroBytes(word ^ BACKSLASHES);
+      if (found != 0) {
+        // the lowest marked byte is exact, higher ones could be false positives
+        return pos + (Long.numberOfTrailingZeros(found) >>> 3);
+      }
+    }
+    return pos;
+  }
+
+  /**
+   * @return Word, that has high bit set in the lowest zero byte of the given word
+   */
+  private static long zeroBytes(long word) {
+    return (word - ONES) & ~word & HIGH_BITS;
+  }
+
+  /**
+   * @param pos Position of the backslash
+   * @return Position of the last character of the escape or -1 if escape is malformed
+   */
+  private static int escapeEnd(byte[] buffer, int pos, int end) {
+    if (pos + 1 >= end) {
+      return -1;
+    }
+    switch (buffer[pos + 1]) {
+      case '"': case '\\': case '/': case 'b': case 'f': case 'n': case 'r': case 't':
+        return pos + 1;
+      case 'u':
+        if (pos + 5 >= end) {
+          return -1;
+        }
+        for (int i = pos + 2; i <= pos + 5; ++i) {
+          if (Character.digit(buffer[i], 16) < 0) {
+            return -1;
+          }
+        }
+        return pos + 5;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * @return Position after the value or -1 if value is malformed
+   */
+  private static int skipValue(byte[] buffer, int pos, int end) {
+    if (pos >= end) {
+      return -1;
+    }
+
+    final byte first = buffer[pos];
+    if (first == '"') {
+      final int stringEnd = stringEnd(buffer, pos, end);
+      return stringEnd < 0 ? -1 : stringEnd + 1;
+    }
+
+    if (first == '{' || first == '[') {
+      // nesting is only counted, it is not validated
+      int depth = 0;
+      for (; pos < end; ++pos) {
+        final byte b = buffer[pos];
+        if (b == '"') {
+          pos = stringEnd(buffer, pos, end);
+          if (pos < 0) {
+            return -1;
+          }
+        } else if (b == '{' || b == '[') {
+          ++depth;
+        } else if ((b == '}' || b == ']') && --depth == 0) {
+          return pos + 1;
+        }
+      }
+      return -1;
+    }
+
+    final int start = pos;
+    while (pos < end && isLiteral(buffer[pos])) {
+      ++pos;
+    }
+    return pos == start ? -1 : pos;
+  }
+
+  private static boolean isLiteral(byte b) {
+    return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || b == '-' || b == '+' || b == '.' || b == 'E';
+  }
+
+  private static String decode(byte[] buffer, int start, int end) {
+    // escapes are rare, so the string is decoded first, it is a lot cheaper to look for backslash in it
+    final String plain = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    if (plain.indexOf('\\') < 0) {
+      return plain;
+    }
+
+    final StringBuilder result = new StringBuilder(end - start);
+    int pos = start;
+    while (pos < end) {
+      pos = appendPlain(buffer, pos, end, result);
+      if (pos < end) {
+        pos = appendEscape(buffer, pos, result);
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Decodes the string, which escapes have been validated, right into the lines of the record, so that the string
+   * is not decoded as a whole before it is split. Empty lines are skipped.
+   */
+  private static void addDecodedLines(LogMessage message, byte[] buffer, int start, int end) {
+    final StringBuilder line = new StringBuilder(Math.min(end - start, MAX_LINE_CAPACITY));
+    int pos = start;
+    while (pos < end) {
+      pos = appendPlain(buffer, pos, end, line);
+      if (pos >= end) {
+        break;
+      }
+      pos = appendEscape(buffer, pos, line);
+      if (line.charAt(line.length() - 1) == '\n') {
+        line.setLength(line.length() - 1);
+        addLine(message, line);
+        line.setLength(0);
+      }
+    }
+    addLine(message, line);
+  }
+
+  private static void addLine(LogMessage message, StringBuilder line) {
+    int length = line.length();
+    if (length > 0 && line.charAt(length - 1) == '\r') {
+      --length;
+    }
+    if (length > 0) {
+      message.addLine(line.substring(0, length));
+    }
+  }
+
+  /**
+   * Appends the bytes up to the next escape.
+   *
+   * @return Position of the backslash or the end
+   */
+  private static int appendPlain(byte[] buffer, int pos, int end, StringBuilder out) {
+    for (; pos < end; ++pos) {
+      final byte b = buffer[pos];
+      if (b == '\\') {
+        break;
+      }
+      if (b >= 0) {
+        out.append((char) b);
+        continue;
+      }
+
+      // bytes of the multi-byte characters are all negative, so the run of them consists of the whole characters
+      final int runStart = pos;
+      while (pos + 1 < end && buffer[pos + 1] < 0) {
+        ++pos;
+      }
+      out.append(new String(buffer, runStart, pos + 1 - runStart, StandardCharsets.UTF_8));
+    }
+    return pos;
+  }
+
+  /**
+   * Appends the character of the escape, which has been validated by the scan.
+   *
+   * @param pos Position of the backslash
+   * @return Position after the escape
+   */
+  private static int appendEscape(byte[] buffer, int pos, StringBuilder out) {
+    final byte escaped = buffer[pos + 1];
+    switch (escaped) {
+      case 'n': out.append('\n'); break;
+      case 't': out.append('\t'); break;
+      case 'r': out.append('\r'); break;
+      case 'b': out.append('\b'); break;
+      case 'f': out.append('\f'); break;
+      case 'u':
+        int value = 0;
+        for (int i = pos + 2; i < pos + 6; ++i) {
+          value = (value << 4) | Character.digit(buffer[i], 16);
+        }
+        out.append((char) value);
+        return pos + 6;
+      default: out.append((char) escaped); // quote, backslash and slash
+    }
+    return pos + 2;
+  }
+
+  /**
+   * Matches the level name regardless of case without decoding it.
+   */
+  private static Severity severityOf(byte[] buffer, int start, int end) {
+    final int length = end - start;
+    outer:
+    for (int i = 0; i < LEVEL_NAMES.length; ++i) {
+      final byte[] name = LEVEL_NAMES[i];
+      if (name.length != length) {
+        continue;
+      }
+      for (int j = 0; j < length; ++j) {
+        final int b = buffer[start + j];
+        if (b != name[j] && b - ('a' - 'A') != name[j]) {
+          continue outer;
+        }
+      }
+      return LEVEL_SEVERITIES[i];
+    }
+    return Severity.WARN;
+  }
+
+  private static Severity severityOf(long level) {
+    // numeric levels of Bunyan and Pino
+    if (level < 20) {
+      return Severity.TRACE;
+    } else if (level < 30) {
+      return Severity.DEBUG;
+    } else if (level < 40) {
+      return Severity.INFO;
+    } else if (level < 50) {
+      return Severity.WARN;
+    }
+    return Severity.ERROR;
+  }
+
+  /**
+   * Finds the values of the configured fields, the last one wins if the field is repeated.
+   *
+   * @param pos Position of the opening brace
+   * @param values Receives start and end of the value of each field, start is left zero if there is none
+   * @return If object is well formed
+   */
+  private boolean scanObject(byte[] buffer, int pos, int end, int[] values) {
+    pos = skipWhitespace(buffer, pos + 1, end);
+    if (pos < end && buffer[pos] == '}') {
+      return true;
+    }
+
+    for (;;) {
+      if (pos >= end || buffer[pos] != '"') {
+        return false;
+      }
+      final int nameEnd = stringEnd(buffer, pos, end);
+      if (nameEnd < 0) {
+        return false;
+      }
+      final int field = fieldOf(buffer, pos + 1, nameEnd);
+      pos = skipWhitespace(buffer, nameEnd + 1, end);
+      if (pos >= end || buffer[pos] != ':') {
+        return false;
+      }
+      pos = skipWhitespace(buffer, pos + 1, end);
+
+      final int valueEnd = skipValue(buffer, pos, end);
+      if (valueEnd < 0) {
+        return false;
+      }
+      if (field != OTHER) {
+        values[field * 2] = pos;
+        values[field * 2 + 1] = valueEnd;
+      }
+
+      pos = skipWhitespace(buffer, valueEnd, end);
+      if (pos >= end) {
+        return false;
+      }
+      if (buffer[pos] == '}') {
+        return true;
+      }
+      if (buffer[pos] != ',') {
+        return false;
+      }
+      pos = skipWhitespace(buffer, pos + 1, end);
+    }
+  }
+
+  /**
+   * @return Decoded string value of the field or empty string if there is no such value
+   */
+  private static String readString(byte[] buffer, int[] values, int field) {
+    final int start = values[field * 2];
+    if (start == 0 || buffer[start] != '"') {
+      return "";
+    }
+    return decode(buffer, start + 1, values[field * 2 + 1] - 1);
+  }
+
+  private static long readTime(byte[] buffer, int start, int stop) {
+    if (buffer[start] == '"') {
+      return AsciiDateTimeParser.parseIso8601(buffer, start + 1, stop - 1);
+    }
+    return parseEpochTime(buffer, start, stop);
+  }
+
+  private static Severity readSeverity(byte[] buffer, int[] values) {
+    final int start = values[LEVEL * 2];
+    if (start == 0) {
+      return Severity.WARN;
+    }
+    if (buffer[start] == '"') {
+      return severityOf(buffer, start + 1, values[LEVEL * 2 + 1] - 1);
+    }
+    if (buffer[start] >= '0' && buffer[start] <= '9') {
+      return severityOf(parseLong(buffer, start, values[LEVEL * 2 + 1]));
+    }
+    return Severity.WARN;
+  }
+
+  private static String firstLine(String value, int newline) {
+    return value.substring(0, newline > 0 && value.charAt(newline - 1) == '\r' ? newline - 1 : newline);
+  }
+
+  /**
+   * Adds non-empty lines of the value to the record.
+   */
+  private static void addLines(LogMessage message, String value) {
+    int start = 0;
+    for (int i = 0; i <= value.length(); ++i) {
+      if (i < value.length() && value.charAt(i) != '\n') {
+        continue;
+      }
+      int end = i;
+      if (end > start && value.charAt(end - 1) == '\r') {
+        --end;
+      }
+      if (end > start) {
+        message.addLine(value.substring(start, end));
+      }
+      start = i + 1;
+    }
+  }
+
+  private static boolean readMdc(byte[] buffer, int pos, int end, LogMessage message) {
+    pos = skipWhitespace(buffer, pos + 1, end);
+    if (pos < end && buffer[pos] == '}') {
+      return true;
+    }
+
+    for (;;) {
+      if (pos >= end || buffer[pos] != '"') {
+        return false;
+      }
+      final int nameEnd = stringEnd(buffer, pos, end);
+      if (nameEnd < 0) {
+        return false;
+      }
+      final String name = decode(buffer, pos + 1, nameEnd);
+      pos = skipWhitespace(buffer, nameEnd + 1, end);
+      if (pos >= end || buffer[pos] != ':') {
+        return false;
+      }
+      pos = skipWhitespace(buffer, pos + 1, end);
+
+      final int valueEnd = skipValue(buffer, pos, end);
+      if (valueEnd < 0) {
+        return false;
+      }
+      putScalar(message, name, buffer, pos, valueEnd);
+
+      pos = skipWhitespace(buffer, valueEnd, end);
+      if (pos >= end) {
+        return false;
+      }
+      if (buffer[pos] == '}') {
+        return true;
+      }
+      if (buffer[pos] != ',') {
+        return false;
+      }
+      pos = skipWhitespace(buffer, pos + 1, end);
+    }
+  }
+
+  private static boolean readStackTraceArray(byte[] buffer, int pos, int end, LogMessage message) {
+    pos = skipWhitespace(buffer, pos + 1, end);
+    if (pos < end && buffer[pos] == ']') {
+      return true;
+    }
+
+    for (;;) {
+      final int valueEnd = skipValue(buffer, pos, end);
+      if (valueEnd < 0) {
+        return false;
+      }
+      if (buffer[pos] == '"') {
+        addDecodedLines(message, buffer, pos + 1, valueEnd - 1);
+      }
+
+      pos = skipWhitespace(buffer, valueEnd, end);
+      if (pos >= end) {
+        return false;
+      }
+      if (buffer[pos] == ']') {
+        return true;
+      }
+      if (buffer[pos] != ',') {
+        return false;
+      }
+      pos = skipWhitespace(buffer, pos + 1, end);
+    }
+  }
+
+  /**
+   * Puts string, number or boolean value as the attribute, nested values and nulls are skipped.
+   *
+   * @param start Start of the value, including the opening quote of the string
+   * @param stop End of the value, including the closing quote of the string
+   */
+  private static void putScalar(LogMessage message, String name, byte[] buffer, int start, int stop) {
+    final byte first = buffer[start];
+    if (first == '"') {
+      message.putAttribute(name, decode(buffer, start + 1, stop - 1));
+    } else if (first == 't' || first == 'f') {
+      message.putAttribute(name, first == 't');
+    } else if (first != '{' && first != '[' && first != 'n') {
+      message.putAttribute(name, new String(buffer, start, stop - start, StandardCharsets.US_ASCII));
+    }
+  }
+
+  private static long parseLong(byte[] buffer, int start, int stop) {
+    long result = 0;
+    for (int i = start; i < stop; ++i) {
+      final int digit = buffer[i] - '0';
+      if (digit < 0 || digit > 9) {
+        break; // fraction or exponent
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static long parseEpochTime(byte[] buffer, int start, int stop) {
+    if (buffer[start] < '0' || buffer[start] > '9') {
+      return AsciiDateTimeParser.MALFORMED;
+    }
+
+    final long whole = parseLong(buffer, start, stop);
+    if (whole >= MIN_MILLIS_TIME) {
+      return whole;
+    }
+
+    // seconds, possibly with fraction
+    long millis = 0;
+    int pos = start;
+    while (pos < stop && buffer[pos] != '.') {
+      ++pos;
+    }
+    int scale = 100;
+    for (++pos; pos < stop && scale > 0; ++pos) {
+      final int digit = buffer[pos] - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      millis += digit * scale;
+      scale /= 10;
+    }
+    return whole * 1000L + millis;
+  }
+}
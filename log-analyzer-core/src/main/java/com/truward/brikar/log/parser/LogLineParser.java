@@ -0,0 +1,35 @@
+package com.truward.brikar.log.parser;
+
+import com.truward.brikar.log.model.LogMessage;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts a single line of the log file into a log message.
+ * <p>
+ * Implementations should return {@link com.truward.brikar.log.model.MultiLinePartLogMessage} for the lines
+ * that do not start a new record and {@link com.truward.brikar.log.model.NullLogMessage#INSTANCE}
+ * for the lines that look like record start, but can not be parsed.
+ *
+ * @author Alexander Shabanov
+ */
+public interface LogLineParser {
+
+  @Nonnull
+  LogMessage parse(@Nonnull String line);
+
+  /**
+   * Parses UTF-8 encoded line. Implementations may return messages that keep the reference to the given buffer,
+   * see also {@link com.truward.brikar.log.model.ByteSliceLogMessage}, so the caller should not reuse it.
+   *
+   * @param buffer Buffer, containing the line
+   * @param offset Line offset
+   * @param length Line length, excluding line terminator
+   * @return Parsed message
+   */
+  @Nonnull
+  default LogMessage parse(@Nonnull byte[] buffer, int offset, int length) {
+    return parse(new String(buffer, offset, length, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,469 @@
+package com.truward.brikar.log.recent;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.model.Utf8LineConsumer;
+import com.truward.brikar.log.sink.LogMessageSink;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the most recent records off heap, so that the last minutes of logs could be queried locally without waiting
+ * for the endpoint to ingest them. Records are encoded into a direct buffer, that is used as a ring: the oldest
+ * records are evicted once the newest ones do not fit. Index of the retained records - their positions, times,
+ * severities and hashes of <code>rid</code> attribute - is kept in the primitive arrays, so neither records nor
+ * index add objects to the heap, and GC does not depend on the size of the window.
+ * <p>
+ * Records are found by scanning the index from the first record, that might be in the time range: running maximum
+ * of the record times is non-decreasing in the order records are added, so it is found by binary search even if
+ * records come slightly out of order. Only matching records are decoded, their bytes are copied under the lock
+ * and decoded outside of it, so that queries do not hold up the writer.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecentRecordStore implements LogMessageSink {
+  public static final String RID_ATTRIBUTE = "rid";
+  public static final int BYTES_PER_RECORD = 256; // used to size the index, if number of records is not given
+
+  private static final Severity[] SEVERITIES = Severity.values();
+
+  private static final int HEADER_SIZE = 4 + 8 + 1 + 4; // length, time, severity, message start in bytes
+  private static final int NO_RID = 0;
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte LONG = 2;
+  private static final byte INTEGER = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte BOOLEAN = 5;
+
+  private final ByteBuffer data;
+  private final int capacity;
+  private final int maxRecords;
+
+  // index, slot of the record is its sequence number modulo max records
+  private final long[] positions;
+  private final long[] times;
+  private final long[] maxTimes;
+  private final byte[] severities;
+  private final int[] ridHashes;
+
+  // guarded by this
+  private long writePosition;
+  private long firstSequence;
+  private long nextSequence;
+  private long maxTime = Long.MIN_VALUE;
+  private long evictedCount;
+  private long droppedCount;
+  private final Encoder encoder = new Encoder();
+
+  /**
+   * @param capacityBytes Size of the off-heap buffer for the encoded records
+   * @param maxRecords Maximum number of records, that the index could hold
+   */
+  public RecentRecordStore(int capacityBytes, int maxRecords) {
+    if (capacityBytes < HEADER_SIZE) {
+      throw new IllegalArgumentException("Capacity should be at least " + HEADER_SIZE + " bytes");
+    }
+    if (maxRecords <= 0) {
+      throw new IllegalArgumentException("Max records should be a positive number");
+    }
+
+    this.data = ByteBuffer.allocateDirect(capacityBytes);
+    this.capacity = capacityBytes;
+    this.maxRecords = maxRecords;
+    this.positions = new long[maxRecords];
+    this.times = new long[maxRecords];
+    this.maxTimes = new long[maxRecords];
+    this.severities = new byte[maxRecords];
+    this.ridHashes = new int[maxRecords];
+  }
+
+  public RecentRecordStore(int capacityBytes) {
+    this(capacityBytes, Math.max(1, capacityBytes / BYTES_PER_RECORD));
+  }
+
+  /**
+   * Adds record to the store, evicting the oldest ones if needed. Records, that do not fit into the store at all,
+   * are dropped.
+   */
+  @Override
+  public synchronized void accept(@Nonnull LogMessage message) {
+    final int length = encoder.encode(message);
+    if (length > capacity) {
+      ++droppedCount;
+      return;
+    }
+
+    // record is never split, so the tail of the buffer is skipped, if record does not fit into it
+    long start = writePosition;
+    if (start % capacity + length > capacity) {
+      start += capacity - start % capacity;
+    }
+    final long end = start + length;
+    while (firstSequence < nextSequence &&
+        (nextSequence - firstSequence == maxRecords || positions[slot(firstSequence)] < end - capacity)) {
+      ++firstSequence;
+      ++evictedCount;
+    }
+
+    final ByteBuffer target = data.duplicate();
+    target.position((int) (start % capacity));
+    target.put(encoder.buffer, 0, length);
+
+    final int slot = slot(nextSequence);
+    final long time = message.getUnixTime();
+    maxTime = Math.max(maxTime, time);
+    positions[slot] = start;
+    times[slot] = time;
+    maxTimes[slot] = maxTime;
+    severities[slot] = (byte) message.getSeverity().ordinal();
+    ridHashes[slot] = ridHash(message.getAttributes().get(RID_ATTRIBUTE));
+    ++nextSequence;
+    writePosition = end;
+  }
+
+  /**
+   * Finds the records, that match all the given conditions, and returns the most recent of them in the order they
+   * have been added.
+   *
+   * @param fromTime Start of the time range, inclusive
+   * @param toTime End of the time range, exclusive
+   * @param severities Severities of the records or null for any severity
+   * @param rid Value of <code>rid</code> attribute or null for any records
+   * @param limit Maximum number of records returned
+   * @return Matching records
+   */
+  @Nonnull
+  public List<LogMessage> query(long fromTime, long toTime, @Nullable Set<Severity> severities,
+                                @Nullable String rid, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit should be a positive number");
+    }
+
+    final boolean[] severityMask = new boolean[SEVERITIES.length];
+    for (final Severity severity : SEVERITIES) {
+      severityMask[severity.ordinal()] = severities == null || severities.contains(severity);
+    }
+
+    // matches are collected from the most recent one, as only the last ones are returned
+    final List<LogMessage> result = new ArrayList<>();
+    final List<byte[]> candidates = new ArrayList<>();
+    long sequence = Long.MAX_VALUE;
+    while (result.size() < limit) {
+      final int wanted = limit - result.size();
+      candidates.clear();
+      synchronized (this) {
+        sequence = copyCandidates(Math.min(sequence, nextSequence - 1), fromTime, toTime, severityMask, rid, wanted,
+            candidates);
+      }
+
+      // decoded outside of the lock, so that queries do not hold up the writer
+      for (final byte[] candidate : candidates) {
+        final LogMessage message = decode(ByteBuffer.wrap(candidate));
+        if (rid == null || rid.equals(String.valueOf(message.getAttributes().get(RID_ATTRIBUTE)))) {
+          result.add(message);
+        }
+      }
+      if (candidates.size() < wanted) {
+        break; // no more records to scan
+      }
+      // otherwise some candidates only had the same hash of rid, so scanning goes on below them
+    }
+
+    Collections.reverse(result);
+    return result;
+  }
+
+  public int getCapacityBytes() {
+    return capacity;
+  }
+
+  public int getMaxRecords() {
+    return maxRecords;
+  }
+
+  public synchronized int getRecordCount() {
+    return (int) (nextSequence - firstSequence);
+  }
+
+  /**
+   * @return Bytes taken by the retained records, including the skipped tails of the buffer
+   */
+  public synchronized long getUsedBytes() {
+    return firstSequence < nextSequence ? writePosition - positions[slot(firstSequence)] : 0L;
+  }
+
+  /**
+   * @return Time of the oldest retained record or null if there are no records
+   */
+  @Nullable
+  public synchronized Long getOldestTime() {
+    return firstSequence < nextSequence ? times[slot(firstSequence)] : null;
+  }
+
+  public synchronized long getEvictedCount() {
+    return evictedCount;
+  }
+
+  /**
+   * @return Number of records, that have not been kept, as they are larger than the store
+   */
+  public synchronized long getDroppedCount() {
+    return droppedCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "RecentRecordStore{" +
+        "records=" + getRecordCount() +
+        ", usedBytes=" + getUsedBytes() +
+        ", capacityBytes=" + capacity +
+        ", oldestTime=" + getOldestTime() +
+        ", evicted=" + evictedCount +
+        ", dropped=" + droppedCount +
+        '}';
+  }
+
+  //
+  // Private
+  //
+
+  private int slot(long sequence) {
+    return (int) (sequence % maxRecords);
+  }
+
+  private static int ridHash(@Nullable Object rid) {
+    if (rid == null) {
+      return NO_RID;
+    }
+    final int hash = rid.toString().hashCode();
+    return hash == NO_RID ? 1 : hash;
+  }
+
+  private long firstSequenceNotBefore(long fromTime) {
+    long low = firstSequence;
+    long high = nextSequence;
+    while (low < high) {
+      final long middle = (low + high) >>> 1;
+      if (maxTimes[slot(middle)] < fromTime) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  // copies up to the given number of records, that might match, starting from the given sequence down,
+  // returns sequence to continue from
+  private long copyCandidates(long last, long fromTime, long toTime, boolean[] severityMask, @Nullable String rid,
+                              int count, List<byte[]> candidates) {
+    final int hash = rid != null ? ridHash(rid) : NO_RID;
+    final long first = firstSequenceNotBefore(fromTime);
+    long sequence = last;
+    for (; sequence >= first && candidates.size() < count; --sequence) {
+      final int slot = slot(sequence);
+      if (times[slot] < fromTime || times[slot] >= toTime || !severityMask[this.severities[slot]] ||
+          (rid != null && ridHashes[slot] != hash)) {
+        continue;
+      }
+
+      final ByteBuffer source = data.duplicate();
+      source.position((int) (positions[slot] % capacity));
+      final byte[] record = new byte[source.getInt(source.position())];
+      source.get(record);
+      candidates.add(record);
+    }
+    return sequence;
+  }
+
+  @Nonnull
+  private static LogMessage decode(ByteBuffer source) {
+    source.getInt(); // length
+    final long time = source.getLong();
+    final Severity severity = SEVERITIES[source.get()];
+    final int messageStart = source.getInt();
+    final String loggerName = getString(source);
+
+    final int lineCount = source.getInt();
+    final byte[] logEntry = new byte[source.getInt()];
+    source.get(logEntry);
+    final MaterializedLogMessage result = new MaterializedLogMessage(time, severity, loggerName,
+        new String(logEntry, StandardCharsets.UTF_8),
+        new String(logEntry, 0, messageStart, StandardCharsets.UTF_8).length());
+    for (int i = 1; i < lineCount; ++i) {
+      result.addLine(getString(source));
+    }
+
+    final int attributeCount = source.getInt();
+    for (int i = 0; i < attributeCount; ++i) {
+      final String key = getString(source);
+      final byte type = source.get();
+      switch (type) {
+        case NULL: result.putAttribute(key, null); break;
+        case LONG: result.putAttribute(key, source.getLong()); break;
+        case INTEGER: result.putAttribute(key, source.getInt()); break;
+        case DOUBLE: result.putAttribute(key, source.getDouble()); break;
+        case BOOLEAN: result.putAttribute(key, source.get() != 0); break;
+        default: result.putAttribute(key, getString(source));
+      }
+    }
+    return result;
+  }
+
+  @Nonnull
+  private static String getString(ByteBuffer source) {
+    final byte[] bytes = new byte[source.getInt()];
+    source.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Encodes records into the reusable heap buffer, which is then copied off heap, strings are encoded without
+   * creating intermediate byte arrays.
+   */
+  private static final class Encoder implements Utf8LineConsumer {
+    byte[] buffer = new byte[4096];
+    ByteBuffer view = ByteBuffer.wrap(buffer);
+    int lineCount;
+    int logEntryLength;
+
+    int encode(LogMessage message) {
+      view.clear();
+      view.position(HEADER_SIZE);
+      putString(message.getLoggerName());
+
+      final int lineCountPosition = view.position();
+      ensureCapacity(4);
+      view.putInt(0);
+      lineCount = 0;
+      try {
+        message.forEachLineUtf8(this);
+      } catch (IOException e) {
+        throw new IllegalStateException(e); // lines are written to memory
+      }
+      view.putInt(lineCountPosition, lineCount);
+
+      final Map<String, Object> attributes = message.getAttributes();
+      ensureCapacity(4);
+      view.putInt(attributes.size());
+      for (final Map.Entry<String, Object> attribute : attributes.entrySet()) {
+        putString(attribute.getKey());
+        putValue(attribute.getValue());
+      }
+
+      // message is the tail of the first line
+      final int messageStart = Math.max(0, logEntryLength - utf8Length(message.getMessage()));
+      final int length = view.position();
+      view.putInt(0, length);
+      view.putLong(4, message.getUnixTime());
+      view.put(12, (byte) message.getSeverity().ordinal());
+      view.putInt(13, messageStart);
+      return length;
+    }
+
+    @Override
+    public void accept(@Nonnull byte[] bytes, int offset, int length) {
+      ensureCapacity(4 + length);
+      view.putInt(length);
+      view.put(bytes, offset, length);
+      if (lineCount == 0) {
+        logEntryLength = length;
+      }
+      ++lineCount;
+    }
+
+    private static int utf8Length(String value) {
+      int result = 0;
+      for (int i = 0; i < value.length(); ++i) {
+        final char c = value.charAt(i);
+        if (c < 0x80) {
+          result += 1;
+        } else if (c < 0x800) {
+          result += 2;
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() &&
+            Character.isLowSurrogate(value.charAt(i + 1))) {
+          result += 4;
+          ++i;
+        } else if (Character.isSurrogate(c)) {
+          result += 1; // unpaired surrogate is encoded as '?'
+        } else {
+          result += 3;
+        }
+      }
+      return result;
+    }
+
+    private void putValue(@Nullable Object value) {
+      ensureCapacity(9);
+      if (value == null) {
+        view.put(NULL);
+      } else if (value instanceof Long) {
+        view.put(LONG).putLong((Long) value);
+      } else if (value instanceof Integer) {
+        view.put(INTEGER).putInt((Integer) value);
+      } else if (value instanceof Double) {
+        view.put(DOUBLE).putDouble((Double) value);
+      } else if (value instanceof Boolean) {
+        view.put(BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+      } else {
+        view.put(STRING);
+        putString(value.toString());
+      }
+    }
+
+    private void putString(String value) {
+      ensureCapacity(4 + value.length() * 3);
+      final int lengthPosition = view.position();
+      int pos = lengthPosition + 4;
+      for (int i = 0; i < value.length(); ++i) {
+        final char c = value.charAt(i);
+        if (c < 0x80) {
+          buffer[pos++] = (byte) c;
+        } else if (c < 0x800) {
+          buffer[pos++] = (byte) (0xc0 | (c >> 6));
+          buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length() &&
+            Character.isLowSurrogate(value.charAt(i + 1))) {
+          final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          buffer[pos++] = (byte) (0xf0 | (codePoint >> 18));
+          buffer[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          buffer[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          buffer[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else if (Character.isSurrogate(c)) {
+          buffer[pos++] = '?'; // unpaired surrogate, replaced the same way String.getBytes does
+        } else {
+          buffer[pos++] = (byte) (0xe0 | (c >> 12));
+          buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+          buffer[pos++] = (byte) (0x80 | (c & 0x3f));
+        }
+      }
+      view.putInt(lengthPosition, pos - lengthPosition - 4);
+      view.position(pos);
+    }
+
+    private void ensureCapacity(int bytes) {
+      if (view.remaining() >= bytes) {
+        return;
+      }
+      final int position = view.position();
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+      view = ByteBuffer.wrap(buffer);
+      view.position(position);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.truward.brikar.log.rollup;
+
+import com.truward.brikar.log.model.Severity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Rollup query: time range, step of the resulting time series, filters for the series and the parts of the series
+ * key, counts are grouped by.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollupQuery {
+  /**
+   * Name, that groups counts by severity when given in group-by list.
+   */
+  public static final String GROUP_BY_SEVERITY = "severity";
+
+  /**
+   * Name, that groups counts by logger when given in group-by list.
+   */
+  public static final String GROUP_BY_LOGGER = "logger";
+
+  private final long fromTime;
+  private final long toTime;
+  private final long step;
+  private final Set<Severity> severities;
+  private final String loggerPrefix;
+  private final Map<String, String> attributes;
+  private final boolean groupBySeverity;
+  private final boolean groupByLogger;
+  private final List<String> groupByAttributes;
+
+  /**
+   * @param fromTime Minimum time, inclusive, unix time in milliseconds
+   * @param toTime Maximum time, exclusive, unix time in milliseconds
+   * @param step Step of the resulting time series in milliseconds or zero if only totals are needed
+   * @param severities Severities to count, empty set matches any severity
+   * @param loggerPrefix Prefix of the logger names to count or null to count all the loggers
+   * @param attributes Attribute values, that series should have
+   * @param groupBy Parts of the series key, counts are grouped by: {@link #GROUP_BY_SEVERITY},
+   *                {@link #GROUP_BY_LOGGER} or attribute names
+   */
+  public RollupQuery(long fromTime,
+                     long toTime,
+                     long step,
+                     @Nonnull Set<Severity> severities,
+                     @Nullable String loggerPrefix,
+                     @Nonnull Map<String, String> attributes,
+                     @Nonnull List<String> groupBy) {
+    if (fromTime >= toTime) {
+      throw new IllegalArgumentException("Time range is empty");
+    }
+    if (step < 0) {
+      throw new IllegalArgumentException("Step should not be negative");
+    }
+
+    this.fromTime = fromTime;
+    this.toTime = toTime;
+    this.step = step;
+    this.severities = severities.isEmpty() ? EnumSet.allOf(Severity.class) : EnumSet.copyOf(severities);
+    this.loggerPrefix = loggerPrefix;
+    this.attributes = Collections.unmodifiableMap(new HashMap<>(Objects.requireNonNull(attributes, "attributes")));
+
+    final Set<String> groupByAttributes = new LinkedHashSet<>(groupBy);
+    this.groupBySeverity = groupByAttributes.remove(GROUP_BY_SEVERITY);
+    this.groupByLogger = groupByAttributes.remove(GROUP_BY_LOGGER);
+    this.groupByAttributes = Collections.unmodifiableList(new ArrayList<>(groupByAttributes));
+  }
+
+  public long getFromTime() {
+    return fromTime;
+  }
+
+  public long getToTime() {
+    return toTime;
+  }
+
+  public long getStep() {
+    return step;
+  }
+
+  /**
+   * @return True, if points of the series with the given key should be counted
+   */
+  public boolean matches(@Nonnull SeriesKey key) {
+    if (key.getSeverity() == null || !severities.contains(key.getSeverity())) {
+      return false;
+    }
+    if (loggerPrefix != null && (key.getLoggerName() == null || !key.getLoggerName().startsWith(loggerPrefix))) {
+      return false;
+    }
+    for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+      if (!entry.getValue().equals(key.getAttributes().get(entry.getKey()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean isInRange(long unixTime) {
+    return unixTime >= fromTime && unixTime < toTime;
+  }
+
+  /**
+   * @return Time of the resulting point, the given point is counted in
+   */
+  public long getBucket(long unixTime) {
+    return step > 0 ? Math.floorDiv(unixTime, step) * step : fromTime;
+  }
+
+  /**
+   * @return Key, counts of the given series are grouped by
+   */
+  @Nonnull
+  public SeriesKey group(@Nonnull SeriesKey key) {
+    return key.project(groupBySeverity, groupByLogger, groupByAttributes);
+  }
+}
@@ -0,0 +1,259 @@
+package com.truward.brikar.log.rollup;
+
+import com.truward.brikar.log.model.Severity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Binary format of the rollup segment file: all the series of one day (minute resolution) or one month (hour
+ * resolution), each series is a key followed by points. Point times are kept in resolution units, the first
+ * one as is, the second one as a delta and the rest as delta-of-deltas, so that regular series take one byte
+ * per timestamp. Times and counts are written as variable length integers, signed ones are zigzag encoded.
+ * <p>
+ * Each series is prefixed with its length, so that series, that do not match the query, are skipped without
+ * decoding their points.
+ *
+ * @author Alexander Shabanov
+ */
+final class RollupSegment {
+  private static final int MAGIC = 0x524c5550; // RLUP
+  private static final int VERSION = 1;
+
+  /**
+   * Receiver of the decoded segment contents.
+   */
+  interface Visitor {
+
+    /**
+     * @return True, if points of the given series should be decoded
+     */
+    boolean acceptSeries(@Nonnull SeriesKey key);
+
+    void acceptPoint(@Nonnull SeriesKey key, long unixTime, long count);
+  }
+
+  private RollupSegment() {} // Hidden ctor
+
+  @Nonnull
+  static byte[] encode(long resolution, @Nonnull Map<SeriesKey, ? extends SortedMap<Long, Long>> series) {
+    final Output out = new Output();
+    out.writeFixedInt(MAGIC);
+    out.writeVarLong(VERSION);
+    out.writeVarLong(resolution);
+    out.writeVarLong(series.size());
+
+    final Output seriesOut = new Output();
+    for (final Map.Entry<SeriesKey, ? extends SortedMap<Long, Long>> entry : series.entrySet()) {
+      seriesOut.reset();
+      writeKey(seriesOut, entry.getKey());
+
+      final SortedMap<Long, Long> points = entry.getValue();
+      seriesOut.writeVarLong(points.size());
+      long previous = 0;
+      long previousDelta = 0;
+      int index = 0;
+      for (final Map.Entry<Long, Long> point : points.entrySet()) {
+        final long time = Math.floorDiv(point.getKey(), resolution);
+        if (index == 0) {
+          seriesOut.writeSignedVarLong(time);
+        } else if (index == 1) {
+          previousDelta = time - previous;
+          seriesOut.writeVarLong(previousDelta);
+        } else {
+          final long delta = time - previous;
+          seriesOut.writeSignedVarLong(delta - previousDelta);
+          previousDelta = delta;
+        }
+        previous = time;
+        seriesOut.writeVarLong(point.getValue());
+        ++index;
+      }
+
+      out.writeVarLong(seriesOut.size());
+      out.writeBytes(seriesOut);
+    }
+    return out.toByteArray();
+  }
+
+  static void decode(@Nonnull byte[] data, @Nonnull Visitor visitor) throws IOException {
+    try {
+      decode(new Input(data), visitor);
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Rollup segment is truncated", e);
+    }
+  }
+
+  /**
+   * Merges the contents of the segment into the given series, points are aligned to the given resolution.
+   */
+  static void decodeInto(@Nonnull byte[] data, long resolution,
+                         @Nonnull final Map<SeriesKey, SortedMap<Long, Long>> target) throws IOException {
+    decode(data, new Visitor() {
+      @Override
+      public boolean acceptSeries(@Nonnull SeriesKey key) {
+        return true;
+      }
+
+      @Override
+      public void acceptPoint(@Nonnull SeriesKey key, long unixTime, long count) {
+        add(target, key, Math.floorDiv(unixTime, resolution) * resolution, count);
+      }
+    });
+  }
+
+  static void add(@Nonnull Map<SeriesKey, SortedMap<Long, Long>> target, @Nonnull SeriesKey key, long time,
+                  long count) {
+    SortedMap<Long, Long> points = target.get(key);
+    if (points == null) {
+      points = new TreeMap<>();
+      target.put(key, points);
+    }
+    final Long previous = points.get(time);
+    points.put(time, previous != null ? previous + count : count);
+  }
+
+  //
+  // Private
+  //
+
+  private static void decode(Input in, Visitor visitor) throws IOException {
+    if (in.readFixedInt() != MAGIC) {
+      throw new IOException("Not a rollup segment");
+    }
+    final long version = in.readVarLong();
+    if (version != VERSION) {
+      throw new IOException("Unsupported rollup segment version: " + version);
+    }
+
+    final long resolution = in.readVarLong();
+    final long seriesCount = in.readVarLong();
+    for (long i = 0; i < seriesCount; ++i) {
+      final int seriesEnd = (int) in.readVarLong() + in.position;
+      final SeriesKey key = readKey(in);
+      if (!visitor.acceptSeries(key)) {
+        in.position = seriesEnd;
+        continue;
+      }
+
+      final long pointCount = in.readVarLong();
+      long time = 0;
+      long delta = 0;
+      for (long j = 0; j < pointCount; ++j) {
+        if (j == 0) {
+          time = in.readSignedVarLong();
+        } else if (j == 1) {
+          delta = in.readVarLong();
+          time += delta;
+        } else {
+          delta += in.readSignedVarLong();
+          time += delta;
+        }
+        visitor.acceptPoint(key, time * resolution, in.readVarLong());
+      }
+    }
+  }
+
+  private static void writeKey(Output out, SeriesKey key) {
+    out.writeString(key.getSeverity() != null ? key.getSeverity().name() : null);
+    out.writeString(key.getLoggerName());
+    out.writeVarLong(key.getAttributes().size());
+    for (final Map.Entry<String, String> entry : key.getAttributes().entrySet()) {
+      out.writeString(entry.getKey());
+      out.writeString(entry.getValue());
+    }
+  }
+
+  private static SeriesKey readKey(Input in) {
+    final String severity = in.readString();
+    final String loggerName = in.readString();
+    final long attributeCount = in.readVarLong();
+    final Map<String, String> attributes = new TreeMap<>();
+    for (long i = 0; i < attributeCount; ++i) {
+      attributes.put(in.readString(), in.readString());
+    }
+    return new SeriesKey(severity != null ? Severity.valueOf(severity) : null, loggerName, attributes);
+  }
+
+  private static final class Output extends ByteArrayOutputStream {
+
+    void writeFixedInt(int value) {
+      write(value >>> 24);
+      write(value >>> 16);
+      write(value >>> 8);
+      write(value);
+    }
+
+    void writeVarLong(long value) {
+      while ((value & ~0x7fL) != 0) {
+        write((int) ((value & 0x7f) | 0x80));
+        value >>>= 7;
+      }
+      write((int) value);
+    }
+
+    void writeSignedVarLong(long value) {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeString(@Nullable String value) {
+      if (value == null) {
+        writeVarLong(0);
+        return;
+      }
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeVarLong(bytes.length + 1);
+      write(bytes, 0, bytes.length);
+    }
+
+    void writeBytes(Output other) {
+      write(other.buf, 0, other.count);
+    }
+  }
+
+  private static final class Input {
+    final byte[] data;
+    int position;
+
+    Input(byte[] data) {
+      this.data = data;
+    }
+
+    int readFixedInt() {
+      return ((data[position++] & 0xff) << 24) | ((data[position++] & 0xff) << 16) |
+          ((data[position++] & 0xff) << 8) | (data[position++] & 0xff);
+    }
+
+    long readVarLong() {
+      long result = 0;
+      for (int shift = 0; ; shift += 7) {
+        final int b = data[position++];
+        result |= (long) (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) {
+          return result;
+        }
+      }
+    }
+
+    long readSignedVarLong() {
+      final long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    String readString() {
+      final int length = (int) readVarLong();
+      if (length == 0) {
+        return null;
+      }
+      final String result = new String(data, position, length - 1, StandardCharsets.UTF_8);
+      position += length - 1;
+      return result;
+    }
+  }
+}
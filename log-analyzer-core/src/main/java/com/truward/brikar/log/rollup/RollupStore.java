@@ -0,0 +1,260 @@
+package com.truward.brikar.log.rollup;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.sink.LogMessageSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local on-disk store of record counts per minute by severity, logger name and the chosen attributes.
+ * <p>
+ * Counts are accumulated in memory and merged into the segment files on {@link #flush()}: one file per day with
+ * minute resolution in <code>minute</code> subdirectory and one file per month with hour resolution in
+ * <code>hour</code> subdirectory. Day files, that are older than retention period, are downsampled into
+ * the month files on flush. Files are replaced atomically, so the store could be queried by another process,
+ * though records of the day, that is being downsampled at that moment, may be counted twice.
+ * <p>
+ * All the methods are thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollupStore implements LogMessageSink, Flushable, Closeable {
+  public static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+  public static final long HOUR = TimeUnit.HOURS.toMillis(1);
+  public static final long DEFAULT_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+  private static final String MINUTE_DIRECTORY = "minute";
+  private static final String HOUR_DIRECTORY = "hour";
+  private static final String EXTENSION = ".rollup";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final Path minuteDirectory;
+  private final Path hourDirectory;
+  private final List<String> attributeNames;
+  private final long retentionMillis;
+
+  private Map<SeriesKey, SortedMap<Long, Long>> pending = new HashMap<>();
+
+  /**
+   * @param directory Directory, segment files are kept in, created if it does not exist
+   * @param attributeNames Names of the attributes, that records are counted by besides severity and logger name
+   * @param retentionMillis How long counts are kept with minute resolution
+   * @throws IOException If directory can not be created
+   */
+  public RollupStore(@Nonnull Path directory, @Nonnull Collection<String> attributeNames, long retentionMillis)
+      throws IOException {
+    if (retentionMillis < DAY) {
+      throw new IllegalArgumentException("Retention period should be at least one day");
+    }
+
+    this.minuteDirectory = Files.createDirectories(directory.resolve(MINUTE_DIRECTORY));
+    this.hourDirectory = Files.createDirectories(directory.resolve(HOUR_DIRECTORY));
+    this.attributeNames = Collections.unmodifiableList(new ArrayList<>(attributeNames));
+    this.retentionMillis = retentionMillis;
+  }
+
+  @Override
+  public void accept(@Nonnull LogMessage message) {
+    if (message.isNull() || message.isMultiLinePart()) {
+      return;
+    }
+
+    final SeriesKey key = SeriesKey.of(message, attributeNames);
+    final long minute = Math.floorDiv(message.getUnixTime(), MINUTE) * MINUTE;
+    synchronized (this) {
+      RollupSegment.add(pending, key, minute, 1L);
+    }
+  }
+
+  /**
+   * Merges the accumulated counts into the day files and downsamples the ones, that are past retention period.
+   */
+  @Override
+  public synchronized void flush() throws IOException {
+    final Map<Long, Map<SeriesKey, SortedMap<Long, Long>>> days = new TreeMap<>();
+    for (final Map.Entry<SeriesKey, SortedMap<Long, Long>> series : pending.entrySet()) {
+      for (final Map.Entry<Long, Long> point : series.getValue().entrySet()) {
+        final long day = Math.floorDiv(point.getKey(), DAY);
+        Map<SeriesKey, SortedMap<Long, Long>> daySeries = days.get(day);
+        if (daySeries == null) {
+          daySeries = new HashMap<>();
+          days.put(day, daySeries);
+        }
+        RollupSegment.add(daySeries, series.getKey(), point.getKey(), point.getValue());
+      }
+    }
+
+    pending = new HashMap<>();
+    final Iterator<Map.Entry<Long, Map<SeriesKey, SortedMap<Long, Long>>>> it = days.entrySet().iterator();
+    try {
+      while (it.hasNext()) {
+        final Map.Entry<Long, Map<SeriesKey, SortedMap<Long, Long>>> day = it.next();
+        merge(minuteDirectory.resolve(LocalDate.ofEpochDay(day.getKey()) + EXTENSION), MINUTE, day.getValue());
+        it.remove();
+      }
+    } finally {
+      // counts of the days, that have not been written, are kept until the next flush
+      for (final Map<SeriesKey, SortedMap<Long, Long>> daySeries : days.values()) {
+        for (final Map.Entry<SeriesKey, SortedMap<Long, Long>> series : daySeries.entrySet()) {
+          for (final Map.Entry<Long, Long> point : series.getValue().entrySet()) {
+            RollupSegment.add(pending, series.getKey(), point.getKey(), point.getValue());
+          }
+        }
+      }
+    }
+
+    downsample(System.currentTimeMillis());
+  }
+
+  /**
+   * Moves counts of the days, that end before the retention period, from the minute to the hour resolution.
+   *
+   * @param now Current time
+   * @throws IOException On I/O error
+   */
+  public synchronized void downsample(long now) throws IOException {
+    for (final Map.Entry<Long, Path> day : listSegments(minuteDirectory).entrySet()) {
+      if (day.getKey() + DAY > now - retentionMillis) {
+        continue;
+      }
+
+      final Map<SeriesKey, SortedMap<Long, Long>> hours = new HashMap<>();
+      RollupSegment.decodeInto(Files.readAllBytes(day.getValue()), HOUR, hours);
+      final YearMonth month = YearMonth.from(LocalDate.ofEpochDay(Math.floorDiv(day.getKey(), DAY)));
+      merge(hourDirectory.resolve(month + EXTENSION), HOUR, hours);
+      Files.delete(day.getValue());
+      log.debug("Downsampled {}", day.getValue());
+    }
+  }
+
+  /**
+   * Counts records, that match the query, including the ones, that have not been flushed yet.
+   *
+   * @param query Query
+   * @return Counts by the group key, ordered by time and key
+   * @throws IOException On I/O error
+   */
+  @Nonnull
+  public synchronized SortedMap<Long, SortedMap<SeriesKey, Long>> query(@Nonnull final RollupQuery query)
+      throws IOException {
+    final SortedMap<Long, SortedMap<SeriesKey, Long>> result = new TreeMap<>();
+    final RollupSegment.Visitor visitor = new RollupSegment.Visitor() {
+      @Override
+      public boolean acceptSeries(@Nonnull SeriesKey key) {
+        return query.matches(key);
+      }
+
+      @Override
+      public void acceptPoint(@Nonnull SeriesKey key, long unixTime, long count) {
+        if (!query.isInRange(unixTime)) {
+          return;
+        }
+
+        final long bucket = query.getBucket(unixTime);
+        SortedMap<SeriesKey, Long> counts = result.get(bucket);
+        if (counts == null) {
+          counts = new TreeMap<>();
+          result.put(bucket, counts);
+        }
+        final SeriesKey group = query.group(key);
+        final Long previous = counts.get(group);
+        counts.put(group, previous != null ? previous + count : count);
+      }
+    };
+
+    for (final Map.Entry<Long, Path> month : listSegments(hourDirectory).entrySet()) {
+      final long end = month.getKey() + YearMonth.from(LocalDate.ofEpochDay(Math.floorDiv(month.getKey(), DAY)))
+          .lengthOfMonth() * DAY;
+      if (month.getKey() < query.getToTime() && end > query.getFromTime()) {
+        RollupSegment.decode(Files.readAllBytes(month.getValue()), visitor);
+      }
+    }
+
+    for (final Map.Entry<Long, Path> day : listSegments(minuteDirectory).entrySet()) {
+      if (day.getKey() < query.getToTime() && day.getKey() + DAY > query.getFromTime()) {
+        RollupSegment.decode(Files.readAllBytes(day.getValue()), visitor);
+      }
+    }
+
+    for (final Map.Entry<SeriesKey, SortedMap<Long, Long>> series : pending.entrySet()) {
+      if (visitor.acceptSeries(series.getKey())) {
+        for (final Map.Entry<Long, Long> point : series.getValue().entrySet()) {
+          visitor.acceptPoint(series.getKey(), point.getKey(), point.getValue());
+        }
+      }
+    }
+
+    return result;
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+  //
+  // Private
+  //
+
+  /**
+   * @return Segment files by the start time of the period they cover
+   */
+  private static SortedMap<Long, Path> listSegments(Path directory) throws IOException {
+    final SortedMap<Long, Path> result = new TreeMap<>();
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+      for (final Path path : stream) {
+        final String fileName = path.getFileName().toString();
+        final String name = fileName.substring(0, fileName.length() - EXTENSION.length());
+        try {
+          final LocalDate start = name.length() == 7 ? YearMonth.parse(name).atDay(1) : LocalDate.parse(name);
+          result.put(start.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli(), path);
+        } catch (DateTimeParseException ignored) {
+          // not a segment file
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void merge(Path file, long resolution, Map<SeriesKey, SortedMap<Long, Long>> series)
+      throws IOException {
+    final Map<SeriesKey, SortedMap<Long, Long>> merged = new TreeMap<>();
+    if (Files.exists(file)) {
+      RollupSegment.decodeInto(Files.readAllBytes(file), resolution, merged);
+    }
+    for (final Map.Entry<SeriesKey, SortedMap<Long, Long>> entry : series.entrySet()) {
+      for (final Map.Entry<Long, Long> point : entry.getValue().entrySet()) {
+        RollupSegment.add(merged, entry.getKey(), Math.floorDiv(point.getKey(), resolution) * resolution,
+            point.getValue());
+      }
+    }
+
+    final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    Files.write(temporary, RollupSegment.encode(resolution, merged));
+    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
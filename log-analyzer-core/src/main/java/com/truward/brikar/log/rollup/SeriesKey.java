@@ -0,0 +1,142 @@
+package com.truward.brikar.log.rollup;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Identifies rollup time series: severity, logger name and values of the chosen attributes. Severity and logger
+ * name are null only in the keys, that have been projected for grouping.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SeriesKey implements Comparable<SeriesKey> {
+  private final Severity severity;
+  private final String loggerName;
+  private final SortedMap<String, String> attributes;
+
+  public SeriesKey(@Nullable Severity severity, @Nullable String loggerName, @Nonnull Map<String, String> attributes) {
+    this.severity = severity;
+    this.loggerName = loggerName;
+    this.attributes = Collections.unmodifiableSortedMap(new TreeMap<>(Objects.requireNonNull(attributes,
+        "attributes")));
+  }
+
+  /**
+   * Creates the key of the series, the given record is counted in.
+   *
+   * @param message Record
+   * @param attributeNames Names of the attributes to keep, record attributes with other names are ignored
+   * @return Series key
+   */
+  @Nonnull
+  public static SeriesKey of(@Nonnull LogMessage message, @Nonnull Collection<String> attributeNames) {
+    final Map<String, String> attributes = new TreeMap<>();
+    if (!attributeNames.isEmpty()) {
+      final Map<String, Object> messageAttributes = message.getAttributes();
+      for (final String name : attributeNames) {
+        final Object value = messageAttributes.get(name);
+        if (value != null) {
+          attributes.put(name, value.toString());
+        }
+      }
+    }
+    return new SeriesKey(message.getSeverity(), message.getLoggerName(), attributes);
+  }
+
+  @Nullable
+  public Severity getSeverity() {
+    return severity;
+  }
+
+  @Nullable
+  public String getLoggerName() {
+    return loggerName;
+  }
+
+  @Nonnull
+  public SortedMap<String, String> getAttributes() {
+    return attributes;
+  }
+
+  /**
+   * @return Key, that keeps only the given parts of this key, so that series could be grouped by it
+   */
+  @Nonnull
+  public SeriesKey project(boolean keepSeverity, boolean keepLoggerName, @Nonnull Collection<String> attributeNames) {
+    final Map<String, String> projected = new TreeMap<>();
+    for (final String name : attributeNames) {
+      final String value = attributes.get(name);
+      if (value != null) {
+        projected.put(name, value);
+      }
+    }
+    return new SeriesKey(keepSeverity ? severity : null, keepLoggerName ? loggerName : null, projected);
+  }
+
+  @Override
+  public int compareTo(@Nonnull SeriesKey other) {
+    int result = compare(severity != null ? severity.name() : null,
+        other.severity != null ? other.severity.name() : null);
+    if (result == 0) {
+      result = compare(loggerName, other.loggerName);
+    }
+
+    final Iterator<Map.Entry<String, String>> it = attributes.entrySet().iterator();
+    final Iterator<Map.Entry<String, String>> otherIt = other.attributes.entrySet().iterator();
+    while (result == 0 && it.hasNext() && otherIt.hasNext()) {
+      final Map.Entry<String, String> entry = it.next();
+      final Map.Entry<String, String> otherEntry = otherIt.next();
+      result = entry.getKey().compareTo(otherEntry.getKey());
+      if (result == 0) {
+        result = entry.getValue().compareTo(otherEntry.getValue());
+      }
+    }
+    return result != 0 ? result : Integer.compare(attributes.size(), other.attributes.size());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof SeriesKey)) return false;
+
+    final SeriesKey other = (SeriesKey) o;
+    return severity == other.severity && Objects.equals(loggerName, other.loggerName) &&
+        attributes.equals(other.attributes);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(severity, loggerName, attributes);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder();
+    builder.append(severity != null ? severity.name() : "*").append(' ').append(loggerName != null ? loggerName : "*");
+    for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+      builder.append(' ').append(entry.getKey()).append('=').append(entry.getValue());
+    }
+    return builder.toString();
+  }
+
+  //
+  // Private
+  //
+
+  private static int compare(@Nullable String left, @Nullable String right) {
+    if (left == null) {
+      return right == null ? 0 : -1;
+    }
+    return right == null ? 1 : left.compareTo(right);
+  }
+}
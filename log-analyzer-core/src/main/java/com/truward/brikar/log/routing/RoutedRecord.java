@@ -0,0 +1,31 @@
+package com.truward.brikar.log.routing;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Converted record together with the endpoints it should be sent to, used when record is routed before
+ * it is sent as a separate exchange.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RoutedRecord {
+  private final Object body;
+  private final List<String> endpoints;
+
+  public RoutedRecord(@Nonnull Object body, @Nonnull List<String> endpoints) {
+    this.body = Objects.requireNonNull(body, "body");
+    this.endpoints = Objects.requireNonNull(endpoints, "endpoints");
+  }
+
+  @Nonnull
+  public Object getBody() {
+    return body;
+  }
+
+  @Nonnull
+  public List<String> getEndpoints() {
+    return endpoints;
+  }
+}
@@ -0,0 +1,105 @@
+package com.truward.brikar.log.routing;
+
+import com.truward.brikar.log.model.Severity;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Rule, that sends records, matching all of its predicates, to the given endpoints. Empty predicate
+ * matches any record.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RoutingRule {
+
+  /**
+   * Attribute value, that matches any value of the attribute, provided that record has it.
+   */
+  public static final String ANY_VALUE = "*";
+
+  private final String name;
+  private final Set<Severity> severities;
+  private final List<String> loggerPrefixes;
+  private final Map<String, String> attributes;
+  private final Boolean metric;
+  private final List<String> endpoints;
+
+  /**
+   * @param name Rule name, used to report hit counts
+   * @param severities Severities of the matching records, empty set matches any severity
+   * @param loggerPrefixes Prefixes of the logger names of the matching records, empty list matches any logger
+   * @param attributes Attributes, that matching records should have, {@link #ANY_VALUE} matches any value
+   * @param metric Whether matching records should be metric records, null matches both
+   * @param endpoints URIs of the endpoints, matching records are sent to
+   */
+  public RoutingRule(@Nonnull String name,
+                     @Nonnull Collection<Severity> severities,
+                     @Nonnull List<String> loggerPrefixes,
+                     @Nonnull Map<String, String> attributes,
+                     @Nullable Boolean metric,
+                     @Nonnull List<String> endpoints) {
+    if (endpoints.isEmpty()) {
+      throw new IllegalArgumentException("Rule " + name + " should have at least one endpoint");
+    }
+
+    this.name = Objects.requireNonNull(name, "name");
+    this.severities = severities.isEmpty() ? Collections.<Severity>emptySet() :
+        Collections.unmodifiableSet(EnumSet.copyOf(severities));
+    this.loggerPrefixes = Collections.unmodifiableList(new ArrayList<>(loggerPrefixes));
+    this.attributes = Collections.unmodifiableMap(new TreeMap<>(attributes));
+    this.metric = metric;
+    this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+  }
+
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  @Nonnull
+  public Set<Severity> getSeverities() {
+    return severities;
+  }
+
+  @Nonnull
+  public List<String> getLoggerPrefixes() {
+    return loggerPrefixes;
+  }
+
+  @Nonnull
+  public Map<String, String> getAttributes() {
+    return attributes;
+  }
+
+  @Nullable
+  public Boolean getMetric() {
+    return metric;
+  }
+
+  @Nonnull
+  public List<String> getEndpoints() {
+    return endpoints;
+  }
+
+  @Override
+  public String toString() {
+    return "RoutingRule{" +
+        "name='" + name + '\'' +
+        ", severities=" + severities +
+        ", loggerPrefixes=" + loggerPrefixes +
+        ", attributes=" + attributes +
+        ", metric=" + metric +
+        ", endpoints=" + endpoints +
+        '}';
+  }
+}
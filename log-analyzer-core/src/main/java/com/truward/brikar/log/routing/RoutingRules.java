@@ -0,0 +1,130 @@
+package com.truward.brikar.log.routing;
+
+import com.truward.brikar.log.model.Severity;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Reads routing rules from the properties file, each property name starts with the rule name:
+ * <pre>
+ * errors.severity=ERROR
+ * errors.endpoint=elasticsearch://local?operation=INDEX&amp;indexName=logs&amp;indexType=logItem
+ *
+ * metrics.metric=true
+ * metrics.endpoint=file:/var/lib/metrics
+ *
+ * billing.logger=com.example.billing, com.example.payments
+ * billing.attribute.oid=*
+ * billing.endpoint=file:/var/lib/billing log:billing
+ * </pre>
+ * Severities and logger prefixes are separated by commas, endpoints are separated by whitespace.
+ * Rules are ordered by name.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RoutingRules {
+  private static final String SEVERITY = "severity";
+  private static final String LOGGER = "logger";
+  private static final String METRIC = "metric";
+  private static final String ENDPOINT = "endpoint";
+  private static final String ATTRIBUTE_PREFIX = "attribute.";
+
+  private RoutingRules() {} // Hidden ctor
+
+  @Nonnull
+  public static List<RoutingRule> load(@Nonnull Path file) throws IOException {
+    final Properties properties = new Properties();
+    try (final Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    return parse(properties);
+  }
+
+  @Nonnull
+  public static List<RoutingRule> parse(@Nonnull Properties properties) {
+    final Map<String, Map<String, String>> ruleProperties = new TreeMap<>();
+    for (final String key : properties.stringPropertyNames()) {
+      final int dot = key.indexOf('.');
+      if (dot <= 0 || dot == key.length() - 1) {
+        throw new IllegalArgumentException("Routing property should start with rule name: " + key);
+      }
+
+      final String ruleName = key.substring(0, dot);
+      Map<String, String> values = ruleProperties.get(ruleName);
+      if (values == null) {
+        values = new HashMap<>();
+        ruleProperties.put(ruleName, values);
+      }
+      values.put(key.substring(dot + 1), properties.getProperty(key).trim());
+    }
+
+    final List<RoutingRule> result = new ArrayList<>(ruleProperties.size());
+    for (final Map.Entry<String, Map<String, String>> entry : ruleProperties.entrySet()) {
+      result.add(parseRule(entry.getKey(), entry.getValue()));
+    }
+    return result;
+  }
+
+  //
+  // Private
+  //
+
+  private static RoutingRule parseRule(String name, Map<String, String> values) {
+    final Set<Severity> severities = EnumSet.noneOf(Severity.class);
+    List<String> loggerPrefixes = Collections.emptyList();
+    final Map<String, String> attributes = new HashMap<>();
+    Boolean metric = null;
+    List<String> endpoints = Collections.emptyList();
+
+    for (final Map.Entry<String, String> entry : values.entrySet()) {
+      final String key = entry.getKey();
+      final String value = entry.getValue();
+      if (SEVERITY.equals(key)) {
+        for (final String severity : split(value, ",")) {
+          try {
+            severities.add(Severity.valueOf(severity.toUpperCase()));
+          } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown severity in rule " + name + ": " + severity, e);
+          }
+        }
+      } else if (LOGGER.equals(key)) {
+        loggerPrefixes = split(value, ",");
+      } else if (METRIC.equals(key)) {
+        metric = Boolean.valueOf(value);
+      } else if (ENDPOINT.equals(key)) {
+        endpoints = split(value, "\\s+");
+      } else if (key.startsWith(ATTRIBUTE_PREFIX) && key.length() > ATTRIBUTE_PREFIX.length()) {
+        attributes.put(key.substring(ATTRIBUTE_PREFIX.length()), value);
+      } else {
+        throw new IllegalArgumentException("Unknown property of rule " + name + ": " + key);
+      }
+    }
+
+    return new RoutingRule(name, severities, loggerPrefixes, attributes, metric, endpoints);
+  }
+
+  private static List<String> split(String value, String separator) {
+    final List<String> result = new ArrayList<>();
+    for (final String part : value.split(separator)) {
+      final String trimmed = part.trim();
+      if (!trimmed.isEmpty()) {
+        result.add(trimmed);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,285 @@
+package com.truward.brikar.log.routing;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Routing rules compiled into the bitmasks of the matching rules, so that record is evaluated against all
+ * the rules in a single pass: severity selects a precomputed mask, logger name is walked once through the trie
+ * of the logger prefixes and each attribute, that is used by any rule, is looked up once. Masks of all
+ * the predicates are intersected and the record is sent to the endpoints of all the rules it matches
+ * or to the default endpoints, if it matches none of them.
+ * <p>
+ * Table counts the records, that have been matched by each rule. All the methods are thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RoutingTable {
+  public static final int MAX_RULES = Long.SIZE;
+
+  /**
+   * Name of the hit counter of the records, that have not been matched by any rule.
+   */
+  public static final String DEFAULT_RULE_NAME = "default";
+
+  /**
+   * Marker of the metric record, should be the same the log producer uses.
+   */
+  public static final String METRIC_MARKER = "@metric ";
+
+  private final List<RoutingRule> rules;
+  private final List<String> defaultEndpoints;
+
+  private final long allRulesMask;
+  private final long[] severityMasks;
+  private final long anyLoggerMask;
+  private final PrefixNode loggerTrie = new PrefixNode();
+  private final String[] attributeNames;
+  private final long[] attributeUnconstrainedMasks;
+  private final long[] anyValueMasks;
+  private final List<Map<String, Long>> valueMasks;
+  private final long metricUnconstrainedMask;
+  private final long metricMask;
+  private final long nonMetricMask;
+
+  private final AtomicLongArray hits;
+  private final ConcurrentMap<Long, List<String>> endpointsByMask = new ConcurrentHashMap<>();
+
+  /**
+   * @param rules Rules, at most {@link #MAX_RULES}
+   * @param defaultEndpoints Endpoints of the records, that do not match any rule
+   */
+  public RoutingTable(@Nonnull List<RoutingRule> rules, @Nonnull List<String> defaultEndpoints) {
+    if (rules.size() > MAX_RULES) {
+      throw new IllegalArgumentException("At most " + MAX_RULES + " routing rules are supported");
+    }
+
+    this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+    this.defaultEndpoints = Collections.unmodifiableList(new ArrayList<>(defaultEndpoints));
+    this.hits = new AtomicLongArray(rules.size() + 1);
+    this.allRulesMask = rules.size() == MAX_RULES ? -1L : (1L << rules.size()) - 1L;
+
+    final Severity[] severities = Severity.values();
+    this.severityMasks = new long[severities.length];
+    long anyLogger = 0L;
+    long metricConstrained = 0L;
+    long metricTrue = 0L;
+    final Map<String, Integer> attributeIndexes = new LinkedHashMap<>();
+    for (final RoutingRule rule : rules) {
+      for (final String attribute : rule.getAttributes().keySet()) {
+        if (!attributeIndexes.containsKey(attribute)) {
+          attributeIndexes.put(attribute, attributeIndexes.size());
+        }
+      }
+    }
+    this.attributeNames = attributeIndexes.keySet().toArray(new String[attributeIndexes.size()]);
+    this.attributeUnconstrainedMasks = new long[attributeNames.length];
+    Arrays.fill(attributeUnconstrainedMasks, -1L);
+    this.anyValueMasks = new long[attributeNames.length];
+    this.valueMasks = new ArrayList<>(attributeNames.length);
+    for (int i = 0; i < attributeNames.length; ++i) {
+      valueMasks.add(new HashMap<String, Long>());
+    }
+
+    for (int i = 0; i < rules.size(); ++i) {
+      final RoutingRule rule = rules.get(i);
+      final long bit = 1L << i;
+
+      for (final Severity severity : severities) {
+        if (rule.getSeverities().isEmpty() || rule.getSeverities().contains(severity)) {
+          severityMasks[severity.ordinal()] |= bit;
+        }
+      }
+
+      if (rule.getLoggerPrefixes().isEmpty()) {
+        anyLogger |= bit;
+      }
+      for (final String prefix : rule.getLoggerPrefixes()) {
+        loggerTrie.add(prefix, 0).mask |= bit;
+      }
+
+      for (final Map.Entry<String, String> attribute : rule.getAttributes().entrySet()) {
+        final int index = attributeIndexes.get(attribute.getKey());
+        attributeUnconstrainedMasks[index] &= ~bit;
+        if (RoutingRule.ANY_VALUE.equals(attribute.getValue())) {
+          anyValueMasks[index] |= bit;
+        } else {
+          final Long previous = valueMasks.get(index).get(attribute.getValue());
+          valueMasks.get(index).put(attribute.getValue(), previous != null ? previous | bit : bit);
+        }
+      }
+
+      if (rule.getMetric() != null) {
+        metricConstrained |= bit;
+        if (rule.getMetric()) {
+          metricTrue |= bit;
+        }
+      }
+    }
+
+    this.anyLoggerMask = anyLogger;
+    this.metricUnconstrainedMask = ~metricConstrained;
+    this.metricMask = metricTrue;
+    this.nonMetricMask = metricConstrained & ~metricTrue;
+  }
+
+  /**
+   * @param message Complete log record
+   * @return Bitmask of the indexes of the rules, that match the record
+   */
+  public long evaluate(@Nonnull LogMessage message) {
+    long mask = severityMasks[message.getSeverity().ordinal()];
+    if (mask == 0L) {
+      return 0L;
+    }
+
+    if (anyLoggerMask != allRulesMask) {
+      mask &= anyLoggerMask | loggerTrie.match(message.getLoggerName());
+    }
+
+    if (attributeNames.length > 0) {
+      final Map<String, Object> attributes = message.getAttributes();
+      for (int i = 0; i < attributeNames.length && mask != 0L; ++i) {
+        long satisfied = attributeUnconstrainedMasks[i];
+        final Object value = attributes.get(attributeNames[i]);
+        if (value != null) {
+          satisfied |= anyValueMasks[i];
+          final Long valueMask = valueMasks.get(i).get(value.toString());
+          if (valueMask != null) {
+            satisfied |= valueMask;
+          }
+        }
+        mask &= satisfied;
+      }
+    }
+
+    if (metricUnconstrainedMask != -1L && mask != 0L) {
+      final boolean metric = message.getMessage().contains(METRIC_MARKER);
+      mask &= metricUnconstrainedMask | (metric ? metricMask : nonMetricMask);
+    }
+
+    return mask;
+  }
+
+  /**
+   * Evaluates the rules and counts the hits.
+   *
+   * @param message Complete log record
+   * @return Endpoints, the record should be sent to, each one once
+   */
+  @Nonnull
+  public List<String> route(@Nonnull LogMessage message) {
+    final long mask = evaluate(message);
+    if (mask == 0L) {
+      hits.incrementAndGet(rules.size());
+      return defaultEndpoints;
+    }
+
+    for (long rest = mask; rest != 0L; rest &= rest - 1) {
+      hits.incrementAndGet(Long.numberOfTrailingZeros(rest));
+    }
+
+    final List<String> endpoints = endpointsByMask.get(mask);
+    return endpoints != null ? endpoints : computeEndpoints(mask);
+  }
+
+  /**
+   * @return Counts of the records, matched by each rule, in the order of rules, followed by the count of
+   * the records, sent to the default endpoints
+   */
+  @Nonnull
+  public Map<String, Long> getHitCounts() {
+    final Map<String, Long> result = new LinkedHashMap<>();
+    for (int i = 0; i < rules.size(); ++i) {
+      result.put(rules.get(i).getName(), hits.get(i));
+    }
+    result.put(DEFAULT_RULE_NAME, hits.get(rules.size()));
+    return result;
+  }
+
+  @Nonnull
+  public List<RoutingRule> getRules() {
+    return rules;
+  }
+
+  //
+  // Private
+  //
+
+  private List<String> computeEndpoints(long mask) {
+    final Set<String> endpoints = new LinkedHashSet<>();
+    for (long rest = mask; rest != 0L; rest &= rest - 1) {
+      endpoints.addAll(rules.get(Long.numberOfTrailingZeros(rest)).getEndpoints());
+    }
+    final List<String> result = Collections.unmodifiableList(new ArrayList<>(endpoints));
+    final List<String> existing = endpointsByMask.putIfAbsent(mask, result);
+    return existing != null ? existing : result;
+  }
+
+  /**
+   * Node of the character trie of the logger prefixes, mask contains the rules, which prefix ends at the node.
+   */
+  private static final class PrefixNode {
+    char[] labels = new char[0];
+    PrefixNode[] children = new PrefixNode[0];
+    long mask;
+
+    PrefixNode add(String prefix, int index) {
+      if (index == prefix.length()) {
+        return this;
+      }
+
+      final char ch = prefix.charAt(index);
+      for (int i = 0; i < labels.length; ++i) {
+        if (labels[i] == ch) {
+          return children[i].add(prefix, index + 1);
+        }
+      }
+
+      labels = Arrays.copyOf(labels, labels.length + 1);
+      children = Arrays.copyOf(children, children.length + 1);
+      labels[labels.length - 1] = ch;
+      children[children.length - 1] = new PrefixNode();
+      return children[children.length - 1].add(prefix, index + 1);
+    }
+
+    /**
+     * @return Masks of all the prefixes of the given name
+     */
+    long match(String name) {
+      long result = mask;
+      PrefixNode node = this;
+      for (int index = 0; index < name.length(); ++index) {
+        final char ch = name.charAt(index);
+        PrefixNode next = null;
+        for (int i = 0; i < node.labels.length; ++i) {
+          if (node.labels[i] == ch) {
+            next = node.children[i];
+            break;
+          }
+        }
+        if (next == null) {
+          break;
+        }
+        node = next;
+        result |= node.mask;
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,341 @@
+package com.truward.brikar.log.search;
+
+import com.truward.brikar.log.model.ByteSliceLogMessage;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.sink.LogMessageSink;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches log files for the complete records, that match the query. File is split into ranges, that are
+ * memory mapped and searched in parallel, each range is copied into the reusable window piece by piece, so
+ * that the parser could work on the byte array. Pattern is searched over the raw bytes and only the records
+ * around the matches are parsed, record boundaries are found using the same rules multiline assembly uses.
+ * <p>
+ * Matching records are passed to the sink in the order they appear in the file, from the calling thread.
+ * Parser is shared by the search threads and thus should be thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecordSearcher implements AutoCloseable {
+  public static final int DEFAULT_WINDOW_SIZE = 4 * 1024 * 1024;
+
+  private static final long MAX_RANGE_SIZE = 64L * 1024 * 1024;
+
+  private final LogLineParser parser;
+  private final int threads;
+  private final int maxLines;
+  private final int windowSize;
+  private final ExecutorService executor;
+  private final ThreadLocal<byte[]> windows;
+
+  public RecordSearcher(@Nonnull LogLineParser parser, int threads, int maxLines, int windowSize) {
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Threads count should be a positive number");
+    }
+    if (maxLines <= 0) {
+      throw new IllegalArgumentException("Max lines should be a positive number");
+    }
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("Window size should be a positive number");
+    }
+
+    this.parser = Objects.requireNonNull(parser, "parser");
+    this.threads = threads;
+    this.maxLines = maxLines;
+    this.windowSize = windowSize;
+    this.executor = Executors.newFixedThreadPool(threads);
+    this.windows = ThreadLocal.withInitial(() -> new byte[windowSize]);
+  }
+
+  /**
+   * Searches the file.
+   *
+   * @param file File to search in
+   * @param query Search query
+   * @param sink Sink for the matching records
+   * @return Number of matching records
+   * @throws IOException On I/O error
+   * @throws InterruptedException If interrupted while waiting for the search threads
+   */
+  public long search(@Nonnull Path file, @Nonnull SearchQuery query, @Nonnull LogMessageSink sink)
+      throws IOException, InterruptedException {
+    Objects.requireNonNull(query, "query");
+    Objects.requireNonNull(sink, "sink");
+
+    long count = 0;
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      final long rangeSize = Math.max(windowSize, Math.min(MAX_RANGE_SIZE, size / threads + 1));
+
+      // ranges are searched in parallel, but results are consumed in order, so a few ranges are kept in flight
+      final Deque<Future<List<LogMessage>>> inFlight = new ArrayDeque<>();
+      long rangeStart = 0;
+      while (rangeStart < size || !inFlight.isEmpty()) {
+        while (rangeStart < size && inFlight.size() < 2 * threads) {
+          final long rangeEnd = Math.min(size, rangeStart + rangeSize);
+          inFlight.add(executor.submit(new RangeSearch(channel, size, rangeStart, rangeEnd, query)));
+          rangeStart = rangeEnd;
+        }
+
+        for (final LogMessage record : await(inFlight.poll())) {
+          sink.accept(record);
+          ++count;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  //
+  // Private
+  //
+
+  private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException("Search failed", e.getCause());
+    }
+  }
+
+  /**
+   * Searches records, that start within the given range of the file. Last record may extend past the range.
+   */
+  private final class RangeSearch implements Callable<List<LogMessage>> {
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long rangeStart;
+    private final long rangeEnd;
+    private final SearchQuery query;
+    private final List<LogMessage> results = new ArrayList<>();
+
+    RangeSearch(FileChannel channel, long fileSize, long rangeStart, long rangeEnd, SearchQuery query) {
+      this.channel = channel;
+      this.fileSize = fileSize;
+      this.rangeStart = rangeStart;
+      this.rangeEnd = rangeEnd;
+      this.query = query;
+    }
+
+    @Override
+    public List<LogMessage> call() throws IOException {
+      final byte[] window = windows.get();
+      // mapping starts one byte before the range, so that line start at the range start could be recognized
+      final long mappedStart = Math.max(0L, rangeStart - 1);
+      final long mappedEnd = Math.min(fileSize, rangeEnd + windowSize);
+      final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, mappedStart,
+          mappedEnd - mappedStart);
+
+      long pos = rangeStart;
+      if (rangeStart > 0) {
+        // skip the tail of the record, that started in the previous range
+        pos = findRecordStart(mapped, mappedStart, window);
+      }
+
+      while (pos < rangeEnd) {
+        final int length = (int) Math.min(window.length, mappedEnd - pos);
+        mapped.position((int) (pos - mappedStart));
+        mapped.get(window, 0, length);
+
+        // window should contain complete records only, unless a single record does not fit into it
+        final int end = (pos + length >= fileSize) ? length : lastRecordStart(window, length);
+        final int startLimit = (int) Math.min(end, rangeEnd - pos);
+        if (query.hasPattern()) {
+          searchPattern(window, end, startLimit);
+        } else {
+          scanRecords(window, end, startLimit);
+        }
+        pos += end;
+      }
+      return results;
+    }
+
+    /**
+     * @return Position of the first record start within the range or range end if there is none
+     */
+    private long findRecordStart(MappedByteBuffer mapped, long mappedStart, byte[] window) {
+      final long mappedEnd = mappedStart + mapped.capacity();
+      long pos = rangeStart - 1; // points to the line terminator, if line starts at the range start
+      while (pos < rangeEnd) {
+        final int length = (int) Math.min(window.length, mappedEnd - pos);
+        mapped.position((int) (pos - mappedStart));
+        mapped.get(window, 0, length);
+
+        final boolean lastWindow = pos + length >= mappedEnd;
+        int lastTerminator = -1;
+        for (int i = 0; i < length; ++i) {
+          if (window[i] != '\n') {
+            continue;
+          }
+          lastTerminator = i;
+          final int lineEnd = lineEnd(window, i + 1, length);
+          if (pos + i + 1 >= rangeEnd) {
+            return rangeEnd;
+          }
+          // incomplete line, that starts the window, is longer than the window and can not be read again in full
+          final boolean checked = lineEnd < length || i == 0 || lastWindow;
+          if (checked && isRecordBoundary(window, i + 1, lineEnd)) {
+            return pos + i + 1;
+          }
+        }
+
+        if (lastWindow) {
+          break;
+        }
+        // continue from the last terminator, so that incomplete line is read again, unless it has been checked
+        pos += lastTerminator > 0 ? lastTerminator : length - 1;
+      }
+      return rangeEnd;
+    }
+
+    private void searchPattern(byte[] window, int end, int startLimit) {
+      int pos = 0;
+      while (pos < end) {
+        final int found = query.indexOf(window, pos, end);
+        if (found < 0) {
+          return;
+        }
+
+        final int recordStart = findRecordStartBefore(window, lineStart(window, found), end);
+        if (recordStart < 0) {
+          pos = lineEnd(window, found, end) + 1; // orphan line
+          continue;
+        }
+        if (recordStart >= startLimit) {
+          return; // belongs to the next range
+        }
+        pos = addRecord(window, recordStart, end);
+      }
+    }
+
+    private void scanRecords(byte[] window, int end, int startLimit) {
+      int pos = 0;
+      while (pos < startLimit) {
+        final int lineEnd = lineEnd(window, pos, end);
+        if (!isRecordBoundary(window, pos, lineEnd)) {
+          pos = lineEnd + 1; // orphan line
+          continue;
+        }
+        pos = addRecord(window, pos, end);
+      }
+    }
+
+    /**
+     * Assembles the record, that starts at the given position, adds it to results if it matches the filters.
+     *
+     * @return Position of the next record
+     */
+    private int addRecord(byte[] window, int start, int end) {
+      int lineEnd = lineEnd(window, start, end);
+      final LogMessage record = parser.parse(window, start, trimmedLength(window, start, lineEnd));
+      if (record.isNull()) {
+        return lineEnd + 1;
+      }
+
+      int lines = 1;
+      int pos = lineEnd + 1;
+      while (pos < end) {
+        lineEnd = lineEnd(window, pos, end);
+        final int length = trimmedLength(window, pos, lineEnd);
+        if (length > 0) {
+          final LogMessage part = parser.parse(window, pos, length);
+          if (!part.isMultiLinePart()) {
+            break;
+          }
+          if (lines < maxLines) {
+            record.addLine(part);
+            ++lines;
+          }
+        }
+        pos = lineEnd + 1;
+      }
+
+      if (query.matches(record)) {
+        if (record instanceof ByteSliceLogMessage) {
+          ((ByteSliceLogMessage) record).compact(); // detach from the window, that is going to be reused
+        }
+        results.add(record);
+      }
+      return pos;
+    }
+
+    /**
+     * @return Start of the record, the given line belongs to, or -1 if there is no such record in the window
+     */
+    private int findRecordStartBefore(byte[] window, int lineStart, int end) {
+      int pos = lineStart;
+      for (;;) {
+        final int lineEnd = lineEnd(window, pos, end);
+        if (isRecordBoundary(window, pos, lineEnd)) {
+          return parser.parse(window, pos, trimmedLength(window, pos, lineEnd)).isNull() ? -1 : pos;
+        }
+        if (pos == 0) {
+          return -1;
+        }
+        pos = lineStart(window, pos - 1);
+      }
+    }
+
+    private int lastRecordStart(byte[] window, int length) {
+      // the last line might be incomplete, it is going to be read again along with the rest of it
+      final int incompleteStart = window[length - 1] == '\n' ? length : lineStart(window, length - 1);
+      int pos = incompleteStart;
+      while (pos > 0) {
+        pos = lineStart(window, pos - 1);
+        if (pos > 0 && isRecordBoundary(window, pos, lineEnd(window, pos, length))) {
+          return pos;
+        }
+      }
+      // record does not fit into the window, the rest of it is going to be skipped
+      return incompleteStart > 0 ? incompleteStart : length;
+    }
+
+    private boolean isRecordBoundary(byte[] window, int start, int lineEnd) {
+      final int length = trimmedLength(window, start, lineEnd);
+      return length > 0 && !parser.parse(window, start, length).isMultiLinePart();
+    }
+  }
+
+  private static int lineStart(byte[] buffer, int pos) {
+    while (pos > 0 && buffer[pos - 1] != '\n') {
+      --pos;
+    }
+    return pos;
+  }
+
+  private static int lineEnd(byte[] buffer, int pos, int end) {
+    while (pos < end && buffer[pos] != '\n') {
+      ++pos;
+    }
+    return pos;
+  }
+
+  private static int trimmedLength(byte[] buffer, int start, int lineEnd) {
+    return (lineEnd > start && buffer[lineEnd - 1] == '\r') ? lineEnd - start - 1 : lineEnd - start;
+  }
+}
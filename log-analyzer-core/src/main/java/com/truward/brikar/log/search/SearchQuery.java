@@ -0,0 +1,162 @@
+package com.truward.brikar.log.search;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.util.BytePattern;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Search criteria: text pattern, that should occur in any line of the record, and filters, that are applied
+ * to the record header. Pattern is either a literal or a literal with <code>*</code> wildcards, each wildcard
+ * matches any number of characters within the same line.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SearchQuery {
+  private final String pattern;
+  private final List<BytePattern> parts;
+  private final Set<Severity> severities;
+  private final long fromTime;
+  private final long toTime;
+  private final Map<String, String> attributes;
+
+  /**
+   * @param pattern Text pattern or null, if records should be matched by filters only
+   * @param ignoreCase Whether ASCII letters in pattern should match regardless of case
+   * @param severities Severities of the records to match, empty set matches any severity
+   * @param fromTime Minimum record time, inclusive, unix time in milliseconds
+   * @param toTime Maximum record time, exclusive, unix time in milliseconds
+   * @param attributes Attribute values, that record should have
+   */
+  public SearchQuery(@Nullable String pattern,
+                     boolean ignoreCase,
+                     @Nonnull Set<Severity> severities,
+                     long fromTime,
+                     long toTime,
+                     @Nonnull Map<String, String> attributes) {
+    if (fromTime >= toTime) {
+      throw new IllegalArgumentException("Time range is empty");
+    }
+
+    this.pattern = pattern;
+    final List<BytePattern> parts = new ArrayList<>();
+    if (pattern != null) {
+      for (final String part : pattern.split("\\*")) {
+        if (!part.isEmpty()) {
+          parts.add(new BytePattern(part, ignoreCase));
+        }
+      }
+    }
+    this.parts = Collections.unmodifiableList(parts);
+    this.severities = severities.isEmpty() ? EnumSet.allOf(Severity.class) : EnumSet.copyOf(severities);
+    this.fromTime = fromTime;
+    this.toTime = toTime;
+    this.attributes = Collections.unmodifiableMap(new HashMap<>(Objects.requireNonNull(attributes, "attributes")));
+  }
+
+  @Nonnull
+  public static SearchQuery forPattern(@Nonnull String pattern) {
+    return new SearchQuery(pattern, false, EnumSet.noneOf(Severity.class), Long.MIN_VALUE, Long.MAX_VALUE,
+        Collections.<String, String>emptyMap());
+  }
+
+  /**
+   * @return True, if query has text pattern and records should be found by searching for it
+   */
+  public boolean hasPattern() {
+    return !parts.isEmpty();
+  }
+
+  /**
+   * Finds the first line, that matches the pattern.
+   *
+   * @param buffer Buffer to search in
+   * @param start Start position, inclusive
+   * @param end End position, exclusive
+   * @return Position of the pattern occurrence or -1 if there is none
+   */
+  public int indexOf(@Nonnull byte[] buffer, int start, int end) {
+    final BytePattern first = parts.get(0);
+    int pos = start;
+    for (;;) {
+      final int found = first.indexOf(buffer, pos, end);
+      if (found < 0 || matchesRestOfLine(buffer, found + first.length(), end)) {
+        return found;
+      }
+      pos = found + 1;
+    }
+  }
+
+  /**
+   * @param record Record header
+   * @return True, if record satisfies the filters
+   */
+  public boolean matches(@Nonnull LogMessage record) {
+    if (!severities.contains(record.getSeverity())) {
+      return false;
+    }
+
+    final long time = record.getUnixTime();
+    if (time < fromTime || time >= toTime) {
+      return false;
+    }
+
+    if (!attributes.isEmpty()) {
+      final Map<String, Object> recordAttributes = record.getAttributes();
+      for (final Map.Entry<String, String> entry : attributes.entrySet()) {
+        final Object value = recordAttributes.get(entry.getKey());
+        if (value == null || !entry.getValue().equals(value.toString())) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "SearchQuery{" +
+        "pattern='" + pattern + '\'' +
+        ", severities=" + severities +
+        ", fromTime=" + fromTime +
+        ", toTime=" + toTime +
+        ", attributes=" + attributes +
+        '}';
+  }
+
+  //
+  // Private
+  //
+
+  private boolean matchesRestOfLine(byte[] buffer, int pos, int end) {
+    if (parts.size() == 1) {
+      return true;
+    }
+
+    int lineEnd = pos;
+    while (lineEnd < end && buffer[lineEnd] != '\n') {
+      ++lineEnd;
+    }
+
+    for (int i = 1; i < parts.size(); ++i) {
+      final BytePattern part = parts.get(i);
+      final int found = part.indexOf(buffer, pos, lineEnd);
+      if (found < 0) {
+        return false;
+      }
+      pos = found + part.length();
+    }
+    return true;
+  }
+}
@@ -0,0 +1,35 @@
+package com.truward.brikar.log.share;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+
+/**
+ * Reader of the files, that may be handed over to the reader in another process.
+ *
+ * @author Alexander Shabanov
+ */
+public interface SharedFileReader {
+
+  /**
+   * Starts reading the given file.
+   *
+   * @param path Path to the file
+   * @param offset Offset to start from, the checkpoint of the previous reader of the file or 0
+   */
+  void tail(@Nonnull Path path, long offset);
+
+  /**
+   * Stops reading the given file, once all the records, that have been read, are passed on.
+   *
+   * @param path Path to the file
+   * @return Checkpoint, i.e. the offset to resume reading from, or -1 if file is not read
+   * @throws InterruptedException If interrupted while waiting for the reader to stop
+   */
+  long untail(@Nonnull Path path) throws InterruptedException;
+
+  /**
+   * @param path Path to the file
+   * @return Offset, before which all the records of the file have been passed on, or -1 if file is not read
+   */
+  long getCheckpoint(@Nonnull Path path);
+}
@@ -0,0 +1,364 @@
+package com.truward.brikar.log.share;
+
+import com.truward.brikar.log.util.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Divides the files of the source directory between the analyzer instances, that share the same coordination
+ * directory, so that each file is read by exactly one instance at a time. Instances know nothing about each other
+ * but the files in the coordination directory:
+ * <ul>
+ *   <li><code>members/{instance}</code> - heartbeat, the time it has been written last,</li>
+ *   <li><code>leases/{file}</code> - the instance, that reads the file, lease expires with its heartbeat,</li>
+ *   <li><code>checkpoints/{file}</code> - the offset, before which all the records of the file have been
+ *   passed on by its readers.</li>
+ * </ul>
+ * <p>
+ * Each instance calls {@link #rebalance(long)} periodically, more often than the lease timeout. Rebalance renews
+ * the heartbeat and assigns the files to the live instances by rendezvous hashing, so that only the files of the
+ * instance, that has joined or died, change hands. Files, that are now assigned to another instance, are stopped
+ * and their leases are released once their checkpoints are written. Files, assigned to this instance, are taken
+ * once their leases are released or expired and read from their checkpoints. Checkpoints of the files are also
+ * written on each rebalance, so that records are passed on twice only if the instance dies, and only those,
+ * that have come since its last rebalance.
+ * <p>
+ * All the files are replaced atomically, leases are created by hard links, that fail if the lease exists,
+ * so the coordination directory should be on the local file system. All the methods are thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class WorkSharingCoordinator implements AutoCloseable {
+  public static final long DEFAULT_HEARTBEAT_PERIOD_MILLIS = 1000L;
+  public static final long DEFAULT_LEASE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  private static final String MEMBERS = "members";
+  private static final String LEASES = "leases";
+  private static final String CHECKPOINTS = "checkpoints";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final Path sourceDirectory;
+  private final Path membersDirectory;
+  private final Path leasesDirectory;
+  private final Path checkpointsDirectory;
+  private final String instanceId;
+  private final SharedFileReader reader;
+  private final long leaseTimeoutMillis;
+
+  // file name -> last written checkpoint
+  private final Map<String, Long> ownedFiles = new TreeMap<>();
+  private boolean closed;
+
+  /**
+   * @param sourceDirectory Directory of the files to read
+   * @param shareDirectory Coordination directory, created if it does not exist
+   * @param instanceId ID of this instance, unique among the instances sharing the directory
+   * @param reader Reader of the files
+   * @param leaseTimeoutMillis Time since the last heartbeat, after which instance is considered dead
+   * @throws IOException If coordination directory can not be created
+   */
+  public WorkSharingCoordinator(@Nonnull Path sourceDirectory, @Nonnull Path shareDirectory,
+                                @Nonnull String instanceId, @Nonnull SharedFileReader reader,
+                                long leaseTimeoutMillis) throws IOException {
+    if (instanceId.isEmpty() || instanceId.startsWith(".") || instanceId.contains("/") ||
+        instanceId.contains("\\")) {
+      throw new IllegalArgumentException("Instance ID should be a valid file name: " + instanceId);
+    }
+    if (leaseTimeoutMillis <= 0) {
+      throw new IllegalArgumentException("Lease timeout should be a positive number");
+    }
+
+    this.sourceDirectory = Objects.requireNonNull(sourceDirectory, "sourceDirectory");
+    this.membersDirectory = Files.createDirectories(shareDirectory.resolve(MEMBERS));
+    this.leasesDirectory = Files.createDirectories(shareDirectory.resolve(LEASES));
+    this.checkpointsDirectory = Files.createDirectories(shareDirectory.resolve(CHECKPOINTS));
+    this.instanceId = instanceId;
+    this.reader = Objects.requireNonNull(reader, "reader");
+    this.leaseTimeoutMillis = leaseTimeoutMillis;
+  }
+
+  /**
+   * @return ID, that is unique among the processes on the same host: host name and process ID
+   */
+  @Nonnull
+  public static String getDefaultInstanceId() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      host = "localhost";
+    }
+    return host + '-' + ProcessHandle.current().pid();
+  }
+
+  @Nonnull
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  /**
+   * Renews the heartbeat, writes checkpoints of the files read by this instance, releases the files, that are
+   * assigned to the other instances now, and takes the files, that are assigned to this one.
+   *
+   * @param now Current time
+   * @throws IOException On I/O error
+   * @throws InterruptedException If interrupted while waiting for the reader to stop
+   */
+  public synchronized void rebalance(long now) throws IOException, InterruptedException {
+    if (closed) {
+      return;
+    }
+
+    writeNumber(membersDirectory.resolve(instanceId), now);
+    final List<String> members = getLiveMembers(now);
+    final List<String> fileNames = listSourceFiles();
+
+    for (final String fileName : new ArrayList<>(ownedFiles.keySet())) {
+      if (!instanceId.equals(readLeaseOwner(fileName))) {
+        // heartbeat has not been renewed in time and the file has been taken by another instance
+        log.warn("Lease of {} has been lost", fileName);
+        reader.untail(sourceDirectory.resolve(fileName));
+        ownedFiles.remove(fileName);
+      } else if (!fileNames.contains(fileName) || !instanceId.equals(getAssignee(fileName, members))) {
+        release(fileName);
+      } else {
+        writeCheckpoint(fileName, reader.getCheckpoint(sourceDirectory.resolve(fileName)));
+      }
+    }
+
+    for (final String fileName : fileNames) {
+      if (!ownedFiles.containsKey(fileName) && instanceId.equals(getAssignee(fileName, members)) &&
+          acquire(fileName, now)) {
+        final Long checkpoint = readNumber(checkpointsDirectory.resolve(fileName));
+        final long offset = checkpoint != null ? checkpoint : 0L;
+        reader.tail(sourceDirectory.resolve(fileName), offset);
+        ownedFiles.put(fileName, offset);
+        log.debug("Took {} from offset {}", fileName, offset);
+      }
+    }
+  }
+
+  /**
+   * @return Names of the files read by this instance
+   */
+  @Nonnull
+  public synchronized List<String> getOwnedFiles() {
+    return new ArrayList<>(ownedFiles.keySet());
+  }
+
+  /**
+   * Releases all the files and removes the heartbeat, so that other instances take the files
+   * on their next rebalance.
+   */
+  @Override
+  public synchronized void close() throws IOException, InterruptedException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    for (final String fileName : new ArrayList<>(ownedFiles.keySet())) {
+      if (instanceId.equals(readLeaseOwner(fileName))) {
+        release(fileName);
+      } else {
+        reader.untail(sourceDirectory.resolve(fileName));
+        ownedFiles.remove(fileName);
+      }
+    }
+    Files.deleteIfExists(membersDirectory.resolve(instanceId));
+  }
+
+  //
+  // Private
+  //
+
+  private void release(@Nonnull String fileName) throws IOException, InterruptedException {
+    final long checkpoint = reader.untail(sourceDirectory.resolve(fileName));
+    // checkpoint goes first, so that the next reader starts where this one has stopped
+    writeCheckpoint(fileName, checkpoint);
+    ownedFiles.remove(fileName);
+    Files.deleteIfExists(leasesDirectory.resolve(fileName));
+    log.debug("Released {} at offset {}", fileName, checkpoint);
+  }
+
+  private boolean acquire(@Nonnull String fileName, long now) throws IOException {
+    final Path lease = leasesDirectory.resolve(fileName);
+    final String owner = readLeaseOwner(fileName);
+    if (owner != null && !owner.equals(instanceId)) {
+      // owner may have joined after the live members have been listed, but its heartbeat precedes its leases
+      if (isLive(owner, now)) {
+        return false; // owner releases the file on its next rebalance
+      }
+      if (!breakLease(lease, owner)) {
+        return false;
+      }
+      log.info("Taking {} over from {}", fileName, owner);
+    } else if (owner != null) {
+      Files.deleteIfExists(lease); // left by the previous run of this instance
+    }
+
+    final Path temporary = getTemporaryPath(lease);
+    Files.write(temporary, instanceId.getBytes(StandardCharsets.UTF_8));
+    try {
+      Files.createLink(lease, temporary); // unlike rename, link fails if the lease exists
+      return true;
+    } catch (FileAlreadyExistsException e) {
+      return false;
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Removes the lease of the dead owner, checking that it has not been replaced by the live one meanwhile.
+   */
+  private boolean breakLease(@Nonnull Path lease, @Nonnull String expectedOwner) throws IOException {
+    final Path stale = lease.resolveSibling("." + lease.getFileName() + "." + instanceId + ".stale");
+    try {
+      Files.move(lease, stale, StandardCopyOption.ATOMIC_MOVE);
+    } catch (NoSuchFileException e) {
+      return true; // released or broken by another instance, new lease is created by whoever comes first
+    }
+
+    try {
+      final String owner = new String(Files.readAllBytes(stale), StandardCharsets.UTF_8);
+      if (owner.equals(expectedOwner)) {
+        return true;
+      }
+
+      try {
+        Files.createLink(lease, stale); // lease has been taken over by another instance, put it back
+      } catch (FileAlreadyExistsException e) {
+        log.warn("Unable to restore lease {} of {}", lease, owner);
+      }
+      return false;
+    } finally {
+      Files.deleteIfExists(stale);
+    }
+  }
+
+  @Nullable
+  private String readLeaseOwner(@Nonnull String fileName) throws IOException {
+    try {
+      return new String(Files.readAllBytes(leasesDirectory.resolve(fileName)), StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private void writeCheckpoint(@Nonnull String fileName, long checkpoint) throws IOException {
+    final Long written = ownedFiles.get(fileName);
+    if (checkpoint < 0 || (written != null && written == checkpoint)) {
+      return;
+    }
+    writeNumber(checkpointsDirectory.resolve(fileName), checkpoint);
+    ownedFiles.put(fileName, checkpoint);
+  }
+
+  @Nonnull
+  private List<String> getLiveMembers(long now) throws IOException {
+    final List<String> result = new ArrayList<>();
+    for (final Path path : listFiles(membersDirectory)) {
+      final String member = path.getFileName().toString();
+      if (isLive(member, now)) {
+        result.add(member);
+      }
+    }
+    return result;
+  }
+
+  private boolean isLive(@Nonnull String member, long now) throws IOException {
+    final Long heartbeat = readNumber(membersDirectory.resolve(member));
+    return heartbeat != null && now - heartbeat < leaseTimeoutMillis;
+  }
+
+  @Nonnull
+  private List<String> listSourceFiles() throws IOException {
+    final List<String> result = new ArrayList<>();
+    for (final Path path : listFiles(sourceDirectory)) {
+      if (Files.isRegularFile(path)) {
+        result.add(path.getFileName().toString());
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  @Nonnull
+  private static List<Path> listFiles(@Nonnull Path directory) throws IOException {
+    final List<Path> result = new ArrayList<>();
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (final Path path : stream) {
+        if (!path.getFileName().toString().startsWith(".")) {
+          result.add(path);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Rendezvous hashing: file is assigned to the instance with the highest score, so that when instance joins
+   * or dies, only the files, that it wins or has won, change hands.
+   */
+  @Nullable
+  private static String getAssignee(@Nonnull String fileName, @Nonnull List<String> members) {
+    String result = null;
+    long maxScore = Long.MIN_VALUE;
+    for (final String member : members) {
+      final long score = score(member, fileName);
+      if (result == null || score > maxScore || (score == maxScore && member.compareTo(result) < 0)) {
+        result = member;
+        maxScore = score;
+      }
+    }
+    return result;
+  }
+
+  private static long score(@Nonnull String member, @Nonnull String fileName) {
+    // same as the hash of "member/fileName", similar names get unrelated scores
+    final long h = Hashing.fnv1a(Hashing.fnv1a(Hashing.FNV_OFFSET_BASIS, member), '/');
+    return Hashing.mix(Hashing.fnv1a(h, fileName));
+  }
+
+  @Nullable
+  private static Long readNumber(@Nonnull Path path) throws IOException {
+    try {
+      return Long.parseLong(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim());
+    } catch (NoSuchFileException | NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private void writeNumber(@Nonnull Path path, long value) throws IOException {
+    final Path temporary = getTemporaryPath(path);
+    Files.write(temporary, Long.toString(value).getBytes(StandardCharsets.US_ASCII));
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  @Nonnull
+  private Path getTemporaryPath(@Nonnull Path path) {
+    // hidden and unique per instance, so that instances do not overwrite each other's temporary files
+    return path.resolveSibling("." + path.getFileName() + "." + instanceId + ".tmp");
+  }
+}
@@ -0,0 +1,62 @@
+package com.truward.brikar.log.sink;
+
+import com.truward.brikar.log.model.LogMessage;
+
+import javax.annotation.Nonnull;
+import java.io.Flushable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Sink, that collects records into batches and passes each batch to the given consumer once it is full or once
+ * it is flushed, so that the consumer pays its per-call cost once per batch instead of once per record.
+ * Batches are passed under the lock of this sink, so records reach the consumer in the same order they are
+ * accepted.
+ * <p>
+ * Engines, that hand over records backed by their reusable buffers, flush this sink before reusing them, so the
+ * consumer should be done with the records, or should copy them, by the time it returns.
+ *
+ * @author Alexander Shabanov
+ */
+public final class BatchingSink implements LogMessageSink, Flushable {
+  private final int batchSize;
+  private final Consumer<List<LogMessage>> consumer;
+
+  private List<LogMessage> batch;
+
+  /**
+   * @param batchSize Maximum number of records in batch
+   * @param consumer Receiver of the batches, the list is not used by this sink once it is passed
+   */
+  public BatchingSink(int batchSize, @Nonnull Consumer<List<LogMessage>> consumer) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Batch size should be positive");
+    }
+    this.batchSize = batchSize;
+    this.consumer = Objects.requireNonNull(consumer, "consumer");
+    this.batch = new ArrayList<>(batchSize);
+  }
+
+  @Override
+  public synchronized void accept(@Nonnull LogMessage message) {
+    batch.add(message);
+    if (batch.size() >= batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Passes collected records, if any, to the consumer.
+   */
+  @Override
+  public synchronized void flush() {
+    if (batch.isEmpty()) {
+      return;
+    }
+    final List<LogMessage> full = batch;
+    batch = new ArrayList<>(batchSize);
+    consumer.accept(full);
+  }
+}
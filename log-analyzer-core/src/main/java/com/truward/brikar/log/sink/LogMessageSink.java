@@ -0,0 +1,15 @@
+package com.truward.brikar.log.sink;
+
+import com.truward.brikar.log.model.LogMessage;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receiver of the fully assembled log messages.
+ *
+ * @author Alexander Shabanov
+ */
+public interface LogMessageSink {
+
+  void accept(@Nonnull LogMessage message);
+}
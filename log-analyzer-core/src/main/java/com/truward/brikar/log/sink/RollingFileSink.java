@@ -0,0 +1,460 @@
+package com.truward.brikar.log.sink;
+
+import com.truward.brikar.log.metric.LatencyHistogram;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.util.BloomFilter;
+import com.truward.brikar.log.util.JsonLogMessageWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sink, that writes records as JSON objects, one per line, to the segment files in the given directory.
+ * Segment is rolled once it reaches the max size or age, the segment, that is being written, has
+ * {@link #OPEN_SUFFIX} appended to its name and is renamed once it is complete.
+ * <p>
+ * Records are written by the dedicated thread: {@link #accept(LogMessage)} only puts the record to the bounded
+ * queue, waiting if it is full, so that callers are slowed down only when writer falls behind. Writer takes all
+ * the queued records at once, encodes them straight from their raw bytes, hands them to the file through a large
+ * direct buffer at the end of each batch and syncs the file to disk once per sync interval rather than per record.
+ * Time from accepting the record to handing it to the file, or to the compressor, is kept in
+ * {@link #getWriteLatency()}, time of the sync is kept in {@link #getSyncLatency()}.
+ * <p>
+ * If attributes to index are given, values of these attributes are collected while segment is written and
+ * {@link SegmentIndex} of the segment is written next to it before segment is renamed, so that every complete
+ * segment of the indexed sink has its index.
+ * <p>
+ * Records, that could not be written due to I/O error, are counted and dropped, writer continues with the new
+ * segment. All the methods are thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollingFileSink implements LogMessageSink, AutoCloseable {
+  public static final String EXTENSION = ".ndjson";
+  public static final String GZIP_EXTENSION = ".gz";
+  public static final String OPEN_SUFFIX = ".open";
+
+  public static final long DEFAULT_MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+  public static final long DEFAULT_MAX_SEGMENT_MILLIS = TimeUnit.HOURS.toMillis(1);
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 1000L;
+  public static final int DEFAULT_QUEUE_CAPACITY = 65536;
+
+  private static final int MAX_BATCH_SIZE = 8192;
+  private static final int DIRECT_BUFFER_SIZE = 1024 * 1024;
+  private static final int ENCODER_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Compression of the segment files.
+   */
+  public enum Compression {
+    NONE,
+    GZIP
+  }
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final Path directory;
+  private final String prefix;
+  private final Compression compression;
+  private final long maxSegmentBytes;
+  private final long maxSegmentMillis;
+  private final long syncIntervalMillis;
+  private final List<String> indexedAttributes;
+  private final double falsePositiveRate;
+
+  private final BlockingQueue<PendingRecord> queue;
+  private final Thread writerThread;
+  private final LatencyHistogram writeLatency = new LatencyHistogram();
+  private final LatencyHistogram syncLatency = new LatencyHistogram();
+  private final AtomicLong writtenCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+  private volatile boolean closed;
+
+  // writer thread state
+  private Segment segment;
+  private int segmentSequence;
+  private long nextSyncTime;
+
+  /**
+   * @param directory Directory of the segment files, created if it does not exist
+   * @param prefix Prefix of the segment file names
+   * @param compression Compression of the segment files
+   * @param maxSegmentBytes Size of the segment file, after which next one is started
+   * @param maxSegmentMillis Time since the segment has been started, after which next one is started
+   * @param syncIntervalMillis Time between syncs of the segment file to disk
+   * @param queueCapacity Max number of records waiting to be written
+   * @param indexedAttributes Names of the attributes, which values are put to the segment index
+   * @param falsePositiveRate False positive rate of the segment index
+   * @throws IOException If directory can not be created
+   */
+  public RollingFileSink(@Nonnull Path directory, @Nonnull String prefix, @Nonnull Compression compression,
+                         long maxSegmentBytes, long maxSegmentMillis, long syncIntervalMillis, int queueCapacity,
+                         @Nonnull Collection<String> indexedAttributes, double falsePositiveRate)
+      throws IOException {
+    if (maxSegmentBytes <= 0 || maxSegmentMillis <= 0 || syncIntervalMillis <= 0 || queueCapacity <= 0) {
+      throw new IllegalArgumentException("Segment limits, sync interval and queue capacity should be positive");
+    }
+    if (falsePositiveRate <= 0.0 || falsePositiveRate >= 1.0) {
+      throw new IllegalArgumentException("False positive rate should be between 0 and 1");
+    }
+
+    this.directory = Files.createDirectories(directory);
+    this.prefix = Objects.requireNonNull(prefix, "prefix");
+    this.compression = Objects.requireNonNull(compression, "compression");
+    this.maxSegmentBytes = maxSegmentBytes;
+    this.maxSegmentMillis = maxSegmentMillis;
+    this.syncIntervalMillis = syncIntervalMillis;
+    this.indexedAttributes = Collections.unmodifiableList(new ArrayList<>(indexedAttributes));
+    this.falsePositiveRate = falsePositiveRate;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+    this.writerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        writeRecords();
+      }
+    }, "rolling-file-sink");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  public RollingFileSink(@Nonnull Path directory, @Nonnull String prefix, @Nonnull Compression compression,
+                         long maxSegmentBytes, long maxSegmentMillis, long syncIntervalMillis, int queueCapacity)
+      throws IOException {
+    this(directory, prefix, compression, maxSegmentBytes, maxSegmentMillis, syncIntervalMillis, queueCapacity,
+        Collections.<String>emptyList(), SegmentIndex.DEFAULT_FALSE_POSITIVE_RATE);
+  }
+
+  public RollingFileSink(@Nonnull Path directory, @Nonnull String prefix, @Nonnull Compression compression)
+      throws IOException {
+    this(directory, prefix, compression, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_MAX_SEGMENT_MILLIS,
+        DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * Queues the record, waits if queue is full.
+   *
+   * @param message Complete record, that is not modified afterwards
+   */
+  @Override
+  public void accept(@Nonnull LogMessage message) {
+    if (closed) {
+      throw new IllegalStateException("Sink has been closed");
+    }
+
+    try {
+      queue.put(new PendingRecord(message, System.nanoTime()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      droppedCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * @return Time in microseconds from accepting the record to handing it to the file
+   */
+  @Nonnull
+  public LatencyHistogram getWriteLatency() {
+    return writeLatency;
+  }
+
+  /**
+   * @return Time in microseconds of syncing the segment file to disk
+   */
+  @Nonnull
+  public LatencyHistogram getSyncLatency() {
+    return syncLatency;
+  }
+
+  public long getWrittenCount() {
+    return writtenCount.get();
+  }
+
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Writes the queued records, completes the current segment and stops the writer thread.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    queue.put(PendingRecord.END);
+    writerThread.join();
+  }
+
+  //
+  // Private
+  //
+
+  private void writeRecords() {
+    final List<PendingRecord> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    nextSyncTime = System.currentTimeMillis() + syncIntervalMillis;
+    boolean end = false;
+    while (!end) {
+      try {
+        final PendingRecord first = queue.poll(Math.max(1L, nextSyncTime - System.currentTimeMillis()),
+            TimeUnit.MILLISECONDS);
+        if (first != null) {
+          batch.add(first);
+          queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+        }
+      } catch (InterruptedException e) {
+        log.warn("Writer has been interrupted");
+        break;
+      }
+
+      if (!batch.isEmpty() && batch.get(batch.size() - 1) == PendingRecord.END) {
+        batch.remove(batch.size() - 1);
+        end = true;
+      }
+
+      try {
+        writeBatch(batch);
+        final long now = System.currentTimeMillis();
+        if (segment != null && now - segment.startTime >= maxSegmentMillis) {
+          completeSegment();
+        }
+        if (segment != null && now >= nextSyncTime) {
+          sync();
+        }
+        if (now >= nextSyncTime) {
+          nextSyncTime = now + syncIntervalMillis;
+        }
+      } catch (IOException e) {
+        log.error("Unable to write records to {}", segment != null ? segment.path : directory, e);
+        droppedCount.addAndGet(batch.size());
+        abandonSegment();
+      }
+      batch.clear();
+    }
+
+    try {
+      completeSegment();
+    } catch (IOException e) {
+      log.error("Unable to complete segment", e);
+      abandonSegment();
+    }
+  }
+
+  private void writeBatch(List<PendingRecord> batch) throws IOException {
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    for (final PendingRecord record : batch) {
+      if (segment != null && segment.getSize() >= maxSegmentBytes) {
+        completeSegment(); // size lags behind by the encoder buffer at most
+      }
+      if (segment == null) {
+        openSegment();
+      }
+      segment.encoder.write(record.message);
+      if (!indexedAttributes.isEmpty()) {
+        segment.addHashes(record.message, indexedAttributes);
+      }
+    }
+
+    segment.encoder.flushBuffer();
+    if (segment.compressed == null) {
+      segment.channelStream.flush(); // compressed data is handed to the file on sync
+    }
+
+    final long now = System.nanoTime();
+    for (final PendingRecord record : batch) {
+      writeLatency.record(TimeUnit.NANOSECONDS.toMicros(now - record.acceptedNanos));
+    }
+    writtenCount.addAndGet(batch.size());
+  }
+
+  private void openSegment() throws IOException {
+    final SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    final String name = prefix + '-' + format.format(new Date()) + '-' + (segmentSequence++) + EXTENSION +
+        (compression == Compression.GZIP ? GZIP_EXTENSION : "");
+    segment = new Segment(directory.resolve(name), compression);
+    log.debug("Started segment {}", segment.path);
+  }
+
+  private void sync() throws IOException {
+    final long start = System.nanoTime();
+    segment.encoder.flush();
+    segment.channelStream.channel.force(false);
+    syncLatency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+  }
+
+  private void completeSegment() throws IOException {
+    if (segment == null) {
+      return;
+    }
+
+    final Segment completed = segment;
+    segment = null;
+    completed.encoder.flush();
+    if (completed.compressed != null) {
+      completed.compressed.finish();
+    }
+    completed.channelStream.flush();
+    completed.channelStream.channel.force(false);
+    completed.channelStream.channel.close();
+    if (!indexedAttributes.isEmpty()) {
+      SegmentIndex.build(indexedAttributes, completed.hashes, completed.hashCount, falsePositiveRate)
+          .write(completed.path);
+    }
+    Files.move(completed.openPath, completed.path, StandardCopyOption.ATOMIC_MOVE);
+    log.debug("Completed segment {}", completed.path);
+  }
+
+  private void abandonSegment() {
+    if (segment == null) {
+      return;
+    }
+
+    // partially written segment is left with the open suffix, so that it is not taken for the complete one
+    try {
+      segment.channelStream.channel.close();
+    } catch (IOException e) {
+      log.warn("Unable to close {}", segment.openPath, e);
+    }
+    segment = null;
+  }
+
+  private static final class PendingRecord {
+    static final PendingRecord END = new PendingRecord(null, 0L);
+
+    final LogMessage message;
+    final long acceptedNanos;
+
+    PendingRecord(LogMessage message, long acceptedNanos) {
+      this.message = message;
+      this.acceptedNanos = acceptedNanos;
+    }
+  }
+
+  private static final class Segment {
+    final Path path;
+    final Path openPath;
+    final long startTime = System.currentTimeMillis();
+    final ChannelOutputStream channelStream;
+    final GZIPOutputStream compressed;
+    final JsonLogMessageWriter encoder;
+    long[] hashes = new long[0];
+    int hashCount;
+
+    Segment(Path path, Compression compression) throws IOException {
+      this.path = path;
+      this.openPath = path.resolveSibling(path.getFileName() + OPEN_SUFFIX);
+      this.channelStream = new ChannelOutputStream(FileChannel.open(openPath, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.WRITE));
+      if (compression == Compression.GZIP) {
+        this.compressed = new GZIPOutputStream(channelStream, ENCODER_BUFFER_SIZE, true) {
+          {
+            def.setLevel(Deflater.BEST_SPEED);
+          }
+        };
+        this.encoder = new JsonLogMessageWriter(compressed, ENCODER_BUFFER_SIZE);
+      } else {
+        this.compressed = null;
+        this.encoder = new JsonLogMessageWriter(channelStream, ENCODER_BUFFER_SIZE);
+      }
+    }
+
+    /**
+     * @return Number of bytes, that have been handed to the file, compressed ones if compression is used
+     */
+    long getSize() {
+      return channelStream.size;
+    }
+
+    void addHashes(LogMessage message, List<String> attributeNames) {
+      final Map<String, Object> attributes = message.getAttributes();
+      if (attributes.isEmpty()) {
+        return;
+      }
+      for (final String name : attributeNames) {
+        final Object value = attributes.get(name);
+        if (value == null) {
+          continue;
+        }
+        if (hashCount == hashes.length) {
+          hashes = Arrays.copyOf(hashes, Math.max(1024, hashes.length * 2));
+        }
+        hashes[hashCount++] = BloomFilter.hash(name, value.toString());
+      }
+    }
+  }
+
+  /**
+   * Stream, that collects the data in the direct buffer and writes it to the channel once buffer is full
+   * or stream is flushed.
+   */
+  private static final class ChannelOutputStream extends OutputStream {
+    final FileChannel channel;
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(DIRECT_BUFFER_SIZE);
+    long size;
+
+    ChannelOutputStream(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (!buffer.hasRemaining()) {
+        flush();
+      }
+      buffer.put((byte) b);
+      ++size;
+    }
+
+    @Override
+    public void write(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+      size += length;
+      while (length > 0) {
+        if (!buffer.hasRemaining()) {
+          flush();
+        }
+        final int chunk = Math.min(length, buffer.remaining());
+        buffer.put(bytes, offset, chunk);
+        offset += chunk;
+        length -= chunk;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.truward.brikar.log.sink;
+
+import com.truward.brikar.log.util.BloomFilter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bloom filter over the values of the chosen attributes of the records in the segment file, kept next to it
+ * in the file with {@link #EXTENSION} appended to the segment file name. It lets needle queries skip
+ * the segments, that certainly have no matching records.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SegmentIndex {
+  public static final String EXTENSION = ".bloom";
+  public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+  private static final int MAGIC = 0x424c4f4d; // BLOM
+  private static final int VERSION = 1;
+
+  private final List<String> attributeNames;
+  private final BloomFilter filter;
+
+  public SegmentIndex(@Nonnull List<String> attributeNames, @Nonnull BloomFilter filter) {
+    this.attributeNames = Collections.unmodifiableList(new ArrayList<>(attributeNames));
+    this.filter = Objects.requireNonNull(filter, "filter");
+  }
+
+  /**
+   * Builds index over the given hashes.
+   *
+   * @param attributeNames Names of the indexed attributes
+   * @param hashes Hashes of the attribute values, see {@link BloomFilter#hash(String, String)}, may be modified
+   * @param count Number of hashes
+   * @param falsePositiveRate Rate of the false positives
+   * @return New index
+   */
+  @Nonnull
+  public static SegmentIndex build(@Nonnull List<String> attributeNames, @Nonnull long[] hashes, int count,
+                                   double falsePositiveRate) {
+    // same values repeat across the records, e.g. all the records of a request have the same rid
+    Arrays.sort(hashes, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; ++i) {
+      if (i == 0 || hashes[i] != hashes[i - 1]) {
+        hashes[distinct++] = hashes[i];
+      }
+    }
+
+    final BloomFilter filter = BloomFilter.create(distinct, falsePositiveRate);
+    for (int i = 0; i < distinct; ++i) {
+      filter.put(hashes[i]);
+    }
+    return new SegmentIndex(attributeNames, filter);
+  }
+
+  @Nonnull
+  public static Path getIndexPath(@Nonnull Path segment) {
+    return segment.resolveSibling(segment.getFileName() + EXTENSION);
+  }
+
+  /**
+   * @return Names of the indexed attributes
+   */
+  @Nonnull
+  public List<String> getAttributeNames() {
+    return attributeNames;
+  }
+
+  /**
+   * @param attributes Attributes, that record should have
+   * @return False, if segment certainly has no record with all the given attributes
+   */
+  public boolean mightContain(@Nonnull Map<String, String> attributes) {
+    for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+      if (attributeNames.contains(attribute.getKey()) &&
+          !filter.mightContain(BloomFilter.hash(attribute.getKey(), attribute.getValue()))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes index next to the segment, file is replaced atomically.
+   */
+  public void write(@Nonnull Path segment) throws IOException {
+    final Path path = getIndexPath(segment);
+    final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (final OutputStream stream = Files.newOutputStream(temporary)) {
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(attributeNames.size());
+      for (final String name : attributeNames) {
+        out.writeUTF(name);
+      }
+      filter.writeTo(out);
+      out.flush();
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * @param segment Segment file
+   * @return Index of the segment or null, if segment has not been indexed
+   * @throws IOException On I/O error or if index is malformed
+   */
+  @Nullable
+  public static SegmentIndex read(@Nonnull Path segment) throws IOException {
+    try (final InputStream stream = Files.newInputStream(getIndexPath(segment))) {
+      final DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a segment index");
+      }
+      final int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported segment index version: " + version);
+      }
+
+      final int attributeCount = in.readInt();
+      final List<String> attributeNames = new ArrayList<>(attributeCount);
+      for (int i = 0; i < attributeCount; ++i) {
+        attributeNames.add(in.readUTF());
+      }
+      return new SegmentIndex(attributeNames, BloomFilter.readFrom(in));
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.truward.brikar.log.sketch;
+
+import com.truward.brikar.log.util.Hashing;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * HyperLogLog estimator of the number of distinct values. Memory is fixed: one byte register per bucket,
+ * relative error is about <code>1.04 / sqrt(2^precision)</code>. Estimators of the same precision are merged
+ * by taking the maximum of each register, so the summaries of the adjacent windows could be combined later.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class HyperLogLog {
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 16;
+  public static final int DEFAULT_PRECISION = 12;
+
+  private final int precision;
+  private final byte[] registers;
+
+  public HyperLogLog(int precision) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("Precision should be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  /**
+   * Restores estimator from its registers, see {@link #toByteArray()}.
+   */
+  @Nonnull
+  public static HyperLogLog fromByteArray(@Nonnull byte[] registers) {
+    final int precision = Integer.numberOfTrailingZeros(registers.length);
+    if (registers.length != (1 << precision)) {
+      throw new IllegalArgumentException("Number of registers should be a power of two");
+    }
+    final HyperLogLog result = new HyperLogLog(precision);
+    System.arraycopy(registers, 0, result.registers, 0, registers.length);
+    return result;
+  }
+
+  /**
+   * @return 64-bit hash of the given value, that is suitable for {@link #add(long)}
+   */
+  public static long hash(@Nonnull CharSequence value) {
+    return Hashing.hash(value);
+  }
+
+  public void add(@Nonnull CharSequence value) {
+    add(hash(value));
+  }
+
+  public void add(long hash) {
+    final int index = (int) (hash >>> (64 - precision));
+    // guard bit limits rank, so that it fits into the register
+    final long rest = (hash << precision) | (1L << (precision - 1));
+    final byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+    if (registers[index] < rank) {
+      registers[index] = rank;
+    }
+  }
+
+  public void merge(@Nonnull HyperLogLog other) {
+    Objects.requireNonNull(other, "other");
+    if (other.precision != precision) {
+      throw new IllegalArgumentException("Estimators of different precision can not be merged");
+    }
+    for (int i = 0; i < registers.length; ++i) {
+      if (registers[i] < other.registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return Estimated number of distinct values
+   */
+  public long estimate() {
+    final int m = registers.length;
+    double sum = 0.0;
+    int zeros = 0;
+    for (final byte register : registers) {
+      sum += 1.0 / (1L << register);
+      if (register == 0) {
+        ++zeros;
+      }
+    }
+
+    final double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      return Math.round(m * Math.log((double) m / zeros)); // linear counting is more precise for small numbers
+    }
+    return Math.round(estimate);
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  public void clear() {
+    Arrays.fill(registers, (byte) 0);
+  }
+
+  @Nonnull
+  public byte[] toByteArray() {
+    return registers.clone();
+  }
+
+  //
+  // Private
+  //
+
+  private static double alpha(int m) {
+    switch (m) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1.0 + 1.079 / m);
+    }
+  }
+}
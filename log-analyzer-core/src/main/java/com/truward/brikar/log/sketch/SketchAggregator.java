@@ -0,0 +1,161 @@
+package com.truward.brikar.log.sketch;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.sink.LogMessageSink;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps sketches of the records per window: Space-Saving summaries of the most frequent loggers, message templates
+ * and values of the given attributes, HyperLogLog estimators of the number of distinct values of the other
+ * attributes. Window is closed by {@link #close(long)}, which passes its summary to the sink and starts the next
+ * window with the same sketches cleared, so memory does not depend on the number of records or distinct values.
+ * <p>
+ * Templates are not known to the records, so they are counted by {@link #acceptTemplate(int)}, which should be
+ * called by whoever matches the records against templates.
+ * <p>
+ * All the methods are thread safe, sink is called outside of the lock.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SketchAggregator implements LogMessageSink {
+  public static final String LOGGER_DIMENSION = "logger";
+  public static final String TEMPLATE_DIMENSION = "templateId";
+
+  public static final int DEFAULT_TOP_COUNT = 20;
+
+  /**
+   * Number of counters per reported key, Space-Saving counts are precise enough when it has a few times more
+   * counters than the keys reported.
+   */
+  private static final int COUNTERS_PER_KEY = 10;
+
+  private final SketchSink sink;
+  private final int topCount;
+  private final TopK loggers;
+  private final TopK templates;
+  private final String[] topAttributes;
+  private final TopK[] topValues;
+  private final String[] distinctAttributes;
+  private final HyperLogLog[] distinctValues;
+  private long windowStart;
+  private long recordCount;
+
+  /**
+   * @param sink Receiver of the window summaries
+   * @param topAttributes Attributes, which most frequent values are reported
+   * @param distinctAttributes Attributes, which number of distinct values is reported
+   * @param topCount Number of most frequent keys reported per dimension
+   * @param precision Precision of the distinct value estimators, see {@link HyperLogLog}
+   * @param now Start of the first window
+   */
+  public SketchAggregator(@Nonnull SketchSink sink, @Nonnull Collection<String> topAttributes,
+                          @Nonnull Collection<String> distinctAttributes, int topCount, int precision, long now) {
+    if (topCount <= 0) {
+      throw new IllegalArgumentException("Top count should be a positive number");
+    }
+
+    this.sink = Objects.requireNonNull(sink, "sink");
+    this.topCount = topCount;
+    this.loggers = new TopK(topCount * COUNTERS_PER_KEY);
+    this.templates = new TopK(topCount * COUNTERS_PER_KEY);
+    this.topAttributes = topAttributes.toArray(new String[topAttributes.size()]);
+    this.topValues = new TopK[this.topAttributes.length];
+    for (int i = 0; i < topValues.length; ++i) {
+      topValues[i] = new TopK(topCount * COUNTERS_PER_KEY);
+    }
+    this.distinctAttributes = distinctAttributes.toArray(new String[distinctAttributes.size()]);
+    this.distinctValues = new HyperLogLog[this.distinctAttributes.length];
+    for (int i = 0; i < distinctValues.length; ++i) {
+      distinctValues[i] = new HyperLogLog(precision);
+    }
+    this.windowStart = now;
+  }
+
+  @Override
+  public void accept(@Nonnull LogMessage message) {
+    if (message.isNull() || message.isMultiLinePart()) {
+      return;
+    }
+
+    final Map<String, Object> attributes = message.getAttributes();
+    final String logger = message.getLoggerName();
+    synchronized (this) {
+      ++recordCount;
+      loggers.add(logger);
+      for (int i = 0; i < topAttributes.length; ++i) {
+        final Object value = attributes.get(topAttributes[i]);
+        if (value != null) {
+          topValues[i].add(value.toString());
+        }
+      }
+      for (int i = 0; i < distinctAttributes.length; ++i) {
+        final Object value = attributes.get(distinctAttributes[i]);
+        if (value != null) {
+          distinctValues[i].add(value.toString());
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts the template, the record of the current window has matched.
+   */
+  public void acceptTemplate(int templateId) {
+    final String key = Integer.toString(templateId);
+    synchronized (this) {
+      templates.add(key);
+    }
+  }
+
+  /**
+   * Closes the current window and starts the next one.
+   *
+   * @param now End of the current window
+   */
+  public void close(long now) {
+    final SketchSummary summary;
+    synchronized (this) {
+      final Map<String, List<TopK.Entry>> top = new LinkedHashMap<>();
+      top.put(LOGGER_DIMENSION, loggers.getTop(topCount));
+      if (templates.getTotal() > 0) {
+        top.put(TEMPLATE_DIMENSION, templates.getTop(topCount));
+      }
+      for (int i = 0; i < topAttributes.length; ++i) {
+        top.put(topAttributes[i], topValues[i].getTop(topCount));
+      }
+
+      final Map<String, HyperLogLog> distinct = new LinkedHashMap<>();
+      for (int i = 0; i < distinctAttributes.length; ++i) {
+        distinct.put(distinctAttributes[i], HyperLogLog.fromByteArray(distinctValues[i].toByteArray()));
+      }
+
+      summary = new SketchSummary(windowStart, now, recordCount, top, distinct);
+      clear(now);
+    }
+
+    sink.accept(summary);
+  }
+
+  //
+  // Private
+  //
+
+  private void clear(long now) {
+    loggers.clear();
+    templates.clear();
+    for (final TopK sketch : topValues) {
+      sketch.clear();
+    }
+    for (final HyperLogLog sketch : distinctValues) {
+      sketch.clear();
+    }
+    windowStart = now;
+    recordCount = 0;
+  }
+}
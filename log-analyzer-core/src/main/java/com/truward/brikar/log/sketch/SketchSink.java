@@ -0,0 +1,13 @@
+package com.truward.brikar.log.sketch;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receiver of the sketch summaries of the closed windows.
+ *
+ * @author Alexander Shabanov
+ */
+public interface SketchSink {
+
+  void accept(@Nonnull SketchSummary summary);
+}
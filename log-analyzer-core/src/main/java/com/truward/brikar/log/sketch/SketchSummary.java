@@ -0,0 +1,75 @@
+package com.truward.brikar.log.sketch;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sketches of the records of a single window: the most frequent keys per dimension and estimators of the number
+ * of distinct values per attribute. Estimators are kept as is, so that summaries of many windows or many
+ * instances could be merged.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SketchSummary {
+  private final long start;
+  private final long end;
+  private final long recordCount;
+  private final Map<String, List<TopK.Entry>> top;
+  private final Map<String, HyperLogLog> distinct;
+
+  public SketchSummary(long start, long end, long recordCount, @Nonnull Map<String, List<TopK.Entry>> top,
+                       @Nonnull Map<String, HyperLogLog> distinct) {
+    this.start = start;
+    this.end = end;
+    this.recordCount = recordCount;
+    this.top = Collections.unmodifiableMap(new LinkedHashMap<>(top));
+    this.distinct = Collections.unmodifiableMap(new LinkedHashMap<>(distinct));
+  }
+
+  /**
+   * @return Time the window has been opened
+   */
+  public long getStart() {
+    return start;
+  }
+
+  /**
+   * @return Time the window has been closed
+   */
+  public long getEnd() {
+    return end;
+  }
+
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * @return Most frequent keys by dimension, such as {@link SketchAggregator#LOGGER_DIMENSION} or attribute name
+   */
+  @Nonnull
+  public Map<String, List<TopK.Entry>> getTop() {
+    return top;
+  }
+
+  /**
+   * @return Estimators of the number of distinct values by attribute name
+   */
+  @Nonnull
+  public Map<String, HyperLogLog> getDistinct() {
+    return distinct;
+  }
+
+  @Override
+  public String toString() {
+    return "SketchSummary{" +
+        "start=" + start +
+        ", end=" + end +
+        ", recordCount=" + recordCount +
+        ", top=" + top +
+        '}';
+  }
+}
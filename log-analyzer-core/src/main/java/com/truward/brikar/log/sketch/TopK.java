@@ -0,0 +1,210 @@
+package com.truward.brikar.log.sketch;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Space-Saving summary of the most frequent keys. Memory is fixed: once all the counters are taken, the key,
+ * that has not been counted yet, takes over the counter with the least count and inherits that count as its
+ * error. Each key, which frequency is above <code>total / capacity</code>, is guaranteed to be kept and its
+ * count is overestimated by no more than its error. Counters are kept in the min-heap, so updates take
+ * logarithmic time. Summaries are merged by adding the counters of one to the other.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TopK {
+  private final int capacity;
+  private final Map<String, Counter> counters;
+  private final Counter[] heap;
+  private int size;
+  private long total;
+
+  public TopK(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity should be a positive number");
+    }
+    this.capacity = capacity;
+    this.counters = new HashMap<>(capacity * 2);
+    this.heap = new Counter[capacity];
+  }
+
+  public void add(@Nonnull String key) {
+    add(key, 1L, 0L);
+  }
+
+  public void merge(@Nonnull TopK other) {
+    Objects.requireNonNull(other, "other");
+    for (int i = 0; i < other.size; ++i) {
+      final Counter counter = other.heap[i];
+      add(counter.key, counter.count, counter.error);
+    }
+  }
+
+  /**
+   * @param n Maximum number of entries
+   * @return Entries with the highest counts, ordered by count descending
+   */
+  @Nonnull
+  public List<Entry> getTop(int n) {
+    final Counter[] sorted = Arrays.copyOf(heap, size);
+    Arrays.sort(sorted, BY_COUNT_DESCENDING);
+
+    final List<Entry> result = new ArrayList<>(Math.min(n, size));
+    for (int i = 0; i < sorted.length && i < n; ++i) {
+      result.add(new Entry(sorted[i].key, sorted[i].count, sorted[i].error));
+    }
+    return result;
+  }
+
+  /**
+   * @return Sum of all the counts added
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public void clear() {
+    counters.clear();
+    Arrays.fill(heap, null);
+    size = 0;
+    total = 0;
+  }
+
+  /**
+   * Estimated count of the key.
+   */
+  public static final class Entry {
+    private final String key;
+    private final long count;
+    private final long error;
+
+    public Entry(@Nonnull String key, long count, long error) {
+      this.key = Objects.requireNonNull(key, "key");
+      this.count = count;
+      this.error = error;
+    }
+
+    @Nonnull
+    public String getKey() {
+      return key;
+    }
+
+    /**
+     * @return Estimated count, it is never less than the actual one
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return Maximum overestimation of the count
+     */
+    public long getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return key + '=' + count + "(+-" + error + ')';
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static final Comparator<Counter> BY_COUNT_DESCENDING = new Comparator<Counter>() {
+    @Override
+    public int compare(Counter o1, Counter o2) {
+      return Long.compare(o2.count, o1.count);
+    }
+  };
+
+  private static final class Counter {
+    String key;
+    long count;
+    long error;
+    int index;
+  }
+
+  private void add(String key, long count, long error) {
+    total += count;
+
+    Counter counter = counters.get(key);
+    if (counter != null) {
+      counter.count += count;
+      counter.error += error;
+      siftDown(counter.index);
+      return;
+    }
+
+    if (size < capacity) {
+      counter = new Counter();
+      counter.key = key;
+      counter.count = count;
+      counter.error = error;
+      counter.index = size;
+      heap[size++] = counter;
+      counters.put(key, counter);
+      siftUp(counter.index);
+      return;
+    }
+
+    counter = heap[0];
+    counters.remove(counter.key);
+    counter.key = key;
+    counter.error = counter.count + error; // new key might have been counted by the evicted counter
+    counter.count += count;
+    counters.put(key, counter);
+    siftDown(0);
+  }
+
+  private void siftUp(int index) {
+    final Counter counter = heap[index];
+    while (index > 0) {
+      final int parent = (index - 1) >>> 1;
+      if (heap[parent].count <= counter.count) {
+        break;
+      }
+      place(heap[parent], index);
+      index = parent;
+    }
+    place(counter, index);
+  }
+
+  private void siftDown(int index) {
+    final Counter counter = heap[index];
+    for (;;) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+        ++child;
+      }
+      if (counter.count <= heap[child].count) {
+        break;
+      }
+      place(heap[child], index);
+      index = child;
+    }
+    place(counter, index);
+  }
+
+  private void place(Counter counter, int index) {
+    heap[index] = counter;
+    counter.index = index;
+  }
+}
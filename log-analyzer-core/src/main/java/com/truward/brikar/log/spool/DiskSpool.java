@@ -0,0 +1,365 @@
+package com.truward.brikar.log.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * Durable FIFO queue of records, which is kept in the segment files of the given directory. Records are appended
+ * to the current segment, which is sealed once it exceeds the segment size or the reader catches up with it.
+ * Sealed segments are read as a whole, and removed from disk once all their records have been removed from the
+ * queue, so reading is sequential and does not compete with the writer.
+ * <p>
+ * Each record is framed by its length and CRC32 checksum. Segments, left by the previous run, are recovered
+ * when spool is opened: the tail, which has been written partially, is truncated and the rest is read as usual.
+ * <p>
+ * Total size of the segments is limited, the oldest segments are dropped to make room for the new records,
+ * so that spool does not fill the disk when the endpoint is down for long. Dropped records are counted.
+ * <p>
+ * Records are removed explicitly after they have been peeked, so the record, which could not be delivered, is
+ * kept at the head of the queue. Delivery is at least once: the records, removed from the segment, which has not
+ * been consumed completely, are read again after restart. Appended records are buffered, so the writer is expected
+ * to call {@link #flush()} periodically, the loss on crash is limited by that period. All the methods are thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class DiskSpool implements Closeable {
+  private static final String SEGMENT_PREFIX = "spool-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final int HEADER_SIZE = 8;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final Path dir;
+  private final long segmentBytes;
+  private final long maxBytes;
+  private final CRC32 crc = new CRC32();
+
+  private final Deque<Segment> sealed = new ArrayDeque<>();
+  private Segment writer;
+  private DataOutputStream writerStream;
+
+  private List<byte[]> headRecords = Collections.emptyList();
+  private int headPosition;
+
+  private long depth;
+  private long bytes;
+  private long droppedCount;
+  private long nextSequence;
+  private boolean closed;
+
+  /**
+   * Opens the spool, recovering the records left in the given directory.
+   *
+   * @param dir Directory of the segment files, it is created if it does not exist
+   * @param segmentBytes Size, after which the segment is sealed
+   * @param maxBytes Maximum total size of the segments
+   * @throws IOException On failure to read the existing segments or to create the new one
+   */
+  public DiskSpool(@Nonnull Path dir, long segmentBytes, long maxBytes) throws IOException {
+    if (segmentBytes <= 0) {
+      throw new IllegalArgumentException("Segment size should be a positive number");
+    }
+    if (maxBytes < segmentBytes) {
+      throw new IllegalArgumentException("Maximum size should not be less than the segment size");
+    }
+
+    this.dir = Objects.requireNonNull(dir, "dir");
+    this.segmentBytes = segmentBytes;
+    this.maxBytes = maxBytes;
+
+    Files.createDirectories(dir);
+    recover();
+    openWriter();
+  }
+
+  /**
+   * Appends the record to the tail of the queue. Record is buffered in memory: it is written to the OS once
+   * the buffer is full, the segment is sealed or {@link #flush()} is called, so the records appended after the last
+   * flush are lost if the process crashes. Records are never synced to the disk.
+   *
+   * @param record Record bytes
+   * @return False, if there was no room for the record, so it has been dropped
+   * @throws IOException On failure to write the segment
+   */
+  public synchronized boolean append(@Nonnull byte[] record) throws IOException {
+    Objects.requireNonNull(record, "record");
+    ensureOpen();
+
+    final long size = HEADER_SIZE + record.length;
+    while (bytes + size > maxBytes && !sealed.isEmpty()) {
+      dropOldest();
+    }
+    if (bytes + size > maxBytes) {
+      ++droppedCount;
+      return false;
+    }
+
+    crc.reset();
+    crc.update(record, 0, record.length);
+    writerStream.writeInt(record.length);
+    writerStream.writeInt((int) crc.getValue());
+    writerStream.write(record);
+    writer.size += size;
+    ++writer.recordCount;
+    bytes += size;
+    ++depth;
+
+    if (writer.size >= segmentBytes) {
+      seal();
+    }
+    return true;
+  }
+
+  /**
+   * @return Record at the head of the queue, or null if queue is empty
+   * @throws IOException On failure to read the segment
+   */
+  @Nullable
+  public synchronized byte[] peek() throws IOException {
+    ensureOpen();
+
+    while (headPosition >= headRecords.size()) {
+      if (sealed.isEmpty()) {
+        if (writer.recordCount == 0) {
+          return null;
+        }
+        seal(); // reader caught up with the writer
+      }
+      loadHead();
+    }
+    return headRecords.get(headPosition);
+  }
+
+  /**
+   * Removes the record at the head of the queue, which has been returned by {@link #peek()}.
+   *
+   * @throws IOException On failure to delete the consumed segment
+   */
+  public synchronized void remove() throws IOException {
+    ensureOpen();
+    if (headPosition >= headRecords.size()) {
+      throw new IllegalStateException("Record should be peeked before it is removed");
+    }
+
+    headRecords.set(headPosition++, null);
+    --depth;
+    if (headPosition == headRecords.size()) {
+      final Segment head = sealed.removeFirst();
+      bytes -= head.size;
+      Files.deleteIfExists(head.path);
+      headRecords = Collections.emptyList();
+      headPosition = 0;
+    }
+  }
+
+  /**
+   * Writes buffered records to the OS.
+   */
+  public synchronized void flush() throws IOException {
+    if (!closed) {
+      writerStream.flush();
+    }
+  }
+
+  /**
+   * @return Number of records in the queue
+   */
+  public synchronized long getDepth() {
+    return depth;
+  }
+
+  /**
+   * @return Total size of the segments
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return Number of records, which have been dropped as there was no room for them
+   */
+  public synchronized long getDroppedCount() {
+    return droppedCount;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    writerStream.close();
+    if (writer.recordCount == 0) {
+      Files.deleteIfExists(writer.path);
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static final class Segment {
+    final Path path;
+    long size;
+    int recordCount;
+
+    Segment(Path path) {
+      this.path = path;
+    }
+  }
+
+  private void ensureOpen() {
+    if (closed) {
+      throw new IllegalStateException("Spool has been closed");
+    }
+  }
+
+  private void recover() throws IOException {
+    final List<Path> paths = new ArrayList<>();
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (final Path path : stream) {
+        if (sequenceOf(path) >= 0) {
+          paths.add(path);
+        }
+      }
+    }
+    paths.sort((p1, p2) -> Long.compare(sequenceOf(p1), sequenceOf(p2)));
+
+    for (final Path path : paths) {
+      nextSequence = sequenceOf(path) + 1;
+      final Segment segment = new Segment(path);
+      scan(segment);
+      if (segment.recordCount == 0) {
+        Files.delete(path);
+        continue;
+      }
+      sealed.addLast(segment);
+      depth += segment.recordCount;
+      bytes += segment.size;
+    }
+
+    if (depth > 0) {
+      log.info("Recovered {} spooled record(s) in {} segment(s)", depth, sealed.size());
+    }
+  }
+
+  // counts the complete records, truncates what follows them
+  private void scan(Segment segment) throws IOException {
+    try (final FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      final long fileSize = channel.size();
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      long position = 0;
+      while (position + HEADER_SIZE <= fileSize) {
+        header.clear();
+        readFully(channel, header, position);
+        header.flip();
+        final int length = header.getInt();
+        final int checksum = header.getInt();
+        if (length < 0 || position + HEADER_SIZE + length > fileSize) {
+          break;
+        }
+
+        final ByteBuffer record = ByteBuffer.allocate(length);
+        readFully(channel, record, position + HEADER_SIZE);
+        crc.reset();
+        crc.update(record.array(), 0, length);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+
+        position += HEADER_SIZE + length;
+        ++segment.recordCount;
+      }
+
+      if (position < fileSize) {
+        log.warn("Truncating {} corrupted byte(s) at the end of {}", fileSize - position, segment.path);
+        channel.truncate(position);
+      }
+      segment.size = position;
+    }
+  }
+
+  private void loadHead() throws IOException {
+    final Segment head = sealed.getFirst();
+    final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(head.path));
+    final List<byte[]> records = new ArrayList<>(head.recordCount);
+    for (int i = 0; i < head.recordCount; ++i) {
+      final int length = buffer.getInt();
+      buffer.getInt(); // checksum has been verified on recovery or written by this instance
+      final byte[] record = new byte[length];
+      buffer.get(record);
+      records.add(record);
+    }
+    headRecords = records;
+    headPosition = 0;
+  }
+
+  private void dropOldest() throws IOException {
+    final Segment oldest = sealed.removeFirst();
+    final int remaining;
+    if (!headRecords.isEmpty()) {
+      remaining = headRecords.size() - headPosition;
+      headRecords = Collections.emptyList();
+      headPosition = 0;
+    } else {
+      remaining = oldest.recordCount;
+    }
+
+    Files.deleteIfExists(oldest.path);
+    bytes -= oldest.size;
+    depth -= remaining;
+    droppedCount += remaining;
+    log.warn("Spool is full, dropped {} record(s) of {}", remaining, oldest.path);
+  }
+
+  private void seal() throws IOException {
+    writerStream.close();
+    sealed.addLast(writer);
+    openWriter();
+  }
+
+  private void openWriter() throws IOException {
+    writer = new Segment(dir.resolve(SEGMENT_PREFIX + nextSequence++ + SEGMENT_SUFFIX));
+    writerStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(writer.path,
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024));
+  }
+
+  private static long sequenceOf(Path path) {
+    final String name = path.getFileName().toString();
+    try {
+      return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.truward.brikar.log.spool;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of the values, records are sent to the endpoints as: maps, lists, strings, numbers
+ * and booleans. Types are kept, so that decoded value is sent the same way the original one would have been.
+ * Values of other types are encoded as their string representation.
+ *
+ * @author Alexander Shabanov
+ */
+public final class ValueCodec {
+  private ValueCodec() {} // Hidden
+
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int LONG = 2;
+  private static final int INTEGER = 3;
+  private static final int DOUBLE = 4;
+  private static final int BOOLEAN = 5;
+  private static final int LIST = 6;
+  private static final int MAP = 7;
+
+  @Nonnull
+  public static byte[] encode(@Nullable Object value) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+    try (final DataOutputStream out = new DataOutputStream(bytes)) {
+      write(out, value);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // should not happen, as bytes are written to memory
+    }
+    return bytes.toByteArray();
+  }
+
+  @Nullable
+  public static Object decode(@Nonnull byte[] bytes) throws IOException {
+    return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+  }
+
+  //
+  // Private
+  //
+
+  private static void write(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Collection) {
+      final Collection<?> collection = (Collection<?>) value;
+      out.writeByte(LIST);
+      out.writeInt(collection.size());
+      for (final Object element : collection) {
+        write(out, element);
+      }
+    } else if (value instanceof Map) {
+      final Map<?, ?> map = (Map<?, ?>) value;
+      out.writeByte(MAP);
+      out.writeInt(map.size());
+      for (final Map.Entry<?, ?> entry : map.entrySet()) {
+        writeString(out, String.valueOf(entry.getKey()));
+        write(out, entry.getValue());
+      }
+    } else {
+      out.writeByte(STRING);
+      writeString(out, value.toString());
+    }
+  }
+
+  private static Object read(DataInputStream in) throws IOException {
+    final int type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case LONG:
+        return in.readLong();
+      case INTEGER:
+        return in.readInt();
+      case DOUBLE:
+        return in.readDouble();
+      case BOOLEAN:
+        return in.readBoolean();
+      case LIST: {
+        final int size = in.readInt();
+        final List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+          list.add(read(in));
+        }
+        return list;
+      }
+      case MAP: {
+        final int size = in.readInt();
+        final Map<String, Object> map = new HashMap<>(size * 2);
+        for (int i = 0; i < size; ++i) {
+          final String key = readString(in);
+          map.put(key, read(in));
+        }
+        return map;
+      }
+      default:
+        throw new IOException("Unknown value type: " + type);
+    }
+  }
+
+  // unlike writeUTF, strings are not limited to 64K, which stacktraces may exceed
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,139 @@
+package com.truward.brikar.log.stream;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.util.MultiLineAssembler;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reads lines from the stream in blocks and assembles them into records one at a time, records are assembled
+ * the same way they are assembled by the pipeline. Besides the record, that is pending until its next line is read,
+ * at most one complete record is kept, that is the one consisting of the single line, that has completed the
+ * previous record, when max lines is 1.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LogRecordReader implements Closeable {
+  private final InputStream stream;
+  private final LogLineParser parser;
+  private final MultiLineAssembler assembler;
+  private final ArrayDeque<LogMessage> completed = new ArrayDeque<>(2);
+  private byte[] buffer;
+  private int carry;
+  private boolean endOfStream;
+
+  // lines, that have been read, but not parsed yet; parsed messages keep references to it
+  private byte[] chunk = new byte[0];
+  private int chunkPosition;
+
+  /**
+   * @param stream Source stream, it is closed along with the reader
+   * @param parser Line parser
+   * @param maxLines Maximum number of lines in record, the rest of lines are thrown away
+   * @param bufferSize Size of the blocks, stream is read by
+   */
+  public LogRecordReader(@Nonnull InputStream stream, @Nonnull LogLineParser parser, int maxLines, int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size should be a positive number");
+    }
+    this.stream = Objects.requireNonNull(stream, "stream");
+    this.parser = Objects.requireNonNull(parser, "parser");
+    this.assembler = new MultiLineAssembler(maxLines, completed::add);
+    this.buffer = new byte[bufferSize];
+  }
+
+  /**
+   * @return Next record or null, if the end of stream is reached
+   * @throws IOException On I/O error
+   */
+  @Nullable
+  public LogMessage next() throws IOException {
+    while (completed.isEmpty()) {
+      if (chunkPosition < chunk.length) {
+        parseLine();
+      } else if (!endOfStream) {
+        readChunk();
+      } else if (assembler.hasPending()) {
+        assembler.flush();
+      } else {
+        return null;
+      }
+    }
+    return completed.poll();
+  }
+
+  /**
+   * @return If all the records have been returned and that is known without reading the stream
+   */
+  public boolean isComplete() {
+    return completed.isEmpty() && chunkPosition >= chunk.length && endOfStream && !assembler.hasPending();
+  }
+
+  @Override
+  public void close() throws IOException {
+    stream.close();
+  }
+
+  //
+  // Private
+  //
+
+  private void parseLine() {
+    int end = chunkPosition;
+    while (end < chunk.length && chunk[end] != '\n') {
+      ++end;
+    }
+
+    final int start = chunkPosition;
+    chunkPosition = end + 1;
+    if (end > start && chunk[end - 1] == '\r') {
+      --end;
+    }
+    if (end > start) {
+      assembler.accept(parser.parse(chunk, start, end - start));
+    }
+  }
+
+  private void readChunk() throws IOException {
+    final int read = stream.read(buffer, carry, buffer.length - carry);
+    if (read < 0) {
+      endOfStream = true;
+      chunk = Arrays.copyOf(buffer, carry); // the last line without terminator
+      chunkPosition = 0;
+      carry = 0;
+      return;
+    }
+
+    final int end = carry + read;
+    int start = 0;
+    for (int i = end - 1; i >= carry; --i) {
+      if (buffer[i] == '\n') {
+        start = i + 1;
+        break;
+      }
+    }
+    if (start == 0) {
+      // no complete line in the buffer yet, it is grown for the lines, that are longer than the buffer
+      carry = end;
+      if (carry == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      return;
+    }
+
+    chunk = Arrays.copyOf(buffer, start);
+    chunkPosition = 0;
+    carry = end - start;
+    System.arraycopy(buffer, start, buffer, 0, carry);
+  }
+}
@@ -0,0 +1,55 @@
+package com.truward.brikar.log.stream;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams of the complete records of the log files, for the analytics jobs, that run without Camel.
+ * Stream could be made parallel, then the file is split between the threads of the common fork-join pool
+ * at the record starts, see {@link RecordSpliterator}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LogRecords {
+  private LogRecords() {} // Hidden
+
+  /**
+   * Opens the stream of records of the given file, records are assembled the same way they are assembled
+   * by the pipeline. Stream should be closed to close the file.
+   *
+   * @param path Log file
+   * @param parser Line parser, should be thread safe for the parallel streams
+   * @param maxLines Maximum number of lines in record, the rest of lines are thrown away
+   * @return Ordered stream of records
+   * @throws IOException If file can not be opened, errors on reading are thrown as {@link UncheckedIOException}
+   */
+  @Nonnull
+  public static Stream<LogMessage> stream(@Nonnull Path path, @Nonnull LogLineParser parser, int maxLines)
+      throws IOException {
+    Objects.requireNonNull(path, "path");
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      final RecordSpliterator spliterator = new RecordSpliterator(channel, parser, maxLines, 0, channel.size());
+      return StreamSupport.stream(spliterator, false).onClose(() -> {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+}
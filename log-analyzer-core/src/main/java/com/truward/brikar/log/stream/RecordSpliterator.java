@@ -0,0 +1,250 @@
+package com.truward.brikar.log.stream;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.util.MultiLineAssembler;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the records, that start within the given range of the file. Range always ends at the record
+ * start or at the end of file, so records never cross the ranges and each one is assembled by the spliterator,
+ * it starts in. {@link #trySplit()} cuts the remaining range in the middle and moves the cut forward to the next
+ * line, that starts a record (or a malformed one, as either of them completes the preceding record), so
+ * parallel traversal yields the same records sequential one does. Spliterator is not split once its traversal
+ * has started.
+ * <p>
+ * Range is memory mapped in regions, lines are copied from the mapping into chunks and parsed from there,
+ * chunks are never reused since the parsed messages may keep references to them. Parser is shared by the
+ * spliterators split from each other, thus it should be thread safe for parallel traversal.
+ * <p>
+ * Number of records is unknown until the range is read, so the spliterator is not {@link #SIZED} and
+ * {@link #estimateSize()} returns the number of bytes left, which is proportional to it.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecordSpliterator implements Spliterator<LogMessage> {
+  public static final int MIN_SPLIT_SIZE = 1024 * 1024;
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final long MAP_SIZE = 64L * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final LogLineParser parser;
+  private final int maxLines;
+  private final long end;
+  private long pos;
+
+  private MappedByteBuffer mapped;
+  private long mappedStart;
+  private long mappedEnd;
+
+  // traversal state: lines of the current chunk are parsed one by one, as records are requested
+  private final ArrayDeque<LogMessage> completed = new ArrayDeque<>(2);
+  private MultiLineAssembler assembler;
+  private byte[] chunk = new byte[0];
+  private int chunkPosition;
+
+  /**
+   * @param channel File channel
+   * @param parser Line parser
+   * @param maxLines Maximum number of lines in record
+   * @param start Start of the range, should be either zero or the start of line
+   * @param end End of the range, should be either the start of record or the end of file
+   */
+  public RecordSpliterator(@Nonnull FileChannel channel, @Nonnull LogLineParser parser, int maxLines,
+                           long start, long end) {
+    if (maxLines <= 0) {
+      throw new IllegalArgumentException("Max lines should be a positive number");
+    }
+    if (start < 0 || start > end) {
+      throw new IllegalArgumentException("Invalid range: start=" + start + ", end=" + end);
+    }
+    this.channel = Objects.requireNonNull(channel, "channel");
+    this.parser = Objects.requireNonNull(parser, "parser");
+    this.maxLines = maxLines;
+    this.pos = start;
+    this.end = end;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super LogMessage> action) {
+    Objects.requireNonNull(action, "action");
+    final LogMessage record = next();
+    if (record == null) {
+      return false;
+    }
+    action.accept(record);
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super LogMessage> action) {
+    Objects.requireNonNull(action, "action");
+    for (LogMessage record = next(); record != null; record = next()) {
+      action.accept(record);
+    }
+  }
+
+  @Override
+  public Spliterator<LogMessage> trySplit() {
+    if (assembler != null || end - pos < 2L * MIN_SPLIT_SIZE) {
+      return null; // once traversal has started, prefix can not be handed over without the pending record
+    }
+
+    final long cut = findRecordStart(pos + (end - pos) / 2);
+    if (cut < 0) {
+      return null;
+    }
+
+    final RecordSpliterator prefix = new RecordSpliterator(channel, parser, maxLines, pos, cut);
+    pos = cut;
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return end - pos + (chunk.length - chunkPosition);
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL;
+  }
+
+  //
+  // Private
+  //
+
+  private LogMessage next() {
+    if (assembler == null) {
+      assembler = new MultiLineAssembler(maxLines, completed::add);
+    }
+
+    while (completed.isEmpty()) {
+      if (chunkPosition < chunk.length) {
+        parseLine();
+      } else if (pos < end) {
+        readChunk();
+      } else if (assembler.hasPending()) {
+        assembler.flush();
+      } else {
+        return null;
+      }
+    }
+    return completed.poll();
+  }
+
+  private void parseLine() {
+    final int lineEnd = lineEnd(chunk, chunkPosition, chunk.length);
+    final int length = trimmedLength(chunk, chunkPosition, lineEnd);
+    if (length > 0) {
+      assembler.accept(parser.parse(chunk, chunkPosition, length));
+    }
+    chunkPosition = lineEnd + 1;
+  }
+
+  /**
+   * Copies complete lines, that follow the current position, into the new chunk.
+   */
+  private void readChunk() {
+    int length = (int) Math.min(CHUNK_SIZE, end - pos);
+    for (;;) {
+      final byte[] bytes = copy(pos, length);
+      int chunkLength = length;
+      if (pos + length < end) {
+        chunkLength = lastLineEnd(bytes) + 1;
+        if (chunkLength == 0) {
+          // line is longer than the chunk
+          length = (int) Math.min(2L * length, end - pos);
+          continue;
+        }
+      }
+
+      chunk = bytes.length == chunkLength ? bytes : Arrays.copyOf(bytes, chunkLength);
+      chunkPosition = 0;
+      pos += chunkLength;
+      return;
+    }
+  }
+
+  /**
+   * @return Start of the first line, that starts at or after the given position and is a record boundary,
+   *         or -1 if there is no such line before the end of range
+   */
+  private long findRecordStart(long from) {
+    boolean skipLine = copy(from - 1, 1)[0] != '\n'; // position points into the line, that starts before it
+    long scanned = from;
+    int length = CHUNK_SIZE;
+    while (scanned < end) {
+      final int blockLength = (int) Math.min(length, end - scanned);
+      final byte[] block = copy(scanned, blockLength);
+      int linePos = 0;
+      while (linePos < blockLength) {
+        final int lineEnd = lineEnd(block, linePos, blockLength);
+        if (lineEnd == blockLength && scanned + blockLength < end) {
+          break; // incomplete line, it is read again along with the rest of it
+        }
+        final int trimmed = trimmedLength(block, linePos, lineEnd);
+        if (!skipLine && trimmed > 0 && !parser.parse(block, linePos, trimmed).isMultiLinePart()) {
+          return scanned + linePos;
+        }
+        skipLine = false;
+        linePos = lineEnd + 1;
+      }
+
+      if (linePos == 0) {
+        length *= 2; // line is longer than the block
+      } else {
+        scanned += linePos;
+        length = CHUNK_SIZE;
+      }
+    }
+    return -1;
+  }
+
+  private byte[] copy(long position, int length) {
+    if (mapped == null || position < mappedStart || position + length > mappedEnd) {
+      mappedStart = position;
+      mappedEnd = Math.min(end, position + Math.max(MAP_SIZE, length));
+      try {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, mappedStart, mappedEnd - mappedStart);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    final byte[] bytes = new byte[length];
+    mapped.get((int) (position - mappedStart), bytes, 0, length);
+    return bytes;
+  }
+
+  private static int lastLineEnd(byte[] buffer) {
+    for (int i = buffer.length - 1; i >= 0; --i) {
+      if (buffer[i] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lineEnd(byte[] buffer, int pos, int end) {
+    while (pos < end && buffer[pos] != '\n') {
+      ++pos;
+    }
+    return pos;
+  }
+
+  private static int trimmedLength(byte[] buffer, int start, int lineEnd) {
+    return (lineEnd > start && buffer[lineEnd - 1] == '\r') ? lineEnd - start - 1 : lineEnd - start;
+  }
+}
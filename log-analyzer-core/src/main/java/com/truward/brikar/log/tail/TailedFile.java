@@ -0,0 +1,289 @@
+package com.truward.brikar.log.tail;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.util.MultiLineAssembler;
+import com.truward.brikar.log.util.ReorderBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reader of the single tailed file, it is expected to be run in its own virtual thread and do blocking reads.
+ * Lines are handed over in chunks to the shared parse pool, each chunk gets its sequence number when it is read.
+ * Chunks of the same file are parsed in parallel and then passed through the reorder buffer, so that multiline
+ * records are assembled in the order they appear in the file.
+ * <p>
+ * Reading may start at the given offset, e.g. the checkpoint left by the previous reader of the file.
+ * Checkpoint is the offset, before which all the records have been passed to the sink: the start of the pending
+ * record or the end of data, once pending record is flushed.
+ *
+ * @author Alexander Shabanov
+ */
+final class TailedFile implements Runnable {
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final Path path;
+  private final VirtualThreadTailService service;
+  private final MultiLineAssembler assembler;
+  private final ReorderBuffer<ParsedChunk> parsedChunks;
+  private final long startOffset;
+  private long submittedOffset; // reader thread state
+  private volatile long checkpoint;
+
+  TailedFile(@Nonnull Path path, @Nonnull VirtualThreadTailService service, long startOffset) {
+    if (startOffset < 0) {
+      throw new IllegalArgumentException("Start offset should not be negative");
+    }
+    this.path = Objects.requireNonNull(path, "path");
+    this.service = Objects.requireNonNull(service, "service");
+    this.assembler = new MultiLineAssembler(service.getMaxLines(), service.getSink(path));
+    this.parsedChunks = new ReorderBuffer<>(service.getMaxChunksInFlight(), this::assemble);
+    this.startOffset = startOffset;
+    this.submittedOffset = startOffset;
+    this.checkpoint = startOffset;
+  }
+
+  @Nonnull
+  Path getPath() {
+    return path;
+  }
+
+  @Override
+  public void run() {
+    final byte[] buffer = new byte[service.getBufferSize()];
+    final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+    int carry = 0;
+    long lastDataMillis = 0L;
+    boolean flushed = true;
+    FileChannel channel = null;
+
+    try {
+      while (!service.isStopped()) {
+        if (channel == null) {
+          channel = open();
+          if (channel == null) {
+            Thread.sleep(service.getScanDelayMillis());
+            continue;
+          }
+        }
+
+        byteBuffer.clear().position(carry);
+        final int read = channel.read(byteBuffer);
+        if (read <= 0) {
+          if (channel.size() < channel.position()) {
+            // file has been truncated, start over
+            log.info("File {} has been truncated, reading from the beginning", path);
+            channel.position(0L);
+            submittedOffset = 0L;
+            carry = 0;
+            continue;
+          }
+
+          if (!flushed && (System.currentTimeMillis() - lastDataMillis) >= service.getFlushDelayMillis()) {
+            flush();
+            flushed = true;
+          }
+
+          Thread.sleep(service.getScanDelayMillis());
+          continue;
+        }
+
+        lastDataMillis = System.currentTimeMillis();
+        flushed = false;
+        service.onBytesRead(read);
+        service.pace(read);
+        carry = submitLines(buffer, carry + read);
+      }
+    } catch (ClosedByInterruptException | InterruptedException ignored) {
+      // stop requested
+    } catch (IOException e) {
+      log.error("Unable to read {}", path, e);
+    } finally {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException ignored) {
+          // suppress
+        }
+      }
+    }
+  }
+
+  /**
+   * Completes the pending record, if any, once all the chunks read so far are assembled.
+   * Should be called either from the reader thread or once reader is stopped.
+   *
+   * @throws InterruptedException If interrupted while waiting for the parse pool to catch up
+   */
+  void flush() throws InterruptedException {
+    parsedChunks.complete(parsedChunks.claim(), ParsedChunk.flush(submittedOffset));
+  }
+
+  /**
+   * Same as {@link #flush()}, but also waits for the pending record to be passed to the sink.
+   * Should be called once reader is stopped.
+   *
+   * @return Checkpoint, i.e. the offset of the data read so far, that ends with the complete line
+   * @throws InterruptedException If interrupted while waiting
+   */
+  long flushAndWait() throws InterruptedException {
+    final ParsedChunk marker = ParsedChunk.flush(submittedOffset);
+    parsedChunks.complete(parsedChunks.claim(), marker);
+    marker.consumed.await();
+    return checkpoint;
+  }
+
+  /**
+   * @return Offset, before which all the records have been passed to the sink
+   */
+  long getCheckpoint() {
+    return checkpoint;
+  }
+
+  //
+  // Private
+  //
+
+  private FileChannel open() throws IOException {
+    final FileChannel channel;
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      return null; // file is not created yet
+    }
+
+    if (startOffset > 0 && submittedOffset == startOffset) {
+      if (channel.size() >= startOffset) {
+        channel.position(startOffset);
+      } else {
+        log.info("File {} is shorter than the start offset, reading from the beginning", path);
+        submittedOffset = 0L;
+      }
+    }
+    return channel;
+  }
+
+  private int submitLines(byte[] buffer, int end) throws InterruptedException {
+    int lineCount = 0;
+    int start = 0;
+    for (int i = 0; i < end; ++i) {
+      if (buffer[i] == '\n') {
+        ++lineCount;
+        start = i + 1;
+      }
+    }
+
+    if (start == 0 && end == buffer.length) {
+      // line is longer than the buffer - hand over what has been read so far
+      ++lineCount;
+      start = end;
+    }
+
+    if (start > 0) {
+      service.onLinesRead(lineCount);
+      // parsed messages keep references to the chunk, so read buffer can not be handed over as is
+      submit(Arrays.copyOf(buffer, start), submittedOffset);
+      submittedOffset += start;
+    }
+
+    final int carry = end - start;
+    System.arraycopy(buffer, start, buffer, 0, carry);
+    return carry;
+  }
+
+  private void submit(final byte[] chunk, final long offset) throws InterruptedException {
+    final long sequence = parsedChunks.claim(); // backpressure: reader waits for the parse pool to catch up
+    try {
+      service.getParsePool().execute(() -> parsedChunks.complete(sequence, parseChunk(chunk, offset)));
+    } catch (RejectedExecutionException e) {
+      // pool is shutting down, parse in the calling thread
+      parsedChunks.complete(sequence, parseChunk(chunk, offset));
+    }
+  }
+
+  private ParsedChunk parseChunk(byte[] chunk, long offset) {
+    final List<LogMessage> messages = new ArrayList<>();
+    long recordStart = -1L;
+    try {
+      final LogLineParser parser = service.getParser();
+      int start = 0;
+      for (int i = 0; i <= chunk.length; ++i) {
+        if (i < chunk.length && chunk[i] != '\n') {
+          continue;
+        }
+
+        int end = i;
+        if (end > start && chunk[end - 1] == '\r') {
+          --end;
+        }
+        if (end > start) {
+          final LogMessage message = parser.parse(chunk, start, end - start);
+          if (!message.isMultiLinePart()) {
+            // assembler completes the pending record, once the next one starts or malformed line comes
+            recordStart = offset + (message.isNull() ? i + 1 : start);
+          }
+          messages.add(message);
+        }
+        start = i + 1;
+      }
+    } catch (RuntimeException e) {
+      log.error("Unable to parse lines from {}", path, e);
+    }
+    return new ParsedChunk(messages, recordStart);
+  }
+
+  private void assemble(ParsedChunk chunk) {
+    if (chunk.consumed != null) {
+      assembler.flush();
+      checkpoint = chunk.checkpoint;
+      chunk.consumed.countDown();
+      return;
+    }
+
+    try {
+      for (final LogMessage message : chunk.messages) {
+        assembler.accept(message);
+      }
+    } catch (RuntimeException e) {
+      log.error("Unable to process lines from {}", path, e);
+    }
+    if (chunk.checkpoint >= 0) {
+      checkpoint = chunk.checkpoint;
+    }
+  }
+
+  private static final class ParsedChunk {
+    final List<LogMessage> messages;
+    final long checkpoint; // -1 if chunk has no start of the record
+    final CountDownLatch consumed; // non-null for the flush marker
+
+    ParsedChunk(List<LogMessage> messages, long checkpoint) {
+      this(messages, checkpoint, null);
+    }
+
+    private ParsedChunk(List<LogMessage> messages, long checkpoint, CountDownLatch consumed) {
+      this.messages = messages;
+      this.checkpoint = checkpoint;
+      this.consumed = consumed;
+    }
+
+    static ParsedChunk flush(long offset) {
+      return new ParsedChunk(Collections.<LogMessage>emptyList(), offset, new CountDownLatch(1));
+    }
+  }
+}
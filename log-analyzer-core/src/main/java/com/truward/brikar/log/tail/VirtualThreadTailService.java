@@ -0,0 +1,308 @@
+package com.truward.brikar.log.tail;
+
+import com.truward.brikar.log.governor.ResourceGovernor;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.share.SharedFileReader;
+import com.truward.brikar.log.sink.LogMessageSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tails many log files at once: each file is served by its own virtual thread doing blocking reads,
+ * lines read are parsed and assembled into records by the shared pool of parser threads. Chunks of the same file
+ * are parsed in parallel, so that a single file with heavy traffic could use all the parser threads.
+ * <p>
+ * Memory footprint per file is dominated by the read buffer, so buffer size should be chosen
+ * with the number of tailed files in mind.
+ * The given sink is called from the parser threads and thus should be thread safe. If records of each file should
+ * be told apart, each file may get its own sink.
+ * <p>
+ * Files may be started at the given offset and stopped individually, which returns the checkpoint to resume from,
+ * so that files could be handed over between the services, see {@link SharedFileReader}.
+ * <p>
+ * Readers could be paced by {@link ResourceGovernor}, parsers then get no more chunks than the budget allows.
+ *
+ * @author Alexander Shabanov
+ */
+public final class VirtualThreadTailService implements SharedFileReader, AutoCloseable {
+  public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+  private static final int MIN_CHUNKS_IN_FLIGHT = 4;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final ThreadLocal<LogLineParser> parsers;
+  private final Function<? super Path, ? extends LogMessageSink> sinkFactory;
+  private final ExecutorService parsePool;
+  private final int bufferSize;
+  private final int maxChunksInFlight;
+  private final long scanDelayMillis;
+  private final int maxLines;
+  private final long flushDelayMillis;
+  private final ResourceGovernor governor;
+
+  private final Map<Path, TailedFile> files = new LinkedHashMap<>();
+  private final Map<Path, Thread> readers = new LinkedHashMap<>();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder linesRead = new LongAdder();
+  private volatile boolean stopped;
+
+  public VirtualThreadTailService(@Nonnull Supplier<? extends LogLineParser> parserFactory,
+                                  @Nonnull LogMessageSink sink,
+                                  int parseThreads,
+                                  int bufferSize,
+                                  long scanDelayMillis,
+                                  int maxLines,
+                                  long flushDelayMillis) {
+    this(parserFactory, singleSink(sink), parseThreads, bufferSize, scanDelayMillis, maxLines, flushDelayMillis,
+        null);
+  }
+
+  /**
+   * Same as the other constructor, but records of each file are passed to the sink, created for that file
+   * once it is tailed, and reads are paced by the given governor, if any.
+   */
+  public VirtualThreadTailService(@Nonnull Supplier<? extends LogLineParser> parserFactory,
+                                  @Nonnull Function<? super Path, ? extends LogMessageSink> sinkFactory,
+                                  int parseThreads,
+                                  int bufferSize,
+                                  long scanDelayMillis,
+                                  int maxLines,
+                                  long flushDelayMillis,
+                                  @Nullable ResourceGovernor governor) {
+    Objects.requireNonNull(parserFactory, "parserFactory");
+    if (parseThreads <= 0) {
+      throw new IllegalArgumentException("Parse threads count should be a positive number");
+    }
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size should be a positive number");
+    }
+    if (scanDelayMillis <= 0) {
+      throw new IllegalArgumentException("Scan delay should be a positive number");
+    }
+    if (maxLines <= 0) {
+      throw new IllegalArgumentException("Max lines should be a positive number");
+    }
+    if (flushDelayMillis <= 0) {
+      throw new IllegalArgumentException("Flush delay should be a positive number");
+    }
+
+    // parsers are not required to be thread safe, so each thread in a pool gets its own instance
+    this.parsers = ThreadLocal.withInitial(parserFactory);
+    this.sinkFactory = Objects.requireNonNull(sinkFactory, "sinkFactory");
+    this.parsePool = Executors.newFixedThreadPool(parseThreads, new ParserThreadFactory());
+    this.bufferSize = bufferSize;
+    this.maxChunksInFlight = Math.max(MIN_CHUNKS_IN_FLIGHT, 2 * parseThreads);
+    this.scanDelayMillis = scanDelayMillis;
+    this.maxLines = maxLines;
+    this.flushDelayMillis = flushDelayMillis;
+    this.governor = governor;
+  }
+
+  /**
+   * Starts tailing the given file. File is not required to exist, reader will wait for it to appear.
+   *
+   * @param path Path to the log file
+   */
+  public void tail(@Nonnull Path path) {
+    tail(path, 0L);
+  }
+
+  /**
+   * Starts tailing the given file from the given offset, e.g. the checkpoint returned by {@link #untail(Path)}.
+   * File is read from the beginning, if it is shorter than the offset.
+   *
+   * @param path Path to the log file
+   * @param offset Offset of the first line to read
+   */
+  @Override
+  public synchronized void tail(@Nonnull Path path, long offset) {
+    if (stopped) {
+      throw new IllegalStateException("Service has been stopped");
+    }
+    if (files.containsKey(path)) {
+      throw new IllegalStateException("File is already tailed: " + path);
+    }
+
+    final TailedFile file = new TailedFile(path, this, offset);
+    files.put(path, file);
+    readers.put(path, Thread.ofVirtual().name("tail-" + path.getFileName()).start(file));
+  }
+
+  /**
+   * Stops tailing the given file and completes its pending record.
+   *
+   * @param path Path to the tailed file
+   * @return Checkpoint, i.e. the offset to resume reading from, or -1 if file is not tailed
+   * @throws InterruptedException If interrupted while waiting for the reader to stop
+   */
+  @Override
+  public long untail(@Nonnull Path path) throws InterruptedException {
+    final TailedFile file;
+    final Thread reader;
+    synchronized (this) {
+      file = files.remove(path);
+      reader = readers.remove(path);
+    }
+    if (file == null) {
+      return -1L;
+    }
+
+    reader.interrupt();
+    reader.join();
+    return file.flushAndWait();
+  }
+
+  /**
+   * @param path Path to the tailed file
+   * @return Offset, before which all the records of the file have been passed to the sink, or -1 if file is
+   * not tailed
+   */
+  @Override
+  public synchronized long getCheckpoint(@Nonnull Path path) {
+    final TailedFile file = files.get(path);
+    return file != null ? file.getCheckpoint() : -1L;
+  }
+
+  public synchronized int getFileCount() {
+    return files.size();
+  }
+
+  /**
+   * @return Files, that are tailed
+   */
+  @Nonnull
+  public synchronized List<Path> getPaths() {
+    return new ArrayList<>(files.keySet());
+  }
+
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  public long getLinesRead() {
+    return linesRead.sum();
+  }
+
+  /**
+   * Stops all the readers, completes pending records and waits for the parse pool to drain.
+   */
+  @Override
+  public void close() throws InterruptedException {
+    final List<Thread> stoppingReaders;
+    final List<TailedFile> stoppingFiles;
+    synchronized (this) {
+      if (stopped) {
+        return;
+      }
+      stopped = true;
+      stoppingReaders = new ArrayList<>(readers.values());
+      stoppingFiles = new ArrayList<>(files.values());
+    }
+
+    for (final Thread reader : stoppingReaders) {
+      reader.interrupt();
+    }
+    for (final Thread reader : stoppingReaders) {
+      reader.join();
+    }
+
+    for (final TailedFile file : stoppingFiles) {
+      file.flush();
+    }
+
+    parsePool.shutdown();
+    if (!parsePool.awaitTermination(1L, TimeUnit.MINUTES)) {
+      log.warn("Parse pool has not been terminated in time");
+    }
+  }
+
+  //
+  // Package-private - used by readers
+  //
+
+  boolean isStopped() {
+    return stopped;
+  }
+
+  LogLineParser getParser() {
+    return parsers.get();
+  }
+
+  LogMessageSink getSink(Path path) {
+    return sinkFactory.apply(path);
+  }
+
+  ExecutorService getParsePool() {
+    return parsePool;
+  }
+
+  int getBufferSize() {
+    return bufferSize;
+  }
+
+  int getMaxChunksInFlight() {
+    return maxChunksInFlight;
+  }
+
+  long getScanDelayMillis() {
+    return scanDelayMillis;
+  }
+
+  int getMaxLines() {
+    return maxLines;
+  }
+
+  long getFlushDelayMillis() {
+    return flushDelayMillis;
+  }
+
+  void onBytesRead(int count) {
+    bytesRead.add(count);
+  }
+
+  void onLinesRead(int count) {
+    linesRead.add(count);
+  }
+
+  void pace(int count) throws InterruptedException {
+    if (governor != null) {
+      governor.pace(count);
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static Function<Path, LogMessageSink> singleSink(LogMessageSink sink) {
+    Objects.requireNonNull(sink, "sink");
+    return path -> sink;
+  }
+
+  private static final class ParserThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(@Nonnull Runnable r) {
+      final Thread thread = new Thread(r, "log-parser-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
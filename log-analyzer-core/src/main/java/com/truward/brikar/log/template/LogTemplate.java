@@ -0,0 +1,62 @@
+package com.truward.brikar.log.template;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+/**
+ * Helpers for the message templates: template is a message, that has variable tokens replaced with
+ * {@link #WILDCARD}, tokens are separated by single spaces.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LogTemplate {
+
+  /**
+   * Marker of the variable token in template.
+   */
+  public static final String WILDCARD = "<*>";
+
+  private LogTemplate() {} // Hidden ctor
+
+  /**
+   * Restores message from the template and the parameters, that have been extracted from it.
+   *
+   * @param template Template
+   * @param parameters Values of the wildcards in order
+   * @return Original message
+   */
+  @Nonnull
+  public static String render(@Nonnull String template, @Nonnull List<String> parameters) {
+    final StringBuilder builder = new StringBuilder(template.length() + parameters.size() * 8);
+    int parameterIndex = 0;
+    int start = 0;
+    for (;;) {
+      int end = template.indexOf(' ', start);
+      if (end < 0) {
+        end = template.length();
+      }
+
+      if (start > 0) {
+        builder.append(' ');
+      }
+      if (end - start == WILDCARD.length() && template.startsWith(WILDCARD, start)) {
+        if (parameterIndex >= parameters.size()) {
+          throw new IllegalArgumentException("Not enough parameters for template: " + template);
+        }
+        builder.append(parameters.get(parameterIndex++));
+      } else {
+        builder.append(template, start, end);
+      }
+
+      if (end == template.length()) {
+        break;
+      }
+      start = end + 1;
+    }
+
+    if (parameterIndex != parameters.size()) {
+      throw new IllegalArgumentException("Too many parameters for template: " + template);
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,75 @@
+package com.truward.brikar.log.template;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Result of matching the message against the templates.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TemplateMatch {
+  private final int templateId;
+  private final int templateVersion;
+  private final String template;
+  private final List<String> parameters;
+  private final boolean templateChanged;
+
+  public TemplateMatch(int templateId, int templateVersion, @Nonnull String template,
+                       @Nonnull List<String> parameters, boolean templateChanged) {
+    this.templateId = templateId;
+    this.templateVersion = templateVersion;
+    this.template = Objects.requireNonNull(template, "template");
+    this.parameters = Collections.unmodifiableList(parameters);
+    this.templateChanged = templateChanged;
+  }
+
+  public int getTemplateId() {
+    return templateId;
+  }
+
+  /**
+   * @return Version of the template definition, it is incremented each time template is generalized, so that
+   * template ID and version identify the definition regardless of the order, in which matches are seen
+   */
+  public int getTemplateVersion() {
+    return templateVersion;
+  }
+
+  /**
+   * @return Template as it is after this match
+   */
+  @Nonnull
+  public String getTemplate() {
+    return template;
+  }
+
+  /**
+   * @return Values of the template wildcards, message is restored by {@link LogTemplate#render(String, List)}
+   */
+  @Nonnull
+  public List<String> getParameters() {
+    return parameters;
+  }
+
+  /**
+   * @return True, if template has been created or generalized by this match, so that readers, that restore
+   * messages, should get the new template definition
+   */
+  public boolean isTemplateChanged() {
+    return templateChanged;
+  }
+
+  @Override
+  public String toString() {
+    return "TemplateMatch{" +
+        "templateId=" + templateId +
+        ", templateVersion=" + templateVersion +
+        ", template='" + template + '\'' +
+        ", parameters=" + parameters +
+        ", templateChanged=" + templateChanged +
+        '}';
+  }
+}
@@ -0,0 +1,243 @@
+package com.truward.brikar.log.template;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Online miner of the message templates, based on the fixed depth parse tree of Drain algorithm. Message is split
+ * into tokens by single spaces, tree routes it by the number of tokens and then by the first few tokens to the
+ * small group of templates, the most similar one is generalized to match the message or a new one is created.
+ * Tokens, that contain digits, are treated as variables right away.
+ * <p>
+ * Template IDs are never reused. Templates are kept in LRU cache of the given capacity, message of the evicted
+ * template gets a new one. Template may only become more general, so messages, matched before, are restored
+ * with the template definition, that was current at the moment of the match, each generalization increments
+ * the version of the template.
+ * <p>
+ * This class is thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TemplateMiner {
+  public static final int DEFAULT_DEPTH = 4;
+  public static final double DEFAULT_SIMILARITY_THRESHOLD = 0.4;
+  public static final int DEFAULT_MAX_CHILDREN = 100;
+  public static final int DEFAULT_MAX_TEMPLATES = 1000;
+
+  private final int prefixDepth;
+  private final double similarityThreshold;
+  private final int maxChildren;
+  private final Map<Integer, Node> lengthNodes = new HashMap<>();
+  private final Map<Integer, Template> templates;
+  private int nextTemplateId = 1;
+
+  /**
+   * @param depth Depth of the parse tree: root, number of tokens, first <code>depth - 2</code> tokens, leaf
+   * @param similarityThreshold Minimum share of the matching tokens for the message to match the template
+   * @param maxChildren Maximum number of the children of the tree node, the rest of the tokens are routed
+   *                    as variables
+   * @param maxTemplates Maximum number of the templates kept
+   */
+  public TemplateMiner(int depth, double similarityThreshold, int maxChildren, final int maxTemplates) {
+    if (depth < 3) {
+      throw new IllegalArgumentException("Depth should be at least 3");
+    }
+    if (similarityThreshold < 0.0 || similarityThreshold > 1.0) {
+      throw new IllegalArgumentException("Similarity threshold should be between 0 and 1");
+    }
+    if (maxChildren < 2) {
+      throw new IllegalArgumentException("Max children should be at least 2");
+    }
+    if (maxTemplates <= 0) {
+      throw new IllegalArgumentException("Max templates should be a positive number");
+    }
+
+    this.prefixDepth = depth - 2;
+    this.similarityThreshold = similarityThreshold;
+    this.maxChildren = maxChildren;
+    this.templates = new LinkedHashMap<Integer, Template>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Template> eldest) {
+        if (size() <= maxTemplates) {
+          return false;
+        }
+        eldest.getValue().leaf.remove(eldest.getValue());
+        return true;
+      }
+    };
+  }
+
+  public TemplateMiner() {
+    this(DEFAULT_DEPTH, DEFAULT_SIMILARITY_THRESHOLD, DEFAULT_MAX_CHILDREN, DEFAULT_MAX_TEMPLATES);
+  }
+
+  /**
+   * Finds or creates the template for the given message.
+   *
+   * @param message Message
+   * @return Template and the parameters of the message
+   */
+  @Nonnull
+  public synchronized TemplateMatch match(@Nonnull String message) {
+    final String[] tokens = message.split(" ", -1);
+    final List<Template> leaf = findLeaf(tokens);
+
+    Template best = null;
+    int bestMatches = -1;
+    for (final Template candidate : leaf) {
+      final int matches = candidate.countMatches(tokens);
+      if (matches > bestMatches) {
+        best = candidate;
+        bestMatches = matches;
+      }
+    }
+
+    final boolean changed;
+    if (best != null && bestMatches >= similarityThreshold * tokens.length) {
+      changed = best.generalize(tokens);
+      templates.get(best.id); // marks as recently used
+    } else {
+      best = new Template(nextTemplateId++, tokens, leaf);
+      leaf.add(best);
+      templates.put(best.id, best);
+      changed = true;
+    }
+
+    return new TemplateMatch(best.id, best.version, best.toString(), best.extractParameters(tokens), changed);
+  }
+
+  /**
+   * @return Current definition of the template or null if there is no such template or it has been evicted
+   */
+  @Nullable
+  public synchronized String getTemplate(int templateId) {
+    final Template template = templates.get(templateId);
+    return template != null ? template.toString() : null;
+  }
+
+  public synchronized int getTemplateCount() {
+    return templates.size();
+  }
+
+  //
+  // Private
+  //
+
+  private List<Template> findLeaf(String[] tokens) {
+    Node node = lengthNodes.get(tokens.length);
+    if (node == null) {
+      node = new Node();
+      lengthNodes.put(tokens.length, node);
+    }
+
+    final int depth = Math.min(prefixDepth, tokens.length);
+    for (int i = 0; i < depth; ++i) {
+      String key = isVariable(tokens[i]) ? LogTemplate.WILDCARD : tokens[i];
+      Node child = node.children.get(key);
+      if (child == null) {
+        if (node.children.size() >= maxChildren - 1) {
+          // the last child is reserved for all the tokens, that did not fit
+          key = LogTemplate.WILDCARD;
+          child = node.children.get(key);
+        }
+        if (child == null) {
+          child = new Node();
+          node.children.put(key, child);
+        }
+      }
+      node = child;
+    }
+    return node.templates;
+  }
+
+  private static boolean isVariable(String token) {
+    if (token.equals(LogTemplate.WILDCARD)) {
+      return true;
+    }
+    for (int i = 0; i < token.length(); ++i) {
+      final char ch = token.charAt(i);
+      if (ch >= '0' && ch <= '9') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Node {
+    final Map<String, Node> children = new HashMap<>();
+    final List<Template> templates = new ArrayList<>();
+  }
+
+  private static final class Template {
+    final int id;
+    final List<Template> leaf;
+    // null stands for wildcard
+    final String[] tokens;
+    int version = 1;
+    String text;
+
+    Template(int id, String[] messageTokens, List<Template> leaf) {
+      this.id = id;
+      this.leaf = leaf;
+      this.tokens = new String[messageTokens.length];
+      for (int i = 0; i < messageTokens.length; ++i) {
+        tokens[i] = isVariable(messageTokens[i]) ? null : messageTokens[i];
+      }
+    }
+
+    int countMatches(String[] messageTokens) {
+      int result = 0;
+      for (int i = 0; i < tokens.length; ++i) {
+        if (tokens[i] != null && tokens[i].equals(messageTokens[i])) {
+          ++result;
+        }
+      }
+      return result;
+    }
+
+    boolean generalize(String[] messageTokens) {
+      boolean changed = false;
+      for (int i = 0; i < tokens.length; ++i) {
+        if (tokens[i] != null && !tokens[i].equals(messageTokens[i])) {
+          tokens[i] = null;
+          changed = true;
+        }
+      }
+      if (changed) {
+        text = null;
+        ++version;
+      }
+      return changed;
+    }
+
+    List<String> extractParameters(String[] messageTokens) {
+      final List<String> result = new ArrayList<>();
+      for (int i = 0; i < tokens.length; ++i) {
+        if (tokens[i] == null) {
+          result.add(messageTokens[i]);
+        }
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      if (text == null) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < tokens.length; ++i) {
+          if (i > 0) {
+            builder.append(' ');
+          }
+          builder.append(tokens[i] != null ? tokens[i] : LogTemplate.WILDCARD);
+        }
+        text = builder.toString();
+      }
+      return text;
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.truward.brikar.log.trace;
+
+import com.truward.brikar.log.model.LogMessage;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Records of a single request, ordered by time, with the summary of the request.
+ *
+ * @author Alexander Shabanov
+ */
+public final class Trace {
+
+  /**
+   * Reason, trace has been completed for.
+   */
+  public enum Completion {
+    /**
+     * No records of the request have come within the timeout.
+     */
+    TIMEOUT,
+
+    /**
+     * Trace has been completed early to keep the number of open traces or their memory within the limits.
+     */
+    EVICTED,
+
+    /**
+     * All the open traces have been completed, e.g. on shutdown.
+     */
+    FLUSHED
+  }
+
+  private final String requestId;
+  private final List<LogMessage> events;
+  private final boolean error;
+  private final List<Long> metricDeltas;
+  private final int droppedEventCount;
+  private final Completion completion;
+
+  public Trace(@Nonnull String requestId,
+               @Nonnull List<LogMessage> events,
+               boolean error,
+               @Nonnull List<Long> metricDeltas,
+               int droppedEventCount,
+               @Nonnull Completion completion) {
+    if (events.isEmpty()) {
+      throw new IllegalArgumentException("Trace should have at least one event");
+    }
+
+    this.requestId = Objects.requireNonNull(requestId, "requestId");
+    this.events = Collections.unmodifiableList(events);
+    this.error = error;
+    this.metricDeltas = Collections.unmodifiableList(metricDeltas);
+    this.droppedEventCount = droppedEventCount;
+    this.completion = Objects.requireNonNull(completion, "completion");
+  }
+
+  @Nonnull
+  public String getRequestId() {
+    return requestId;
+  }
+
+  /**
+   * @return Records of the request ordered by time
+   */
+  @Nonnull
+  public List<LogMessage> getEvents() {
+    return events;
+  }
+
+  public long getStartTime() {
+    return events.get(0).getUnixTime();
+  }
+
+  public long getEndTime() {
+    return events.get(events.size() - 1).getUnixTime();
+  }
+
+  public long getDuration() {
+    return getEndTime() - getStartTime();
+  }
+
+  /**
+   * @return True, if any record of the request is an error
+   */
+  public boolean isError() {
+    return error;
+  }
+
+  /**
+   * @return Values of <code>tDelta</code> of the metric records of the request in the order of events
+   */
+  @Nonnull
+  public List<Long> getMetricDeltas() {
+    return metricDeltas;
+  }
+
+  /**
+   * @return Number of the records, that have not been kept, since trace has reached the max number of events
+   */
+  public int getDroppedEventCount() {
+    return droppedEventCount;
+  }
+
+  @Nonnull
+  public Completion getCompletion() {
+    return completion;
+  }
+
+  @Override
+  public String toString() {
+    return "Trace{" +
+        "requestId='" + requestId + '\'' +
+        ", events=" + events.size() +
+        ", duration=" + getDuration() +
+        ", error=" + error +
+        ", metricDeltas=" + metricDeltas +
+        ", droppedEventCount=" + droppedEventCount +
+        ", completion=" + completion +
+        '}';
+  }
+}
@@ -0,0 +1,282 @@
+package com.truward.brikar.log.trace;
+
+import com.truward.brikar.log.model.ByteSliceLogMessage;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.model.Utf8LineConsumer;
+import com.truward.brikar.log.sink.LogMessageSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups records by the request ID attribute and passes each request to the sink as a single trace once no records
+ * of the request have come within the timeout.
+ * <p>
+ * State is bounded: open traces are kept in the hash table ordered by the time of their last record, so that
+ * timed out traces are found at its head, and once the number of the open traces or the estimated size of their
+ * records exceeds the limit, traces, that have been idle the longest, are completed early. Number of records
+ * in a single trace is limited as well, the rest are counted, but not kept. Kept records, backed by the read
+ * buffers, are compacted, so that each of them holds only its own bytes rather than the whole chunk it was parsed
+ * from, which is what the estimated size accounts for.
+ * <p>
+ * Timeout is measured by the time records have been accepted, rather than by their timestamps, so that old logs
+ * are grouped the same way as the live ones. Timed out traces are completed on each accepted record and on
+ * {@link #expire(long)}, which should be called periodically, so that traces complete when no records come.
+ * <p>
+ * All the methods are thread safe, sink is called outside of the lock.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TraceAssembler implements LogMessageSink, Flushable {
+  public static final String REQUEST_ID_ATTRIBUTE = "rid";
+  public static final String METRIC_DELTA_ATTRIBUTE = "tDelta";
+
+  public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+  public static final int DEFAULT_MAX_TRACES = 200000;
+  public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+  public static final int DEFAULT_MAX_EVENTS = 1000;
+
+  // rough per object overheads, used to estimate memory taken by the open traces
+  private static final int TRACE_OVERHEAD = 160;
+  private static final int EVENT_OVERHEAD = 128;
+
+  private static final Comparator<LogMessage> BY_TIME = new Comparator<LogMessage>() {
+    @Override
+    public int compare(LogMessage o1, LogMessage o2) {
+      return Long.compare(o1.getUnixTime(), o2.getUnixTime());
+    }
+  };
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final TraceSink sink;
+  private final long timeoutMillis;
+  private final int maxTraces;
+  private final long maxBytes;
+  private final int maxEvents;
+
+  private final LinkedHashMap<String, OpenTrace> traces = new LinkedHashMap<>(1024, 0.75f, true);
+  private long bytes;
+
+  /**
+   * @param sink Receiver of the completed traces
+   * @param timeoutMillis Time since the last record of the request, after which trace is completed
+   * @param maxTraces Maximum number of the open traces
+   * @param maxBytes Maximum estimated size of the records of the open traces
+   * @param maxEvents Maximum number of records kept in a single trace
+   */
+  public TraceAssembler(@Nonnull TraceSink sink, long timeoutMillis, int maxTraces, long maxBytes, int maxEvents) {
+    if (timeoutMillis <= 0) {
+      throw new IllegalArgumentException("Timeout should be a positive number");
+    }
+    if (maxTraces <= 0 || maxBytes <= 0 || maxEvents <= 0) {
+      throw new IllegalArgumentException("Limits should be positive numbers");
+    }
+
+    this.sink = Objects.requireNonNull(sink, "sink");
+    this.timeoutMillis = timeoutMillis;
+    this.maxTraces = maxTraces;
+    this.maxBytes = maxBytes;
+    this.maxEvents = maxEvents;
+  }
+
+  public TraceAssembler(@Nonnull TraceSink sink) {
+    this(sink, DEFAULT_TIMEOUT_MILLIS, DEFAULT_MAX_TRACES, DEFAULT_MAX_BYTES, DEFAULT_MAX_EVENTS);
+  }
+
+  @Override
+  public void accept(@Nonnull LogMessage message) {
+    if (message.isNull() || message.isMultiLinePart()) {
+      return;
+    }
+
+    final Object requestId = message.getAttributes().get(REQUEST_ID_ATTRIBUTE);
+    if (requestId == null) {
+      return;
+    }
+
+    final long size = estimateSize(message);
+    final List<Trace> completed;
+    synchronized (this) {
+      completed = add(requestId.toString(), message, size, System.currentTimeMillis());
+    }
+    emit(completed);
+  }
+
+  /**
+   * Completes the traces, that have not got records since the given time minus timeout.
+   *
+   * @param now Current time
+   */
+  public void expire(long now) {
+    final List<Trace> completed;
+    synchronized (this) {
+      completed = completeIdle(now, null);
+    }
+    emit(completed);
+  }
+
+  /**
+   * Completes all the open traces.
+   */
+  @Override
+  public void flush() {
+    final List<Trace> completed = new ArrayList<>();
+    synchronized (this) {
+      final Iterator<OpenTrace> it = traces.values().iterator();
+      while (it.hasNext()) {
+        completed.add(complete(it.next(), Trace.Completion.FLUSHED));
+        it.remove();
+      }
+    }
+    emit(completed);
+  }
+
+  public synchronized int getOpenTraceCount() {
+    return traces.size();
+  }
+
+  /**
+   * @return Estimated size of the records of the open traces in bytes
+   */
+  public synchronized long getOpenTraceBytes() {
+    return bytes;
+  }
+
+  //
+  // Private
+  //
+
+  @Nullable
+  private List<Trace> add(String requestId, LogMessage message, long size, long now) {
+    List<Trace> completed = completeIdle(now, null);
+
+    OpenTrace trace = traces.get(requestId);
+    if (trace == null) {
+      trace = new OpenTrace(requestId);
+      traces.put(requestId, trace);
+      bytes += TRACE_OVERHEAD;
+    }
+    trace.lastSeen = now;
+    if (trace.events.size() < maxEvents) {
+      if (message instanceof ByteSliceLogMessage) {
+        // detach from the read chunk or ring slots, otherwise the record pins far more than its size
+        ((ByteSliceLogMessage) message).compact();
+      }
+      trace.events.add(message);
+      trace.bytes += size;
+      bytes += size;
+    } else {
+      ++trace.droppedEventCount;
+    }
+
+    final Iterator<OpenTrace> it = traces.values().iterator();
+    while ((traces.size() > maxTraces || bytes > maxBytes) && it.hasNext()) {
+      if (completed == null) {
+        completed = new ArrayList<>();
+      }
+      completed.add(complete(it.next(), Trace.Completion.EVICTED));
+      it.remove();
+    }
+    return completed;
+  }
+
+  @Nullable
+  private List<Trace> completeIdle(long now, @Nullable List<Trace> completed) {
+    final Iterator<OpenTrace> it = traces.values().iterator();
+    while (it.hasNext()) {
+      final OpenTrace trace = it.next();
+      if (trace.lastSeen > now - timeoutMillis) {
+        break; // the rest have got records later
+      }
+      if (completed == null) {
+        completed = new ArrayList<>();
+      }
+      completed.add(complete(trace, Trace.Completion.TIMEOUT));
+      it.remove();
+    }
+    return completed;
+  }
+
+  private Trace complete(OpenTrace trace, Trace.Completion completion) {
+    bytes -= trace.bytes + TRACE_OVERHEAD;
+
+    // records of the same request may come from several files or threads out of order, sort is stable
+    final List<LogMessage> events = trace.events;
+    events.sort(BY_TIME);
+
+    boolean error = false;
+    final List<Long> metricDeltas = new ArrayList<>(0);
+    for (final LogMessage event : events) {
+      error |= event.getSeverity() == Severity.ERROR;
+      final Object delta = event.getAttributes().get(METRIC_DELTA_ATTRIBUTE);
+      if (delta != null) {
+        try {
+          metricDeltas.add(Long.parseLong(delta.toString()));
+        } catch (NumberFormatException e) {
+          log.debug("Malformed {} in request {}: {}", METRIC_DELTA_ATTRIBUTE, trace.requestId, delta);
+        }
+      }
+    }
+
+    return new Trace(trace.requestId, events, error, metricDeltas, trace.droppedEventCount, completion);
+  }
+
+  private void emit(@Nullable List<Trace> completed) {
+    if (completed == null) {
+      return;
+    }
+    for (final Trace trace : completed) {
+      try {
+        sink.accept(trace);
+      } catch (RuntimeException e) {
+        log.error("Unable to pass trace of request {}", trace.getRequestId(), e);
+      }
+    }
+  }
+
+  private static long estimateSize(LogMessage message) {
+    final long[] size = {EVENT_OVERHEAD + 64L * message.getAttributes().size()};
+    if (message instanceof ByteSliceLogMessage) {
+      try {
+        message.forEachLineUtf8(new Utf8LineConsumer() {
+          @Override
+          public void accept(@Nonnull byte[] buffer, int offset, int length) {
+            size[0] += length + 48; // decoded when converted for the endpoint
+          }
+        });
+      } catch (IOException e) {
+        throw new IllegalStateException(e); // consumer does not throw
+      }
+      return size[0];
+    }
+
+    for (final String line : message.getLines()) {
+      size[0] += 2L * line.length() + 48;
+    }
+    return size[0];
+  }
+
+  private static final class OpenTrace {
+    final String requestId;
+    final List<LogMessage> events = new ArrayList<>(4);
+    long lastSeen;
+    long bytes;
+    int droppedEventCount;
+
+    OpenTrace(String requestId) {
+      this.requestId = requestId;
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.truward.brikar.log.trace;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receiver of the completed request traces.
+ *
+ * @author Alexander Shabanov
+ */
+public interface TraceSink {
+
+  void accept(@Nonnull Trace trace);
+}
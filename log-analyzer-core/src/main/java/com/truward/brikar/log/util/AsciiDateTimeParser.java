@@ -0,0 +1,202 @@
+package com.truward.brikar.log.util;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Parses UTC timestamps in <code>yyyy-MM-dd HH:mm:ss,SSS</code> format right from the ASCII bytes or characters,
+ * without creating intermediate objects. Unlike {@link java.text.SimpleDateFormat} this class is thread safe.
+ * ISO-8601 timestamps, that are common in JSON logs, are parsed from the bytes as well.
+ * <p>
+ * Parsing is strict: each field should be within its range and the day should exist in the month, taking leap
+ * years into account, otherwise {@link #MALFORMED} is returned.
+ *
+ * @author Alexander Shabanov
+ */
+public final class AsciiDateTimeParser {
+
+  /**
+   * Length of the timestamp, e.g. <code>2015-07-24 23:21:16,942</code>.
+   */
+  public static final int LENGTH = 23;
+
+  /**
+   * Value, returned for malformed timestamps.
+   */
+  public static final long MALFORMED = Long.MIN_VALUE;
+
+  private static final int ISO_8601_MIN_LENGTH = 19; // e.g. 2015-07-24T23:21:16
+
+  private AsciiDateTimeParser() {} // Hidden ctor
+
+  public static long parse(@Nonnull byte[] buffer, int offset, int end) {
+    if (end - offset < LENGTH) {
+      return MALFORMED;
+    }
+
+    if (buffer[offset + 4] != '-' || buffer[offset + 7] != '-' || buffer[offset + 10] != ' ' ||
+        buffer[offset + 13] != ':' || buffer[offset + 16] != ':' || buffer[offset + 19] != ',') {
+      return MALFORMED;
+    }
+
+    final int year = digits(buffer, offset, 4);
+    final int month = digits(buffer, offset + 5, 2);
+    final int day = digits(buffer, offset + 8, 2);
+    final int hour = digits(buffer, offset + 11, 2);
+    final int minute = digits(buffer, offset + 14, 2);
+    final int second = digits(buffer, offset + 17, 2);
+    final int millis = digits(buffer, offset + 20, 3);
+    return toUnixTime(year, month, day, hour, minute, second, millis);
+  }
+
+  /**
+   * Parses ISO-8601 timestamp, such as <code>2015-07-24T23:21:16.942Z</code>: date and time could be separated
+   * by <code>T</code> or space, fraction of a second could have any number of digits and be separated by a dot
+   * or comma, it is truncated to milliseconds. Timestamp without zone offset is considered UTC.
+   *
+   * @param buffer Buffer, containing the timestamp
+   * @param offset Timestamp offset
+   * @param end End of the timestamp, exclusive
+   * @return Unix time in milliseconds or {@link #MALFORMED}
+   */
+  public static long parseIso8601(@Nonnull byte[] buffer, int offset, int end) {
+    if (end - offset < ISO_8601_MIN_LENGTH) {
+      return MALFORMED;
+    }
+
+    if (buffer[offset + 4] != '-' || buffer[offset + 7] != '-' ||
+        (buffer[offset + 10] != 'T' && buffer[offset + 10] != ' ') ||
+        buffer[offset + 13] != ':' || buffer[offset + 16] != ':') {
+      return MALFORMED;
+    }
+
+    int pos = offset + ISO_8601_MIN_LENGTH;
+    int millis = 0;
+    if (pos < end && (buffer[pos] == '.' || buffer[pos] == ',')) {
+      ++pos;
+      final int fractionStart = pos;
+      int scale = 100;
+      while (pos < end && buffer[pos] >= '0' && buffer[pos] <= '9') {
+        millis += (buffer[pos] - '0') * scale;
+        scale /= 10;
+        ++pos;
+      }
+      if (pos == fractionStart) {
+        return MALFORMED;
+      }
+    }
+
+    int offsetMinutes = 0;
+    if (pos < end) {
+      if (buffer[pos] == 'Z') {
+        ++pos;
+      } else if (buffer[pos] == '+' || buffer[pos] == '-') {
+        final int sign = buffer[pos] == '+' ? 1 : -1;
+        final int hours = end - pos >= 3 ? digits(buffer, pos + 1, 2) : -1;
+        pos += 3;
+        int minutes = 0;
+        if (pos < end) {
+          if (buffer[pos] == ':') {
+            ++pos;
+          }
+          minutes = end - pos >= 2 ? digits(buffer, pos, 2) : -1;
+          pos += 2;
+        }
+        if (hours < 0 || minutes < 0) {
+          return MALFORMED;
+        }
+        offsetMinutes = sign * (hours * 60 + minutes);
+      }
+    }
+    if (pos != end) {
+      return MALFORMED;
+    }
+
+    final int year = digits(buffer, offset, 4);
+    final int month = digits(buffer, offset + 5, 2);
+    final int day = digits(buffer, offset + 8, 2);
+    final int hour = digits(buffer, offset + 11, 2);
+    final int minute = digits(buffer, offset + 14, 2);
+    final int second = digits(buffer, offset + 17, 2);
+    final long result = toUnixTime(year, month, day, hour, minute, second, millis);
+    return result == MALFORMED ? MALFORMED : result - offsetMinutes * 60000L;
+  }
+
+  public static long parse(@Nonnull CharSequence value, int offset) {
+    if (value.length() - offset < LENGTH) {
+      return MALFORMED;
+    }
+
+    if (value.charAt(offset + 4) != '-' || value.charAt(offset + 7) != '-' || value.charAt(offset + 10) != ' ' ||
+        value.charAt(offset + 13) != ':' || value.charAt(offset + 16) != ':' || value.charAt(offset + 19) != ',') {
+      return MALFORMED;
+    }
+
+    final int year = digits(value, offset, 4);
+    final int month = digits(value, offset + 5, 2);
+    final int day = digits(value, offset + 8, 2);
+    final int hour = digits(value, offset + 11, 2);
+    final int minute = digits(value, offset + 14, 2);
+    final int second = digits(value, offset + 17, 2);
+    final int millis = digits(value, offset + 20, 3);
+    return toUnixTime(year, month, day, hour, minute, second, millis);
+  }
+
+  //
+  // Private
+  //
+
+  private static int digits(byte[] buffer, int offset, int count) {
+    int result = 0;
+    for (int i = 0; i < count; ++i) {
+      final int digit = buffer[offset + i] - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static int digits(CharSequence value, int offset, int count) {
+    int result = 0;
+    for (int i = 0; i < count; ++i) {
+      final int digit = value.charAt(offset + i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+
+  private static long toUnixTime(int year, int month, int day, int hour, int minute, int second, int millis) {
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0 || hour > 23 ||
+        minute < 0 || minute > 59 || second < 0 || second > 60 || millis < 0) {
+      return MALFORMED; // unlike lenient date format, e.g. 2015-02-31 is not rolled over to March
+    }
+
+    // days from civil, see http://howardhinnant.github.io/date_algorithms.html
+    final int y = month <= 2 ? year - 1 : year;
+    final int era = y / 400;
+    final int yearOfEra = y - era * 400;
+    final int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    final long days = era * 146097L + dayOfEra - 719468L;
+
+    return ((days * 24L + hour) * 60L + minute) * 60000L + second * 1000L + millis;
+  }
+
+  private static int daysInMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.truward.brikar.log.util;
+
+import javax.annotation.Nonnull;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Bloom filter over 64-bit hashes of the attribute values. Bit indexes are derived from the single hash by double
+ * hashing, so that each key is hashed once.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class BloomFilter {
+  private static final int MAX_HASH_COUNT = 16;
+
+  private final long[] words;
+  private final long bitCount;
+  private final int hashCount;
+
+  private BloomFilter(long[] words, int hashCount) {
+    if (words.length == 0 || hashCount <= 0 || hashCount > MAX_HASH_COUNT) {
+      throw new IllegalArgumentException("Malformed bloom filter");
+    }
+    this.words = words;
+    this.bitCount = (long) words.length * Long.SIZE;
+    this.hashCount = hashCount;
+  }
+
+  /**
+   * Creates empty filter of the optimal size.
+   *
+   * @param expectedCount Expected number of distinct keys
+   * @param falsePositiveRate Rate of the false positives once filter has the expected number of keys
+   * @return New filter
+   */
+  @Nonnull
+  public static BloomFilter create(long expectedCount, double falsePositiveRate) {
+    if (falsePositiveRate <= 0.0 || falsePositiveRate >= 1.0) {
+      throw new IllegalArgumentException("False positive rate should be between 0 and 1");
+    }
+
+    final long n = Math.max(1L, expectedCount);
+    final double ln2 = Math.log(2);
+    final long bits = Math.max(Long.SIZE, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2)));
+    final int hashCount = (int) Math.max(1L, Math.min(MAX_HASH_COUNT, Math.round((double) bits / n * ln2)));
+    return new BloomFilter(new long[(int) Math.min(Integer.MAX_VALUE - 8, (bits + Long.SIZE - 1) / Long.SIZE)],
+        hashCount);
+  }
+
+  /**
+   * Hashes the attribute, the same value of different attributes gets different hashes.
+   *
+   * @param name Attribute name
+   * @param value Attribute value
+   * @return 64-bit hash
+   */
+  public static long hash(@Nonnull String name, @Nonnull String value) {
+    // same as the hash of "name=value"
+    final long h = Hashing.fnv1a(Hashing.fnv1a(Hashing.fnv1a(Hashing.FNV_OFFSET_BASIS, name), '='), value);
+    return Hashing.mix(h);
+  }
+
+  public void put(long hash) {
+    final long h2 = Hashing.mix(hash ^ 0x9e3779b97f4a7c15L) | 1L;
+    long h = hash;
+    for (int i = 0; i < hashCount; ++i) {
+      final long bit = Long.remainderUnsigned(h, bitCount);
+      words[(int) (bit >>> 6)] |= 1L << bit;
+      h += h2;
+    }
+  }
+
+  public boolean mightContain(long hash) {
+    final long h2 = Hashing.mix(hash ^ 0x9e3779b97f4a7c15L) | 1L;
+    long h = hash;
+    for (int i = 0; i < hashCount; ++i) {
+      final long bit = Long.remainderUnsigned(h, bitCount);
+      if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+      h += h2;
+    }
+    return true;
+  }
+
+  public int getHashCount() {
+    return hashCount;
+  }
+
+  public long getBitCount() {
+    return bitCount;
+  }
+
+  public void writeTo(@Nonnull DataOutput out) throws IOException {
+    out.writeInt(hashCount);
+    out.writeInt(words.length);
+    for (final long word : words) {
+      out.writeLong(word);
+    }
+  }
+
+  @Nonnull
+  public static BloomFilter readFrom(@Nonnull DataInput in) throws IOException {
+    final int hashCount = in.readInt();
+    final int wordCount = in.readInt();
+    if (hashCount <= 0 || hashCount > MAX_HASH_COUNT || wordCount <= 0) {
+      throw new IOException("Malformed bloom filter");
+    }
+
+    final long[] words = new long[wordCount];
+    for (int i = 0; i < wordCount; ++i) {
+      words[i] = in.readLong();
+    }
+    return new BloomFilter(words, hashCount);
+  }
+}
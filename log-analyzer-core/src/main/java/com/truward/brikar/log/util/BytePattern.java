@@ -0,0 +1,96 @@
+package com.truward.brikar.log.util;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Literal byte pattern, searched with Boyer-Moore-Horspool algorithm, so that most of the bytes are skipped
+ * without being compared. Case insensitive pattern folds ASCII letters only, other bytes are compared as is.
+ * <p>
+ * This class is immutable and thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class BytePattern {
+  private final byte[] pattern;
+  private final boolean ignoreCase;
+  private final int[] shifts = new int[256];
+
+  public BytePattern(@Nonnull String pattern, boolean ignoreCase) {
+    Objects.requireNonNull(pattern, "pattern");
+    if (pattern.isEmpty()) {
+      throw new IllegalArgumentException("Pattern should not be empty");
+    }
+
+    this.ignoreCase = ignoreCase;
+    this.pattern = pattern.getBytes(StandardCharsets.UTF_8);
+    if (ignoreCase) {
+      for (int i = 0; i < this.pattern.length; ++i) {
+        this.pattern[i] = toLowerCase(this.pattern[i]);
+      }
+    }
+
+    final int last = this.pattern.length - 1;
+    Arrays.fill(shifts, this.pattern.length);
+    for (int i = 0; i < last; ++i) {
+      final int b = this.pattern[i] & 0xff;
+      shifts[b] = last - i;
+      if (ignoreCase && b >= 'a' && b <= 'z') {
+        shifts[b - 'a' + 'A'] = last - i;
+      }
+    }
+  }
+
+  public int length() {
+    return pattern.length;
+  }
+
+  /**
+   * Finds the first occurrence of the pattern.
+   *
+   * @param buffer Buffer to search in
+   * @param start Start position, inclusive
+   * @param end End position, exclusive
+   * @return Position of the first occurrence or -1 if there is none
+   */
+  public int indexOf(@Nonnull byte[] buffer, int start, int end) {
+    final int last = pattern.length - 1;
+    int pos = start;
+    while (pos + last < end) {
+      final byte tail = buffer[pos + last];
+      if (matches(tail, pattern[last]) && matchesAt(buffer, pos, last)) {
+        return pos;
+      }
+      pos += shifts[tail & 0xff];
+    }
+    return -1;
+  }
+
+  @Override
+  public String toString() {
+    return "BytePattern{" + new String(pattern, StandardCharsets.UTF_8) + (ignoreCase ? ", ignoreCase" : "") + '}';
+  }
+
+  //
+  // Private
+  //
+
+  private boolean matchesAt(byte[] buffer, int pos, int count) {
+    for (int i = 0; i < count; ++i) {
+      if (!matches(buffer[pos + i], pattern[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean matches(byte actual, byte expected) {
+    return actual == expected || (ignoreCase && toLowerCase(actual) == expected);
+  }
+
+  private static byte toLowerCase(byte b) {
+    return (b >= 'A' && b <= 'Z') ? (byte) (b - 'A' + 'a') : b;
+  }
+}
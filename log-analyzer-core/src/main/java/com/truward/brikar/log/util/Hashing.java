@@ -0,0 +1,59 @@
+package com.truward.brikar.log.util;
+
+import javax.annotation.Nonnull;
+
+/**
+ * String hashing shared by the sketches, indexes and partitioning: 64-bit FNV-1a over the chars followed by
+ * the finalizer of MurmurHash3, as FNV alone leaves the high bits poorly mixed. Hashes are persisted by segment
+ * indexes and compared between instances, so they should never change.
+ *
+ * @author Alexander Shabanov
+ */
+public final class Hashing {
+  private Hashing() {} // Hidden ctor
+
+  /**
+   * Initial value of FNV-1a hash.
+   */
+  public static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * @return Mixed 64-bit hash of the given value
+   */
+  public static long hash(@Nonnull CharSequence value) {
+    return mix(fnv1a(FNV_OFFSET_BASIS, value));
+  }
+
+  /**
+   * Continues FNV-1a hash over the chars of the given value, so that composite keys are hashed without
+   * being concatenated first.
+   *
+   * @param hash {@link #FNV_OFFSET_BASIS} or result of the previous call
+   * @param value Value to hash
+   * @return Unmixed hash, see {@link #mix(long)}
+   */
+  public static long fnv1a(long hash, @Nonnull CharSequence value) {
+    for (int i = 0; i < value.length(); ++i) {
+      hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  public static long fnv1a(long hash, char value) {
+    return (hash ^ value) * FNV_PRIME;
+  }
+
+  /**
+   * Finalizer of MurmurHash3, each bit of the input affects each bit of the result.
+   */
+  public static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,204 @@
+package com.truward.brikar.log.util;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Utf8LineConsumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes log messages as JSON objects, one per line, using the same field names as the map representation
+ * of the message. Lines are copied from the raw UTF-8 bytes where message provides them, escaping only
+ * the characters that JSON requires to be escaped, so no strings are created for message text.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class JsonLogMessageWriter implements Flushable {
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private final OutputStream out;
+  private final byte[] buffer;
+  private int position;
+  private final LineWriter lineWriter = new LineWriter();
+
+  public JsonLogMessageWriter(@Nonnull OutputStream out, int bufferSize) {
+    if (bufferSize < 16) {
+      throw new IllegalArgumentException("Buffer size is too small");
+    }
+    this.out = Objects.requireNonNull(out, "out");
+    this.buffer = new byte[bufferSize];
+  }
+
+  public JsonLogMessageWriter(@Nonnull OutputStream out) {
+    this(out, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Writes message as a single JSON object followed by the new line. Written data is buffered.
+   *
+   * @param message Message to write
+   * @throws IOException On I/O error
+   */
+  public void write(@Nonnull LogMessage message) throws IOException {
+    writeAscii("{\"lines\":[");
+    lineWriter.first = true;
+    message.forEachLineUtf8(lineWriter);
+
+    writeAscii("],\"severity\":\"");
+    writeAscii(message.getSeverity().name());
+    writeAscii("\",\"time\":");
+    writeAscii(Long.toString(message.getUnixTime()));
+
+    writeAscii(",\"attributes\":{");
+    boolean first = true;
+    for (final Map.Entry<String, Object> entry : message.getAttributes().entrySet()) {
+      if (!first) {
+        writeByte(',');
+      }
+      first = false;
+      writeString(entry.getKey());
+      writeByte(':');
+      writeValue(entry.getValue());
+    }
+    writeAscii("}}\n");
+  }
+
+  /**
+   * Writes buffered data to the underlying stream, without flushing the stream itself.
+   *
+   * @throws IOException On I/O error
+   */
+  public void flushBuffer() throws IOException {
+    if (position > 0) {
+      out.write(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushBuffer();
+    out.flush();
+  }
+
+  //
+  // Private
+  //
+
+  private final class LineWriter implements Utf8LineConsumer {
+    boolean first;
+
+    @Override
+    public void accept(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+      if (!first) {
+        writeByte(',');
+      }
+      first = false;
+      writeQuoted(bytes, offset, length);
+    }
+  }
+
+  private void writeValue(@Nullable Object value) throws IOException {
+    if (value == null) {
+      writeAscii("null");
+    } else if (value instanceof Number || value instanceof Boolean) {
+      writeAscii(value.toString());
+    } else {
+      writeString(value.toString());
+    }
+  }
+
+  private void writeString(@Nonnull String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeQuoted(bytes, 0, bytes.length);
+  }
+
+  private void writeQuoted(byte[] bytes, int offset, int length) throws IOException {
+    writeByte('"');
+    final int end = offset + length;
+    int runStart = offset;
+    for (int i = offset; i < end; ++i) {
+      final int b = bytes[i] & 0xff;
+      if (b >= 0x20 && b != '"' && b != '\\') {
+        continue; // multibyte UTF-8 sequences have all the bytes above 0x7f and are copied as is
+      }
+
+      writeBytes(bytes, runStart, i - runStart);
+      runStart = i + 1;
+      writeEscaped(b);
+    }
+    writeBytes(bytes, runStart, end - runStart);
+    writeByte('"');
+  }
+
+  private void writeEscaped(int b) throws IOException {
+    writeByte('\\');
+    switch (b) {
+      case '"':
+      case '\\':
+        writeByte(b);
+        break;
+      case '\n':
+        writeByte('n');
+        break;
+      case '\r':
+        writeByte('r');
+        break;
+      case '\t':
+        writeByte('t');
+        break;
+      default:
+        writeByte('u');
+        writeByte('0');
+        writeByte('0');
+        writeByte(HEX[b >> 4]);
+        writeByte(HEX[b & 0xf]);
+    }
+  }
+
+  private void writeAscii(String value) throws IOException {
+    final int length = value.length();
+    ensureCapacity(length);
+    if (length > buffer.length) {
+      out.write(value.getBytes(StandardCharsets.US_ASCII));
+      return;
+    }
+    for (int i = 0; i < length; ++i) {
+      buffer[position++] = (byte) value.charAt(i);
+    }
+  }
+
+  private void writeByte(int b) throws IOException {
+    ensureCapacity(1);
+    buffer[position++] = (byte) b;
+  }
+
+  private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+    if (length == 0) {
+      return;
+    }
+    ensureCapacity(length);
+    if (length > buffer.length) {
+      out.write(bytes, offset, length);
+      return;
+    }
+    System.arraycopy(bytes, offset, buffer, position, length);
+    position += length;
+  }
+
+  private void ensureCapacity(int length) throws IOException {
+    if (position + length > buffer.length) {
+      flushBuffer();
+    }
+  }
+}
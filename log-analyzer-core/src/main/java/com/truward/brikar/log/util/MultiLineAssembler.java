@@ -0,0 +1,73 @@
+package com.truward.brikar.log.util;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.sink.LogMessageSink;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Folds multiline parts into the preceding record outside of Camel route, this mirrors what
+ * {@link com.truward.brikar.log.camel.MultiLineAggregationStrategy} does with the completion size set
+ * to the max number of lines in the record: orphaned parts and parts exceeding the limit are thrown away.
+ * <p>
+ * This class is not thread safe, messages should come in the same order as they appear in the source log file.
+ *
+ * @author Alexander Shabanov
+ */
+public final class MultiLineAssembler {
+  private final int maxLines;
+  private final LogMessageSink sink;
+
+  private LogMessage pending;
+  private int pendingLines;
+
+  public MultiLineAssembler(int maxLines, @Nonnull LogMessageSink sink) {
+    if (maxLines <= 0) {
+      throw new IllegalArgumentException("Max lines should be a positive number");
+    }
+    this.maxLines = maxLines;
+    this.sink = Objects.requireNonNull(sink, "sink");
+  }
+
+  public void accept(@Nonnull LogMessage message) {
+    if (message.isNull()) {
+      // malformed record - complete the current one
+      flush();
+      return;
+    }
+
+    if (message.isMultiLinePart()) {
+      if (pending != null) {
+        pending.addLine(message);
+        ++pendingLines;
+        if (pendingLines >= maxLines) {
+          flush();
+        }
+      }
+      return;
+    }
+
+    flush();
+    pending = message;
+    pendingLines = message.getLineCount();
+    if (pendingLines >= maxLines) {
+      flush();
+    }
+  }
+
+  public boolean hasPending() {
+    return pending != null;
+  }
+
+  public void flush() {
+    if (pending == null) {
+      return;
+    }
+
+    final LogMessage message = pending;
+    pending = null;
+    pendingLines = 0;
+    sink.accept(message);
+  }
+}
@@ -0,0 +1,101 @@
+package com.truward.brikar.log.util;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded buffer, that restores the order of items processed in parallel. Producer claims the sequence number
+ * for each item before handing it over to workers, workers complete items in any order and completed items are
+ * passed to the consumer strictly in the order of their sequence numbers.
+ * <p>
+ * Consumer is called by whichever thread completes the item next in order, but never concurrently.
+ * At most the given number of items could be claimed and not yet consumed, producer waits otherwise.
+ * Sequence numbers should be claimed from one thread at a time.
+ *
+ * @param <T> Item type
+ * @author Alexander Shabanov
+ */
+public final class ReorderBuffer<T> {
+  private final AtomicReferenceArray<T> slots;
+  private final Semaphore permits;
+  private final ReentrantLock drainLock = new ReentrantLock();
+  private final Consumer<? super T> consumer;
+
+  private long nextSequence;
+  private volatile long head;
+
+  public ReorderBuffer(int capacity, @Nonnull Consumer<? super T> consumer) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity should be a positive number");
+    }
+    this.slots = new AtomicReferenceArray<>(capacity);
+    this.permits = new Semaphore(capacity);
+    this.consumer = Objects.requireNonNull(consumer, "consumer");
+  }
+
+  /**
+   * Claims the next sequence number, waits if there are too many items not consumed yet.
+   *
+   * @return Sequence number
+   * @throws InterruptedException If interrupted while waiting
+   */
+  public long claim() throws InterruptedException {
+    permits.acquire();
+    return nextSequence++;
+  }
+
+  /**
+   * Completes the item with the given sequence number and passes all the items, that are complete and next
+   * in order, to the consumer.
+   *
+   * @param sequence Sequence number, returned by {@link #claim()}
+   * @param item Completed item
+   */
+  public void complete(long sequence, @Nonnull T item) {
+    slots.set(index(sequence), Objects.requireNonNull(item, "item"));
+
+    // item might be completed by other thread right after the current drainer has found it missing,
+    // so availability of the head is checked again once the lock is released
+    while (slots.get(index(head)) != null && drainLock.tryLock()) {
+      try {
+        drain();
+      } finally {
+        drainLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * @return Number of items claimed, but not consumed yet
+   */
+  public int getPendingCount() {
+    return slots.length() - permits.availablePermits();
+  }
+
+  //
+  // Private
+  //
+
+  private void drain() {
+    long current = head;
+    T item;
+    while ((item = slots.get(index(current))) != null) {
+      slots.set(index(current), null);
+      ++current;
+      head = current;
+      try {
+        consumer.accept(item);
+      } finally {
+        permits.release();
+      }
+    }
+  }
+
+  private int index(long sequence) {
+    return (int) (sequence % slots.length());
+  }
+}
@@ -0,0 +1,133 @@
+package com.truward.brikar.log.alert;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.util.TestLogMessageBuilder;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SpikeDetector}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SpikeDetectorTest {
+  private static final long START = 1437780076942L; // 2015-07-24 23:21:16,942
+  private static final int BASELINE_INTERVALS = 10;
+
+  private final List<SpikeAlert> alerts = new ArrayList<>();
+  private final AlertSink sink = new AlertSink() {
+    @Override
+    public void accept(@Nonnull SpikeAlert alert) {
+      alerts.add(alert);
+    }
+  };
+
+  @Test
+  public void shouldAlertOnceOnBurstOfErrors() {
+    // Given:
+    final SpikeDetector detector = new SpikeDetector(sink, 16, BASELINE_INTERVALS, 4.0, 10);
+    for (int i = 0; i < 2 * BASELINE_INTERVALS; ++i) {
+      send(detector, 2 + i % 3, Severity.ERROR, "com.example.UserService", "getUser");
+      detector.tick(START + i);
+    }
+    assertTrue(alerts.isEmpty());
+
+    // When:
+    send(detector, 100, Severity.ERROR, "com.example.UserService", "getUser");
+    detector.tick(START + 100);
+    send(detector, 100, Severity.ERROR, "com.example.UserService", "getUser");
+    detector.tick(START + 101);
+
+    // Then:
+    assertEquals(2, alerts.size());
+    final SpikeAlert alert = alerts.get(0);
+    assertEquals(SpikeDetector.LOGGER_DIMENSION, alert.getDimension());
+    assertEquals("com.example.UserService", alert.getKey());
+    assertEquals(START + 100, alert.getTime());
+    assertEquals(100, alert.getCount());
+    assertTrue(alert.getBaseline() > 2.0 && alert.getBaseline() < 4.0);
+    assertEquals(SpikeDetector.OPERATION_DIMENSION, alerts.get(1).getDimension());
+    assertEquals("getUser", alerts.get(1).getKey());
+  }
+
+  @Test
+  public void shouldCountFailedMetricsAndIgnoreSuccessfulRecords() {
+    // Given:
+    final SpikeDetector detector = new SpikeDetector(sink, 16, BASELINE_INTERVALS, 4.0, 10);
+    for (int i = 0; i < BASELINE_INTERVALS; ++i) {
+      detector.tick(START + i);
+    }
+
+    // When:
+    send(detector, 50, Severity.INFO, "com.example.Cache", null);
+    for (int i = 0; i < 20; ++i) {
+      final LogMessage metric = record(Severity.INFO, "com.example.Billing", "charge");
+      metric.putAttribute(SpikeDetector.FAILED_ATTRIBUTE, "true");
+      detector.accept(metric);
+    }
+    detector.tick(START + BASELINE_INTERVALS);
+
+    // Then:
+    assertEquals(2, alerts.size());
+    assertEquals("com.example.Billing", alerts.get(0).getKey());
+    assertEquals(20, alerts.get(0).getCount());
+    assertEquals("charge", alerts.get(1).getKey());
+    assertEquals(1, detector.getKeyCount(SpikeDetector.LOGGER_DIMENSION));
+  }
+
+  @Test
+  public void shouldNotAlertBeforeWarmUpOrBelowMinCount() {
+    // Given:
+    final SpikeDetector detector = new SpikeDetector(sink, 16, BASELINE_INTERVALS, 4.0, 10);
+
+    // When:
+    send(detector, 100, Severity.WARN, "com.example.Startup", null);
+    detector.tick(START);
+    for (int i = 1; i <= BASELINE_INTERVALS; ++i) {
+      detector.tick(START + i);
+    }
+    send(detector, 9, Severity.WARN, "com.example.Startup", null);
+    detector.tick(START + BASELINE_INTERVALS + 1);
+
+    // Then:
+    assertTrue(alerts.isEmpty());
+  }
+
+  @Test
+  public void shouldKeepFixedNumberOfKeys() {
+    // Given:
+    final SpikeDetector detector = new SpikeDetector(sink, 16, BASELINE_INTERVALS, 4.0, 10);
+
+    // When:
+    for (int i = 0; i < 1000; ++i) {
+      send(detector, 1, Severity.ERROR, "com.example.Logger" + i, "op" + i);
+    }
+
+    // Then:
+    assertTrue(detector.getKeyCount(SpikeDetector.LOGGER_DIMENSION) <= 32);
+    assertTrue(detector.getKeyCount(SpikeDetector.OPERATION_DIMENSION) <= 32);
+    assertTrue(detector.getEvictionCount() >= 2 * (1000 - 32));
+  }
+
+  //
+  // Private
+  //
+
+  private static void send(SpikeDetector detector, int count, Severity severity, String logger, String operation) {
+    for (int i = 0; i < count; ++i) {
+      detector.accept(record(severity, logger, operation));
+    }
+  }
+
+  private static LogMessage record(Severity severity, String logger, String operation) {
+    return new TestLogMessageBuilder(START, severity).setLoggerName(logger).setMessage("Call failed")
+        .putAttribute(SpikeDetector.OPERATION_ATTRIBUTE, operation).build();
+  }
+}
@@ -0,0 +1,187 @@
+package com.truward.brikar.log.engine;
+
+import com.truward.brikar.log.model.ByteSliceLogMessage;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.util.TestLogMessageProcessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.Flushable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link RingBufferEngine}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RingBufferEngineTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldAssembleMultiLineRecords() throws Exception {
+    // Given:
+    final CollectingSink sink = new CollectingSink();
+    final RingBufferEngine engine = new RingBufferEngine(new TestLogMessageProcessor(), sink, 16, 10);
+    engine.start();
+
+    // When:
+    publish(engine, "2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] Operation timed out");
+    publish(engine, "2015-07-24 23:39:55,002 WARN learn.LogProducerMain rid=anCYuTwUWbtnuZp1 [main] Error");
+    publish(engine, "java.lang.UnsupportedOperationException: This operation is not supported yet");
+    publish(engine, "\tat learn.LogProducerMain.main(LogProducerMain.java:32) [classes/:na]");
+    publish(engine, "2015-07-25 00:03:08,356 ERROR learn.LogProducerMain rid=KhnHxNK/BbLbaiH4 [main] Disk full");
+    engine.close();
+
+    // Then:
+    assertEquals(3, sink.messages.size());
+    assertEquals(Severity.INFO, sink.messages.get(0).getSeverity());
+    assertEquals(Severity.WARN, sink.messages.get(1).getSeverity());
+    assertEquals(3, sink.messages.get(1).getLines().size());
+    assertEquals(Severity.ERROR, sink.messages.get(2).getSeverity());
+  }
+
+  @Test
+  public void shouldKeepRecordsIntactWhenSlotsAreReused() throws Exception {
+    publishAndVerifyRecords(1);
+  }
+
+  @Test
+  public void shouldKeepRecordOrderWithManyParserThreads() throws Exception {
+    publishAndVerifyRecords(4);
+  }
+
+  @Test
+  public void shouldReadFile() throws Exception {
+    // Given:
+    final Path path = temporaryFolder.newFile("test.log").toPath();
+    Files.write(path, ("2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] First\r\n" +
+        "java.lang.IllegalStateException\n" +
+        "\n" +
+        "2015-07-24 23:21:17,942 ERROR learn.LogProducerMain  [main] Second").getBytes(StandardCharsets.UTF_8));
+    final CollectingSink sink = new CollectingSink();
+    final RingBufferEngine engine = new RingBufferEngine(new ByteSliceParser(), sink, 16, 10);
+    engine.start();
+
+    // When:
+    new RingBufferFileReader(path, engine, 128, false, 10L, 10L).run();
+    engine.close();
+
+    // Then:
+    assertEquals(2, sink.messages.size());
+    assertEquals(2, sink.messages.get(0).getLines().size());
+    assertEquals("java.lang.IllegalStateException", sink.messages.get(0).getLines().get(1));
+    assertEquals(Severity.ERROR, sink.messages.get(1).getSeverity());
+  }
+
+  //
+  // Private
+  //
+
+  private static void publishAndVerifyRecords(int parserThreads) throws Exception {
+    // Given:
+    final int recordCount = 20000;
+    final CollectingSink sink = new CollectingSink();
+    final RingBufferEngine engine = new RingBufferEngine(new ByteSliceParser(), sink, 16, 8, parserThreads);
+    engine.start();
+
+    // When:
+    for (int i = 0; i < recordCount; ++i) {
+      publish(engine, "2015-07-24 23:21:16,942 INFO learn.LogProducerMain rid=r" + i + " [main] Record #" + i);
+      for (int j = 0; j < i % 5; ++j) {
+        publish(engine, "\tat learn.LogProducerMain.line" + j + "(LogProducerMain.java:" + i + ")");
+      }
+    }
+    engine.close();
+
+    // Then:
+    assertEquals(recordCount, sink.messages.size());
+    for (int i = 0; i < recordCount; ++i) {
+      final LogMessage message = sink.messages.get(i);
+      assertEquals("r" + i, message.getAttributes().get("rid"));
+      assertEquals(1 + i % 5, message.getLines().size());
+      assertEquals("2015-07-24 23:21:16,942 INFO learn.LogProducerMain rid=r" + i + " [main] Record #" + i,
+          message.getLogEntry());
+      for (int j = 0; j < i % 5; ++j) {
+        assertEquals("\tat learn.LogProducerMain.line" + j + "(LogProducerMain.java:" + i + ")",
+            message.getLines().get(j + 1));
+      }
+    }
+  }
+
+  private static void publish(RingBufferEngine engine, String line) {
+    final byte[] bytes = ("garbage" + line).getBytes(StandardCharsets.UTF_8);
+    engine.publish(bytes, 7, bytes.length - 7);
+  }
+
+  /**
+   * Sink, that keeps records past the batch, so detaches them from the ring slots on flush, while the slots
+   * are still valid.
+   */
+  private static final class CollectingSink implements LogMessageSink, Flushable {
+    final List<LogMessage> messages = Collections.synchronizedList(new ArrayList<LogMessage>());
+    private final List<LogMessage> pending = new ArrayList<>();
+
+    @Override
+    public void accept(@Nonnull LogMessage message) {
+      pending.add(message);
+    }
+
+    @Override
+    public void flush() {
+      for (final LogMessage message : pending) {
+        if (message instanceof ByteSliceLogMessage) {
+          ((ByteSliceLogMessage) message).compact();
+        }
+        messages.add(message);
+      }
+      pending.clear();
+    }
+  }
+
+  /**
+   * Parser, that returns messages referencing the given buffer.
+   */
+  private static final class ByteSliceParser implements LogLineParser {
+    private final ThreadLocal<TestLogMessageProcessor> delegate = ThreadLocal.withInitial(TestLogMessageProcessor::new);
+
+    @Nonnull
+    @Override
+    public LogMessage parse(@Nonnull String line) {
+      return delegate.get().parse(line);
+    }
+
+    @Nonnull
+    @Override
+    public LogMessage parse(@Nonnull byte[] buffer, int offset, int length) {
+      final LogMessage parsed = delegate.get().parse(new String(buffer, offset, length, StandardCharsets.UTF_8));
+      if (parsed.isNull()) {
+        return parsed;
+      }
+      if (parsed.isMultiLinePart()) {
+        return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+      }
+
+      final ByteSliceLogMessage result = ByteSliceLogMessage.record(parsed.getUnixTime(), parsed.getSeverity(),
+          buffer, offset, length);
+      for (final Map.Entry<String, Object> entry : parsed.getAttributes().entrySet()) {
+        result.putAttribute(entry.getKey(), entry.getValue());
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,306 @@
+package com.truward.brikar.log.flow;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.util.TestLogMessageProcessor;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link LogMessagePublisher}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LogMessagePublisherTest {
+  private static final Executor SAME_THREAD = Runnable::run;
+
+  @Test
+  public void shouldSignalNoMoreRecordsThanRequested() {
+    // Given:
+    final CountingInputStream stream = new CountingInputStream(records(1000));
+    final LogMessagePublisher publisher = new LogMessagePublisher(() -> stream, TestLogMessageProcessor::new, 10,
+        256, SAME_THREAD);
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    // When:
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(3);
+    final int readAfterThree = stream.bytesRead;
+    subscriber.subscription.request(2);
+
+    // Then:
+    assertEquals(5, subscriber.records.size());
+    assertEquals("message 4", subscriber.records.get(4).getMessage());
+    assertFalse(subscriber.completed);
+    assertNull(subscriber.error);
+    assertTrue("Source is read beyond demand: " + readAfterThree, readAfterThree <= 2 * 256);
+  }
+
+  @Test
+  public void shouldCompleteAfterLastRecord() {
+    // Given:
+    final CountingInputStream stream = new CountingInputStream(records(3));
+    final LogMessagePublisher publisher = new LogMessagePublisher(() -> stream, TestLogMessageProcessor::new, 10, 16,
+        SAME_THREAD);
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    // When:
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(3);
+
+    // Then: the last record is known to be complete only once the end of stream is read
+    assertEquals(3, subscriber.records.size());
+    assertTrue(subscriber.completed);
+    assertTrue(stream.closed);
+  }
+
+  @Test
+  public void shouldCompleteEmptySourceWithoutDemand() {
+    // Given:
+    final LogMessagePublisher publisher = new LogMessagePublisher(() -> stream(""), TestLogMessageProcessor::new, 10,
+        16, SAME_THREAD);
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    // When:
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    // Then:
+    assertTrue(subscriber.completed);
+    assertTrue(subscriber.records.isEmpty());
+  }
+
+  @Test
+  public void shouldAssembleMultiLineRecords() {
+    // Given:
+    final String log = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] first\n" +
+        "java.lang.RuntimeException: failure\n" +
+        "\tat Main.main(Main.java:1)\r\n" +
+        "2015-07-24 23:21:16,943 INFO learn.LogProducerMain  [main] second";
+    final LogMessagePublisher publisher = new LogMessagePublisher(() -> stream(log), TestLogMessageProcessor::new, 10,
+        16, SAME_THREAD);
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    // When:
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    // Then:
+    assertEquals(2, subscriber.records.size());
+    assertEquals(Arrays.asList("2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] first",
+        "java.lang.RuntimeException: failure", "\tat Main.main(Main.java:1)"),
+        subscriber.records.get(0).getLines());
+    assertEquals("second", subscriber.records.get(1).getMessage());
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void shouldSignalErrorOnNonPositiveRequest() {
+    // Given:
+    final CountingInputStream stream = new CountingInputStream(records(10));
+    final LogMessagePublisher publisher = new LogMessagePublisher(() -> stream, TestLogMessageProcessor::new, 10, 16,
+        SAME_THREAD);
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+
+    // When:
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(1);
+    subscriber.subscription.request(0);
+    subscriber.subscription.request(5);
+
+    // Then:
+    assertEquals(1, subscriber.records.size());
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertFalse(subscriber.completed);
+    assertTrue(stream.closed);
+  }
+
+  @Test
+  public void shouldStopSignallingOnCancel() {
+    // Given:
+    final CountingInputStream stream = new CountingInputStream(records(10));
+    final LogMessagePublisher publisher = new LogMessagePublisher(() -> stream, TestLogMessageProcessor::new, 10, 16,
+        SAME_THREAD);
+    final RecordingSubscriber subscriber = new RecordingSubscriber();
+    subscriber.cancelAfter = 2;
+
+    // When:
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(5);
+    subscriber.subscription.request(5);
+
+    // Then:
+    assertEquals(2, subscriber.records.size());
+    assertFalse(subscriber.completed);
+    assertNull(subscriber.error);
+    assertTrue(stream.closed);
+  }
+
+  @Test
+  public void shouldRejectNullSubscriber() {
+    // Given:
+    final LogMessagePublisher publisher = new LogMessagePublisher(() -> records(1), TestLogMessageProcessor::new, 10,
+        16, SAME_THREAD);
+
+    // When:
+    try {
+      publisher.subscribe(null);
+      fail("Null subscriber should be rejected");
+    } catch (NullPointerException ignored) {
+      // Then: expected
+    }
+  }
+
+  @Test
+  public void shouldRejectSecondSubscriberOfStream() throws InterruptedException {
+    // Given:
+    final LogMessagePublisher publisher = LogMessagePublisher.ofStream(records(3), TestLogMessageProcessor::new, 10);
+    final RecordingSubscriber first = new RecordingSubscriber();
+    final RecordingSubscriber second = new RecordingSubscriber();
+
+    // When:
+    publisher.subscribe(first);
+    first.subscription.request(Long.MAX_VALUE);
+    publisher.subscribe(second);
+
+    // Then:
+    assertTrue(first.await());
+    assertEquals(3, first.records.size());
+    assertTrue(second.await());
+    assertTrue(second.error instanceof IllegalStateException);
+    assertTrue(second.records.isEmpty());
+  }
+
+  @Test
+  public void shouldNotRecurseWhenRequestingFromOnNext() {
+    // Given:
+    final int recordCount = 100000;
+    final LogMessagePublisher publisher = new LogMessagePublisher(() -> records(recordCount),
+        TestLogMessageProcessor::new, 10, 4096, SAME_THREAD);
+    final AtomicInteger depth = new AtomicInteger();
+    final AtomicInteger maxDepth = new AtomicInteger();
+    final RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(LogMessage item) {
+        maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+        super.onNext(item);
+        subscription.request(1);
+        depth.decrementAndGet();
+      }
+    };
+
+    // When:
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(1);
+
+    // Then:
+    assertEquals(recordCount, subscriber.records.size());
+    assertEquals(1, maxDepth.get());
+    assertTrue(subscriber.completed);
+  }
+
+  //
+  // Private
+  //
+
+  private static String recordLines(int count) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; ++i) {
+      builder.append("2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] message ").append(i).append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static InputStream records(int count) {
+    return stream(recordLines(count));
+  }
+
+  private static InputStream stream(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static final class CountingInputStream extends InputStream {
+    private final InputStream delegate;
+    int bytesRead;
+    boolean closed;
+
+    CountingInputStream(InputStream delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int read() throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      final int read = delegate.read(b, off, len);
+      if (read > 0) {
+        bytesRead += read;
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      delegate.close();
+    }
+  }
+
+  private static class RecordingSubscriber implements Flow.Subscriber<LogMessage> {
+    final List<LogMessage> records = new ArrayList<>();
+    final CountDownLatch terminated = new CountDownLatch(1);
+    volatile Flow.Subscription subscription;
+    volatile boolean completed;
+    volatile Throwable error;
+    int cancelAfter = Integer.MAX_VALUE;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(LogMessage item) {
+      records.add(item);
+      if (records.size() == cancelAfter) {
+        subscription.cancel();
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      terminated.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      terminated.countDown();
+    }
+
+    boolean await() throws InterruptedException {
+      return terminated.await(10, TimeUnit.SECONDS);
+    }
+  }
+}
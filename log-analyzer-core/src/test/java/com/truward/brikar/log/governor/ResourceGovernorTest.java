@@ -0,0 +1,70 @@
+package com.truward.brikar.log.governor;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ResourceGovernor}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class ResourceGovernorTest {
+
+  @Test
+  public void shouldNotThrottleWithoutLimits() throws InterruptedException {
+    // Given:
+    final ResourceGovernor governor = new ResourceGovernor(0.0, 0L);
+
+    // When:
+    for (int i = 0; i < 1000; ++i) {
+      governor.pace(1024 * 1024);
+    }
+
+    // Then:
+    assertEquals(1000L * 1024 * 1024, governor.getBytesRead());
+    assertEquals(0L, governor.getThrottledMillis());
+  }
+
+  @Test
+  public void shouldPaceReadsToBandwidth() throws InterruptedException {
+    // Given:
+    final ResourceGovernor governor = new ResourceGovernor(0.0, 1024 * 1024);
+    final long start = System.nanoTime();
+
+    // When:
+    for (int i = 0; i < 8; ++i) {
+      governor.pace(64 * 1024);
+    }
+
+    // Then: half a megabyte at 1 MB/s, less the burst
+    final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("elapsed=" + elapsedMillis, elapsedMillis >= 350L);
+    assertTrue(governor.getThrottledMillis() > 0);
+    assertEquals(0, governor.getThrottledCount());
+  }
+
+  @Test
+  public void shouldPaceToCpuShare() throws InterruptedException {
+    // Given:
+    final AtomicLong cpuTime = new AtomicLong();
+    final ResourceGovernor governor = new ResourceGovernor(0.5, 0L, cpuTime::get);
+    final long start = System.nanoTime();
+
+    // When: each chunk takes 10 ms of CPU time of two threads, that is 5 ms of wall time
+    for (int i = 0; i < 20; ++i) {
+      Thread.sleep(5L);
+      cpuTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(10L));
+      governor.pace(1024);
+    }
+
+    // Then: 200 ms of CPU time at the half of a core, less the burst and the last sample interval
+    final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("elapsed=" + elapsedMillis, elapsedMillis >= 250L);
+    assertTrue(governor.getThrottledMillis() > 0);
+  }
+}
@@ -0,0 +1,128 @@
+package com.truward.brikar.log.lane;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Lane}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LaneTest {
+
+  @Test
+  public void shouldSendAllItemsInBatches() throws InterruptedException {
+    // Given:
+    final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+    final Lane<Integer> lane = new Lane<>("bulk", 1000, 10, 50L, 1, batch -> {
+      batches.add(new ArrayList<>(batch));
+      return 0;
+    });
+
+    // When:
+    for (int i = 0; i < 95; ++i) {
+      lane.put(i);
+    }
+    lane.close();
+
+    // Then:
+    final List<Integer> items = new ArrayList<>();
+    for (final List<Integer> batch : batches) {
+      assertTrue(batch.size() <= 10);
+      items.addAll(batch);
+    }
+    assertEquals(95, items.size());
+    for (int i = 0; i < 95; ++i) {
+      assertEquals(i, (int) items.get(i));
+    }
+    assertEquals(95, lane.getSentCount());
+    assertEquals(95, lane.getLatency().getCount());
+    assertEquals(0, lane.getDepth());
+  }
+
+  @Test
+  public void shouldNotWaitForItemsOfAnotherLane() throws InterruptedException {
+    // Given:
+    final CountDownLatch bulkReleased = new CountDownLatch(1);
+    final CountDownLatch prioritySent = new CountDownLatch(1);
+    final Lane<String> bulk = new Lane<>("bulk", 10, 5, 0L, 1, batch -> {
+      try {
+        bulkReleased.await(); // stuck sink
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return 0;
+    });
+    final Lane<String> priority = new Lane<>("priority", 10, 1, 0L, 1, batch -> {
+      prioritySent.countDown();
+      return 0;
+    });
+
+    // When:
+    for (int i = 0; i < 10; ++i) {
+      bulk.put("info");
+    }
+    priority.put("error");
+
+    // Then:
+    assertTrue(prioritySent.await(5, TimeUnit.SECONDS));
+    assertTrue(bulk.getDepth() > 0);
+    bulkReleased.countDown();
+    bulk.close();
+    priority.close();
+    assertEquals(10, bulk.getSentCount());
+  }
+
+  @Test
+  public void shouldCountFailedItemsWithoutDroppingTheRestOfBatch() throws InterruptedException {
+    // Given:
+    final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+    final Lane<String> lane = new Lane<>("partial", 10, 10, 1000L, 1, batch -> {
+      int failed = 0;
+      for (final String item : batch) {
+        if (item.startsWith("bad")) {
+          ++failed;
+        } else {
+          sent.add(item);
+        }
+      }
+      return failed;
+    });
+
+    // When:
+    lane.put("good-1");
+    lane.put("bad");
+    lane.put("good-2");
+    lane.close();
+
+    // Then:
+    assertEquals(Arrays.asList("good-1", "good-2"), sent);
+    assertEquals(2, lane.getSentCount());
+    assertEquals(1, lane.getFailedCount());
+  }
+
+  @Test
+  public void shouldCountFailedBatches() throws InterruptedException {
+    // Given:
+    final Lane<String> lane = new Lane<>("failing", 10, 10, 0L, 1, batch -> {
+      throw new IllegalStateException("Sink is down");
+    });
+
+    // When:
+    lane.put("record");
+    lane.close();
+
+    // Then:
+    assertEquals(1, lane.getFailedCount());
+    assertEquals(0, lane.getSentCount());
+  }
+}
@@ -0,0 +1,97 @@
+package com.truward.brikar.log.merge;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.stream.LogRecordReader;
+import com.truward.brikar.log.util.TestLogMessageProcessor;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link RecordMerger}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecordMergerTest {
+
+  @Test
+  public void shouldInterleaveSourcesByTime() throws IOException {
+    // Given:
+    final LogRecordReader first = reader(line("16,000", "a1") + line("18,000", "a2") +
+        "java.lang.IllegalStateException: failed\n\tat Foo.bar(Foo.java:1)\n" + line("20,000", "a3"));
+    final LogRecordReader second = reader(line("17,000", "b1") + line("18,000", "b2") + line("25,000", "b3"));
+    final RecordMerger merger = new RecordMerger(Arrays.asList(first, second), 0L, 100);
+    final List<LogMessage> records = new ArrayList<>();
+
+    // When:
+    final long count = merger.merge(records::add);
+
+    // Then:
+    assertEquals(6, count);
+    assertEquals(Arrays.asList("a1", "b1", "a2", "b2", "a3", "b3"), messages(records));
+    assertEquals(3, records.get(2).getLines().size());
+    assertEquals(0, merger.getLateCount());
+  }
+
+  @Test
+  public void shouldReorderRecordsWithinTolerance() throws IOException {
+    // Given:
+    final LogRecordReader first = reader(line("16,000", "a1") + line("16,900", "a3") + line("16,500", "a2"));
+    final LogRecordReader second = reader(line("16,600", "b1"));
+    final RecordMerger merger = new RecordMerger(Arrays.asList(first, second), 500L, 100);
+    final List<LogMessage> records = new ArrayList<>();
+
+    // When:
+    merger.merge(records::add);
+
+    // Then:
+    assertEquals(Arrays.asList("a1", "a2", "b1", "a3"), messages(records));
+    assertEquals(0, merger.getLateCount());
+  }
+
+  @Test
+  public void shouldCountRecordsOutOfOrderBeyondTolerance() throws IOException {
+    // Given:
+    final LogRecordReader first = reader(line("16,000", "a1") + line("19,000", "a3") + line("20,000", "a4") +
+        line("17,000", "a2"));
+    final RecordMerger merger = new RecordMerger(Arrays.asList(first), 500L, 100);
+    final List<LogMessage> records = new ArrayList<>();
+
+    // When:
+    merger.merge(records::add);
+
+    // Then:
+    assertEquals(Arrays.asList("a1", "a3", "a2", "a4"), messages(records));
+    assertEquals(1, merger.getLateCount());
+  }
+
+  //
+  // Private
+  //
+
+  private static String line(String seconds, String message) {
+    return "2015-07-24 23:21:" + seconds + " INFO learn.LogProducerMain  [learn.LogProducerMain.main()] " +
+        message + "\n";
+  }
+
+  private static LogRecordReader reader(String text) {
+    return new LogRecordReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+        new TestLogMessageProcessor(), 10, 64);
+  }
+
+  private static List<String> messages(List<LogMessage> records) {
+    final List<String> result = new ArrayList<>();
+    for (final LogMessage record : records) {
+      final String line = record.getLines().get(0);
+      result.add(line.substring(line.lastIndexOf(' ') + 1));
+    }
+    return result;
+  }
+}
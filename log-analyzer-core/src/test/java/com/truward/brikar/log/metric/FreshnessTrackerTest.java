@@ -0,0 +1,71 @@
+package com.truward.brikar.log.metric;
+
+import com.truward.brikar.log.model.Severity;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link FreshnessTracker}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FreshnessTrackerTest {
+
+  @Test
+  public void shouldKeepLagBySourceAndSeverity() {
+    // Given:
+    final FreshnessTracker tracker = new FreshnessTracker(0L);
+
+    // When:
+    tracker.record("app.log", Severity.INFO, 1000L, 1100L);
+    tracker.record("app.log", Severity.ERROR, 1000L, 1500L);
+    tracker.record("gc.log", Severity.INFO, 2000L, 2010L);
+    tracker.record("gc.log", null, 2000L, 2020L);
+
+    // Then:
+    assertEquals(2, tracker.getLagBySource().get("app.log").getCount());
+    assertEquals(500L, tracker.getLagBySource().get("app.log").getMax());
+    assertEquals(2, tracker.getLagBySource().get("gc.log").getCount());
+    assertEquals(2, tracker.getLagBySeverity().get(Severity.INFO).getCount());
+    assertEquals(1, tracker.getLagBySeverity().get(Severity.ERROR).getCount());
+  }
+
+  @Test
+  public void shouldStartNextWindowOnRotate() {
+    // Given:
+    final FreshnessTracker tracker = new FreshnessTracker(0L);
+    tracker.record("app.log", Severity.WARN, 1000L, 1200L);
+    tracker.setReaderLag("app.log", 4096L);
+
+    // When:
+    final FreshnessReport report = tracker.rotate(60000L);
+
+    // Then:
+    assertEquals(0L, report.getStart());
+    assertEquals(60000L, report.getEnd());
+    assertEquals(200L, report.getLagBySource().get("app.log").getMax());
+    assertEquals(Collections.singleton(Severity.WARN), report.getLagBySeverity().keySet());
+    assertEquals(Collections.singletonMap("app.log", 4096L), report.getReaderLag());
+    assertTrue(tracker.getLagBySource().isEmpty());
+    assertEquals(0, tracker.getLagBySeverity().get(Severity.WARN).getCount());
+    assertEquals(Collections.singletonMap("app.log", 4096L), tracker.getReaderLag()); // gauge is kept
+  }
+
+  @Test
+  public void shouldNotReportNegativeReaderLag() {
+    // Given:
+    final FreshnessTracker tracker = new FreshnessTracker(0L);
+
+    // When:
+    tracker.setReaderLag("app.log", -10L); // file has been truncated
+    tracker.setReaderLag("gc.log", 10L);
+    tracker.removeReaderLag("gc.log");
+
+    // Then:
+    assertEquals(Collections.singletonMap("app.log", 0L), tracker.getReaderLag());
+  }
+}
@@ -0,0 +1,70 @@
+package com.truward.brikar.log.metric;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LatencyHistogram}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LatencyHistogramTest {
+
+  @Test
+  public void shouldReportPercentilesWithinRelativeError() {
+    // Given:
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    // When:
+    for (long i = 1; i <= 100000; ++i) {
+      histogram.record(i * 1000L);
+    }
+
+    // Then:
+    assertEquals(100000L, histogram.getCount());
+    assertEquals(100000000L, histogram.getMax());
+    assertWithinError(50000000L, histogram.getPercentile(50.0));
+    assertWithinError(99000000L, histogram.getPercentile(99.0));
+    assertWithinError(99900000L, histogram.getPercentile(99.9));
+    assertEquals(100000000L, histogram.getPercentile(100.0));
+  }
+
+  @Test
+  public void shouldHandleSmallValuesExactly() {
+    // Given:
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    // When:
+    histogram.record(0L);
+    histogram.record(3L);
+    histogram.record(15L);
+
+    // Then:
+    assertEquals(0L, histogram.getPercentile(1.0));
+    assertEquals(3L, histogram.getPercentile(50.0));
+    assertEquals(15L, histogram.getPercentile(100.0));
+  }
+
+  @Test
+  public void shouldAddHistograms() {
+    // Given:
+    final LatencyHistogram first = new LatencyHistogram();
+    final LatencyHistogram second = new LatencyHistogram();
+    first.record(10L);
+    second.record(Long.MAX_VALUE);
+
+    // When:
+    first.add(second);
+
+    // Then:
+    assertEquals(2L, first.getCount());
+    assertEquals(Long.MAX_VALUE, first.getPercentile(100.0));
+  }
+
+  private static void assertWithinError(long expected, long actual) {
+    assertTrue("expected=" + expected + ", actual=" + actual,
+        Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS);
+  }
+}
@@ -0,0 +1,106 @@
+package com.truward.brikar.log.parser;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link JsonLineParser}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class JsonLineParserTest {
+  private final JsonLineParser parser = new JsonLineParser();
+
+  @Test
+  public void shouldExtractConfiguredFields() {
+    // Given:
+    final String line = "{\"@timestamp\":\"2015-07-24T23:21:16.942Z\",\"@version\":1,\"level\":\"warning\"," +
+        "\"logger_name\":\"learn.ApiMain\",\"thread_name\":\"main\",\"context\":{\"a\":[1,{\"b\":\"}]\"}],\"c\":null}," +
+        "\"mdc\":{\"rid\":\"anCYuTwUWbtnuZp1\",\"retry\":2,\"nested\":{\"x\":1}}," +
+        "\"message\":\"Storage call failed: \\\"disk\\\" \\u00e9\\nsecond line\"," +
+        "\"stack_trace\":\"java.lang.IllegalStateException: Storage is not available\\r\\n" +
+        "\\tat learn.ApiMain.callStorage(ApiMain.java:149)\\n\"}";
+
+    // When:
+    final LogMessage message = parser.parse(line);
+
+    // Then:
+    assertEquals(1437780076942L, message.getUnixTime());
+    assertEquals(Severity.WARN, message.getSeverity());
+    assertEquals("learn.ApiMain", message.getLoggerName());
+    assertEquals(Arrays.asList("Storage call failed: \"disk\" é", "second line",
+        "java.lang.IllegalStateException: Storage is not available",
+        "\tat learn.ApiMain.callStorage(ApiMain.java:149)"), message.getLines());
+    assertEquals("anCYuTwUWbtnuZp1", message.getAttributes().get("rid"));
+    assertEquals("2", message.getAttributes().get("retry"));
+    assertEquals(2, message.getAttributes().size());
+  }
+
+  @Test
+  public void shouldParseAlternativeFieldsAndValues() {
+    // Given:
+    final JsonLineParser pinoParser = new JsonLineParser("time", "level", "name", "msg", "bindings", "err",
+        Collections.singletonList("hostname"));
+
+    // When:
+    final LogMessage message = pinoParser.parse("{\"level\":50,\"time\":1437780076942,\"name\":\"api\"," +
+        "\"hostname\":\"web-1\",\"msg\":\"Disk full\",\"err\":[\"Error: ENOSPC\",\"    at write\"]}");
+    final LogMessage seconds = pinoParser.parse("{\"time\":1437780076.9425,\"level\":30,\"msg\":\"\"}");
+
+    // Then:
+    assertEquals(1437780076942L, message.getUnixTime());
+    assertEquals(Severity.ERROR, message.getSeverity());
+    assertEquals("api", message.getLoggerName());
+    assertEquals(Arrays.asList("Disk full", "Error: ENOSPC", "    at write"), message.getLines());
+    assertEquals(Collections.singletonMap("hostname", "web-1"), message.getAttributes());
+
+    assertEquals(1437780076942L, seconds.getUnixTime());
+    assertEquals(Severity.INFO, seconds.getSeverity());
+    assertEquals(Collections.singletonList(""), seconds.getLines());
+  }
+
+  @Test
+  public void shouldHandleMalformedLines() {
+    assertTrue(parser.parse("\tat learn.ApiMain.callStorage(ApiMain.java:149)").isMultiLinePart());
+    assertTrue(parser.parse("").isMultiLinePart());
+    assertTrue(parser.parse("{\"message\":\"no time\"}").isNull());
+    assertTrue(parser.parse("{\"@timestamp\":\"yesterday\",\"message\":\"bad time\"}").isNull());
+    assertTrue(parser.parse("{\"@timestamp\":\"2015-07-24T23:21:16Z\",\"message\":\"trunc").isNull());
+    assertTrue(parser.parse("{\"@timestamp\":\"2015-07-24T23:21:16Z\" \"message\":\"x\"}").isNull());
+    assertTrue(parser.parse("{\"@timestamp\":\"2015-07-24T23:21:16Z\",\"x\":{\"y\":[1,2}").isNull());
+  }
+
+  @Test
+  public void shouldDecodeLongStringsWithEscapesAndNonAsciiCharacters() {
+    // Given:
+    final String line = "{\"@timestamp\":\"2015-07-24T23:21:16Z\",\"message\":\"Quoted \\\"name\\\" in the record, " +
+        "caf\u00e9 \u2603\",\"stack_trace\":\"java.lang.IllegalStateException: caf\u00e9\\n\\tat a.B.c(B.java:1)" +
+        "\\u000a\\tat a.B.d(B.java:2)\\r\\n\"}";
+
+    // When:
+    final LogMessage message = parser.parse(line);
+
+    // Then:
+    assertEquals("Quoted \"name\" in the record, caf\u00e9 \u2603", message.getMessage());
+    assertEquals(Arrays.asList("Quoted \"name\" in the record, caf\u00e9 \u2603",
+        "java.lang.IllegalStateException: caf\u00e9", "\tat a.B.c(B.java:1)", "\tat a.B.d(B.java:2)"),
+        message.getLines());
+  }
+
+  @Test
+  public void shouldTreatMalformedEscapesAsMalformedLines() {
+    assertEquals("A-\u00e9", parser.parse("{\"@timestamp\":\"2015-07-24T23:21:16Z\",\"message\":\"\\u0041-\\u00E9\"}")
+        .getMessage());
+    assertTrue(parser.parse("{\"@timestamp\":\"2015-07-24T23:21:16Z\",\"message\":\"\\uZZZZ\"}").isNull());
+    assertTrue(parser.parse("{\"@timestamp\":\"2015-07-24T23:21:16Z\",\"message\":\"\\u12\"}").isNull());
+    assertTrue(parser.parse("{\"@timestamp\":\"2015-07-24T23:21:16Z\",\"message\":\"\\q\"}").isNull());
+    assertTrue(parser.parse("{\"@timestamp\":\"2015-07-24T23:21:16Z\",\"x\":[\"\\u00\"]}").isNull());
+  }
+}
@@ -0,0 +1,164 @@
+package com.truward.brikar.log.recent;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.util.TestLogMessageBuilder;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RecentRecordStore}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecentRecordStoreTest {
+
+  @Test
+  public void shouldKeepRecordsAsTheyWere() {
+    // Given:
+    final RecentRecordStore store = new RecentRecordStore(64 * 1024);
+    final MaterializedLogMessage record = record(1000L, Severity.ERROR, "r1", "Café is closed");
+    record.addLine("java.lang.IllegalStateException: 😀");
+    record.putAttribute("tDelta", 15L);
+    record.putAttribute("count", 3);
+    record.putAttribute("ratio", 0.5);
+    record.putAttribute("failed", true);
+    record.putAttribute("none", null);
+
+    // When:
+    store.accept(record);
+    final List<LogMessage> records = store.query(Long.MIN_VALUE, Long.MAX_VALUE, null, null, 10);
+
+    // Then:
+    assertEquals(1, records.size());
+    final LogMessage result = records.get(0);
+    assertEquals(1000L, result.getUnixTime());
+    assertEquals(Severity.ERROR, result.getSeverity());
+    assertEquals("learn.ApiMain", result.getLoggerName());
+    assertEquals(record.getLines(), result.getLines());
+    assertEquals("Café is closed", result.getMessage());
+    assertEquals(record.getAttributes(), result.getAttributes());
+  }
+
+  @Test
+  public void shouldReplaceUnpairedSurrogates() {
+    // Given:
+    final RecentRecordStore store = new RecentRecordStore(64 * 1024);
+    final MaterializedLogMessage record = record(1000L, Severity.INFO, "r\uD800", "Lone \uDC00 surrogate");
+    record.putAttribute("op", "get\uD83D");
+
+    // When:
+    store.accept(record);
+    final LogMessage result = store.query(Long.MIN_VALUE, Long.MAX_VALUE, null, null, 10).get(0);
+
+    // Then:
+    assertEquals("Lone ? surrogate", result.getMessage());
+    assertEquals("r?", result.getAttributes().get(RecentRecordStore.RID_ATTRIBUTE));
+    assertEquals("get?", result.getAttributes().get("op"));
+  }
+
+  @Test
+  public void shouldQueryByTimeSeverityAndRid() {
+    // Given:
+    final RecentRecordStore store = new RecentRecordStore(64 * 1024);
+    store.accept(record(1000L, Severity.INFO, "r1", "Started"));
+    store.accept(record(2000L, Severity.ERROR, "r2", "Failed"));
+    store.accept(record(1500L, Severity.WARN, "r1", "Late"));
+    store.accept(record(3000L, Severity.ERROR, "r1", "Failed again"));
+    store.accept(record(4000L, Severity.INFO, null, "Idle"));
+
+    // When:
+    final List<LogMessage> range = store.query(1500L, 4000L, null, null, 10);
+    final List<LogMessage> errors = store.query(0L, Long.MAX_VALUE, EnumSet.of(Severity.ERROR), null, 10);
+    final List<LogMessage> request = store.query(0L, Long.MAX_VALUE, null, "r1", 10);
+    final List<LogMessage> latest = store.query(0L, Long.MAX_VALUE, null, null, 2);
+
+    // Then:
+    assertEquals(Arrays.asList("Failed", "Late", "Failed again"), messages(range));
+    assertEquals(Arrays.asList("Failed", "Failed again"), messages(errors));
+    assertEquals(Arrays.asList("Started", "Late", "Failed again"), messages(request));
+    assertEquals(Arrays.asList("Failed again", "Idle"), messages(latest));
+  }
+
+  @Test
+  public void shouldSkipRecordsWithSameHashOfRid() {
+    // Given:
+    final RecentRecordStore store = new RecentRecordStore(64 * 1024);
+    store.accept(record(1000L, Severity.INFO, "Aa", "First"));
+    store.accept(record(2000L, Severity.INFO, "BB", "Other")); // "Aa" and "BB" have the same hash code
+    store.accept(record(3000L, Severity.INFO, "BB", "Other again"));
+
+    // When:
+    final List<LogMessage> records = store.query(0L, Long.MAX_VALUE, null, "Aa", 1);
+
+    // Then:
+    assertEquals(Arrays.asList("First"), messages(records));
+  }
+
+  @Test
+  public void shouldEvictOldestRecords() {
+    // Given:
+    final RecentRecordStore store = new RecentRecordStore(1024, 100);
+
+    // When:
+    for (int i = 0; i < 100; ++i) {
+      store.accept(record(i, Severity.INFO, "r" + i, "Record #" + i));
+    }
+
+    // Then:
+    final int count = store.getRecordCount();
+    assertTrue("count=" + count, count > 0 && count < 100);
+    assertEquals(100 - count, store.getEvictedCount());
+    assertTrue(store.getUsedBytes() <= store.getCapacityBytes());
+    assertEquals(Long.valueOf(100 - count), store.getOldestTime());
+
+    final List<LogMessage> records = store.query(0L, Long.MAX_VALUE, null, null, 1000);
+    assertEquals(count, records.size());
+    for (int i = 0; i < count; ++i) {
+      assertEquals("Record #" + (100 - count + i), records.get(i).getMessage());
+    }
+    assertTrue(store.query(0L, Long.MAX_VALUE, null, "r0", 10).isEmpty());
+  }
+
+  @Test
+  public void shouldLimitRecordsByIndexSize() {
+    // Given:
+    final RecentRecordStore store = new RecentRecordStore(64 * 1024, 3);
+
+    // When:
+    for (int i = 0; i < 5; ++i) {
+      store.accept(record(i, Severity.INFO, null, "Record #" + i));
+    }
+
+    // Then:
+    assertEquals(3, store.getRecordCount());
+    assertEquals(Arrays.asList("Record #2", "Record #3", "Record #4"),
+        messages(store.query(0L, Long.MAX_VALUE, null, null, 10)));
+    assertNull(new RecentRecordStore(1024).getOldestTime());
+  }
+
+  //
+  // Private
+  //
+
+  private static MaterializedLogMessage record(long time, Severity severity, String rid, String message) {
+    return new TestLogMessageBuilder(time, severity).setLoggerName("learn.ApiMain").setMessage(message)
+        .putAttribute(RecentRecordStore.RID_ATTRIBUTE, rid).build();
+  }
+
+  private static List<String> messages(List<LogMessage> records) {
+    final String[] result = new String[records.size()];
+    for (int i = 0; i < result.length; ++i) {
+      result[i] = records.get(i).getMessage();
+    }
+    return Arrays.asList(result);
+  }
+}
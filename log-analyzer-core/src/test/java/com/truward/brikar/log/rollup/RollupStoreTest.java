@@ -0,0 +1,114 @@
+package com.truward.brikar.log.rollup;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.util.TestLogMessageBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RollupStore}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollupStoreTest {
+  private static final long START = 1437696000000L; // 2015-07-24 00:00:00
+  private static final long DAYS = 3;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldCountRecordsPerMinute() throws Exception {
+    // Given:
+    final Path directory = temporaryFolder.getRoot().toPath();
+    try (final RollupStore store = new RollupStore(directory, Collections.singletonList("oid"), Long.MAX_VALUE)) {
+      writeRecords(store);
+
+      // When:
+      final SortedMap<Long, SortedMap<SeriesKey, Long>> pendingCounts = store.query(minuteQuery());
+      store.flush();
+      final SortedMap<Long, SortedMap<SeriesKey, Long>> counts = store.query(minuteQuery());
+
+      // Then:
+      assertEquals(pendingCounts, counts);
+      assertEquals(DAYS * 24 * 60, counts.size());
+      assertEquals(Long.valueOf(2L), counts.get(START).get(new SeriesKey(Severity.INFO, "learn.Foo",
+          Collections.singletonMap("oid", "o0"))));
+      assertEquals(Long.valueOf(1L), counts.get(START + RollupStore.MINUTE).get(new SeriesKey(Severity.ERROR,
+          "learn.Bar", Collections.singletonMap("oid", "o1"))));
+      assertTrue(Files.size(directory.resolve("minute/2015-07-24.rollup")) < 24 * 60 * 3 * 8);
+    }
+  }
+
+  @Test
+  public void shouldDownsampleToHours() throws Exception {
+    // Given:
+    final Path directory = temporaryFolder.getRoot().toPath();
+    try (final RollupStore store = new RollupStore(directory, Collections.singletonList("oid"),
+        TimeUnit.DAYS.toMillis(1))) {
+      writeRecords(store);
+      store.flush();
+
+      // When:
+      store.downsample(START + TimeUnit.DAYS.toMillis(DAYS + 1));
+      final SortedMap<Long, SortedMap<SeriesKey, Long>> counts = store.query(new RollupQuery(START,
+          START + TimeUnit.DAYS.toMillis(DAYS), TimeUnit.DAYS.toMillis(1), EnumSet.noneOf(Severity.class), "learn.",
+          Collections.<String, String>emptyMap(), Collections.singletonList(RollupQuery.GROUP_BY_SEVERITY)));
+
+      // Then:
+      assertFalse(Files.exists(directory.resolve("minute/2015-07-24.rollup")));
+      assertTrue(Files.exists(directory.resolve("hour/2015-07.rollup")));
+      assertEquals(DAYS, counts.size());
+      for (final SortedMap<SeriesKey, Long> dayCounts : counts.values()) {
+        assertEquals(2, dayCounts.size());
+        assertEquals(Long.valueOf(24 * 60 * 3), dayCounts.get(new SeriesKey(Severity.INFO, null,
+            Collections.<String, String>emptyMap())));
+        assertEquals(Long.valueOf(24 * 60 / 2), dayCounts.get(new SeriesKey(Severity.ERROR, null,
+            Collections.<String, String>emptyMap())));
+      }
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static void writeRecords(RollupStore store) {
+    for (long minute = 0; minute < DAYS * 24 * 60; ++minute) {
+      final long time = START + minute * RollupStore.MINUTE;
+      store.accept(record(time, Severity.INFO, "learn.Foo", "o0"));
+      store.accept(record(time + 1000L, Severity.INFO, "learn.Foo", "o0"));
+      store.accept(record(time + 2000L, Severity.INFO, "learn.Foo", "o1"));
+      if (minute % 2 == 1) {
+        store.accept(record(time + 3000L, Severity.ERROR, "learn.Bar", "o1"));
+      }
+    }
+  }
+
+  private static LogMessage record(long time, Severity severity, String loggerName, String oid) {
+    return new TestLogMessageBuilder(time, severity).setLoggerName(loggerName)
+        .putAttribute("oid", oid)
+        .putAttribute("rid", Long.toString(time)) // not counted by the store, rid is not a rollup attribute
+        .build();
+  }
+
+  private static RollupQuery minuteQuery() {
+    return new RollupQuery(Long.MIN_VALUE, Long.MAX_VALUE, RollupStore.MINUTE, EnumSet.noneOf(Severity.class), null,
+        Collections.<String, String>emptyMap(), Arrays.asList(RollupQuery.GROUP_BY_SEVERITY,
+        RollupQuery.GROUP_BY_LOGGER, "oid"));
+  }
+}
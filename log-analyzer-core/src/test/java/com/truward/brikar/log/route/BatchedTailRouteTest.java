@@ -0,0 +1,102 @@
+package com.truward.brikar.log.route;
+
+import com.truward.brikar.log.camel.FileTailProcessor;
+import com.truward.brikar.log.camel.LineBatchSplitter;
+import org.apache.camel.EndpointInject;
+import org.apache.camel.Produce;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.test.junit4.CamelTestSupport;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests file tailing route, that produces batches of lines.
+ *
+ * @author Alexander Shabanov
+ */
+public final class BatchedTailRouteTest extends CamelTestSupport {
+  private static Path logFile;
+
+  @EndpointInject(uri = "mock:tail")
+  protected MockEndpoint tailEndpoint;
+
+  @EndpointInject(uri = "mock:split")
+  protected MockEndpoint splitEndpoint;
+
+  @Produce(uri = "direct:start")
+  protected ProducerTemplate template;
+
+  @Test
+  public void shouldSplitBodyIntoBatches() throws InterruptedException {
+    // Given:
+    splitEndpoint.expectedMessageCount(4);
+
+    // When:
+    template.sendBody("a\r\nb\n\nc\nd\ne");
+    template.sendBody("");
+
+    // Then:
+    splitEndpoint.assertIsSatisfied();
+    assertEquals(Arrays.asList("a", "b"), getBody(splitEndpoint, 0));
+    assertEquals(Arrays.asList("c", "d"), getBody(splitEndpoint, 1));
+    assertEquals(Collections.singletonList("e"), getBody(splitEndpoint, 2));
+    assertEquals(Collections.emptyList(), getBody(splitEndpoint, 3));
+  }
+
+  @Test
+  public void shouldTailFileInBatches() throws Exception {
+    // Given:
+    tailEndpoint.expectedMessageCount(3);
+
+    // When:
+    append("1\n2\n3\n");
+    Thread.sleep(100L);
+    append("4"); // incomplete line should not be emitted
+    Thread.sleep(100L);
+    append("\n");
+
+    // Then:
+    tailEndpoint.assertIsSatisfied();
+    assertEquals(Arrays.asList("1", "2"), getBody(tailEndpoint, 0));
+    assertEquals(Collections.singletonList("3"), getBody(tailEndpoint, 1));
+    assertEquals(Collections.singletonList("4"), getBody(tailEndpoint, 2));
+  }
+
+  @Override
+  protected RouteBuilder createRouteBuilder() throws IOException {
+    logFile = Files.createTempFile("tail", ".log");
+    logFile.toFile().deleteOnExit();
+
+    return new RouteBuilder() {
+      public void configure() {
+        from("direct:start")
+            .split(new LineBatchSplitter(2))
+            .to("mock:split");
+
+        from("timer:tail?delay=0&period=10")
+            .process(new FileTailProcessor(logFile, 1024))
+            .split(new LineBatchSplitter(2)).streaming()
+            .filter(simple("${body.size} > 0"))
+            .to("mock:tail");
+      }
+    };
+  }
+
+  private static List<?> getBody(MockEndpoint endpoint, int index) {
+    return endpoint.assertExchangeReceived(index).getIn().getBody(List.class);
+  }
+
+  private static void append(String text) throws IOException {
+    Files.write(logFile, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+  }
+}
@@ -0,0 +1,130 @@
+package com.truward.brikar.log.routing;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.Severity;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link RoutingTable} and {@link RoutingRules}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RoutingTableTest {
+  private static final String RULES = "" +
+      "errors.severity=ERROR\n" +
+      "errors.endpoint=mock:errors mock:archive\n" +
+      "metrics.metric=true\n" +
+      "metrics.endpoint=mock:metrics\n" +
+      "billing.logger=com.example.billing, com.example.payments.Gateway\n" +
+      "billing.attribute.oid=*\n" +
+      "billing.endpoint=mock:billing mock:archive\n" +
+      "admin.attribute.user=admin\n" +
+      "admin.severity=WARN, ERROR\n" +
+      "admin.endpoint=mock:audit\n";
+
+  private final RoutingTable table = new RoutingTable(parse(RULES), Collections.singletonList("mock:cold"));
+
+  @Test
+  public void shouldRouteRecords() {
+    assertEquals(Arrays.asList("mock:errors", "mock:archive"),
+        table.route(message(Severity.ERROR, "com.example.Main", "Disk full")));
+    assertEquals(Collections.singletonList("mock:cold"),
+        table.route(message(Severity.INFO, "com.example.Main", "Started")));
+    assertEquals(Collections.singletonList("mock:metrics"),
+        table.route(message(Severity.INFO, "com.example.Main", "@metric tDelta=5, op=getUser")));
+    assertEquals(Collections.singletonList("mock:audit"),
+        table.route(message(Severity.WARN, "com.example.Main", "Denied", "user", "admin")));
+    assertEquals(Collections.singletonList("mock:cold"),
+        table.route(message(Severity.WARN, "com.example.Main", "Denied", "user", "guest")));
+  }
+
+  @Test
+  public void shouldMatchLoggerPrefixes() {
+    assertEquals(Arrays.asList("mock:billing", "mock:archive"),
+        table.route(message(Severity.INFO, "com.example.billing.Invoice", "Sent", "oid", "1")));
+    assertEquals(Arrays.asList("mock:billing", "mock:archive"),
+        table.route(message(Severity.INFO, "com.example.payments.Gateway", "Paid", "oid", "1")));
+    assertEquals(Collections.singletonList("mock:cold"),
+        table.route(message(Severity.INFO, "com.example.payments.Refund", "Refunded", "oid", "1")));
+    assertEquals(Collections.singletonList("mock:cold"),
+        table.route(message(Severity.INFO, "com.example.billing.Invoice", "No order")));
+    assertEquals(Collections.singletonList("mock:cold"),
+        table.route(message(Severity.INFO, "com.example", "Short logger", "oid", "1")));
+  }
+
+  @Test
+  public void shouldSendToEachEndpointOnce() {
+    // When:
+    final List<String> endpoints = table.route(message(Severity.ERROR, "com.example.billing.Invoice", "Failed",
+        "oid", "1", "user", "admin"));
+
+    // Then:
+    assertEquals(Arrays.asList("mock:audit", "mock:billing", "mock:archive", "mock:errors"), endpoints);
+  }
+
+  @Test
+  public void shouldCountHits() {
+    // Given:
+    table.route(message(Severity.ERROR, "com.example.Main", "Disk full"));
+    table.route(message(Severity.ERROR, "com.example.billing.Invoice", "Failed", "oid", "1"));
+    table.route(message(Severity.INFO, "com.example.Main", "Started"));
+
+    // When:
+    final Map<String, Long> hits = table.getHitCounts();
+
+    // Then:
+    assertEquals(Arrays.asList("admin", "billing", "errors", "metrics", RoutingTable.DEFAULT_RULE_NAME),
+        Arrays.asList(hits.keySet().toArray()));
+    assertEquals(Long.valueOf(0), hits.get("admin"));
+    assertEquals(Long.valueOf(1), hits.get("billing"));
+    assertEquals(Long.valueOf(2), hits.get("errors"));
+    assertEquals(Long.valueOf(0), hits.get("metrics"));
+    assertEquals(Long.valueOf(1), hits.get(RoutingTable.DEFAULT_RULE_NAME));
+  }
+
+  @Test
+  public void shouldRejectUnknownProperty() {
+    try {
+      parse("errors.level=ERROR\nerrors.endpoint=mock:errors\n");
+      fail("Unknown property should be rejected");
+    } catch (IllegalArgumentException ignored) {
+      // expected
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static List<RoutingRule> parse(String text) {
+    final Properties properties = new Properties();
+    try {
+      properties.load(new StringReader(text));
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return RoutingRules.parse(properties);
+  }
+
+  private static LogMessage message(Severity severity, String loggerName, String text, String... attributes) {
+    final String header = "2015-07-24 23:21:16,942 " + severity + " " + loggerName + "  [main] ";
+    final MaterializedLogMessage result = new MaterializedLogMessage(1437780076942L, severity, loggerName,
+        header + text, header.length());
+    for (int i = 0; i < attributes.length; i += 2) {
+      result.putAttribute(attributes[i], attributes[i + 1]);
+    }
+    return result;
+  }
+}
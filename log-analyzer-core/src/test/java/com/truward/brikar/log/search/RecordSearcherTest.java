@@ -0,0 +1,186 @@
+package com.truward.brikar.log.search;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.util.TestLogMessageProcessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link RecordSearcher}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecordSearcherTest {
+  private static final int RECORD_COUNT = 5000;
+  private static final int WINDOW_SIZE = 1024;
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldFindCompleteRecordsAcrossRangesAndWindows() throws Exception {
+    // Given:
+    final Path path = writeLog();
+
+    // When:
+    final List<LogMessage> found = search(path, SearchQuery.forPattern("NullPointerException"));
+
+    // Then:
+    final List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < RECORD_COUNT; ++i) {
+      if (i % 7 == 0) {
+        expected.add(i);
+      }
+    }
+    assertRecords(expected, found);
+  }
+
+  @Test
+  public void shouldApplyFiltersWithoutPattern() throws Exception {
+    // Given:
+    final Path path = writeLog();
+    final SearchQuery query = new SearchQuery(null, false, EnumSet.of(Severity.ERROR),
+        1437780000000L + 1000L * 1000L, 1437780000000L + 2000L * 1000L, Collections.singletonMap("oid", "o1"));
+
+    // When:
+    final List<LogMessage> found = search(path, query);
+
+    // Then:
+    final List<Integer> expected = new ArrayList<>();
+    for (int i = 1000; i < 2000; ++i) {
+      if (i % 7 == 0 && i % 2 == 1) {
+        expected.add(i);
+      }
+    }
+    assertRecords(expected, found);
+  }
+
+  @Test
+  public void shouldMatchWildcardPatternWithinLine() throws Exception {
+    // Given:
+    final Path path = writeLog();
+
+    // When:
+    final List<LogMessage> found = search(path, new SearchQuery("record #4*9 ATTEMPTED", true,
+        EnumSet.noneOf(Severity.class), Long.MIN_VALUE, Long.MAX_VALUE, Collections.<String, String>emptyMap()));
+
+    // Then:
+    final List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < RECORD_COUNT; ++i) {
+      final String number = Integer.toString(i);
+      if (number.length() > 1 && number.startsWith("4") && number.endsWith("9")) {
+        expected.add(i);
+      }
+    }
+    assertRecords(expected, found);
+  }
+
+  @Test
+  public void shouldFindRecordLongerThanWindowAtRangeStart() throws Exception {
+    // Given:
+    final String header = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain rid=r%d, oid=o1 [main] ";
+    final StringBuilder builder = new StringBuilder(String.format(header, 0));
+    while (builder.length() < WINDOW_SIZE - 1) {
+      builder.append('a');
+    }
+    builder.append('\n'); // the second range starts right after the terminator
+    builder.append(String.format(header, 1));
+    for (int i = 0; i < 3 * WINDOW_SIZE / 2; ++i) {
+      builder.append('b');
+    }
+    builder.append('\n');
+    for (int i = 2; i < 5; ++i) {
+      builder.append(String.format(header, i)).append("Record #").append(i).append('\n');
+    }
+    final Path path = temporaryFolder.newFile("long.log").toPath();
+    Files.write(path, builder.toString().getBytes(StandardCharsets.UTF_8));
+
+    // When:
+    final List<LogMessage> found = search(path, new SearchQuery(null, false, EnumSet.noneOf(Severity.class),
+        Long.MIN_VALUE, Long.MAX_VALUE, Collections.<String, String>emptyMap()));
+
+    // Then:
+    assertEquals(5, found.size());
+    for (int i = 0; i < found.size(); ++i) {
+      assertEquals("r" + i, found.get(i).getAttributes().get("rid"));
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private Path writeLog() throws Exception {
+    final StringBuilder builder = new StringBuilder();
+    builder.append("\tat orphan.Line(Orphan.java:1)\n");
+    for (int i = 0; i < RECORD_COUNT; ++i) {
+      final long seconds = 1437780000L + i;
+      builder.append(String.format("2015-07-24 %02d:%02d:%02d,000 ", (seconds / 3600) % 24, (seconds / 60) % 60,
+          seconds % 60))
+          .append(i % 7 == 0 ? "ERROR" : "INFO")
+          .append(" learn.LogProducerMain rid=r").append(i).append(", oid=o").append(i % 2)
+          .append(" [main] Record #").append(i).append(" attempted\r\n");
+      if (i % 7 == 0) {
+        builder.append("java.lang.NullPointerException: Record #").append(i).append('\n');
+        for (int j = 0; j < i % 5; ++j) {
+          builder.append("\tat learn.LogProducerMain.line").append(j).append("(LogProducerMain.java:").append(i)
+              .append(")\n");
+        }
+        builder.append('\n');
+      }
+    }
+
+    final Path path = temporaryFolder.newFile("search.log").toPath();
+    Files.write(path, builder.toString().getBytes(StandardCharsets.UTF_8));
+    return path;
+  }
+
+  private static List<LogMessage> search(Path path, SearchQuery query) throws Exception {
+    final List<LogMessage> found = new ArrayList<>();
+    try (final RecordSearcher searcher = new RecordSearcher(new ThreadSafeParser(), 4, 100, WINDOW_SIZE)) {
+      final long count = searcher.search(path, query, new LogMessageSink() {
+        @Override
+        public void accept(@Nonnull LogMessage message) {
+          found.add(message);
+        }
+      });
+      assertEquals(found.size(), count);
+    }
+    return found;
+  }
+
+  private static void assertRecords(List<Integer> expected, List<LogMessage> found) {
+    assertEquals(expected.size(), found.size());
+    for (int i = 0; i < expected.size(); ++i) {
+      final int number = expected.get(i);
+      final LogMessage record = found.get(i);
+      assertEquals("r" + number, record.getAttributes().get("rid"));
+      assertEquals(record.getLines().toString(), number % 7 == 0 ? 2 + number % 5 : 1, record.getLines().size());
+    }
+  }
+
+  private static final class ThreadSafeParser implements LogLineParser {
+    private final ThreadLocal<TestLogMessageProcessor> delegate = ThreadLocal.withInitial(TestLogMessageProcessor::new);
+
+    @Nonnull
+    @Override
+    public LogMessage parse(@Nonnull String line) {
+      return delegate.get().parse(line);
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package com.truward.brikar.log.share;
+
+import com.truward.brikar.log.tail.VirtualThreadTailService;
+import com.truward.brikar.log.util.TestLogMessageProcessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link WorkSharingCoordinator}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class WorkSharingCoordinatorTest {
+  private static final int FILE_COUNT = 20;
+  private static final long LEASE_TIMEOUT = 1000L;
+  private static final String LINE = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] Record ";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldRebalanceFilesWhenInstancesJoinAndDie() throws Exception {
+    // Given:
+    final Path sourceDirectory = temporaryFolder.newFolder("logs").toPath();
+    final Path shareDirectory = temporaryFolder.getRoot().toPath().resolve("share");
+    final List<String> fileNames = new ArrayList<>();
+    for (int i = 0; i < FILE_COUNT; ++i) {
+      fileNames.add("app-" + i + ".log");
+      Files.createFile(sourceDirectory.resolve(fileNames.get(i)));
+    }
+    Collections.sort(fileNames);
+    final RecordingReader readerA = new RecordingReader();
+    final RecordingReader readerB = new RecordingReader();
+    final WorkSharingCoordinator a = new WorkSharingCoordinator(sourceDirectory, shareDirectory, "a", readerA,
+        LEASE_TIMEOUT);
+    final WorkSharingCoordinator b = new WorkSharingCoordinator(sourceDirectory, shareDirectory, "b", readerB,
+        LEASE_TIMEOUT);
+
+    // When: a starts alone
+    a.rebalance(0L);
+    b.rebalance(0L);
+
+    // Then: b waits for a to release its files
+    assertEquals(fileNames, a.getOwnedFiles());
+    assertEquals(Collections.<String>emptyList(), b.getOwnedFiles());
+
+    // When: a finds that b has joined
+    for (final String fileName : fileNames) {
+      readerA.checkpoints.put(sourceDirectory.resolve(fileName), 100L + fileName.length());
+    }
+    a.rebalance(100L);
+    b.rebalance(100L);
+
+    // Then: files are divided and b resumes from the checkpoints of a
+    assertFalse(a.getOwnedFiles().isEmpty());
+    assertFalse(b.getOwnedFiles().isEmpty());
+    final Set<String> union = new TreeSet<>(a.getOwnedFiles());
+    union.addAll(b.getOwnedFiles());
+    assertEquals(fileNames, new ArrayList<>(union));
+    assertEquals(FILE_COUNT, a.getOwnedFiles().size() + b.getOwnedFiles().size());
+    assertEquals(readerA.tailed, paths(sourceDirectory, a.getOwnedFiles()));
+    assertEquals(readerB.tailed, paths(sourceDirectory, b.getOwnedFiles()));
+    for (final String fileName : b.getOwnedFiles()) {
+      assertEquals(Long.valueOf(100L + fileName.length()), readerB.startOffsets.get(sourceDirectory.resolve(fileName)));
+    }
+
+    // When: a dies, having read a bit more since its last rebalance
+    final List<String> filesOfA = a.getOwnedFiles();
+    for (final String fileName : filesOfA) {
+      readerA.checkpoints.put(sourceDirectory.resolve(fileName), 500L);
+    }
+    b.rebalance(100L + LEASE_TIMEOUT / 2);
+    assertEquals(FILE_COUNT - filesOfA.size(), b.getOwnedFiles().size()); // lease of a is not expired yet
+    b.rebalance(100L + LEASE_TIMEOUT);
+
+    // Then: b takes the files of a from the checkpoints written on its last rebalance
+    assertEquals(fileNames, b.getOwnedFiles());
+    for (final String fileName : filesOfA) {
+      assertEquals(Long.valueOf(100L + fileName.length()), readerB.startOffsets.get(sourceDirectory.resolve(fileName)));
+    }
+
+    // When: a comes back after a pause
+    a.rebalance(200L + LEASE_TIMEOUT);
+
+    // Then: it stops reading the files, that have been taken over
+    assertEquals(Collections.<String>emptyList(), a.getOwnedFiles());
+    assertTrue(readerA.tailed.isEmpty());
+
+    // When: instances are closed
+    a.close();
+    b.close();
+
+    // Then: all the leases are released
+    assertTrue(readerB.tailed.isEmpty());
+    assertEquals(Collections.<String>emptyList(), list(shareDirectory.resolve("leases")));
+    assertEquals(Collections.<String>emptyList(), list(shareDirectory.resolve("members")));
+  }
+
+  @Test
+  public void shouldShareFilesBetweenProcesses() throws Exception {
+    // Given:
+    final Path sourceDirectory = temporaryFolder.newFolder("logs").toPath();
+    final Path shareDirectory = temporaryFolder.newFolder("share").toPath();
+    final Path outputDirectory = temporaryFolder.newFolder("output").toPath();
+    final List<String> expected = new ArrayList<>();
+    appendRecords(sourceDirectory, expected);
+    final Map<String, Process> workers = new HashMap<>();
+
+    try {
+      // When: two processes start, then the third one joins
+      workers.put("w1", startWorker(sourceDirectory, shareDirectory, outputDirectory, "w1"));
+      workers.put("w2", startWorker(sourceDirectory, shareDirectory, outputDirectory, "w2"));
+      awaitLeaseOwners(shareDirectory, new HashSet<>(Arrays.asList("w1", "w2")));
+      workers.put("w3", startWorker(sourceDirectory, shareDirectory, outputDirectory, "w3"));
+      awaitLeaseOwners(shareDirectory, new HashSet<>(Arrays.asList("w1", "w2", "w3")));
+      appendRecords(sourceDirectory, expected);
+      awaitCheckpoints(sourceDirectory, shareDirectory);
+
+      // When: one of them is killed
+      workers.get("w2").destroyForcibly().waitFor();
+      appendRecords(sourceDirectory, expected);
+      awaitLeaseOwners(shareDirectory, new HashSet<>(Arrays.asList("w1", "w3")));
+      awaitCheckpoints(sourceDirectory, shareDirectory);
+
+      // When: the rest are stopped
+      for (final String instanceId : Arrays.asList("w1", "w3")) {
+        Files.createFile(shareDirectory.resolve("stop-" + instanceId));
+        assertTrue(workers.get(instanceId).waitFor(30L, TimeUnit.SECONDS));
+      }
+    } finally {
+      for (final Process worker : workers.values()) {
+        worker.destroyForcibly();
+      }
+    }
+
+    // Then: each record has been passed on exactly once
+    final List<String> actual = new ArrayList<>();
+    for (final String output : list(outputDirectory)) {
+      actual.addAll(Files.readAllLines(outputDirectory.resolve(output), StandardCharsets.UTF_8));
+    }
+    Collections.sort(expected);
+    Collections.sort(actual);
+    assertEquals(expected, actual);
+  }
+
+  /**
+   * Analyzer process, that passes the first lines of the records to the output file.
+   * Arguments: source directory, coordination directory, instance ID and output directory.
+   */
+  public static void main(String[] args) throws Exception {
+    final Path sourceDirectory = Paths.get(args[0]);
+    final Path shareDirectory = Paths.get(args[1]);
+    final String instanceId = args[2];
+    final Path stopFile = shareDirectory.resolve("stop-" + instanceId);
+
+    try (final PrintStream out = new PrintStream(Files.newOutputStream(Paths.get(args[3]).resolve(instanceId)), true,
+        "UTF-8")) {
+      final VirtualThreadTailService service = new VirtualThreadTailService(TestLogMessageProcessor::new,
+          message -> {
+            synchronized (out) {
+              out.println(message.getLines().get(0));
+            }
+          }, 2, 4096, 10L, 100, 50L);
+      final WorkSharingCoordinator coordinator = new WorkSharingCoordinator(sourceDirectory, shareDirectory,
+          instanceId, service, LEASE_TIMEOUT);
+      while (!Files.exists(stopFile)) {
+        coordinator.rebalance(System.currentTimeMillis());
+        Thread.sleep(LEASE_TIMEOUT / 10);
+      }
+      coordinator.close();
+      service.close();
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static Process startWorker(Path sourceDirectory, Path shareDirectory, Path outputDirectory,
+                                     String instanceId) throws IOException {
+    return new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp", System.getProperty("java.class.path"), WorkSharingCoordinatorTest.class.getName(),
+        sourceDirectory.toString(), shareDirectory.toString(), instanceId, outputDirectory.toString())
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .start();
+  }
+
+  private static void appendRecords(Path sourceDirectory, List<String> expected) throws IOException {
+    for (int i = 0; i < FILE_COUNT; ++i) {
+      final StringBuilder records = new StringBuilder();
+      for (int j = 0; j < 10; ++j) {
+        final String record = LINE + i + "-" + expected.size();
+        records.append(record).append('\n');
+        expected.add(record);
+      }
+      Files.write(sourceDirectory.resolve("app-" + i + ".log"), records.toString().getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+  }
+
+  private static void awaitLeaseOwners(Path shareDirectory, Set<String> expected) throws Exception {
+    final Path leases = shareDirectory.resolve("leases");
+    Set<String> owners = Collections.emptySet();
+    final long deadline = System.currentTimeMillis() + 30000L;
+    while (System.currentTimeMillis() < deadline) {
+      final List<String> fileNames = list(leases);
+      owners = new HashSet<>();
+      for (final String fileName : fileNames) {
+        owners.add(read(leases.resolve(fileName)));
+      }
+      if (fileNames.size() == FILE_COUNT && owners.equals(expected)) {
+        return;
+      }
+      Thread.sleep(20L);
+    }
+    assertEquals(expected, owners);
+  }
+
+  /**
+   * Waits for the files to be read up to the end and their checkpoints to be written.
+   */
+  private static void awaitCheckpoints(Path sourceDirectory, Path shareDirectory) throws Exception {
+    final long deadline = System.currentTimeMillis() + 30000L;
+    while (System.currentTimeMillis() < deadline) {
+      boolean complete = true;
+      for (int i = 0; i < FILE_COUNT && complete; ++i) {
+        final String fileName = "app-" + i + ".log";
+        complete = Long.toString(Files.size(sourceDirectory.resolve(fileName)))
+            .equals(read(shareDirectory.resolve("checkpoints").resolve(fileName)));
+      }
+      if (complete) {
+        return;
+      }
+      Thread.sleep(20L);
+    }
+    throw new AssertionError("Files have not been read in time");
+  }
+
+  private static String read(Path path) throws IOException {
+    try {
+      return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  private static List<String> list(Path directory) throws IOException {
+    final List<String> result = new ArrayList<>();
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (final Path path : stream) {
+        if (!path.getFileName().toString().startsWith(".")) {
+          result.add(path.getFileName().toString());
+        }
+      }
+    } catch (NoSuchFileException e) {
+      return result; // not created yet
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  private static Set<Path> paths(Path directory, List<String> fileNames) {
+    final Set<Path> result = new HashSet<>();
+    for (final String fileName : fileNames) {
+      result.add(directory.resolve(fileName));
+    }
+    return result;
+  }
+
+  private static final class RecordingReader implements SharedFileReader {
+    final Set<Path> tailed = new HashSet<>();
+    final Map<Path, Long> startOffsets = new HashMap<>();
+    final Map<Path, Long> checkpoints = new HashMap<>();
+
+    @Override
+    public void tail(@Nonnull Path path, long offset) {
+      assertTrue("File is already tailed: " + path, tailed.add(path));
+      startOffsets.put(path, offset);
+      checkpoints.put(path, offset);
+    }
+
+    @Override
+    public long untail(@Nonnull Path path) {
+      assertTrue("File is not tailed: " + path, tailed.remove(path));
+      return checkpoints.get(path);
+    }
+
+    @Override
+    public long getCheckpoint(@Nonnull Path path) {
+      return tailed.contains(path) ? checkpoints.get(path) : -1L;
+    }
+  }
+}
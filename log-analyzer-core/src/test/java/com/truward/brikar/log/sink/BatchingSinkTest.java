@@ -0,0 +1,47 @@
+package com.truward.brikar.log.sink;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.Severity;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link BatchingSink}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class BatchingSinkTest {
+
+  @Test
+  public void shouldPassFullBatchesAndTheRestOnFlush() {
+    // Given:
+    final List<List<LogMessage>> batches = new ArrayList<>();
+    final BatchingSink sink = new BatchingSink(3, batches::add);
+    final List<LogMessage> messages = new ArrayList<>();
+    for (int i = 0; i < 7; ++i) {
+      messages.add(new MaterializedLogMessage(i, Severity.INFO, "Record " + i));
+    }
+
+    // When:
+    for (final LogMessage message : messages) {
+      sink.accept(message);
+    }
+    sink.flush();
+    sink.flush();
+
+    // Then:
+    assertEquals(3, batches.size());
+    assertEquals(3, batches.get(0).size());
+    assertEquals(3, batches.get(1).size());
+    assertEquals(1, batches.get(2).size());
+    for (int i = 0; i < messages.size(); ++i) {
+      assertSame(messages.get(i), batches.get(i / 3).get(i % 3));
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package com.truward.brikar.log.sink;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.Severity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RollingFileSink}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollingFileSinkTest {
+  private static final int RECORD_COUNT = 10000;
+  private static final long START = 1437780076942L; // 2015-07-24 23:21:16,942
+  private static final String LINE = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] \"Record\" #";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldWriteRecordsToRolledSegments() throws Exception {
+    // Given:
+    final Path directory = temporaryFolder.getRoot().toPath();
+    final RollingFileSink sink = new RollingFileSink(directory, "records", RollingFileSink.Compression.NONE,
+        64 * 1024, RollingFileSink.DEFAULT_MAX_SEGMENT_MILLIS, 10L, 128);
+
+    // When:
+    writeRecords(sink);
+    sink.close();
+
+    // Then:
+    final List<Path> segments = listSegments(directory);
+    assertTrue(segments.size() > 1);
+    assertRecords(segments, false);
+    assertEquals(RECORD_COUNT, sink.getWrittenCount());
+    assertEquals(RECORD_COUNT, sink.getWriteLatency().getCount());
+    assertEquals(0L, sink.getDroppedCount());
+  }
+
+  @Test
+  public void shouldWriteCompressedSegments() throws Exception {
+    // Given:
+    final Path directory = temporaryFolder.getRoot().toPath();
+    final RollingFileSink sink = new RollingFileSink(directory, "records", RollingFileSink.Compression.GZIP);
+
+    // When:
+    writeRecords(sink);
+    sink.close();
+
+    // Then:
+    final List<Path> segments = listSegments(directory);
+    assertEquals(1, segments.size());
+    assertTrue(segments.get(0).toString().endsWith(RollingFileSink.EXTENSION + RollingFileSink.GZIP_EXTENSION));
+    assertRecords(segments, true);
+  }
+
+  @Test
+  public void shouldIndexSegments() throws Exception {
+    // Given:
+    final Path directory = temporaryFolder.getRoot().toPath();
+    final RollingFileSink sink = new RollingFileSink(directory, "records", RollingFileSink.Compression.NONE,
+        64 * 1024, RollingFileSink.DEFAULT_MAX_SEGMENT_MILLIS, 10L, 128, Collections.singletonList("index"), 0.01);
+
+    // When:
+    writeRecords(sink);
+    sink.close();
+
+    // Then:
+    final List<Path> segments = new ArrayList<>();
+    for (final Path path : listSegments(directory)) {
+      if (!path.toString().endsWith(SegmentIndex.EXTENSION)) {
+        segments.add(path);
+      }
+    }
+    assertTrue(segments.size() > 1);
+    assertRecords(segments, false);
+
+    int index = 0;
+    int falsePositiveCount = 0;
+    for (final Path segment : segments) {
+      final SegmentIndex segmentIndex = SegmentIndex.read(segment);
+      assertNotNull("Index is missing for " + segment, segmentIndex);
+      assertEquals(Collections.singletonList("index"), segmentIndex.getAttributeNames());
+      final int recordCount = Files.readAllLines(segment, StandardCharsets.UTF_8).size();
+      for (int i = 0; i < RECORD_COUNT; ++i) {
+        final boolean present = i >= index && i < index + recordCount;
+        final boolean found = segmentIndex.mightContain(Collections.singletonMap("index", Integer.toString(i)));
+        if (present) {
+          assertTrue("Missing " + i + " in " + segment, found);
+        } else if (found) {
+          ++falsePositiveCount;
+        }
+      }
+      // attributes, that are not indexed, can not be used to skip segments
+      assertTrue(segmentIndex.mightContain(Collections.singletonMap("rid", "none")));
+      index += recordCount;
+    }
+    assertTrue("Too many false positives: " + falsePositiveCount,
+        falsePositiveCount < RECORD_COUNT * segments.size() * 0.02);
+  }
+
+  //
+  // Private
+  //
+
+  private static void writeRecords(RollingFileSink sink) {
+    for (int i = 0; i < RECORD_COUNT; ++i) {
+      final LogMessage message = new MaterializedLogMessage(START + i, Severity.INFO, LINE + i);
+      message.putAttribute("index", i);
+      sink.accept(message);
+    }
+  }
+
+  private static List<Path> listSegments(Path directory) throws IOException {
+    final List<Path> result = new ArrayList<>();
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (final Path path : stream) {
+        assertFalse("Segment is not complete: " + path, path.toString().endsWith(RollingFileSink.OPEN_SUFFIX));
+        result.add(path);
+      }
+    }
+    Collections.sort(result); // names start with the creation time
+    return result;
+  }
+
+  private static void assertRecords(List<Path> segments, boolean compressed) throws IOException {
+    int index = 0;
+    for (final Path segment : segments) {
+      InputStream in = Files.newInputStream(segment);
+      if (compressed) {
+        in = new GZIPInputStream(in);
+      }
+      try (final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          assertEquals("{\"lines\":[\"" + LINE.replace("\"", "\\\"") + index + "\"],\"severity\":\"INFO\"," +
+              "\"time\":" + (START + index) + ",\"attributes\":{\"index\":" + index + "}}", line);
+          ++index;
+        }
+      }
+    }
+    assertEquals(RECORD_COUNT, index);
+  }
+}
@@ -0,0 +1,51 @@
+package com.truward.brikar.log.sketch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link HyperLogLog}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class HyperLogLogTest {
+
+  @Test
+  public void shouldEstimateDistinctValues() {
+    for (final int count : new int[] { 0, 10, 1000, 100000 }) {
+      // Given:
+      final HyperLogLog estimator = new HyperLogLog(12);
+
+      // When:
+      for (int i = 0; i < count; ++i) {
+        estimator.add("rid-" + i);
+        estimator.add("rid-" + i); // repeated values are not counted
+      }
+
+      // Then:
+      final long estimate = estimator.estimate();
+      assertTrue("count=" + count + ", estimate=" + estimate, Math.abs(estimate - count) <= 0.05 * count);
+    }
+  }
+
+  @Test
+  public void shouldMergeEstimators() {
+    // Given:
+    final HyperLogLog first = new HyperLogLog(12);
+    final HyperLogLog second = new HyperLogLog(12);
+    for (int i = 0; i < 20000; ++i) {
+      first.add("oid-" + i);
+      second.add("oid-" + (i + 10000));
+    }
+
+    // When:
+    final HyperLogLog merged = HyperLogLog.fromByteArray(first.toByteArray());
+    merged.merge(second);
+
+    // Then:
+    assertEquals(12, merged.getPrecision());
+    assertTrue("estimate=" + merged.estimate(), Math.abs(merged.estimate() - 30000) <= 1500);
+  }
+}
@@ -0,0 +1,99 @@
+package com.truward.brikar.log.sketch;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.util.TestLogMessageBuilder;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SketchAggregator}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SketchAggregatorTest {
+  private static final long START = 1437780076942L; // 2015-07-24 23:21:16,942
+
+  private final List<SketchSummary> summaries = new ArrayList<>();
+  private final SketchSink sink = new SketchSink() {
+    @Override
+    public void accept(@Nonnull SketchSummary summary) {
+      summaries.add(summary);
+    }
+  };
+
+  @Test
+  public void shouldSummarizeWindow() {
+    // Given:
+    final SketchAggregator aggregator = new SketchAggregator(sink, Collections.singletonList("op"),
+        Arrays.asList("rid", "oid"), 2, 10, START);
+    for (int i = 0; i < 1000; ++i) {
+      aggregator.accept(record(i % 10 == 0 ? "com.example.Dao" : "com.example.UserService",
+          i % 3 == 0 ? "getUser" : "op" + i, "r" + i));
+    }
+    aggregator.acceptTemplate(5);
+    aggregator.acceptTemplate(5);
+    aggregator.acceptTemplate(7);
+
+    // When:
+    aggregator.close(START + 60000L);
+
+    // Then:
+    assertEquals(1, summaries.size());
+    final SketchSummary summary = summaries.get(0);
+    assertEquals(START, summary.getStart());
+    assertEquals(START + 60000L, summary.getEnd());
+    assertEquals(1000L, summary.getRecordCount());
+
+    final List<TopK.Entry> loggers = summary.getTop().get(SketchAggregator.LOGGER_DIMENSION);
+    assertEquals("com.example.UserService", loggers.get(0).getKey());
+    assertEquals(900L, loggers.get(0).getCount());
+    assertEquals("com.example.Dao", loggers.get(1).getKey());
+    assertEquals("getUser", summary.getTop().get("op").get(0).getKey());
+    assertEquals("5", summary.getTop().get(SketchAggregator.TEMPLATE_DIMENSION).get(0).getKey());
+
+    final long rids = summary.getDistinct().get("rid").estimate();
+    assertTrue("rids=" + rids, Math.abs(rids - 1000) <= 100);
+    assertEquals(0L, summary.getDistinct().get("oid").estimate());
+  }
+
+  @Test
+  public void shouldStartNextWindowEmpty() {
+    // Given:
+    final SketchAggregator aggregator = new SketchAggregator(sink, Collections.singletonList("op"),
+        Collections.singletonList("rid"), 5, 10, START);
+    aggregator.accept(record("com.example.Dao", "getUser", "r1"));
+    aggregator.close(START + 1000L);
+
+    // When:
+    aggregator.close(START + 2000L);
+
+    // Then:
+    assertEquals(2, summaries.size());
+    final SketchSummary summary = summaries.get(1);
+    assertEquals(START + 1000L, summary.getStart());
+    assertEquals(0L, summary.getRecordCount());
+    assertTrue(summary.getTop().get(SketchAggregator.LOGGER_DIMENSION).isEmpty());
+    assertFalse(summary.getTop().containsKey(SketchAggregator.TEMPLATE_DIMENSION));
+    assertEquals(0L, summary.getDistinct().get("rid").estimate());
+    assertEquals(1L, summaries.get(0).getDistinct().get("rid").estimate());
+  }
+
+  //
+  // Private
+  //
+
+  private static LogMessage record(String logger, String operation, String requestId) {
+    return new TestLogMessageBuilder(START, Severity.INFO).setLoggerName(logger).setMessage("@metric op=" + operation)
+        .putAttribute("op", operation).putAttribute("rid", requestId).build();
+  }
+}
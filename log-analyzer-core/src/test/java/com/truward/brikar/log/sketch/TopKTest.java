@@ -0,0 +1,67 @@
+package com.truward.brikar.log.sketch;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link TopK}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TopKTest {
+
+  @Test
+  public void shouldKeepHeavyHittersAmongManyRareKeys() {
+    // Given:
+    final TopK topK = new TopK(20);
+
+    // When:
+    for (int i = 0; i < 10000; ++i) {
+      topK.add("rare" + i);
+      if (i % 2 == 0) {
+        topK.add("getUser");
+      }
+      if (i % 5 == 0) {
+        topK.add("createUser");
+      }
+    }
+
+    // Then:
+    final List<TopK.Entry> top = topK.getTop(2);
+    assertEquals(2, top.size());
+    assertEquals("getUser", top.get(0).getKey());
+    assertEquals("createUser", top.get(1).getKey());
+    assertTrue(top.get(0).getCount() >= 5000 && top.get(0).getCount() - top.get(0).getError() <= 5000);
+    assertTrue(top.get(1).getCount() >= 2000 && top.get(1).getCount() - top.get(1).getError() <= 2000);
+    assertEquals(17000L, topK.getTotal());
+  }
+
+  @Test
+  public void shouldMergeSummaries() {
+    // Given:
+    final TopK first = new TopK(4);
+    final TopK second = new TopK(4);
+    for (int i = 0; i < 10; ++i) {
+      first.add("a");
+      second.add("b");
+    }
+    first.add("c");
+    second.add("a");
+
+    // When:
+    first.merge(second);
+
+    // Then:
+    final List<TopK.Entry> top = first.getTop(10);
+    assertEquals(3, top.size());
+    assertEquals("a", top.get(0).getKey());
+    assertEquals(11L, top.get(0).getCount());
+    assertEquals("b", top.get(1).getKey());
+    assertEquals(10L, top.get(1).getCount());
+    assertEquals(0L, top.get(1).getError());
+  }
+}
@@ -0,0 +1,180 @@
+package com.truward.brikar.log.spool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link DiskSpool} and {@link ValueCodec}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class DiskSpoolTest {
+  private Path dir;
+
+  @Before
+  public void init() throws IOException {
+    dir = Files.createTempDirectory("spool");
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (final Path path : stream) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(dir);
+  }
+
+  @Test
+  public void shouldKeepRecordsInOrderAcrossSegments() throws IOException {
+    try (final DiskSpool spool = new DiskSpool(dir, 100, 100000)) {
+      // When:
+      for (int i = 0; i < 50; ++i) {
+        assertTrue(spool.append(bytes("record " + i)));
+      }
+
+      // Then:
+      assertEquals(50, spool.getDepth());
+      assertEquals(Arrays.asList("record 0", "record 1", "record 2"), drain(spool, 3));
+      spool.append(bytes("record 50"));
+      final List<String> rest = drain(spool, Integer.MAX_VALUE);
+      assertEquals(48, rest.size());
+      assertEquals("record 3", rest.get(0));
+      assertEquals("record 50", rest.get(rest.size() - 1));
+      assertEquals(0, spool.getDepth());
+      assertEquals(0, spool.getBytes());
+    }
+  }
+
+  @Test
+  public void shouldKeepPeekedRecordUntilRemoved() throws IOException {
+    try (final DiskSpool spool = new DiskSpool(dir, 1000, 100000)) {
+      // Given:
+      spool.append(bytes("first"));
+      spool.append(bytes("second"));
+
+      // When:
+      final byte[] record = spool.peek();
+
+      // Then:
+      assertEquals("first", string(record));
+      assertEquals("first", string(spool.peek()));
+      spool.remove();
+      assertEquals("second", string(spool.peek()));
+      spool.remove();
+      assertNull(spool.peek());
+    }
+  }
+
+  @Test
+  public void shouldRecoverRecordsAndTruncateTornTail() throws IOException {
+    // Given:
+    try (final DiskSpool spool = new DiskSpool(dir, 1000, 100000)) {
+      spool.append(bytes("first"));
+      spool.append(bytes("second"));
+      assertEquals("first", string(spool.peek()));
+      spool.remove();
+      spool.append(bytes("third"));
+    }
+    final Path last = lastSegment();
+    Files.write(last, new byte[] {0, 0, 0, 100, 1, 2}, StandardOpenOption.APPEND); // torn write
+
+    // When:
+    try (final DiskSpool spool = new DiskSpool(dir, 1000, 100000)) {
+      // Then: records of the partially consumed segment are delivered again
+      assertEquals(3, spool.getDepth());
+      assertEquals(Arrays.asList("first", "second", "third"), drain(spool, Integer.MAX_VALUE));
+    }
+  }
+
+  @Test
+  public void shouldDropOldestSegmentsWhenFull() throws IOException {
+    try (final DiskSpool spool = new DiskSpool(dir, 100, 300)) {
+      // When:
+      for (int i = 0; i < 100; ++i) {
+        spool.append(bytes("record " + i));
+      }
+
+      // Then:
+      assertTrue(spool.getBytes() <= 300);
+      assertTrue(spool.getDroppedCount() > 0);
+      assertEquals(100, spool.getDepth() + spool.getDroppedCount());
+      final List<String> records = drain(spool, Integer.MAX_VALUE);
+      assertEquals("record 99", records.get(records.size() - 1));
+      assertFalse(records.contains("record 0"));
+    }
+  }
+
+  @Test
+  public void shouldEncodeValues() throws IOException {
+    // Given:
+    final Map<String, Object> value = new HashMap<>();
+    value.put("message", "text");
+    value.put("count", 10L);
+    value.put("line", 1);
+    value.put("rate", 0.5);
+    value.put("failed", true);
+    value.put("missing", null);
+    value.put("tags", Arrays.asList("a", "b"));
+    value.put("nested", new HashMap<>(value));
+
+    // When:
+    final Object decoded = ValueCodec.decode(ValueCodec.encode(value));
+
+    // Then:
+    assertEquals(value, decoded);
+  }
+
+  //
+  // Private
+  //
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static String string(byte[] value) {
+    return new String(value, StandardCharsets.UTF_8);
+  }
+
+  private static List<String> drain(DiskSpool spool, int limit) throws IOException {
+    final List<String> result = new ArrayList<>();
+    byte[] record;
+    while (result.size() < limit && (record = spool.peek()) != null) {
+      result.add(string(record));
+      spool.remove();
+    }
+    return result;
+  }
+
+  private Path lastSegment() throws IOException {
+    Path result = null;
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (final Path path : stream) {
+        if (result == null || path.getFileName().toString().compareTo(result.getFileName().toString()) > 0) {
+          result = path;
+        }
+      }
+    }
+    return result;
+  }
+}
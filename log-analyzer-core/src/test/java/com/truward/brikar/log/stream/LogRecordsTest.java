@@ -0,0 +1,120 @@
+package com.truward.brikar.log.stream;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.util.TestLogMessageProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LogRecords} and {@link RecordSpliterator}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LogRecordsTest {
+  private static final int RECORD_COUNT = 50000;
+
+  private Path file;
+
+  @Before
+  public void init() throws IOException {
+    file = Files.createTempFile("records", ".log");
+    try (final BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write("\tat orphan.Line.of(Previous.java:1)\n");
+      for (int i = 0; i < RECORD_COUNT; ++i) {
+        writer.write("2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] message " + i + "\n");
+        if (i % 7 == 0) {
+          writer.write("java.lang.RuntimeException: failure " + i + "\n");
+          writer.write("\tat Main.main(Main.java:" + i + ")\r\n");
+        }
+      }
+    }
+  }
+
+  @After
+  public void cleanup() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Test
+  public void shouldStreamAssembledRecords() throws IOException {
+    // When:
+    final List<LogMessage> records;
+    try (final Stream<LogMessage> stream = LogRecords.stream(file, new TestLogMessageProcessor(), 10)) {
+      records = stream.collect(Collectors.toList());
+    }
+
+    // Then:
+    assertEquals(RECORD_COUNT, records.size());
+    assertEquals("message 0", records.get(0).getMessage());
+    assertEquals(Arrays.asList("2015-07-24 23:21:16,942 INFO learn.LogProducerMain  [main] message 7",
+        "java.lang.RuntimeException: failure 7", "\tat Main.main(Main.java:7)"), records.get(7).getLines());
+    assertEquals(1, records.get(8).getLines().size());
+  }
+
+  @Test
+  public void shouldProduceSameRecordsInParallel() throws IOException {
+    // Given:
+    final List<String> expected;
+    try (final Stream<LogMessage> stream = LogRecords.stream(file, new TestLogMessageProcessor(), 2)) {
+      expected = stream.map(LogMessage::getLogEntry).collect(Collectors.toList());
+    }
+
+    // When:
+    final ThreadLocal<TestLogMessageProcessor> parsers = ThreadLocal.withInitial(TestLogMessageProcessor::new);
+    final LogLineParser parser = line -> parsers.get().parse(line); // date format of the test parser is not shared
+    final List<String> actual;
+    try (final Stream<LogMessage> stream = LogRecords.stream(file, parser, 2)) {
+      actual = stream.parallel().map(LogMessage::getLogEntry).collect(Collectors.toList());
+    }
+
+    // Then:
+    assertEquals(RECORD_COUNT, expected.size());
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void shouldSplitAtRecordStarts() throws IOException {
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // Given:
+      final long size = channel.size();
+      final RecordSpliterator suffix = new RecordSpliterator(channel, new TestLogMessageProcessor(), 10, 0, size);
+
+      // When:
+      final Spliterator<LogMessage> prefix = suffix.trySplit();
+
+      // Then:
+      assertNotNull(prefix);
+      assertEquals(size, prefix.estimateSize() + suffix.estimateSize());
+      assertTrue(prefix.hasCharacteristics(Spliterator.ORDERED));
+      assertFalse(prefix.hasCharacteristics(Spliterator.SIZED));
+      final long[] counts = new long[2];
+      prefix.forEachRemaining(record -> ++counts[0]);
+      suffix.forEachRemaining(record -> {
+        assertFalse(record.isMultiLinePart());
+        ++counts[1];
+      });
+      assertTrue(counts[0] > 0 && counts[1] > 0);
+      assertEquals(RECORD_COUNT, counts[0] + counts[1]);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.truward.brikar.log.tail;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.util.TestLogMessageProcessor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Load test for {@link VirtualThreadTailService}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class VirtualThreadTailServiceTest {
+  private static final int FILE_COUNT = 5000;
+
+  private static final String INITIAL_CHUNK = "2015-07-24 23:39:55,002 WARN learn.LogProducerMain rid=anCYuTwUWbtnuZp1 " +
+      "[learn.LogProducerMain.main()] Error operation #0 attempted\n" +
+      "java.lang.UnsupportedOperationException: This operation is not supported yet\n" +
+      "\tat learn.LogProducerMain.doErrorOperation(LogProducerMain.java:145) [classes/:na]\n" +
+      "2015-07-24 23:39:55,010 INFO learn.LogProducerMain  [learn.LogProducerMain.main()] Operation timed out\n";
+
+  private static final String APPENDED_CHUNK = "2015-07-25 00:03:08,356 ERROR learn.LogProducerMain " +
+      "rid=KhnHxNK/BbLbaiH4 [learn.LogProducerMain.main()] Disk full\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldTailThousandsOfFiles() throws Exception {
+    // Given:
+    final List<Path> paths = new ArrayList<>(FILE_COUNT);
+    for (int i = 0; i < FILE_COUNT; ++i) {
+      final Path path = temporaryFolder.getRoot().toPath().resolve("tenant-" + i + ".log");
+      Files.write(path, INITIAL_CHUNK.getBytes(StandardCharsets.UTF_8));
+      paths.add(path);
+    }
+    final CountingSink sink = new CountingSink();
+    final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    threadBean.resetPeakThreadCount();
+
+    // When:
+    try (final VirtualThreadTailService service = new VirtualThreadTailService(TestLogMessageProcessor::new, sink,
+        2, 4096, 50L, 100, 100L)) {
+      for (final Path path : paths) {
+        service.tail(path);
+      }
+      awaitCount(sink.records, 2 * FILE_COUNT);
+
+      for (final Path path : paths) {
+        append(path, APPENDED_CHUNK);
+      }
+      awaitCount(sink.records, 3 * FILE_COUNT);
+
+      assertEquals(FILE_COUNT, service.getFileCount());
+    }
+
+    // Then:
+    assertEquals(3 * FILE_COUNT, sink.records.get());
+    assertEquals(FILE_COUNT, sink.multiLineRecords.get());
+    assertEquals(FILE_COUNT, sink.errors.get());
+    final int peakThreads = threadBean.getPeakThreadCount();
+    assertTrue("Too many platform threads: " + peakThreads, peakThreads < FILE_COUNT / 10);
+  }
+
+  @Test
+  public void shouldKeepRecordOrderOfSingleFileParsedByManyThreads() throws Exception {
+    // Given:
+    final int recordCount = 20000;
+    final Path path = temporaryFolder.getRoot().toPath().resolve("hot.log");
+    final StringBuilder content = new StringBuilder();
+    for (int i = 0; i < recordCount; ++i) {
+      content.append("2015-07-24 23:21:16,942 INFO learn.LogProducerMain rid=r").append(i)
+          .append(" [main] Record #").append(i).append('\n');
+      for (int j = 0; j < i % 3; ++j) {
+        content.append("\tat learn.LogProducerMain.line").append(j).append("(LogProducerMain.java:").append(i)
+            .append(")\n");
+      }
+    }
+    Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+    final CollectingSink sink = new CollectingSink();
+
+    // When:
+    try (final VirtualThreadTailService service = new VirtualThreadTailService(TestLogMessageProcessor::new, sink,
+        4, 512, 10L, 100, 100L)) {
+      service.tail(path);
+      final long deadline = System.currentTimeMillis() + 60000L;
+      while (sink.messages.size() < recordCount && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50L);
+      }
+    }
+
+    // Then:
+    assertEquals(recordCount, sink.messages.size());
+    for (int i = 0; i < recordCount; ++i) {
+      final LogMessage message = sink.messages.get(i);
+      assertEquals("r" + i, message.getAttributes().get("rid"));
+      assertEquals(1 + i % 3, message.getLines().size());
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static void append(Path path, String chunk) throws IOException {
+    Files.write(path, chunk.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+  }
+
+  private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 60000L;
+    while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50L);
+    }
+    assertEquals(expected, counter.get());
+  }
+
+  private static final class CollectingSink implements LogMessageSink {
+    final List<LogMessage> messages = Collections.synchronizedList(new ArrayList<LogMessage>());
+
+    @Override
+    public void accept(@Nonnull LogMessage message) {
+      messages.add(message);
+    }
+  }
+
+  private static final class CountingSink implements LogMessageSink {
+    final AtomicInteger records = new AtomicInteger();
+    final AtomicInteger multiLineRecords = new AtomicInteger();
+    final AtomicInteger errors = new AtomicInteger();
+
+    @Override
+    public void accept(@Nonnull LogMessage message) {
+      records.incrementAndGet();
+      if (message.getLines().size() == 3) {
+        multiLineRecords.incrementAndGet();
+      }
+      if (message.getSeverity() == Severity.ERROR) {
+        errors.incrementAndGet();
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.truward.brikar.log.template;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link TemplateMiner}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TemplateMinerTest {
+
+  @Test
+  public void shouldGeneralizeTemplate() {
+    // Given:
+    final TemplateMiner miner = new TemplateMiner();
+
+    // When:
+    final TemplateMatch first = miner.match("Connection to db-1 refused for user alice");
+    final TemplateMatch second = miner.match("Connection to db-2 refused for user bob");
+    final TemplateMatch third = miner.match("Connection to db-3 refused for user bob");
+    final TemplateMatch other = miner.match("Disk  full");
+
+    // Then:
+    assertEquals("Connection to <*> refused for user alice", first.getTemplate());
+    assertEquals(Arrays.asList("db-1"), first.getParameters());
+    assertTrue(first.isTemplateChanged());
+    assertEquals(1, first.getTemplateVersion());
+
+    assertEquals(first.getTemplateId(), second.getTemplateId());
+    assertEquals("Connection to <*> refused for user <*>", second.getTemplate());
+    assertEquals(Arrays.asList("db-2", "bob"), second.getParameters());
+    assertTrue(second.isTemplateChanged());
+    assertEquals(2, second.getTemplateVersion());
+
+    assertEquals(first.getTemplateId(), third.getTemplateId());
+    assertFalse(third.isTemplateChanged());
+    assertEquals(2, third.getTemplateVersion());
+
+    assertTrue(first.getTemplateId() != other.getTemplateId());
+    assertEquals("Disk  full", other.getTemplate());
+    assertEquals("Disk  full", LogTemplate.render(other.getTemplate(), other.getParameters()));
+    assertEquals(2, miner.getTemplateCount());
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedTemplate() {
+    // Given:
+    final TemplateMiner miner = new TemplateMiner(TemplateMiner.DEFAULT_DEPTH,
+        TemplateMiner.DEFAULT_SIMILARITY_THRESHOLD, TemplateMiner.DEFAULT_MAX_CHILDREN, 2);
+    final int started = miner.match("Application started").getTemplateId();
+    final int stopped = miner.match("Application stopped in 5 ms").getTemplateId();
+    miner.match("Application started");
+
+    // When:
+    final int failed = miner.match("Operation failed").getTemplateId();
+
+    // Then:
+    assertEquals(2, miner.getTemplateCount());
+    assertNull(miner.getTemplate(stopped));
+    assertEquals("Application started", miner.getTemplate(started));
+    assertEquals("Operation failed", miner.getTemplate(failed));
+    assertTrue(stopped != miner.match("Application stopped in 7 ms").getTemplateId());
+  }
+
+  @Test
+  public void shouldRestoreMessagesFromTemplateStream() {
+    // Given:
+    final TemplateMiner miner = new TemplateMiner(TemplateMiner.DEFAULT_DEPTH,
+        TemplateMiner.DEFAULT_SIMILARITY_THRESHOLD, TemplateMiner.DEFAULT_MAX_CHILDREN, 20);
+    final String[] verbs = {"created", "updated", "deleted", "read", "<*>"};
+    final String[] users = {"alice", "bob", "carol", "", "dave eve"};
+    final Random random = new Random(1L);
+    final Map<Integer, String> definitions = new HashMap<>();
+
+    for (int i = 0; i < 10000; ++i) {
+      final String message = (random.nextInt(3) == 0 ? "Item " : "Order ") + random.nextInt(1000) + ' ' +
+          verbs[random.nextInt(verbs.length)] + " by " + users[random.nextInt(users.length)] +
+          (random.nextBoolean() ? " in " + random.nextInt(100) + " ms" : "");
+
+      // When:
+      final TemplateMatch match = miner.match(message);
+      if (match.isTemplateChanged()) {
+        definitions.put(match.getTemplateId(), match.getTemplate());
+      }
+
+      // Then:
+      assertEquals(message, LogTemplate.render(definitions.get(match.getTemplateId()), match.getParameters()));
+    }
+    assertTrue(miner.getTemplateCount() <= 20);
+  }
+}
@@ -0,0 +1,197 @@
+package com.truward.brikar.log.trace;
+
+import com.truward.brikar.log.model.ByteSliceLogMessage;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.util.TestLogMessageBuilder;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link TraceAssembler}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TraceAssemblerTest {
+  private static final long START = 1437780076942L; // 2015-07-24 23:21:16,942
+  private static final long TIMEOUT = 1000L;
+
+  private final List<Trace> traces = new ArrayList<>();
+  private final TraceSink sink = new TraceSink() {
+    @Override
+    public void accept(@Nonnull Trace trace) {
+      traces.add(trace);
+    }
+  };
+
+  @Test
+  public void shouldAssembleTraceOnTimeout() {
+    // Given:
+    final TraceAssembler assembler = new TraceAssembler(sink, TIMEOUT, 100, Long.MAX_VALUE, 100);
+    assembler.accept(record(START + 20, Severity.INFO, "1", "Request finished"));
+    assembler.accept(record(START, Severity.INFO, "1", "Request started"));
+    assembler.accept(record(START + 5, Severity.INFO, "2", "Other request"));
+    assembler.accept(record(START + 10, Severity.ERROR, "1", "Call failed"));
+    assembler.accept(record(START + 15, Severity.INFO, "1", "@metric tDelta=7, op=getUser", "tDelta", "7"));
+    assembler.accept(record(START + 16, Severity.INFO, null, "No request"));
+    assertTrue(traces.isEmpty());
+
+    // When:
+    assembler.expire(System.currentTimeMillis() + TIMEOUT);
+
+    // Then:
+    assertEquals(2, traces.size());
+    assertEquals(0, assembler.getOpenTraceCount());
+    assertEquals(0L, assembler.getOpenTraceBytes());
+
+    // request, that has been idle the longest, completes first
+    assertEquals("2", traces.get(0).getRequestId());
+    assertFalse(traces.get(0).isError());
+
+    final Trace trace = traces.get(1);
+    assertEquals("1", trace.getRequestId());
+    assertEquals(Trace.Completion.TIMEOUT, trace.getCompletion());
+    assertEquals(Arrays.asList(START, START + 10, START + 15, START + 20), times(trace));
+    assertEquals(20L, trace.getDuration());
+    assertTrue(trace.isError());
+    assertEquals(Arrays.asList(7L), trace.getMetricDeltas());
+  }
+
+  @Test
+  public void shouldKeepRecentTracesOpen() {
+    // Given:
+    final TraceAssembler assembler = new TraceAssembler(sink, TIMEOUT, 100, Long.MAX_VALUE, 100);
+    assembler.accept(record(START, Severity.INFO, "1", "Request started"));
+
+    // When:
+    assembler.expire(System.currentTimeMillis());
+
+    // Then:
+    assertTrue(traces.isEmpty());
+    assertEquals(1, assembler.getOpenTraceCount());
+  }
+
+  @Test
+  public void shouldEvictIdleTracesOverLimits() {
+    // Given:
+    final TraceAssembler assembler = new TraceAssembler(sink, TIMEOUT, 2, Long.MAX_VALUE, 2);
+    assembler.accept(record(START, Severity.INFO, "1", "First"));
+    assembler.accept(record(START, Severity.INFO, "2", "Second"));
+    assembler.accept(record(START + 1, Severity.INFO, "1", "First again"));
+    assembler.accept(record(START + 2, Severity.INFO, "1", "First dropped"));
+
+    // When:
+    assembler.accept(record(START, Severity.INFO, "3", "Third"));
+
+    // Then:
+    assertEquals(1, traces.size());
+    assertEquals("2", traces.get(0).getRequestId());
+    assertEquals(Trace.Completion.EVICTED, traces.get(0).getCompletion());
+
+    // When:
+    assembler.flush();
+
+    // Then:
+    assertEquals(3, traces.size());
+    assertEquals("1", traces.get(1).getRequestId());
+    assertEquals(2, traces.get(1).getEvents().size());
+    assertEquals(1, traces.get(1).getDroppedEventCount());
+    assertEquals(Trace.Completion.FLUSHED, traces.get(1).getCompletion());
+    assertEquals("3", traces.get(2).getRequestId());
+  }
+
+  @Test
+  public void shouldKeepMemoryWithinBudget() {
+    // Given:
+    final long maxBytes = 64 * 1024;
+    final TraceAssembler assembler = new TraceAssembler(sink, TIMEOUT, Integer.MAX_VALUE, maxBytes, 100);
+
+    // When:
+    for (int i = 0; i < 1000; ++i) {
+      assembler.accept(record(START + i, Severity.INFO, Integer.toString(i), "Request " + i));
+      assertTrue(assembler.getOpenTraceBytes() <= maxBytes);
+    }
+
+    // Then:
+    assertTrue(traces.size() > 0);
+    assertEquals(1000, traces.size() + assembler.getOpenTraceCount());
+  }
+
+  @Test
+  public void shouldDetachRecordsFromReadBuffer() {
+    // Given:
+    final TraceAssembler assembler = new TraceAssembler(sink, TIMEOUT, 10, 1024 * 1024, 10);
+    final byte[] chunk = new byte[64 * 1024];
+    final byte[] line = "Request started".getBytes(StandardCharsets.UTF_8);
+    System.arraycopy(line, 0, chunk, 100, line.length);
+    final ByteSliceLogMessage message = ByteSliceLogMessage.record(START, Severity.INFO, chunk, 100, line.length);
+    message.putAttribute(TraceAssembler.REQUEST_ID_ATTRIBUTE, "1");
+
+    // When:
+    assembler.accept(message);
+    Arrays.fill(chunk, (byte) 'x'); // reader reuses the buffer
+    assembler.flush();
+
+    // Then:
+    assertEquals(1, traces.size());
+    assertEquals("Request started", traces.get(0).getEvents().get(0).getMessage());
+  }
+
+  @Test
+  public void shouldHandleManyConcurrentRequests() {
+    // Given:
+    final int requestCount = 100000;
+    final TraceAssembler assembler = new TraceAssembler(sink);
+
+    // When:
+    for (int step = 0; step < 3; ++step) {
+      for (int i = 0; i < requestCount; ++i) {
+        assembler.accept(record(START + step, Severity.INFO, Integer.toString(i), "Step " + step));
+      }
+    }
+    assembler.expire(System.currentTimeMillis() + TraceAssembler.DEFAULT_TIMEOUT_MILLIS);
+
+    // Then:
+    assertEquals(requestCount, traces.size());
+    final Set<String> requestIds = new HashSet<>();
+    for (final Trace trace : traces) {
+      assertEquals(Trace.Completion.TIMEOUT, trace.getCompletion());
+      assertEquals(3, trace.getEvents().size());
+      requestIds.add(trace.getRequestId());
+    }
+    assertEquals(requestCount, requestIds.size());
+  }
+
+  //
+  // Private
+  //
+
+  private static LogMessage record(long unixTime, Severity severity, String requestId, String message,
+                                   String... attributes) {
+    final TestLogMessageBuilder builder = new TestLogMessageBuilder(unixTime, severity).setMessage(message)
+        .putAttribute(TraceAssembler.REQUEST_ID_ATTRIBUTE, requestId);
+    for (int i = 0; i < attributes.length; i += 2) {
+      builder.putAttribute(attributes[i], attributes[i + 1]);
+    }
+    return builder.build();
+  }
+
+  private static List<Long> times(Trace trace) {
+    final List<Long> result = new ArrayList<>();
+    for (final LogMessage event : trace.getEvents()) {
+      result.add(event.getUnixTime());
+    }
+    return result;
+  }
+}
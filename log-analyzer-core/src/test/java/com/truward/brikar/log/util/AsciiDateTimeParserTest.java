@@ -0,0 +1,76 @@
+package com.truward.brikar.log.util;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.OffsetDateTime;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link AsciiDateTimeParser}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class AsciiDateTimeParserTest {
+
+  @Test
+  public void shouldParseSameAsSimpleDateFormat() throws Exception {
+    final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+    dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+    for (final String value : new String[] {
+        "2015-07-24 23:21:16,942", "1970-01-01 00:00:00,000", "2000-02-29 12:00:00,001", "2016-12-31 23:59:59,999",
+        "1969-12-31 23:59:59,999", "2100-03-01 01:02:03,004", "2016-02-29 00:00:00,000", "2015-04-30 10:00:00,000"
+    }) {
+      // When:
+      final long fromChars = AsciiDateTimeParser.parse("> " + value, 2);
+      final long fromBytes = AsciiDateTimeParser.parse(value.getBytes(StandardCharsets.US_ASCII), 0, value.length());
+
+      // Then:
+      final long expected = dateFormat.parse(value).getTime();
+      assertEquals(value, expected, fromChars);
+      assertEquals(value, expected, fromBytes);
+    }
+  }
+
+  @Test
+  public void shouldRejectMalformedValues() {
+    for (final String value : new String[] {
+        "2015-07-24 23:21:16", "2015-07-24T23:21:16,942", "2015-13-24 23:21:16,942", "2015-07-24 23:21:1a,942",
+        "2015-02-31 23:21:16,942", "2015-02-29 23:21:16,942", "1900-02-29 23:21:16,942", "2015-04-31 23:21:16,942",
+        "2015-07-00 23:21:16,942"
+    }) {
+      assertEquals(value, AsciiDateTimeParser.MALFORMED, AsciiDateTimeParser.parse(value, 0));
+    }
+  }
+
+  @Test
+  public void shouldParseIso8601() {
+    for (final String value : new String[] {
+        "2015-07-24T23:21:16.942Z", "2015-07-24T23:21:16Z", "2015-07-24T23:21:16.942123456+02:00",
+        "2015-07-24T23:21:16,9-0530", "2015-07-24T01:21:16.942+05"
+    }) {
+      // When:
+      final byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+      final long result = AsciiDateTimeParser.parseIso8601(bytes, 0, bytes.length);
+
+      // Then:
+      final String normalized = value.replace(',', '.').replaceAll("([+-]\\d{2})(\\d{2})$", "$1:$2")
+          .replaceAll("([+-]\\d{2})$", "$1:00");
+      assertEquals(value, OffsetDateTime.parse(normalized).toInstant().toEpochMilli(), result);
+    }
+
+    // timestamp without zone is UTC, date and time could be separated by space
+    final byte[] local = "2015-07-24 23:21:16.942".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(1437780076942L, AsciiDateTimeParser.parseIso8601(local, 0, local.length));
+
+    for (final String value : new String[] {"2015-07-24T23:21", "2015-07-24T23:21:16.", "2015-07-24T23:21:16+2",
+        "2015-07-24T23:21:16Zx"}) {
+      final byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+      assertEquals(value, AsciiDateTimeParser.MALFORMED, AsciiDateTimeParser.parseIso8601(bytes, 0, bytes.length));
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.truward.brikar.log.util;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link BytePattern}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class BytePatternTest {
+
+  @Test
+  public void shouldFindPattern() {
+    // Given:
+    final byte[] text = "at learn.LogProducerMain.doErrorOperation(LogProducerMain.java:145)"
+        .getBytes(StandardCharsets.UTF_8);
+
+    // Then:
+    assertEquals(9, new BytePattern("LogProducerMain", false).indexOf(text, 0, text.length));
+    assertEquals(42, new BytePattern("LogProducerMain", false).indexOf(text, 10, text.length));
+    assertEquals(-1, new BytePattern("LogProducerMain", false).indexOf(text, 10, 50));
+    assertEquals(-1, new BytePattern("logproducermain", false).indexOf(text, 0, text.length));
+    assertEquals(9, new BytePattern("logproducermain", true).indexOf(text, 0, text.length));
+    assertEquals(text.length - 1, new BytePattern(")", false).indexOf(text, 0, text.length));
+  }
+
+  @Test
+  public void shouldFindMultiByteCharacters() {
+    // Given:
+    final byte[] text = "Ошибка: файл не найден".getBytes(StandardCharsets.UTF_8);
+
+    // Then:
+    assertEquals("Ошибка: ".getBytes(StandardCharsets.UTF_8).length,
+        new BytePattern("файл", true).indexOf(text, 0, text.length));
+  }
+}
@@ -0,0 +1,48 @@
+package com.truward.brikar.log.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Hashing}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class HashingTest {
+
+  @Test
+  public void shouldMatchReferenceFnv1a() {
+    assertEquals(Hashing.FNV_OFFSET_BASIS, Hashing.fnv1a(Hashing.FNV_OFFSET_BASIS, ""));
+    assertEquals(0xaf63dc4c8601ec8cL, Hashing.fnv1a(Hashing.FNV_OFFSET_BASIS, "a"));
+    assertEquals(0x85944171f73967e8L, Hashing.fnv1a(Hashing.FNV_OFFSET_BASIS, "foobar"));
+  }
+
+  @Test
+  public void shouldContinueHashOverParts() {
+    // Given:
+    final long whole = Hashing.hash("rid=r1");
+
+    // When:
+    final long parts = Hashing.mix(Hashing.fnv1a(Hashing.fnv1a(Hashing.fnv1a(Hashing.FNV_OFFSET_BASIS, "rid"), '='),
+        "r1"));
+
+    // Then:
+    assertEquals(whole, parts);
+    assertEquals(whole, BloomFilter.hash("rid", "r1"));
+  }
+
+  @Test
+  public void shouldKeepPersistedHashes() {
+    // segment indexes written by the previous versions should still be found
+    assertEquals(2798334183102054879L, Hashing.hash("rid=r1"));
+    assertEquals(4879083034185056350L, Hashing.hash("node-1/app.log"));
+  }
+
+  @Test
+  public void shouldMixSimilarValues() {
+    assertTrue((Hashing.hash("file-1") >>> 48) != (Hashing.hash("file-2") >>> 48));
+    assertTrue((Hashing.mix(1L) & 0xffff) != (Hashing.mix(2L) & 0xffff));
+  }
+}
@@ -0,0 +1,60 @@
+package com.truward.brikar.log.util;
+
+import com.truward.brikar.log.model.ByteSliceLogMessage;
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.Severity;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link JsonLogMessageWriter}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class JsonLogMessageWriterTest {
+
+  @Test
+  public void shouldWriteByteSliceMessage() throws Exception {
+    // Given:
+    final byte[] buffer = "2015-07-24 23:21:16,942 INFO \"Привет\"\n\tat x.y(Z.java:1)\n"
+        .getBytes(StandardCharsets.UTF_8);
+    final int firstLineLength = buffer.length - "\n\tat x.y(Z.java:1)\n".length();
+    final ByteSliceLogMessage message = ByteSliceLogMessage.record(1437780076942L, Severity.INFO,
+        buffer, 0, firstLineLength);
+    message.addLine(ByteSliceLogMessage.multiLinePart(buffer, firstLineLength + 1,
+        buffer.length - firstLineLength - 2));
+    message.putAttribute("tDelta", 545L);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final JsonLogMessageWriter writer = new JsonLogMessageWriter(out, 16);
+
+    // When:
+    writer.write(message);
+    writer.flush();
+
+    // Then:
+    assertEquals("{\"lines\":[\"2015-07-24 23:21:16,942 INFO \\\"Привет\\\"\",\"\\tat x.y(Z.java:1)\"]," +
+        "\"severity\":\"INFO\",\"time\":1437780076942,\"attributes\":{\"tDelta\":545}}\n",
+        new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldWriteMaterializedMessage() throws Exception {
+    // Given:
+    final MaterializedLogMessage message = new MaterializedLogMessage(1L, Severity.ERROR, "a\\b\u0001");
+    message.putAttribute("rid", "KhnHxNK/BbLbaiH4");
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final JsonLogMessageWriter writer = new JsonLogMessageWriter(out);
+
+    // When:
+    writer.write(message);
+    writer.flush();
+
+    // Then:
+    assertEquals("{\"lines\":[\"a\\\\b\\u0001\"],\"severity\":\"ERROR\",\"time\":1," +
+        "\"attributes\":{\"rid\":\"KhnHxNK/BbLbaiH4\"}}\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+}
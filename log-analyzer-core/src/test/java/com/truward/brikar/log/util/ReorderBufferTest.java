@@ -0,0 +1,96 @@
+package com.truward.brikar.log.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ReorderBuffer}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class ReorderBufferTest {
+
+  @Test
+  public void shouldPassItemsInSequenceOrder() throws InterruptedException {
+    // Given:
+    final List<Long> consumed = new ArrayList<>();
+    final ReorderBuffer<Long> buffer = new ReorderBuffer<>(4, new Consumer<Long>() {
+      @Override
+      public void accept(Long item) {
+        consumed.add(item);
+      }
+    });
+    final long first = buffer.claim();
+    final long second = buffer.claim();
+    final long third = buffer.claim();
+
+    // When:
+    buffer.complete(third, third);
+    buffer.complete(second, second);
+    final int pendingBeforeFirst = buffer.getPendingCount();
+    buffer.complete(first, first);
+
+    // Then:
+    assertEquals(3, pendingBeforeFirst);
+    assertEquals(0, buffer.getPendingCount());
+    assertEquals(Arrays.asList(0L, 1L, 2L), consumed);
+  }
+
+  @Test
+  public void shouldRestoreOrderOfItemsCompletedByManyThreads() throws InterruptedException {
+    // Given:
+    final int itemCount = 100000;
+    final int capacity = 16;
+    final List<Long> consumed = Collections.synchronizedList(new ArrayList<Long>(itemCount));
+    final AtomicInteger concurrentCalls = new AtomicInteger();
+    final AtomicInteger maxConcurrentCalls = new AtomicInteger();
+    final ReorderBuffer<Long> buffer = new ReorderBuffer<>(capacity, new Consumer<Long>() {
+      @Override
+      public void accept(Long item) {
+        maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+        consumed.add(item);
+        concurrentCalls.decrementAndGet();
+      }
+    });
+    final ExecutorService workers = Executors.newFixedThreadPool(8);
+    final AtomicInteger maxPending = new AtomicInteger();
+
+    // When:
+    for (int i = 0; i < itemCount; ++i) {
+      final long sequence = buffer.claim();
+      maxPending.accumulateAndGet(buffer.getPendingCount(), Math::max);
+      workers.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (ThreadLocalRandom.current().nextInt(8) == 0) {
+            Thread.yield();
+          }
+          buffer.complete(sequence, sequence);
+        }
+      });
+    }
+    workers.shutdown();
+    assertTrue(workers.awaitTermination(1L, TimeUnit.MINUTES));
+
+    // Then:
+    assertEquals(itemCount, consumed.size());
+    for (int i = 0; i < itemCount; ++i) {
+      assertEquals(Long.valueOf(i), consumed.get(i));
+    }
+    assertEquals(1, maxConcurrentCalls.get());
+    assertTrue(maxPending.get() <= capacity);
+  }
+}
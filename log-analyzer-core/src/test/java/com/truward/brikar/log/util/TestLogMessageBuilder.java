@@ -0,0 +1,72 @@
+package com.truward.brikar.log.util;
+
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.Severity;
+import org.junit.Ignore;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builder of the records for the tests, that need records with the given attributes rather than parsed lines.
+ * Record text starts with the header, that matches its time, severity and logger, as if it has been parsed.
+ *
+ * @author Alexander Shabanov
+ */
+@Ignore
+public final class TestLogMessageBuilder {
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS")
+      .withZone(ZoneOffset.UTC);
+
+  private final long unixTime;
+  private final Severity severity;
+  private String loggerName = "learn.LogProducerMain";
+  private String message = "Message";
+  private final Map<String, Object> attributes = new LinkedHashMap<>();
+
+  public TestLogMessageBuilder(long unixTime, @Nonnull Severity severity) {
+    this.unixTime = unixTime;
+    this.severity = Objects.requireNonNull(severity, "severity");
+  }
+
+  @Nonnull
+  public TestLogMessageBuilder setLoggerName(@Nonnull String loggerName) {
+    this.loggerName = Objects.requireNonNull(loggerName, "loggerName");
+    return this;
+  }
+
+  @Nonnull
+  public TestLogMessageBuilder setMessage(@Nonnull String message) {
+    this.message = Objects.requireNonNull(message, "message");
+    return this;
+  }
+
+  /**
+   * Adds attribute to the record, null value is skipped, so that optional attributes could be given inline.
+   */
+  @Nonnull
+  public TestLogMessageBuilder putAttribute(@Nonnull String name, @Nullable Object value) {
+    if (value != null) {
+      attributes.put(Objects.requireNonNull(name, "name"), value);
+    }
+    return this;
+  }
+
+  @Nonnull
+  public MaterializedLogMessage build() {
+    final String header = DATE_FORMAT.format(Instant.ofEpochMilli(unixTime)) + ' ' + severity + ' ' + loggerName +
+        " [main] ";
+    final MaterializedLogMessage result = new MaterializedLogMessage(unixTime, severity, loggerName,
+        header + message, header.length());
+    for (final Map.Entry<String, Object> attribute : attributes.entrySet()) {
+      result.putAttribute(attribute.getKey(), attribute.getValue());
+    }
+    return result;
+  }
+}
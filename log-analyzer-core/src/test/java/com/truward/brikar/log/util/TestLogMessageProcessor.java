@@ -1,12 +1,14 @@
 package com.truward.brikar.log.util;
 
 import com.truward.brikar.log.model.*;
+import com.truward.brikar.log.parser.LogLineParser;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.junit.Ignore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -22,7 +24,7 @@ import java.util.regex.Pattern;
  * @author Alexander Shabanov
  */
 @Ignore
-public final class TestLogMessageProcessor implements Processor {
+public final class TestLogMessageProcessor implements Processor, LogLineParser {
 
   public static final Pattern RECORD_PATTERN = Pattern.compile(
       "^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3}) " + // date+time
@@ -60,8 +62,9 @@ public final class TestLogMessageProcessor implements Processor {
     exchange.getOut().setHeader("id", count);
   }
 
-  // visible for testing
-  public LogMessage parse(String line) {
+  @Nonnull
+  @Override
+  public LogMessage parse(@Nonnull String line) {
     final Matcher matcher = RECORD_PATTERN.matcher(line);
     if (!matcher.matches()) {
       return new MultiLinePartLogMessage(line);
@@ -82,7 +85,8 @@ public final class TestLogMessageProcessor implements Processor {
 
     final Severity severity = Severity.fromString(matcher.group(2), Severity.WARN);
 
-    final MaterializedLogMessage logMessage = new MaterializedLogMessage(date.getTime(), severity, line);
+    final MaterializedLogMessage logMessage = new MaterializedLogMessage(date.getTime(), severity, matcher.group(3), line,
+        matcher.start(5));
     addAttributesFromVariables(logMessage, matcher.group(4));
 
     final String message = matcher.group(5);
@@ -2,10 +2,15 @@ package com.truward.brikar.log.standard;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
- * Parser for command line arguments.
+ * Parser for command line arguments. Options of the source files and of the target endpoint are parsed here,
+ * options of the other features are parsed by their {@link OptionGroup}s.
  *
  * @author Alexander Shabanov
  */
@@ -17,26 +22,130 @@ public final class ArgParser {
   public static final long DEFAULT_MAX_STACKTRACE_POPULATION_TIME_MILLIS = 200L;
   public static final String DEFAULT_ENDPOINT = "stream:file?fileName=/dev/stdout";
 
+  /**
+   * Defines how source files are read.
+   */
+  public enum ReaderMode {
+    /**
+     * Each file is polled by Camel timer, which uses one platform thread per file. Lines are processed in batches
+     * unless batch size is zero, in which case Camel stream component produces an exchange per line.
+     */
+    CAMEL,
+
+    /**
+     * Each file is read by a virtual thread, lines are parsed by the shared pool of threads.
+     */
+    VIRTUAL,
+
+    /**
+     * Each file is read and processed by its own ring buffer engine, Camel is used only for the target endpoint.
+     */
+    RING
+  }
+
+  /**
+   * Defines how lines of the source files are parsed.
+   */
+  public enum InputFormat {
+    /**
+     * Lines are parsed as text records, that start with the time, severity and logger name.
+     */
+    TEXT,
+
+    /**
+     * Each line is a JSON object, the configured fields of which are extracted into the record.
+     */
+    JSON
+  }
+
+  /**
+   * Defines whether messages are matched against the templates before they are sent to the endpoint.
+   */
+  public enum TemplateMode {
+    /**
+     * Templates are not mined.
+     */
+    OFF,
+
+    /**
+     * Template ID, template and parameters are added to each record.
+     */
+    ANNOTATE,
+
+    /**
+     * Message text is replaced with template ID, version and parameters, template is sent to the template endpoint
+     * when it is created or changed.
+     */
+    COMPACT
+  }
+
+  /**
+   * Defines whether records are queued by priority before they are sent to the endpoint.
+   */
+  public enum LaneMode {
+    /**
+     * Records are sent to the endpoint by the route, that has produced them.
+     */
+    OFF,
+
+    /**
+     * ERROR and WARN records are sent by the priority lane, the rest of them by the bulk lane.
+     */
+    SEVERITY
+  }
+
   /**
    * Argument parsing result.
    */
   public static final class Result {
     private final long scanStreamDelay;
     private final String stopFileName;
-    private final String sourceFileName;
+    private final List<String> sourceFileNames;
+    private final String sourceDirectory;
     private final long stopFilePollingDelayMillis;
     private final int maxStacktraceSize;
     private final long maxStacktracePopulationTimeMillis;
     private final String endpoint;
-
-    public Result(long scanStreamDelay,
-                  String stopFileName,
-                  String sourceFileName,
-                  long stopFilePollingDelayMillis,
-                  int maxStacktraceSize,
-                  long maxStacktracePopulationTimeMillis,
-                  String endpoint) {
-      if (sourceFileName == null) {
+    private final String routesFileName;
+    private final ReaderOptions reader;
+    private final RollupOptions rollup;
+    private final TemplateOptions templates;
+    private final TraceOptions trace;
+    private final NdjsonOptions ndjson;
+    private final ShareOptions share;
+    private final SpikeOptions spike;
+    private final SketchOptions sketch;
+    private final SpoolOptions spool;
+    private final LaneOptions lanes;
+    private final FreshnessOptions freshness;
+    private final InputOptions input;
+    private final RecentOptions recent;
+
+    private Result(@Nonnull ArgParser parser) {
+      this.scanStreamDelay = parser.scanStreamDelay;
+      this.stopFileName = parser.stopFileName;
+      this.sourceFileNames = Collections.unmodifiableList(new ArrayList<>(parser.sourceFileNames));
+      this.sourceDirectory = parser.sourceDirectory;
+      this.stopFilePollingDelayMillis = parser.stopFilePollingDelayMillis;
+      this.maxStacktraceSize = parser.maxStacktraceSize;
+      this.maxStacktracePopulationTimeMillis = parser.maxStacktracePopulationTimeMillis;
+      this.endpoint = Objects.requireNonNull(parser.endpoint, "endpoint");
+      this.routesFileName = parser.routesFileName;
+      this.reader = parser.reader;
+      this.rollup = parser.rollup;
+      this.templates = parser.templates;
+      this.trace = parser.trace;
+      this.ndjson = parser.ndjson;
+      this.share = parser.share;
+      this.spike = parser.spike;
+      this.sketch = parser.sketch;
+      this.spool = parser.spool;
+      this.lanes = parser.lanes;
+      this.freshness = parser.freshness;
+      this.input = parser.input;
+      this.recent = parser.recent;
+
+      if (sourceFileNames.isEmpty() && sourceDirectory == null) {
         throw new IllegalArgumentException("Source file name is missing");
       }
 
@@ -56,13 +165,26 @@ public final class ArgParser {
         throw new IllegalArgumentException("Max stacktrace population time should be a positive number");
       }
 
-      this.scanStreamDelay = scanStreamDelay;
-      this.stopFileName = stopFileName;
-      this.sourceFileName = sourceFileName;
-      this.stopFilePollingDelayMillis = stopFilePollingDelayMillis;
-      this.maxStacktraceSize = maxStacktraceSize;
-      this.maxStacktracePopulationTimeMillis = maxStacktracePopulationTimeMillis;
-      this.endpoint = Objects.requireNonNull(endpoint, "endpoint");
+      for (final OptionGroup group : parser.groups) {
+        group.validate();
+      }
+
+      if (reader.getRingSize() <= maxStacktraceSize) {
+        throw new IllegalArgumentException("Ring size should be a power of two greater than max stacktrace size");
+      }
+
+      if (share.getDirectory() != null && (sourceDirectory == null || reader.getMode() != ReaderMode.VIRTUAL)) {
+        throw new IllegalArgumentException("Files could be shared only if source directory and virtual reader " +
+            "are used");
+      }
+
+      if (spool.getDirectory() != null && routesFileName != null) {
+        throw new IllegalArgumentException("Records could not be spooled if routing rules are used");
+      }
+
+      if (lanes.getMode() != LaneMode.OFF && routesFileName != null) {
+        throw new IllegalArgumentException("Priority lanes could not be used if routing rules are used");
+      }
     }
 
     public long getScanStreamDelay() {
@@ -74,9 +196,17 @@ public final class ArgParser {
       return stopFileName;
     }
 
+    /**
+     * @return Source files given in command line, excluding the ones in {@link #getSourceDirectory()}
+     */
     @Nonnull
-    public String getSourceFileName() {
-      return sourceFileName;
+    public List<String> getSourceFileNames() {
+      return sourceFileNames;
+    }
+
+    @Nullable
+    public String getSourceDirectory() {
+      return sourceDirectory;
     }
 
     public long getStopFilePollingDelayMillis() {
@@ -95,6 +225,79 @@ public final class ArgParser {
     public String getEndpoint() {
       return endpoint;
     }
+
+    /**
+     * @return Routing rules file or null, if all the records should be sent to the endpoint
+     */
+    @Nullable
+    public String getRoutesFileName() {
+      return routesFileName;
+    }
+
+    @Nonnull
+    public ReaderOptions getReader() {
+      return reader;
+    }
+
+    @Nonnull
+    public RollupOptions getRollup() {
+      return rollup;
+    }
+
+    @Nonnull
+    public TemplateOptions getTemplates() {
+      return templates;
+    }
+
+    @Nonnull
+    public TraceOptions getTrace() {
+      return trace;
+    }
+
+    @Nonnull
+    public NdjsonOptions getNdjson() {
+      return ndjson;
+    }
+
+    @Nonnull
+    public ShareOptions getShare() {
+      return share;
+    }
+
+    @Nonnull
+    public SpikeOptions getSpike() {
+      return spike;
+    }
+
+    @Nonnull
+    public SketchOptions getSketch() {
+      return sketch;
+    }
+
+    @Nonnull
+    public SpoolOptions getSpool() {
+      return spool;
+    }
+
+    @Nonnull
+    public LaneOptions getLanes() {
+      return lanes;
+    }
+
+    @Nonnull
+    public FreshnessOptions getFreshness() {
+      return freshness;
+    }
+
+    @Nonnull
+    public InputOptions getInput() {
+      return input;
+    }
+
+    @Nonnull
+    public RecentOptions getRecent() {
+      return recent;
+    }
   }
 
   // state
@@ -103,12 +306,30 @@ public final class ArgParser {
   // parsed variables
   private long scanStreamDelay = DEFAULT_SCAN_STREAM_DELAY_MILLIS;
   private String stopFileName = null;
-  private String sourceFileName;
+  private final List<String> sourceFileNames = new ArrayList<>();
+  private String sourceDirectory = null;
   private long stopFilePollingDelayMillis = DEFAULT_STOP_FILE_POLLING_DELAY_MILLIS;
   private int maxStacktraceSize = DEFAULT_MAX_STACKTRACE_SIZE;
   private long maxStacktracePopulationTimeMillis = DEFAULT_MAX_STACKTRACE_POPULATION_TIME_MILLIS;
   private String endpoint = DEFAULT_ENDPOINT;
-
+  private String routesFileName = null;
+
+  // feature options
+  private final ReaderOptions reader = new ReaderOptions();
+  private final RollupOptions rollup = new RollupOptions();
+  private final TemplateOptions templates = new TemplateOptions();
+  private final TraceOptions trace = new TraceOptions();
+  private final NdjsonOptions ndjson = new NdjsonOptions();
+  private final ShareOptions share = new ShareOptions();
+  private final SpikeOptions spike = new SpikeOptions();
+  private final SketchOptions sketch = new SketchOptions();
+  private final SpoolOptions spool = new SpoolOptions();
+  private final LaneOptions lanes = new LaneOptions();
+  private final FreshnessOptions freshness = new FreshnessOptions();
+  private final InputOptions input = new InputOptions();
+  private final RecentOptions recent = new RecentOptions();
+  private final List<OptionGroup> groups = Collections.unmodifiableList(Arrays.asList(reader, rollup, templates,
+      trace, ndjson, share, spike, sketch, spool, lanes, freshness, input, recent));
 
   public ArgParser(@Nonnull String[] args) {
     this.args = Objects.requireNonNull(args, "args");
@@ -126,33 +347,13 @@ public final class ArgParser {
 
   @Nonnull
   public final Result getParseResult() {
-    return new Result(scanStreamDelay, stopFileName, sourceFileName, stopFilePollingDelayMillis, maxStacktraceSize,
-        maxStacktracePopulationTimeMillis, endpoint);
+    return new Result(this);
   }
 
   //
   // Private
   //
 
-  @Nonnull
-  private String stringArgValue(int pos, @Nonnull String valueName) {
-    int nextPos = pos + 1;
-    if (nextPos < args.length) {
-      pos = nextPos;
-      return args[pos];
-    }
-    throw new IllegalStateException("Extra argument expected for " + valueName);
-  }
-
-  private int intArgValue(int pos, @Nonnull String valueName) {
-    final String arg = stringArgValue(pos, valueName);
-    try {
-      return Integer.parseInt(arg);
-    } catch (NumberFormatException e) {
-      throw new IllegalStateException("Unable to parse " + valueName, e);
-    }
-  }
-
   private int doParse() {
     // try find help switch (position doesn't matter, it overrides anything)
     for (final String arg : args) {
@@ -164,44 +365,56 @@ public final class ArgParser {
 
     // parse arguments
     for (int pos = 0; pos < args.length; ++pos) {
-      if (!parseCurrentArg(pos)) {
-        showHelp();
-        return -1;
-      }
+      pos = parseCurrentArg(pos);
     }
 
     return 0;
   }
 
-  protected boolean parseCurrentArg(int pos) {
+  /**
+   * @return Position of the last consumed argument, unknown arguments are skipped
+   */
+  private int parseCurrentArg(int pos) {
     if ("-f".equals(args[pos]) || "--file".equals(args[pos])) {
-      sourceFileName = stringArgValue(pos, "Source File Name");
+      sourceFileNames.add(OptionGroup.stringArgValue(args, pos, "Source File Name"));
+    } else if ("--dir".equals(args[pos])) {
+      sourceDirectory = OptionGroup.stringArgValue(args, pos, "Source Directory");
     } else if ("-e".equals(args[pos]) || "--endpoint".equals(args[pos])) {
-      endpoint = stringArgValue(pos, "Endpoint");
+      endpoint = OptionGroup.stringArgValue(args, pos, "Endpoint");
     } else if ("--scan-delay".equals(args[pos])) {
-      scanStreamDelay = intArgValue(pos, "Scan Delay");
+      scanStreamDelay = OptionGroup.intArgValue(args, pos, "Scan Delay");
     } else if ("--stop-file-name".equals(args[pos])) {
-      stopFileName = stringArgValue(pos, "Stop File Name");
-    } else if ("--stop-file-polling-delay".equals(args[pos])) {
-      stopFilePollingDelayMillis = intArgValue(pos, "Stop File Polling Delay");
+      stopFileName = OptionGroup.stringArgValue(args, pos, "Stop File Name");
     } else if ("--stop-file-polling-delay".equals(args[pos])) {
-      stopFilePollingDelayMillis = intArgValue(pos, "Stop File Polling Delay");
+      stopFilePollingDelayMillis = OptionGroup.intArgValue(args, pos, "Stop File Polling Delay");
     } else if ("--max-stacktrace-size".equals(args[pos])) {
-      maxStacktraceSize = intArgValue(pos, "Max Stacktrace Size");
+      maxStacktraceSize = OptionGroup.intArgValue(args, pos, "Max Stacktrace Size");
     } else if ("--max-stacktrace-population-time".equals(args[pos])) {
-      maxStacktracePopulationTimeMillis = intArgValue(pos, "Max Stacktrace Population Time");
+      maxStacktracePopulationTimeMillis = OptionGroup.intArgValue(args, pos, "Max Stacktrace Population Time");
+    } else if ("--routes".equals(args[pos])) {
+      routesFileName = OptionGroup.stringArgValue(args, pos, "Routes");
+    } else {
+      for (final OptionGroup group : groups) {
+        final int lastPos = group.parseArg(args, pos);
+        if (lastPos >= 0) {
+          return lastPos;
+        }
+      }
+      return pos;
     }
-
-    return true;
+    return pos + 1;
   }
 
   private void showHelp() {
-    System.out.println("Usage:\n" +
+    final StringBuilder help = new StringBuilder(8192);
+    help.append("Usage:\n" +
         "--help,-h                  Show help.\n" +
 
         "--file,-f {STRING}         Source file name.\n" +
-        "                           This is the required value, it should contain\n" +
-        "                           a path to the log file to analyze.\n" +
+        "                           This is the required value unless --dir is given, it should contain\n" +
+        "                           a path to the log file to analyze, may be repeated.\n" +
+
+        "--dir {STRING}             Source directory, all the files in it are analyzed.\n" +
 
         "--endpoint,-e {STRING}     Target camel endpoint.\n" +
         "                           This is the required value, it should conform to\n" +
@@ -221,8 +434,13 @@ public final class ArgParser {
 
         "--max-stacktrace-population-time {NUMBER} Time to wait, in milliseconds,\n" +
         "                           to populate the complete stacktrace for logging statement,\n" +
-        "                           default value=" + DEFAULT_MAX_STACKTRACE_SIZE + '\n' +
+        "                           default value=" + DEFAULT_MAX_STACKTRACE_POPULATION_TIME_MILLIS + '\n' +
 
-        "\n");
+        "--routes {STRING}          Properties file of the rules, that send records to different endpoints,\n" +
+        "                           records, that match no rule, are sent to --endpoint\n");
+    for (final OptionGroup group : groups) {
+      help.append(group.getHelp());
+    }
+    System.out.println(help.append('\n'));
   }
 }
@@ -0,0 +1,58 @@
+package com.truward.brikar.log.standard;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Options of the periodic freshness reports.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FreshnessOptions extends OptionGroup {
+  public static final int DEFAULT_PERIOD_SECONDS = 60;
+
+  private String endpoint = null;
+  private int periodSeconds = DEFAULT_PERIOD_SECONDS;
+
+  /**
+   * @return Endpoint of the periodic freshness reports or null, if they are only logged
+   */
+  @Nullable
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public int getPeriodSeconds() {
+    return periodSeconds;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--freshness-endpoint".equals(args[pos])) {
+      endpoint = stringArgValue(args, pos, "Freshness Endpoint");
+    } else if ("--freshness-period".equals(args[pos])) {
+      periodSeconds = intArgValue(args, pos, "Freshness Period");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (periodSeconds <= 0) {
+      throw new IllegalArgumentException("Freshness period should be a positive number");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--freshness-endpoint {STRING} Endpoint, that gets freshness lag of the records sent to the endpoint\n" +
+        "                           by source and severity and reader lag by source, lags are only logged\n" +
+        "                           by default\n" +
+
+        "--freshness-period {NUMBER} Seconds between freshness reports, default value=" +
+        DEFAULT_PERIOD_SECONDS + '\n';
+  }
+}
@@ -0,0 +1,88 @@
+package com.truward.brikar.log.standard;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Options of the format of the source lines.
+ *
+ * @author Alexander Shabanov
+ */
+public final class InputOptions extends OptionGroup {
+  public static final List<String> JSON_FIELD_KEYS = Collections.unmodifiableList(
+      Arrays.asList("time", "level", "logger", "message", "mdc", "stacktrace"));
+
+  private ArgParser.InputFormat format = ArgParser.InputFormat.TEXT;
+  private final Map<String, String> jsonFields = new LinkedHashMap<>();
+  private List<String> jsonAttributes = new ArrayList<>();
+
+  @Nonnull
+  public ArgParser.InputFormat getFormat() {
+    return format;
+  }
+
+  /**
+   * @param key One of {@link #JSON_FIELD_KEYS}
+   * @param defaultName Field name used if it has not been given
+   * @return Name of the JSON field, that has the given part of the record
+   */
+  @Nonnull
+  public String getJsonField(@Nonnull String key, @Nonnull String defaultName) {
+    final String name = jsonFields.get(key);
+    return name != null ? name : defaultName;
+  }
+
+  /**
+   * @return Top level JSON fields, that become record attributes
+   */
+  @Nonnull
+  public List<String> getJsonAttributes() {
+    return Collections.unmodifiableList(jsonAttributes);
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--input-format".equals(args[pos])) {
+      format = enumArgValue(args, pos, "Input Format", ArgParser.InputFormat.class);
+    } else if ("--json-fields".equals(args[pos])) {
+      for (final String field : listArgValue(args, pos, "JSON Fields")) {
+        final int separator = field.indexOf('=');
+        final String key = separator > 0 ? field.substring(0, separator).trim() : "";
+        if (!JSON_FIELD_KEYS.contains(key) || separator == field.length() - 1) {
+          throw new IllegalStateException("JSON field should be one of " + JSON_FIELD_KEYS + "=NAME: " + field);
+        }
+        jsonFields.put(key, field.substring(separator + 1).trim());
+      }
+    } else if ("--json-attributes".equals(args[pos])) {
+      jsonAttributes = listArgValue(args, pos, "JSON Attributes");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    // keys are checked while parsing
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--input-format {text|json} Format of the source lines, json expects a JSON object per line,\n" +
+        "                           default value=text\n" +
+
+        "--json-fields {LIST}       Comma separated KEY=NAME pairs, that override names of the JSON fields,\n" +
+        "                           keys are time, level, logger, message, mdc and stacktrace, default value=\n" +
+        "                           time=@timestamp,level=level,logger=logger_name,message=message,mdc=mdc,\n" +
+        "                           stacktrace=stack_trace\n" +
+
+        "--json-attributes {LIST}   Comma separated top level JSON fields, that become record attributes\n" +
+        "                           in addition to the members of mdc, e.g. hostname\n";
+  }
+}
@@ -0,0 +1,113 @@
+package com.truward.brikar.log.standard;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Options of queueing records by priority before they are sent to the endpoint.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LaneOptions extends OptionGroup {
+  public static final int DEFAULT_PRIORITY_BATCH_SIZE = 16;
+  public static final long DEFAULT_PRIORITY_LINGER_MILLIS = 5L;
+  public static final int DEFAULT_PRIORITY_SENDERS = 2;
+  public static final int DEFAULT_BULK_BATCH_SIZE = 512;
+  public static final long DEFAULT_BULK_LINGER_MILLIS = 200L;
+  public static final int DEFAULT_BULK_SENDERS = 1;
+
+  private ArgParser.LaneMode mode = ArgParser.LaneMode.OFF;
+  private int priorityBatchSize = DEFAULT_PRIORITY_BATCH_SIZE;
+  private long priorityLingerMillis = DEFAULT_PRIORITY_LINGER_MILLIS;
+  private int prioritySenders = DEFAULT_PRIORITY_SENDERS;
+  private int bulkBatchSize = DEFAULT_BULK_BATCH_SIZE;
+  private long bulkLingerMillis = DEFAULT_BULK_LINGER_MILLIS;
+  private int bulkSenders = DEFAULT_BULK_SENDERS;
+
+  @Nonnull
+  public ArgParser.LaneMode getMode() {
+    return mode;
+  }
+
+  public int getPriorityBatchSize() {
+    return priorityBatchSize;
+  }
+
+  public long getPriorityLingerMillis() {
+    return priorityLingerMillis;
+  }
+
+  public int getPrioritySenders() {
+    return prioritySenders;
+  }
+
+  public int getBulkBatchSize() {
+    return bulkBatchSize;
+  }
+
+  public long getBulkLingerMillis() {
+    return bulkLingerMillis;
+  }
+
+  public int getBulkSenders() {
+    return bulkSenders;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--lanes".equals(args[pos])) {
+      mode = enumArgValue(args, pos, "Lanes Mode", ArgParser.LaneMode.class);
+    } else if ("--priority-batch".equals(args[pos])) {
+      priorityBatchSize = intArgValue(args, pos, "Priority Batch");
+    } else if ("--priority-linger".equals(args[pos])) {
+      priorityLingerMillis = intArgValue(args, pos, "Priority Linger");
+    } else if ("--priority-senders".equals(args[pos])) {
+      prioritySenders = intArgValue(args, pos, "Priority Senders");
+    } else if ("--bulk-batch".equals(args[pos])) {
+      bulkBatchSize = intArgValue(args, pos, "Bulk Batch");
+    } else if ("--bulk-linger".equals(args[pos])) {
+      bulkLingerMillis = intArgValue(args, pos, "Bulk Linger");
+    } else if ("--bulk-senders".equals(args[pos])) {
+      bulkSenders = intArgValue(args, pos, "Bulk Senders");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (priorityBatchSize <= 0 || prioritySenders <= 0 || bulkBatchSize <= 0 || bulkSenders <= 0) {
+      throw new IllegalArgumentException("Lane batch sizes and sender counts should be positive numbers");
+    }
+
+    if (priorityLingerMillis < 0 || bulkLingerMillis < 0) {
+      throw new IllegalArgumentException("Lane linger time should not be negative");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--lanes {off|severity}     Whether records are queued by priority before they are sent to the endpoint:\n" +
+        "                           severity sends ERROR and WARN records by the priority lane and the rest\n" +
+        "                           of them by the bulk lane, each with its own senders, default value=off\n" +
+
+        "--priority-batch {NUMBER}  Maximum number of records taken at once by the priority lane sender,\n" +
+        "                           default value=" + DEFAULT_PRIORITY_BATCH_SIZE + '\n' +
+
+        "--priority-linger {NUMBER} Time in milliseconds the priority lane waits for its batch to fill,\n" +
+        "                           default value=" + DEFAULT_PRIORITY_LINGER_MILLIS + '\n' +
+
+        "--priority-senders {NUMBER} Number of threads, reserved for sending priority records,\n" +
+        "                           default value=" + DEFAULT_PRIORITY_SENDERS + '\n' +
+
+        "--bulk-batch {NUMBER}      Maximum number of records taken at once by the bulk lane sender,\n" +
+        "                           default value=" + DEFAULT_BULK_BATCH_SIZE + '\n' +
+
+        "--bulk-linger {NUMBER}     Time in milliseconds the bulk lane waits for its batch to fill,\n" +
+        "                           default value=" + DEFAULT_BULK_LINGER_MILLIS + '\n' +
+
+        "--bulk-senders {NUMBER}    Number of threads sending bulk records, default value=" +
+        DEFAULT_BULK_SENDERS + '\n';
+  }
+}
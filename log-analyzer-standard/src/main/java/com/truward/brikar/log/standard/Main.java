@@ -1,12 +1,13 @@
 package com.truward.brikar.log.standard;
 
-import com.truward.brikar.log.camel.MalformedLineFilter;
-import com.truward.brikar.log.camel.MalformedLogMessageFilter;
-import com.truward.brikar.log.camel.MultiLineAggregationStrategy;
-import com.truward.brikar.log.standard.camel.LogMessageProcessor;
-import com.truward.brikar.log.standard.camel.LogMessageToMapProcessor;
-import org.apache.camel.builder.RouteBuilder;
-import org.apache.camel.impl.DefaultCamelContext;
+import com.truward.brikar.log.standard.lookup.LookupArgParser;
+import com.truward.brikar.log.standard.lookup.LookupCommand;
+import com.truward.brikar.log.standard.merge.MergeArgParser;
+import com.truward.brikar.log.standard.merge.MergeCommand;
+import com.truward.brikar.log.standard.rollup.RollupArgParser;
+import com.truward.brikar.log.standard.rollup.RollupCommand;
+import com.truward.brikar.log.standard.search.SearchArgParser;
+import com.truward.brikar.log.standard.search.SearchCommand;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -19,6 +20,23 @@ import java.io.File;
 public final class Main {
 
   public static void main(String[] args) throws Exception {
+    if (SearchArgParser.isSearchCommand(args)) {
+      search(args);
+      return;
+    }
+    if (RollupArgParser.isRollupCommand(args)) {
+      rollup(args);
+      return;
+    }
+    if (LookupArgParser.isLookupCommand(args)) {
+      lookup(args);
+      return;
+    }
+    if (MergeArgParser.isMergeCommand(args)) {
+      merge(args);
+      return;
+    }
+
     final ArgParser argParser = new ArgParser(args);
     final int argParseResult = argParser.parse();
     if (argParseResult < 0) {
@@ -35,72 +53,78 @@ public final class Main {
 
   private Main() {} // Hidden ctor
 
+  private static void search(@Nonnull String[] args) throws Exception {
+    final SearchArgParser argParser = new SearchArgParser(args);
+    final int argParseResult = argParser.parse();
+    if (argParseResult < 0) {
+      System.exit(argParseResult);
+      return;
+    }
+
+    new SearchCommand(argParser.getParseResult()).run(System.out);
+  }
+
+  private static void rollup(@Nonnull String[] args) throws Exception {
+    final RollupArgParser argParser = new RollupArgParser(args);
+    final int argParseResult = argParser.parse();
+    if (argParseResult < 0) {
+      System.exit(argParseResult);
+      return;
+    }
+
+    new RollupCommand(argParser.getParseResult()).run(System.out);
+  }
+
+  private static void lookup(@Nonnull String[] args) throws Exception {
+    final LookupArgParser argParser = new LookupArgParser(args);
+    final int argParseResult = argParser.parse();
+    if (argParseResult < 0) {
+      System.exit(argParseResult);
+      return;
+    }
+
+    new LookupCommand(argParser.getParseResult()).run(System.out);
+  }
+
+  private static void merge(@Nonnull String[] args) throws Exception {
+    final MergeArgParser argParser = new MergeArgParser(args);
+    final int argParseResult = argParser.parse();
+    if (argParseResult < 0) {
+      System.exit(argParseResult);
+      return;
+    }
+
+    new MergeCommand(argParser.getParseResult()).run(System.out);
+  }
+
   private static void start(@Nonnull ArgParser.Result args) throws Exception {
     final File stopFile = args.getStopFileName() != null ? new File(args.getStopFileName()) : null;
 
-    final DefaultCamelContext context = new DefaultCamelContext();
+    final Pipeline pipeline = new Pipeline(args);
     Runtime.getRuntime().addShutdownHook(new Thread() {
       @Override
       public void run() {
-        if (context.isStoppingOrStopped()) {
+        if (pipeline.isStoppingOrStopped()) {
           return;
         }
 
         System.out.println("Shutting down context...");
         try {
-          context.stop();
+          pipeline.close();
         } catch (Exception ignored) {
           // suppress
         }
       }
     });
 
-    context.addRoutes(new MainRouteBuilder(args.getScanStreamDelay(), args.getSourceFileName(),
-        args.getMaxStacktraceSize(), args.getMaxStacktracePopulationTimeMillis(), args.getEndpoint()));
-
     try {
-      context.start();
+      pipeline.start();
 
       while (stopFile == null || !stopFile.exists()) {
         Thread.sleep(args.getStopFilePollingDelayMillis());
       }
     } finally {
-      context.stop();
-    }
-  }
-
-  private static final class MainRouteBuilder extends RouteBuilder {
-    private final long scanDelay;
-    private final String fileName;
-    private final int maxStacktraceSize;
-    private final long maxStacktracePopulationTime;
-    private final String endpoint;
-
-    public MainRouteBuilder(long scanDelay, String fileName, int maxStacktraceSize, long maxStacktracePopulationTime,
-                            String endpoint) {
-      this.scanDelay = scanDelay;
-      this.fileName = fileName;
-      this.maxStacktraceSize = maxStacktraceSize;
-      this.maxStacktracePopulationTime = maxStacktracePopulationTime;
-      this.endpoint = endpoint;
-    }
-
-    @Override
-    public void configure() throws Exception {
-      from("stream:file?fileName=" + fileName + "&scanStream=true&scanStreamDelay=" + scanDelay)
-          .split(body(String.class).regexTokenize("\n"))
-          .filter(new MalformedLineFilter())
-          .process(new LogMessageProcessor())
-
-          .aggregate(new MultiLineAggregationStrategy())
-          .header("id").completionSize(maxStacktraceSize).completionInterval(maxStacktracePopulationTime)
-
-          .filter(new MalformedLogMessageFilter())
-
-          .process(new LogMessageToMapProcessor())
-
-          .to(endpoint)
-      ;
+      pipeline.close();
     }
   }
 }
@@ -0,0 +1,124 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.sink.RollingFileSink;
+import com.truward.brikar.log.sink.SegmentIndex;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Options of writing records to the local NDJSON segment files.
+ *
+ * @author Alexander Shabanov
+ */
+public final class NdjsonOptions extends OptionGroup {
+  public static final int DEFAULT_SEGMENT_MB = (int) (RollingFileSink.DEFAULT_MAX_SEGMENT_BYTES / (1024 * 1024));
+  public static final int DEFAULT_SEGMENT_SECONDS = (int) (RollingFileSink.DEFAULT_MAX_SEGMENT_MILLIS / 1000L);
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = RollingFileSink.DEFAULT_SYNC_INTERVAL_MILLIS;
+  public static final double DEFAULT_INDEX_FPP = SegmentIndex.DEFAULT_FALSE_POSITIVE_RATE;
+
+  private String directory = null;
+  private RollingFileSink.Compression compression = RollingFileSink.Compression.NONE;
+  private int segmentMegabytes = DEFAULT_SEGMENT_MB;
+  private int segmentSeconds = DEFAULT_SEGMENT_SECONDS;
+  private long syncIntervalMillis = DEFAULT_SYNC_INTERVAL_MILLIS;
+  private final List<String> indexAttributes = new ArrayList<>();
+  private double indexFalsePositiveRate = DEFAULT_INDEX_FPP;
+
+  /**
+   * @return Directory of the NDJSON segment files or null, if records should not be written to files
+   */
+  @Nullable
+  public String getDirectory() {
+    return directory;
+  }
+
+  @Nonnull
+  public RollingFileSink.Compression getCompression() {
+    return compression;
+  }
+
+  public int getSegmentMegabytes() {
+    return segmentMegabytes;
+  }
+
+  public int getSegmentSeconds() {
+    return segmentSeconds;
+  }
+
+  public long getSyncIntervalMillis() {
+    return syncIntervalMillis;
+  }
+
+  /**
+   * @return Names of the attributes, which values are put to the index of each segment file
+   */
+  @Nonnull
+  public List<String> getIndexAttributes() {
+    return Collections.unmodifiableList(indexAttributes);
+  }
+
+  public double getIndexFalsePositiveRate() {
+    return indexFalsePositiveRate;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--ndjson-dir".equals(args[pos])) {
+      directory = stringArgValue(args, pos, "NDJSON Directory");
+    } else if ("--ndjson-compression".equals(args[pos])) {
+      compression = enumArgValue(args, pos, "Compression", RollingFileSink.Compression.class);
+    } else if ("--ndjson-segment-size".equals(args[pos])) {
+      segmentMegabytes = intArgValue(args, pos, "NDJSON Segment Size");
+    } else if ("--ndjson-segment-time".equals(args[pos])) {
+      segmentSeconds = intArgValue(args, pos, "NDJSON Segment Time");
+    } else if ("--ndjson-sync-interval".equals(args[pos])) {
+      syncIntervalMillis = intArgValue(args, pos, "NDJSON Sync Interval");
+    } else if ("--ndjson-index-attributes".equals(args[pos])) {
+      indexAttributes.addAll(listArgValue(args, pos, "NDJSON Index Attributes"));
+    } else if ("--ndjson-index-fpp".equals(args[pos])) {
+      indexFalsePositiveRate = doubleArgValue(args, pos, "NDJSON Index False Positive Rate");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (segmentMegabytes <= 0 || segmentSeconds <= 0 || syncIntervalMillis <= 0) {
+      throw new IllegalArgumentException("NDJSON segment limits and sync interval should be positive numbers");
+    }
+
+    if (indexFalsePositiveRate <= 0.0 || indexFalsePositiveRate >= 1.0) {
+      throw new IllegalArgumentException("NDJSON index false positive rate should be between 0 and 1");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--ndjson-dir {STRING}      Directory, where records are written as NDJSON segment files in addition\n" +
+        "                           to the endpoint, files are not written by default\n" +
+
+        "--ndjson-compression {none|gzip} Compression of the segment files, default value=none\n" +
+
+        "--ndjson-segment-size {NUMBER} Megabytes written to the segment file before the next one is started,\n" +
+        "                           default value=" + DEFAULT_SEGMENT_MB + '\n' +
+
+        "--ndjson-segment-time {NUMBER} Seconds after which the next segment file is started,\n" +
+        "                           default value=" + DEFAULT_SEGMENT_SECONDS + '\n' +
+
+        "--ndjson-sync-interval {NUMBER} Time in milliseconds between syncs of the segment file to disk,\n" +
+        "                           default value=" + DEFAULT_SYNC_INTERVAL_MILLIS + '\n' +
+
+        "--ndjson-index-attributes {LIST} Comma separated attribute names, which values are indexed per segment\n" +
+        "                           file for the lookup command, e.g. rid,oid, nothing is indexed by default\n" +
+
+        "--ndjson-index-fpp {NUMBER} False positive rate of the segment index, default value=" +
+        DEFAULT_INDEX_FPP + '\n';
+  }
+}
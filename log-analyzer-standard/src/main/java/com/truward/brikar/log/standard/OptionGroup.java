@@ -0,0 +1,94 @@
+package com.truward.brikar.log.standard;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Options of a single feature of the main command, such as spooling or sketches: each group parses its own
+ * switches, checks their values and describes them in help, {@link ArgParser} only passes arguments to the groups.
+ * Errors in the arguments are reported by throwing {@link IllegalStateException}, invalid values are reported
+ * by throwing {@link IllegalArgumentException} once parsing is complete.
+ *
+ * @author Alexander Shabanov
+ */
+public abstract class OptionGroup {
+
+  /**
+   * @param args Command line arguments
+   * @param pos Position of the current argument
+   * @return Position of the last consumed argument or -1, if the current argument is not an option of this group
+   */
+  protected abstract int parseArg(@Nonnull String[] args, int pos);
+
+  /**
+   * Checks the parsed values, called once all the arguments are parsed.
+   */
+  protected abstract void validate();
+
+  /**
+   * @return Help on the options of the group, one option per paragraph
+   */
+  @Nonnull
+  protected abstract String getHelp();
+
+  @Nonnull
+  protected static String stringArgValue(@Nonnull String[] args, int pos, @Nonnull String valueName) {
+    final int nextPos = pos + 1;
+    if (nextPos < args.length) {
+      return args[nextPos];
+    }
+    throw new IllegalStateException("Extra argument expected for " + valueName);
+  }
+
+  protected static int intArgValue(@Nonnull String[] args, int pos, @Nonnull String valueName) {
+    final String arg = stringArgValue(args, pos, valueName);
+    try {
+      return Integer.parseInt(arg);
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Unable to parse " + valueName, e);
+    }
+  }
+
+  protected static double doubleArgValue(@Nonnull String[] args, int pos, @Nonnull String valueName) {
+    final String arg = stringArgValue(args, pos, valueName);
+    try {
+      return Double.parseDouble(arg);
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Unable to parse " + valueName, e);
+    }
+  }
+
+  /**
+   * @return Constant of the given enum, which name matches the argument regardless of case
+   */
+  @Nonnull
+  protected static <E extends Enum<E>> E enumArgValue(@Nonnull String[] args, int pos, @Nonnull String valueName,
+                                                      @Nonnull Class<E> type) {
+    final String arg = stringArgValue(args, pos, valueName);
+    try {
+      return Enum.valueOf(type, arg.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalStateException("Unknown " + valueName.toLowerCase() + ": " + arg, e);
+    }
+  }
+
+  /**
+   * @return Non-empty trimmed items of the comma separated argument
+   */
+  @Nonnull
+  protected static List<String> listArgValue(@Nonnull String[] args, int pos, @Nonnull String valueName) {
+    return splitList(stringArgValue(args, pos, valueName));
+  }
+
+  @Nonnull
+  protected static List<String> splitList(@Nonnull String value) {
+    final List<String> result = new ArrayList<>();
+    for (final String name : value.split(",")) {
+      if (!name.trim().isEmpty()) {
+        result.add(name.trim());
+      }
+    }
+    return result;
+  }
+}
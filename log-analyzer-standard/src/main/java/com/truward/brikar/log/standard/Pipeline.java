@@ -0,0 +1,913 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.alert.SpikeDetector;
+import com.truward.brikar.log.camel.FileTailProcessor;
+import com.truward.brikar.log.camel.LineBatchSplitter;
+import com.truward.brikar.log.camel.MalformedLineFilter;
+import com.truward.brikar.log.camel.MalformedLogMessageFilter;
+import com.truward.brikar.log.camel.MultiLineAggregationStrategy;
+import com.truward.brikar.log.camel.RecordIdProcessor;
+import com.truward.brikar.log.camel.RecordTapProcessor;
+import com.truward.brikar.log.camel.RoutingProcessor;
+import com.truward.brikar.log.engine.RingBufferEngine;
+import com.truward.brikar.log.engine.RingBufferFileReader;
+import com.truward.brikar.log.governor.ResourceGovernor;
+import com.truward.brikar.log.lane.Lane;
+import com.truward.brikar.log.metric.FreshnessReport;
+import com.truward.brikar.log.metric.FreshnessTracker;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.JsonLineParser;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.recent.RecentRecordStore;
+import com.truward.brikar.log.rollup.RollupStore;
+import com.truward.brikar.log.routing.RoutingRules;
+import com.truward.brikar.log.routing.RoutingTable;
+import com.truward.brikar.log.share.WorkSharingCoordinator;
+import com.truward.brikar.log.sketch.SketchAggregator;
+import com.truward.brikar.log.spool.DiskSpool;
+import com.truward.brikar.log.sink.BatchingSink;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.sink.RollingFileSink;
+import com.truward.brikar.log.standard.camel.FreshnessAckProcessor;
+import com.truward.brikar.log.standard.camel.FreshnessReportToMapProcessor;
+import com.truward.brikar.log.standard.camel.FreshnessStampProcessor;
+import com.truward.brikar.log.standard.camel.FusedBatchProcessor;
+import com.truward.brikar.log.standard.camel.LaneProcessor;
+import com.truward.brikar.log.standard.camel.LogMessageProcessor;
+import com.truward.brikar.log.standard.camel.LogMessageToMapProcessor;
+import com.truward.brikar.log.standard.camel.RecordBatchProcessor;
+import com.truward.brikar.log.standard.camel.SketchSummaryToMapProcessor;
+import com.truward.brikar.log.standard.camel.SpikeAlertToMapProcessor;
+import com.truward.brikar.log.standard.camel.SpoolingProcessor;
+import com.truward.brikar.log.standard.camel.TemplateToMapProcessor;
+import com.truward.brikar.log.standard.camel.TraceToMapProcessor;
+import com.truward.brikar.log.standard.recent.RecentQueryServer;
+import com.truward.brikar.log.tail.VirtualThreadTailService;
+import com.truward.brikar.log.template.TemplateMatch;
+import com.truward.brikar.log.template.TemplateMiner;
+import com.truward.brikar.log.trace.TraceAssembler;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.model.ProcessorDefinition;
+import org.apache.camel.impl.DefaultCamelContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Log analysis pipeline, configured from the command line arguments: Camel context with its routes
+ * and the readers of the source files. Assembled records are passed to the local consumers, such as
+ * rollup store, before they are converted for the target endpoint. If routing rules are given, each record
+ * is sent to the endpoints of the matching rules instead. If spool directory is given, records are spooled
+ * to disk while the endpoint is unhealthy, see {@link SpoolingProcessor}. If lanes are used, records are queued
+ * by severity to the lanes, that send them to the endpoint, see {@link LaneProcessor}. Freshness lag of the records,
+ * accepted by the endpoint, and reader lag of the source files are tracked by {@link FreshnessTracker}.
+ * If CPU share or read rate is limited, readers are paced by {@link ResourceGovernor}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class Pipeline implements AutoCloseable {
+  private static final String RECORDS_URI = "direct:records";
+  private static final String TRACES_URI = "direct:traces";
+  private static final String ALERTS_URI = "direct:alerts";
+  private static final String SKETCHES_URI = "direct:sketches";
+  private static final String TEMPLATES_URI = "direct:templates";
+  private static final String SPOOL_URI = "direct:spool";
+  private static final String DEAD_LETTER_DIRECTORY = "dead-letter";
+  private static final String LANES_URI = "direct:lanes";
+  private static final String LANE_BATCHES_URI = "direct:lane-batches";
+  private static final String LANE_FAILED_PROPERTY = "LaneFailedCount";
+  private static final String SINK_URI = "direct:sink";
+  private static final String FRESHNESS_URI = "direct:freshness";
+  private static final int LANE_CAPACITY_BATCHES = 64;
+  private static final long SPIKE_INTERVAL_MILLIS = 1000L;
+  private static final long TRACE_EXPIRATION_PERIOD_MILLIS = 1000L;
+  private static final long REPORT_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final ArgParser.Result args;
+  private final List<Path> sourceFiles;
+  private final DefaultCamelContext context = new DefaultCamelContext();
+  private final List<AutoCloseable> readers = new ArrayList<>();
+  private final List<LogMessageSink> recordListeners = new ArrayList<>();
+  private final RollupStore rollupStore;
+  private final RoutingTable routingTable;
+  private final TraceAssembler traceAssembler;
+  private final SketchAggregator sketchAggregator;
+  private final RollingFileSink fileSink;
+  private final SpoolingProcessor spoolingProcessor;
+  private final LaneProcessor laneProcessor;
+  private final ResourceGovernor governor;
+  private final LogLineParser parser;
+  private final RecentRecordStore recentStore;
+  private volatile RecentQueryServer recentServer;
+  private final FreshnessTracker freshnessTracker = new FreshnessTracker(System.currentTimeMillis());
+  private final Map<String, LongSupplier> readerPositions = new ConcurrentHashMap<>();
+  private final Map<String, BatchingSink> recordBatches = new ConcurrentHashMap<>();
+  private volatile VirtualThreadTailService tailService;
+
+  public Pipeline(@Nonnull ArgParser.Result args) throws Exception {
+    this.args = Objects.requireNonNull(args, "args");
+    this.sourceFiles = getSourceFiles(args);
+
+    final RollupOptions rollup = args.getRollup();
+    if (rollup.getDirectory() != null) {
+      rollupStore = new RollupStore(Paths.get(rollup.getDirectory()), rollup.getAttributes(),
+          TimeUnit.DAYS.toMillis(rollup.getRetentionDays()));
+      recordListeners.add(rollupStore);
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:rollup?period=" + rollup.getFlushPeriodMillis())
+              .process(exchange -> rollupStore.flush());
+        }
+      });
+    } else {
+      rollupStore = null;
+    }
+
+    if (args.getRoutesFileName() != null) {
+      routingTable = new RoutingTable(RoutingRules.load(Paths.get(args.getRoutesFileName())),
+          Collections.singletonList(args.getEndpoint()));
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:routing?period=" + REPORT_PERIOD_MILLIS)
+              .process(exchange -> log.info("Routing rule hits: {}", routingTable.getHitCounts()));
+        }
+      });
+    } else {
+      routingTable = null;
+    }
+
+    final TraceOptions traceOptions = args.getTrace();
+    if (traceOptions.getEndpoint() != null) {
+      final ProducerTemplate traceTemplate = context.createProducerTemplate();
+      traceAssembler = new TraceAssembler(trace -> traceTemplate.sendBody(TRACES_URI, trace),
+          traceOptions.getTimeoutMillis(), traceOptions.getMaxRequests(),
+          traceOptions.getMemoryMegabytes() * 1024L * 1024L, TraceAssembler.DEFAULT_MAX_EVENTS);
+      recordListeners.add(traceAssembler);
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:traces?period=" + TRACE_EXPIRATION_PERIOD_MILLIS)
+              .process(exchange -> traceAssembler.expire(System.currentTimeMillis()));
+
+          from(TRACES_URI)
+              .process(new TraceToMapProcessor())
+              .to(traceOptions.getEndpoint());
+        }
+      });
+    } else {
+      traceAssembler = null;
+    }
+
+    final SpikeOptions spike = args.getSpike();
+    if (spike.getEndpoint() != null) {
+      final ProducerTemplate alertTemplate = context.createProducerTemplate();
+      final SpikeDetector spikeDetector = new SpikeDetector(alert -> alertTemplate.sendBody(ALERTS_URI, alert),
+          spike.getMaxKeys(), spike.getBaselineSeconds(), spike.getThreshold(), spike.getMinCount());
+      recordListeners.add(spikeDetector);
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:spikes?period=" + SPIKE_INTERVAL_MILLIS)
+              .process(exchange -> spikeDetector.tick(System.currentTimeMillis()));
+
+          from(ALERTS_URI)
+              .process(new SpikeAlertToMapProcessor())
+              .to(spike.getEndpoint());
+        }
+      });
+    }
+
+    final SketchOptions sketch = args.getSketch();
+    if (sketch.getEndpoint() != null) {
+      final ProducerTemplate sketchTemplate = context.createProducerTemplate();
+      sketchAggregator = new SketchAggregator(summary -> sketchTemplate.sendBody(SKETCHES_URI, summary),
+          sketch.getTopAttributes(), sketch.getDistinctAttributes(), sketch.getTop(),
+          sketch.getPrecision(), System.currentTimeMillis());
+      recordListeners.add(sketchAggregator);
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:sketches?delay=" + sketch.getWindowSeconds() * 1000L + "&period=" +
+              sketch.getWindowSeconds() * 1000L)
+              .process(exchange -> sketchAggregator.close(System.currentTimeMillis()));
+
+          from(SKETCHES_URI)
+              .process(new SketchSummaryToMapProcessor())
+              .to(sketch.getEndpoint());
+        }
+      });
+    } else {
+      sketchAggregator = null;
+    }
+
+    final NdjsonOptions ndjson = args.getNdjson();
+    if (ndjson.getDirectory() != null) {
+      fileSink = new RollingFileSink(Paths.get(ndjson.getDirectory()), "records", ndjson.getCompression(),
+          ndjson.getSegmentMegabytes() * 1024L * 1024L, TimeUnit.SECONDS.toMillis(ndjson.getSegmentSeconds()),
+          ndjson.getSyncIntervalMillis(), RollingFileSink.DEFAULT_QUEUE_CAPACITY, ndjson.getIndexAttributes(),
+          ndjson.getIndexFalsePositiveRate());
+      recordListeners.add(fileSink);
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:ndjson?period=" + REPORT_PERIOD_MILLIS)
+              .process(exchange -> logFileSinkStatistics());
+        }
+      });
+    } else {
+      fileSink = null;
+    }
+
+    final RecentOptions recent = args.getRecent();
+    if (recent.getMegabytes() > 0) {
+      final int capacity = (int) Math.min(Integer.MAX_VALUE, recent.getMegabytes() * 1024L * 1024L);
+      recentStore = recent.getMaxRecords() > 0 ? new RecentRecordStore(capacity, recent.getMaxRecords()) :
+          new RecentRecordStore(capacity);
+      recordListeners.add(recentStore);
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:recent?period=" + REPORT_PERIOD_MILLIS)
+              .process(exchange -> log.info("Recent records: {}", recentStore));
+        }
+      });
+    } else {
+      recentStore = null;
+    }
+
+    final ProducerTemplate freshnessTemplate = context.createProducerTemplate();
+    context.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        final long period = TimeUnit.SECONDS.toMillis(args.getFreshness().getPeriodSeconds());
+        from("timer:freshness?delay=" + period + "&period=" + period)
+            .process(exchange -> reportFreshness(freshnessTemplate));
+
+        if (args.getFreshness().getEndpoint() != null) {
+          from(FRESHNESS_URI)
+              .process(new FreshnessReportToMapProcessor())
+              .to(args.getFreshness().getEndpoint());
+        }
+      }
+    });
+
+    String endpoint = args.getEndpoint();
+    final FreshnessTracker routeTracker;
+    if (args.getSpool().getDirectory() != null || args.getLanes().getMode() != ArgParser.LaneMode.OFF) {
+      // records are handed over before they reach the endpoint, so they are tracked by the route, that sends them
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          sendToEndpoints(from(SINK_URI), args.getEndpoint(), null, freshnessTracker);
+        }
+      });
+      endpoint = SINK_URI;
+      routeTracker = null;
+    } else {
+      routeTracker = freshnessTracker;
+    }
+
+    final SpoolOptions spoolOptions = args.getSpool();
+    if (spoolOptions.getDirectory() != null) {
+      final long segmentBytes = spoolOptions.getSegmentMegabytes() * 1024L * 1024L;
+      final long maxBytes = spoolOptions.getMaxMegabytes() * 1024L * 1024L;
+      final DiskSpool spool = new DiskSpool(Paths.get(spoolOptions.getDirectory()), segmentBytes, maxBytes);
+      final DiskSpool deadLetters = new DiskSpool(Paths.get(spoolOptions.getDirectory(), DEAD_LETTER_DIRECTORY),
+          segmentBytes, maxBytes);
+      spoolingProcessor = new SpoolingProcessor(context.createProducerTemplate(), endpoint, spool, deadLetters,
+          spoolOptions.getLatencyMillis(), spoolOptions.getDrainRate(), spoolOptions.getRetryMillis(),
+          SpoolingProcessor.DEFAULT_MAX_ATTEMPTS);
+      endpoint = SPOOL_URI;
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from(SPOOL_URI)
+              .process(spoolingProcessor);
+
+          from("timer:spool?period=" + REPORT_PERIOD_MILLIS)
+              .process(exchange -> logSpoolStatistics());
+        }
+      });
+    } else {
+      spoolingProcessor = null;
+    }
+
+    if (args.getLanes().getMode() != ArgParser.LaneMode.OFF) {
+      laneProcessor = createLaneProcessor(args.getLanes(), endpoint);
+      endpoint = LANES_URI;
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from(LANES_URI)
+              .process(laneProcessor);
+
+          from("timer:lanes?period=" + REPORT_PERIOD_MILLIS)
+              .process(exchange -> logLaneStatistics());
+        }
+      });
+    } else {
+      laneProcessor = null;
+    }
+
+    final ReaderOptions readerOptions = args.getReader();
+    if (readerOptions.getCpuShare() > 0 || readerOptions.getReadRateMegabytes() > 0) {
+      governor = new ResourceGovernor(readerOptions.getCpuShare(),
+          readerOptions.getReadRateMegabytes() * 1024L * 1024L);
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:governor?period=" + REPORT_PERIOD_MILLIS)
+              .process(exchange -> log.info("Resources: {}", governor));
+        }
+      });
+    } else {
+      governor = null;
+    }
+
+    final LogMessageSink tap = this::onRecord;
+    parser = createParser(args);
+    final Consumer<TemplateMatch> definitionListener;
+    if (args.getTemplates().getEndpoint() != null) {
+      final ProducerTemplate definitionTemplate = context.createProducerTemplate();
+      definitionListener = match -> definitionTemplate.sendBody(TEMPLATES_URI, match);
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from(TEMPLATES_URI)
+              .process(new TemplateToMapProcessor())
+              .to(args.getTemplates().getEndpoint());
+        }
+      });
+    } else {
+      definitionListener = null;
+    }
+    final LogMessageToMapProcessor mapper = createMapper(args, sketchAggregator, definitionListener);
+    if (readerOptions.getMode() == ArgParser.ReaderMode.CAMEL && readerOptions.getBatchSize() == 0) {
+      for (final Path sourceFile : sourceFiles) {
+        context.addRoutes(new MainRouteBuilder(args.getScanStreamDelay(), sourceFile.toString(),
+            args.getMaxStacktraceSize(), args.getMaxStacktracePopulationTimeMillis(), parser, endpoint,
+            tap, mapper, routingTable, routeTracker));
+      }
+    } else if (readerOptions.getMode() == ArgParser.ReaderMode.CAMEL) {
+      for (int i = 0; i < sourceFiles.size(); ++i) {
+        final FileTailProcessor fileTail = new FileTailProcessor(sourceFiles.get(i),
+            FileTailProcessor.DEFAULT_MAX_CHUNK_SIZE, governor);
+        readerPositions.put(sourceFiles.get(i).toString(), fileTail::getPosition);
+        context.addRoutes(new BatchRouteBuilder("tail-" + i, sourceFiles.get(i), fileTail, args, parser, endpoint, tap,
+            mapper, routingTable, routeTracker));
+      }
+    } else {
+      context.addRoutes(new RecordRouteBuilder(endpoint, tap, mapper, routingTable, routeTracker));
+      context.addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from("timer:record-batches?period=" + args.getScanStreamDelay())
+              .process(exchange -> flushRecordBatches()); // incomplete batches of the idle sources
+        }
+      });
+    }
+  }
+
+  /**
+   * @return Camel context, additional routes may be added to it before pipeline is started
+   */
+  @Nonnull
+  public CamelContext getContext() {
+    return context;
+  }
+
+  public void start() throws Exception {
+    context.start();
+    if (recentStore != null) {
+      recentServer = new RecentQueryServer(recentStore, args.getRecent().getPort());
+    }
+    startReaders();
+  }
+
+  /**
+   * @return Tracker of the freshness lag of the records, that have been sent to the endpoint
+   */
+  @Nonnull
+  public FreshnessTracker getFreshnessTracker() {
+    return freshnessTracker;
+  }
+
+  /**
+   * @return Governor, that paces the readers, or null, if neither CPU share nor read rate is limited
+   */
+  @Nullable
+  public ResourceGovernor getGovernor() {
+    return governor;
+  }
+
+  /**
+   * @return Store of the recent records or null, if they are not kept
+   */
+  @Nullable
+  public RecentRecordStore getRecentStore() {
+    return recentStore;
+  }
+
+  /**
+   * @return Routing table or null, if routing rules are not used
+   */
+  @Nullable
+  public RoutingTable getRoutingTable() {
+    return routingTable;
+  }
+
+  /**
+   * @return Lanes of the records or null, if lanes are not used
+   */
+  @Nullable
+  public LaneProcessor getLaneProcessor() {
+    return laneProcessor;
+  }
+
+  public boolean isStoppingOrStopped() {
+    return context.isStoppingOrStopped();
+  }
+
+  @Override
+  public void close() throws Exception {
+    closeReaders();
+    flushRecordBatches();
+    if (recentServer != null) {
+      recentServer.close();
+    }
+    if (traceAssembler != null) {
+      traceAssembler.flush(); // while trace route is still running
+    }
+    if (sketchAggregator != null) {
+      sketchAggregator.close(System.currentTimeMillis()); // the last, incomplete window
+    }
+    if (laneProcessor != null) {
+      laneProcessor.close(); // queued records are sent while the endpoint routes are still running
+      logLaneStatistics();
+    }
+    context.stop();
+    if (spoolingProcessor != null) {
+      spoolingProcessor.close(); // records, that have not been replayed, are kept for the next run
+      logSpoolStatistics();
+    }
+    if (fileSink != null) {
+      fileSink.close();
+      logFileSinkStatistics();
+    }
+    if (rollupStore != null) {
+      rollupStore.close();
+    }
+    if (routingTable != null) {
+      log.info("Routing rule hits: {}", routingTable.getHitCounts());
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private void onRecord(@Nonnull LogMessage record) {
+    for (final LogMessageSink listener : recordListeners) {
+      listener.accept(record);
+    }
+  }
+
+  private void logFileSinkStatistics() {
+    log.info("NDJSON records written: {}, dropped: {}, write latency (us): {}, sync latency (us): {}",
+        fileSink.getWrittenCount(), fileSink.getDroppedCount(), fileSink.getWriteLatency(),
+        fileSink.getSyncLatency());
+  }
+
+  private void logSpoolStatistics() {
+    final DiskSpool spool = spoolingProcessor.getSpool();
+    log.info("Spooled records: {}, bytes: {}, dropped: {}, dead letters: {}, endpoint healthy: {}, " +
+            "replaying: {}", spool.getDepth(), spool.getBytes(), spool.getDroppedCount(),
+        spoolingProcessor.getDeadLetterCount(), spoolingProcessor.isHealthy(), spoolingProcessor.isDrainerAlive());
+  }
+
+  private void reportFreshness(@Nonnull ProducerTemplate template) {
+    updateReaderLag();
+    final FreshnessReport report = freshnessTracker.rotate(System.currentTimeMillis());
+    log.info("Freshness lag (ms) by source: {}, by severity: {}, reader lag (bytes): {}", report.getLagBySource(),
+        report.getLagBySeverity(), report.getReaderLag());
+    if (args.getFreshness().getEndpoint() != null) {
+      template.sendBody(FRESHNESS_URI, report);
+    }
+  }
+
+  private void updateReaderLag() {
+    final Map<String, Long> positions = new HashMap<>();
+    for (final Map.Entry<String, LongSupplier> entry : readerPositions.entrySet()) {
+      positions.put(entry.getKey(), entry.getValue().getAsLong());
+    }
+    final VirtualThreadTailService service = tailService;
+    if (service != null) {
+      for (final Path path : service.getPaths()) {
+        final long checkpoint = service.getCheckpoint(path);
+        if (checkpoint >= 0) {
+          positions.put(path.toString(), checkpoint);
+        }
+      }
+    }
+
+    for (final Map.Entry<String, Long> entry : positions.entrySet()) {
+      try {
+        freshnessTracker.setReaderLag(entry.getKey(), Files.size(Paths.get(entry.getKey())) - entry.getValue());
+      } catch (IOException e) {
+        freshnessTracker.setReaderLag(entry.getKey(), 0L); // file does not exist yet or has been rotated
+      }
+    }
+    for (final String source : freshnessTracker.getReaderLag().keySet()) {
+      if (!positions.containsKey(source)) {
+        freshnessTracker.removeReaderLag(source); // file has been taken by another instance
+      }
+    }
+  }
+
+  private void logLaneStatistics() {
+    log.info("Lanes: {}, {}", laneProcessor.getPriorityLane(), laneProcessor.getBulkLane());
+  }
+
+  private void startReaders() throws Exception {
+    final ReaderOptions readerOptions = args.getReader();
+    if (readerOptions.getMode() == ArgParser.ReaderMode.CAMEL) {
+      return; // files are read by Camel routes
+    }
+
+    final ProducerTemplate template = context.createProducerTemplate();
+    if (readerOptions.getMode() == ArgParser.ReaderMode.VIRTUAL) {
+      final VirtualThreadTailService tailService = new VirtualThreadTailService(() -> parser,
+          path -> getRecordBatches(template, path.toString()), readerOptions.getParseThreads(),
+          readerOptions.getReadBufferSize(), args.getScanStreamDelay(), args.getMaxStacktraceSize(),
+          args.getMaxStacktracePopulationTimeMillis(), governor);
+      if (args.getShare().getDirectory() != null) {
+        startWorkSharing(tailService);
+      }
+      synchronized (readers) {
+        readers.add(tailService);
+      }
+      this.tailService = tailService;
+      for (final Path sourceFile : sourceFiles) {
+        tailService.tail(sourceFile);
+      }
+      return;
+    }
+
+    for (final Path sourceFile : sourceFiles) {
+      final RingBufferEngine engine = new RingBufferEngine(parser,
+          getRecordBatches(template, sourceFile.toString()), readerOptions.getRingSize(), args.getMaxStacktraceSize(),
+          readerOptions.getParseThreads());
+      final RingBufferFileReader reader = new RingBufferFileReader(sourceFile, engine,
+          readerOptions.getReadBufferSize(), true, args.getScanStreamDelay(),
+          args.getMaxStacktracePopulationTimeMillis(), governor);
+      final Thread readerThread = new Thread(reader, "ring-reader-" + sourceFile.getFileName());
+      readerPositions.put(sourceFile.toString(), reader::getPosition);
+      synchronized (readers) {
+        readers.add(() -> {
+          reader.stop();
+          readerThread.interrupt();
+          readerThread.join();
+          engine.close();
+        });
+      }
+      engine.start();
+      readerThread.start();
+    }
+  }
+
+  /**
+   * @return Sink, that hands records of the given source to the record route in batches, one exchange per batch
+   */
+  @Nonnull
+  private BatchingSink getRecordBatches(@Nonnull ProducerTemplate template, @Nonnull String source) {
+    return recordBatches.computeIfAbsent(source, key -> new BatchingSink(Math.max(1, args.getReader().getBatchSize()),
+        batch -> template.sendBodyAndHeader(RECORDS_URI, batch, FreshnessStampProcessor.SOURCE_HEADER, key)));
+  }
+
+  private void flushRecordBatches() {
+    for (final BatchingSink batches : recordBatches.values()) {
+      batches.flush();
+    }
+  }
+
+  /**
+   * Files of the source directory are read once this instance takes them, see {@link WorkSharingCoordinator}.
+   */
+  private void startWorkSharing(@Nonnull VirtualThreadTailService tailService) throws Exception {
+    final ShareOptions share = args.getShare();
+    final WorkSharingCoordinator coordinator = new WorkSharingCoordinator(Paths.get(args.getSourceDirectory()),
+        Paths.get(share.getDirectory()),
+        share.getInstanceId() != null ? share.getInstanceId() : WorkSharingCoordinator.getDefaultInstanceId(),
+        tailService, share.getLeaseTimeoutMillis());
+    synchronized (readers) {
+      readers.add(coordinator); // files are released before the reader is closed
+    }
+    log.info("Sharing files of {} as {}", args.getSourceDirectory(), coordinator.getInstanceId());
+
+    context.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from("timer:share?delay=0&period=" + share.getHeartbeatMillis())
+            .process(exchange -> coordinator.rebalance(System.currentTimeMillis()));
+      }
+    });
+  }
+
+  private void closeReaders() throws Exception {
+    final List<AutoCloseable> closing;
+    synchronized (readers) {
+      closing = new ArrayList<>(readers);
+      readers.clear();
+    }
+    for (final AutoCloseable reader : closing) {
+      reader.close();
+    }
+  }
+
+  /**
+   * Lanes hand each batch over as one exchange, the records of which are sent to the endpoint one by one
+   * with their own headers. Records, rejected by the endpoint, are counted in the shared counter of the batch,
+   * the rest of the batch is still sent.
+   */
+  @Nonnull
+  private LaneProcessor createLaneProcessor(@Nonnull LaneOptions lanes, @Nonnull String endpoint)
+      throws Exception {
+    context.addRoutes(new RouteBuilder() {
+      @Override
+      public void configure() throws Exception {
+        from(LANE_BATCHES_URI)
+            .split(body())
+            .process(exchange -> {
+              final Message queued = exchange.getIn().getBody(Message.class);
+              exchange.getIn().setHeaders(queued.getHeaders());
+              exchange.getIn().setBody(queued.getBody());
+            })
+            .doTry()
+              .to(endpoint)
+            .doCatch(Exception.class)
+              .process(exchange -> {
+                exchange.getProperty(LANE_FAILED_PROPERTY, AtomicInteger.class).incrementAndGet();
+                log.error("Unable to send record", exchange.getProperty(Exchange.EXCEPTION_CAUGHT, Exception.class));
+              })
+            .end();
+      }
+    });
+
+    final ProducerTemplate template = context.createProducerTemplate();
+    final Lane.Sink<Message> sender = messages -> {
+      final AtomicInteger failed = new AtomicInteger(); // shared by the split exchanges
+      final Exchange result = template.send(LANE_BATCHES_URI, exchange -> {
+        exchange.getIn().setBody(messages);
+        exchange.setProperty(LANE_FAILED_PROPERTY, failed);
+      });
+      if (result.getException() != null) {
+        throw new IllegalStateException("Unable to send batch", result.getException());
+      }
+      return failed.get();
+    };
+    return new LaneProcessor(
+        new Lane<>("priority", lanes.getPriorityBatchSize() * LANE_CAPACITY_BATCHES, lanes.getPriorityBatchSize(),
+            lanes.getPriorityLingerMillis(), lanes.getPrioritySenders(), sender),
+        new Lane<>("bulk", lanes.getBulkBatchSize() * LANE_CAPACITY_BATCHES, lanes.getBulkBatchSize(),
+            lanes.getBulkLingerMillis(), lanes.getBulkSenders(), sender));
+  }
+
+  /**
+   * @return Parser of the source lines, both text and JSON parsers are stateless, so the same one is shared
+   * by all the readers and parse threads
+   */
+  @Nonnull
+  private static LogLineParser createParser(@Nonnull ArgParser.Result args) {
+    final InputOptions input = args.getInput();
+    if (input.getFormat() == ArgParser.InputFormat.TEXT) {
+      return new LogMessageProcessor();
+    }
+
+    return new JsonLineParser(
+        input.getJsonField("time", JsonLineParser.DEFAULT_TIME_FIELD),
+        input.getJsonField("level", JsonLineParser.DEFAULT_LEVEL_FIELD),
+        input.getJsonField("logger", JsonLineParser.DEFAULT_LOGGER_FIELD),
+        input.getJsonField("message", JsonLineParser.DEFAULT_MESSAGE_FIELD),
+        input.getJsonField("mdc", JsonLineParser.DEFAULT_MDC_FIELD),
+        input.getJsonField("stacktrace", JsonLineParser.DEFAULT_STACKTRACE_FIELD),
+        input.getJsonAttributes());
+  }
+
+  @Nonnull
+  private static LogMessageToMapProcessor createMapper(@Nonnull ArgParser.Result args,
+                                                       @Nullable SketchAggregator sketchAggregator,
+                                                       @Nullable Consumer<TemplateMatch> definitionListener) {
+    final TemplateOptions templates = args.getTemplates();
+    if (templates.getMode() == ArgParser.TemplateMode.OFF) {
+      return new LogMessageToMapProcessor();
+    }
+
+    // miner is shared by all the files, so that the same templates get the same IDs
+    final TemplateMiner templateMiner = new TemplateMiner(TemplateMiner.DEFAULT_DEPTH,
+        TemplateMiner.DEFAULT_SIMILARITY_THRESHOLD, TemplateMiner.DEFAULT_MAX_CHILDREN, templates.getMaxTemplates());
+    return new LogMessageToMapProcessor(templateMiner, templates.getMode() == ArgParser.TemplateMode.COMPACT,
+        sketchAggregator != null ? sketchAggregator::acceptTemplate : null, definitionListener);
+  }
+
+  /**
+   * Sends records to the endpoint or, if routing table is given, to the endpoints, that have been set
+   * by {@link RoutingProcessor}. If tracker is given, freshness lag of the records is recorded once they have been
+   * accepted by the endpoints.
+   */
+  private static void sendToEndpoints(@Nonnull ProcessorDefinition<?> route, @Nonnull String endpoint,
+                                      @Nullable RoutingTable routingTable, @Nullable FreshnessTracker tracker) {
+    if (tracker != null) {
+      route.process(new FreshnessStampProcessor());
+    }
+    if (routingTable == null) {
+      route.to(endpoint);
+    } else {
+      route.recipientList(ExpressionBuilder.exchangePropertyExpression(RoutingProcessor.ENDPOINTS_PROPERTY));
+    }
+    if (tracker != null) {
+      route.process(new FreshnessAckProcessor(tracker));
+    }
+  }
+
+  @Nonnull
+  private static List<Path> getSourceFiles(@Nonnull ArgParser.Result args) throws IOException {
+    final List<Path> result = new ArrayList<>();
+    for (final String fileName : args.getSourceFileNames()) {
+      result.add(Paths.get(fileName));
+    }
+
+    if (args.getSourceDirectory() != null && args.getShare().getDirectory() == null) {
+      final List<Path> directoryFiles = new ArrayList<>();
+      try (final DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(args.getSourceDirectory()))) {
+        for (final Path path : stream) {
+          if (Files.isRegularFile(path)) {
+            directoryFiles.add(path);
+          }
+        }
+      }
+      Collections.sort(directoryFiles);
+      result.addAll(directoryFiles);
+    }
+
+    return result;
+  }
+
+  private static final class MainRouteBuilder extends RouteBuilder {
+    private final long scanDelay;
+    private final String fileName;
+    private final int maxStacktraceSize;
+    private final long maxStacktracePopulationTime;
+    private final LogLineParser parser;
+    private final String endpoint;
+    private final LogMessageSink tap;
+    private final LogMessageToMapProcessor mapper;
+    private final RoutingTable routingTable;
+    private final FreshnessTracker tracker;
+
+    public MainRouteBuilder(long scanDelay, String fileName, int maxStacktraceSize, long maxStacktracePopulationTime,
+                            LogLineParser parser, String endpoint, LogMessageSink tap,
+                            LogMessageToMapProcessor mapper, RoutingTable routingTable, FreshnessTracker tracker) {
+      this.scanDelay = scanDelay;
+      this.fileName = fileName;
+      this.maxStacktraceSize = maxStacktraceSize;
+      this.maxStacktracePopulationTime = maxStacktracePopulationTime;
+      this.parser = parser;
+      this.endpoint = endpoint;
+      this.tap = tap;
+      this.mapper = mapper;
+      this.routingTable = routingTable;
+      this.tracker = tracker;
+    }
+
+    @Override
+    public void configure() throws Exception {
+      final ProcessorDefinition<?> route = from("stream:file?fileName=" + fileName +
+          "&scanStream=true&scanStreamDelay=" + scanDelay)
+          .split(body(String.class).regexTokenize("\n"))
+          .filter(new MalformedLineFilter())
+          .process(exchange -> exchange.getOut().setBody(parser.parse(exchange.getIn().getBody(String.class))))
+          .process(new RecordIdProcessor())
+
+          .aggregate(new MultiLineAggregationStrategy())
+          .header(RecordIdProcessor.HEADER).completionSize(maxStacktraceSize)
+          .completionInterval(maxStacktracePopulationTime)
+
+          .filter(new MalformedLogMessageFilter())
+          .setHeader(FreshnessStampProcessor.SOURCE_HEADER, constant(fileName))
+
+          .process(new RecordTapProcessor(tap));
+      if (routingTable != null) {
+        route.process(new RoutingProcessor(routingTable));
+      }
+      sendToEndpoints(route.process(mapper), endpoint, routingTable, tracker);
+    }
+  }
+
+  /**
+   * Route, that polls the file and processes new lines in batches by the single fused processor, so that Camel
+   * overhead is paid per batch rather than per line until records are sent to the endpoint.
+   */
+  private static final class BatchRouteBuilder extends RouteBuilder {
+    private final String timerName;
+    private final Path sourceFile;
+    private final FileTailProcessor fileTail;
+    private final ArgParser.Result args;
+    private final LogLineParser parser;
+    private final String endpoint;
+    private final LogMessageSink tap;
+    private final LogMessageToMapProcessor mapper;
+    private final RoutingTable routingTable;
+    private final FreshnessTracker tracker;
+
+    public BatchRouteBuilder(String timerName, Path sourceFile, FileTailProcessor fileTail, ArgParser.Result args,
+                             LogLineParser parser, String endpoint, LogMessageSink tap,
+                             LogMessageToMapProcessor mapper, RoutingTable routingTable, FreshnessTracker tracker) {
+      this.timerName = timerName;
+      this.sourceFile = sourceFile;
+      this.fileTail = fileTail;
+      this.args = args;
+      this.parser = parser;
+      this.endpoint = endpoint;
+      this.tap = tap;
+      this.mapper = mapper;
+      this.routingTable = routingTable;
+      this.tracker = tracker;
+    }
+
+    @Override
+    public void configure() throws Exception {
+      final ProcessorDefinition<?> route = from("timer:" + timerName + "?delay=0&period=" +
+          args.getScanStreamDelay())
+          .process(fileTail)
+          .split(new LineBatchSplitter(args.getReader().getBatchSize())).streaming()
+          .process(new FusedBatchProcessor(parser, args.getMaxStacktraceSize(),
+              args.getMaxStacktracePopulationTimeMillis(), tap, mapper, routingTable))
+
+          .split(body())
+          .setHeader(FreshnessStampProcessor.SOURCE_HEADER, constant(sourceFile.toString()));
+      if (routingTable != null) {
+        route.process(new RoutingProcessor(routingTable)); // unwraps records, routed by the fused processor
+      }
+      sendToEndpoints(route, endpoint, routingTable, tracker);
+    }
+  }
+
+  /**
+   * Route for the records that have been read, parsed and assembled outside of Camel, they come in batches
+   * of the same source, see {@link BatchingSink}.
+   */
+  private static final class RecordRouteBuilder extends RouteBuilder {
+    private final String endpoint;
+    private final LogMessageSink tap;
+    private final LogMessageToMapProcessor mapper;
+    private final RoutingTable routingTable;
+    private final FreshnessTracker tracker;
+
+    public RecordRouteBuilder(String endpoint, LogMessageSink tap, LogMessageToMapProcessor mapper,
+                              RoutingTable routingTable, FreshnessTracker tracker) {
+      this.endpoint = endpoint;
+      this.tap = tap;
+      this.mapper = mapper;
+      this.routingTable = routingTable;
+      this.tracker = tracker;
+    }
+
+    @Override
+    public void configure() throws Exception {
+      final ProcessorDefinition<?> route = from(RECORDS_URI)
+          .process(new RecordBatchProcessor(tap, mapper, routingTable))
+          .split(body()); // source header is copied to each record
+      if (routingTable != null) {
+        route.process(new RoutingProcessor(routingTable)); // unwraps records, routed by the batch processor
+      }
+      sendToEndpoints(route, endpoint, routingTable, tracker);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.truward.brikar.log.standard;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Options of reading and parsing the source files.
+ *
+ * @author Alexander Shabanov
+ */
+public final class ReaderOptions extends OptionGroup {
+  public static final int DEFAULT_PARSE_THREADS = Runtime.getRuntime().availableProcessors();
+  public static final int DEFAULT_READ_BUFFER_SIZE = 16 * 1024;
+  public static final int DEFAULT_RING_SIZE = 16384;
+  public static final int DEFAULT_BATCH_SIZE = 512;
+  public static final double DEFAULT_CPU_SHARE = 0.0;
+  public static final int DEFAULT_READ_RATE_MB = 0;
+
+  private ArgParser.ReaderMode mode = ArgParser.ReaderMode.CAMEL;
+  private int parseThreads = DEFAULT_PARSE_THREADS;
+  private int readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+  private int ringSize = DEFAULT_RING_SIZE;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private double cpuShare = DEFAULT_CPU_SHARE;
+  private int readRateMegabytes = DEFAULT_READ_RATE_MB;
+
+  @Nonnull
+  public ArgParser.ReaderMode getMode() {
+    return mode;
+  }
+
+  public int getParseThreads() {
+    return parseThreads;
+  }
+
+  public int getReadBufferSize() {
+    return readBufferSize;
+  }
+
+  public int getRingSize() {
+    return ringSize;
+  }
+
+  /**
+   * @return Number of lines in a batch for Camel reader or zero, if lines should be processed one by one;
+   * number of records handed to Camel at once by virtual and ring readers
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @return Number of cores, the analyzer may use, or 0 if it is not limited
+   */
+  public double getCpuShare() {
+    return cpuShare;
+  }
+
+  /**
+   * @return Read bandwidth in megabytes per second or 0 if it is not limited
+   */
+  public int getReadRateMegabytes() {
+    return readRateMegabytes;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--reader".equals(args[pos])) {
+      mode = enumArgValue(args, pos, "Reader", ArgParser.ReaderMode.class);
+    } else if ("--parse-threads".equals(args[pos])) {
+      parseThreads = intArgValue(args, pos, "Parse Threads");
+    } else if ("--read-buffer-size".equals(args[pos])) {
+      readBufferSize = intArgValue(args, pos, "Read Buffer Size");
+    } else if ("--ring-size".equals(args[pos])) {
+      ringSize = intArgValue(args, pos, "Ring Size");
+    } else if ("--batch-size".equals(args[pos])) {
+      batchSize = intArgValue(args, pos, "Batch Size");
+    } else if ("--cpu-share".equals(args[pos])) {
+      cpuShare = doubleArgValue(args, pos, "CPU Share");
+    } else if ("--read-rate".equals(args[pos])) {
+      readRateMegabytes = intArgValue(args, pos, "Read Rate");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (parseThreads <= 0) {
+      throw new IllegalArgumentException("Parse threads count should be a positive number");
+    }
+
+    if (readBufferSize <= 0) {
+      throw new IllegalArgumentException("Read buffer size should be a positive number");
+    }
+
+    if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+      throw new IllegalArgumentException("Ring size should be a power of two");
+    }
+
+    if (batchSize < 0) {
+      throw new IllegalArgumentException("Batch size should not be negative");
+    }
+
+    if (cpuShare < 0 || readRateMegabytes < 0) {
+      throw new IllegalArgumentException("CPU share and read rate should not be negative");
+    }
+
+    if ((cpuShare > 0 || readRateMegabytes > 0) && mode == ArgParser.ReaderMode.CAMEL && batchSize == 0) {
+      throw new IllegalArgumentException("CPU share and read rate could not be limited for the stream reader");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--reader {camel|virtual|ring} How source files are read: camel uses a thread per file,\n" +
+        "                           virtual uses a virtual thread per file and a shared pool of parsers,\n" +
+        "                           ring uses Camel-free ring buffer engine per file, default value=camel\n" +
+
+        "--parse-threads {NUMBER}   Number of parser threads shared by all files for virtual reader\n" +
+        "                           and per file for ring reader,\n" +
+        "                           default value=" + DEFAULT_PARSE_THREADS + '\n' +
+
+        "--read-buffer-size {NUMBER} Size of read buffer per file in bytes for virtual and ring readers,\n" +
+        "                           default value=" + DEFAULT_READ_BUFFER_SIZE + '\n' +
+
+        "--ring-size {NUMBER}       Number of slots in ring buffer, power of two, for ring reader,\n" +
+        "                           default value=" + DEFAULT_RING_SIZE + '\n' +
+
+        "--batch-size {NUMBER}      Number of lines processed at once by camel reader, zero means\n" +
+        "                           an exchange per line; number of records handed to Camel at once\n" +
+        "                           by virtual and ring readers, default value=" + DEFAULT_BATCH_SIZE + '\n' +
+
+        "--cpu-share {NUMBER}       Number of cores, the analyzer may use, e.g. 0.5, readers are paced to stay\n" +
+        "                           within it, not limited by default\n" +
+
+        "--read-rate {NUMBER}       Megabytes per second, the source files may be read at, not limited\n" +
+        "                           by default\n";
+  }
+}
@@ -0,0 +1,76 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.recent.RecentRecordStore;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Options of the off-heap store of the recent records and of its query server.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecentOptions extends OptionGroup {
+  public static final int DEFAULT_PORT = 8093;
+  public static final int MAX_SIZE_MB = 2047; // direct buffer is limited by int size
+
+  private int megabytes = 0;
+  private int maxRecords = 0;
+  private int port = DEFAULT_PORT;
+
+  /**
+   * @return Size of the off-heap store of the recent records in megabytes or 0 if they are not kept
+   */
+  public int getMegabytes() {
+    return megabytes;
+  }
+
+  /**
+   * @return Maximum number of the recent records or 0 if it is derived from the store size
+   */
+  public int getMaxRecords() {
+    return maxRecords;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--recent-size".equals(args[pos])) {
+      megabytes = intArgValue(args, pos, "Recent Size");
+    } else if ("--recent-max-records".equals(args[pos])) {
+      maxRecords = intArgValue(args, pos, "Recent Max Records");
+    } else if ("--recent-port".equals(args[pos])) {
+      port = intArgValue(args, pos, "Recent Port");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (megabytes < 0 || megabytes > MAX_SIZE_MB) {
+      throw new IllegalArgumentException("Recent store size should be from 0 to " + MAX_SIZE_MB + " MB");
+    }
+
+    if (maxRecords < 0 || port < 0 || port > 65535) {
+      throw new IllegalArgumentException("Recent store records and port should be valid non-negative numbers");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--recent-size {NUMBER}     Megabytes of the most recent records kept off heap and served at\n" +
+        "                           http://localhost:PORT/records, up to " + MAX_SIZE_MB +
+        ", not kept by default\n" +
+
+        "--recent-max-records {NUMBER} Maximum number of the recent records, by default one per " +
+        RecentRecordStore.BYTES_PER_RECORD + " bytes\n" +
+
+        "--recent-port {NUMBER}     Port of the recent records on the loopback address,\n" +
+        "                           default value=" + DEFAULT_PORT + '\n';
+  }
+}
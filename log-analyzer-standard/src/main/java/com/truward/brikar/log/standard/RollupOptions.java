@@ -0,0 +1,89 @@
+package com.truward.brikar.log.standard;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Options of the per-minute record counts.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollupOptions extends OptionGroup {
+  public static final int DEFAULT_RETENTION_DAYS = 7;
+  public static final long DEFAULT_FLUSH_PERIOD_MILLIS = 60000L;
+
+  private String directory = null;
+  private final List<String> attributes = new ArrayList<>();
+  private int retentionDays = DEFAULT_RETENTION_DAYS;
+  private long flushPeriodMillis = DEFAULT_FLUSH_PERIOD_MILLIS;
+
+  /**
+   * @return Directory of the rollup store or null, if rollups should not be kept
+   */
+  @Nullable
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return Attributes, that records are counted by in rollups besides severity and logger
+   */
+  @Nonnull
+  public List<String> getAttributes() {
+    return Collections.unmodifiableList(attributes);
+  }
+
+  public int getRetentionDays() {
+    return retentionDays;
+  }
+
+  public long getFlushPeriodMillis() {
+    return flushPeriodMillis;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--rollup-dir".equals(args[pos])) {
+      directory = stringArgValue(args, pos, "Rollup Directory");
+    } else if ("--rollup-attributes".equals(args[pos])) {
+      attributes.addAll(listArgValue(args, pos, "Rollup Attributes"));
+    } else if ("--rollup-retention".equals(args[pos])) {
+      retentionDays = intArgValue(args, pos, "Rollup Retention");
+    } else if ("--rollup-flush-period".equals(args[pos])) {
+      flushPeriodMillis = intArgValue(args, pos, "Rollup Flush Period");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (retentionDays <= 0) {
+      throw new IllegalArgumentException("Rollup retention should be a positive number");
+    }
+
+    if (flushPeriodMillis <= 0) {
+      throw new IllegalArgumentException("Rollup flush period should be a positive number");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--rollup-dir {STRING}      Directory, where per-minute record counts are kept, rollups are not kept\n" +
+        "                           by default. Use 'rollup' command to query them.\n" +
+
+        "--rollup-attributes {LIST} Comma separated attributes, records are counted by besides severity\n" +
+        "                           and logger, e.g. oid. Keep it to the attributes with few distinct values.\n" +
+
+        "--rollup-retention {NUMBER} Days counts are kept with minute resolution before they are\n" +
+        "                           downsampled to hours, default value=" + DEFAULT_RETENTION_DAYS + '\n' +
+
+        "--rollup-flush-period {NUMBER} Time in milliseconds between writes of the rollups to disk,\n" +
+        "                           default value=" + DEFAULT_FLUSH_PERIOD_MILLIS + '\n';
+  }
+}
@@ -0,0 +1,87 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.share.WorkSharingCoordinator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Options of dividing the files of the source directory between the instances.
+ *
+ * @author Alexander Shabanov
+ */
+public final class ShareOptions extends OptionGroup {
+  public static final long DEFAULT_HEARTBEAT_MILLIS = WorkSharingCoordinator.DEFAULT_HEARTBEAT_PERIOD_MILLIS;
+  public static final long DEFAULT_LEASE_TIMEOUT_MILLIS = WorkSharingCoordinator.DEFAULT_LEASE_TIMEOUT_MILLIS;
+
+  private String directory = null;
+  private String instanceId = null;
+  private long heartbeatMillis = DEFAULT_HEARTBEAT_MILLIS;
+  private long leaseTimeoutMillis = DEFAULT_LEASE_TIMEOUT_MILLIS;
+
+  /**
+   * @return Directory, shared by the instances, that divide the files of the source directory between them,
+   * or null, if this instance reads all the files
+   */
+  @Nullable
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @return ID of this instance among the ones sharing the directory or null, if default one should be used
+   */
+  @Nullable
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  public long getHeartbeatMillis() {
+    return heartbeatMillis;
+  }
+
+  public long getLeaseTimeoutMillis() {
+    return leaseTimeoutMillis;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--share-dir".equals(args[pos])) {
+      directory = stringArgValue(args, pos, "Share Directory");
+    } else if ("--instance-id".equals(args[pos])) {
+      instanceId = stringArgValue(args, pos, "Instance ID");
+    } else if ("--share-heartbeat".equals(args[pos])) {
+      heartbeatMillis = intArgValue(args, pos, "Share Heartbeat");
+    } else if ("--share-lease-timeout".equals(args[pos])) {
+      leaseTimeoutMillis = intArgValue(args, pos, "Share Lease Timeout");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (heartbeatMillis <= 0 || leaseTimeoutMillis <= heartbeatMillis) {
+      throw new IllegalArgumentException("Share heartbeat period should be a positive number and lease " +
+          "timeout should be longer than that");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--share-dir {STRING}       Directory, shared by the instances, that divide the files of --dir between\n" +
+        "                           them, requires --reader virtual, all the files are read by default\n" +
+
+        "--instance-id {STRING}     ID of this instance among the ones sharing the directory,\n" +
+        "                           host name and process ID by default\n" +
+
+        "--share-heartbeat {NUMBER} Time in milliseconds between heartbeats of this instance, files are\n" +
+        "                           rebalanced and checkpointed on each one, default value=" +
+        DEFAULT_HEARTBEAT_MILLIS + '\n' +
+
+        "--share-lease-timeout {NUMBER} Time in milliseconds since the last heartbeat, after which instance\n" +
+        "                           is considered dead, default value=" + DEFAULT_LEASE_TIMEOUT_MILLIS + '\n';
+  }
+}
@@ -0,0 +1,114 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.sketch.HyperLogLog;
+import com.truward.brikar.log.sketch.SketchAggregator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Options of the per-window sketches of the most frequent and distinct values.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SketchOptions extends OptionGroup {
+  public static final int DEFAULT_WINDOW_SECONDS = 60;
+  public static final int DEFAULT_TOP = SketchAggregator.DEFAULT_TOP_COUNT;
+  public static final String DEFAULT_TOP_ATTRIBUTES = "op";
+  public static final String DEFAULT_DISTINCT_ATTRIBUTES = "rid,oid";
+  public static final int DEFAULT_PRECISION = HyperLogLog.DEFAULT_PRECISION;
+
+  private String endpoint = null;
+  private int windowSeconds = DEFAULT_WINDOW_SECONDS;
+  private int top = DEFAULT_TOP;
+  private List<String> topAttributes = splitList(DEFAULT_TOP_ATTRIBUTES);
+  private List<String> distinctAttributes = splitList(DEFAULT_DISTINCT_ATTRIBUTES);
+  private int precision = DEFAULT_PRECISION;
+
+  /**
+   * @return Endpoint of the sketch summaries of each window or null, if sketches should not be kept
+   */
+  @Nullable
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public int getWindowSeconds() {
+    return windowSeconds;
+  }
+
+  public int getTop() {
+    return top;
+  }
+
+  @Nonnull
+  public List<String> getTopAttributes() {
+    return Collections.unmodifiableList(topAttributes);
+  }
+
+  @Nonnull
+  public List<String> getDistinctAttributes() {
+    return Collections.unmodifiableList(distinctAttributes);
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--sketch-endpoint".equals(args[pos])) {
+      endpoint = stringArgValue(args, pos, "Sketch Endpoint");
+    } else if ("--sketch-window".equals(args[pos])) {
+      windowSeconds = intArgValue(args, pos, "Sketch Window");
+    } else if ("--sketch-top".equals(args[pos])) {
+      top = intArgValue(args, pos, "Sketch Top");
+    } else if ("--sketch-top-attributes".equals(args[pos])) {
+      topAttributes = listArgValue(args, pos, "Sketch Top Attributes");
+    } else if ("--sketch-distinct-attributes".equals(args[pos])) {
+      distinctAttributes = listArgValue(args, pos, "Sketch Distinct Attributes");
+    } else if ("--sketch-precision".equals(args[pos])) {
+      precision = intArgValue(args, pos, "Sketch Precision");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (windowSeconds <= 0 || top <= 0) {
+      throw new IllegalArgumentException("Sketch window and top count should be positive numbers");
+    }
+
+    if (precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION) {
+      throw new IllegalArgumentException("Sketch precision should be between " + HyperLogLog.MIN_PRECISION +
+          " and " + HyperLogLog.MAX_PRECISION);
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--sketch-endpoint {STRING} Endpoint, that gets the most frequent loggers, templates and attribute\n" +
+        "                           values and the numbers of distinct attribute values per window,\n" +
+        "                           sketches are not kept by default\n" +
+
+        "--sketch-window {NUMBER}   Window length in seconds, default value=" + DEFAULT_WINDOW_SECONDS + '\n' +
+
+        "--sketch-top {NUMBER}      Number of the most frequent keys reported per window,\n" +
+        "                           default value=" + DEFAULT_TOP + '\n' +
+
+        "--sketch-top-attributes {LIST} Comma separated attributes, which most frequent values are reported,\n" +
+        "                           default value=" + DEFAULT_TOP_ATTRIBUTES + '\n' +
+
+        "--sketch-distinct-attributes {LIST} Comma separated attributes, which distinct values are counted,\n" +
+        "                           default value=" + DEFAULT_DISTINCT_ATTRIBUTES + '\n' +
+
+        "--sketch-precision {NUMBER} Precision of the distinct value counts, from " + HyperLogLog.MIN_PRECISION +
+        " to " + HyperLogLog.MAX_PRECISION + ",\n" +
+        "                           error is 1.04 / sqrt(2^precision), default value=" + DEFAULT_PRECISION + '\n';
+  }
+}
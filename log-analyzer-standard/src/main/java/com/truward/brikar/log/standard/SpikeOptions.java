@@ -0,0 +1,92 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.alert.SpikeDetector;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Options of the alerts on bursts of failures.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SpikeOptions extends OptionGroup {
+  public static final int DEFAULT_BASELINE_SECONDS = SpikeDetector.DEFAULT_BASELINE_INTERVALS;
+  public static final double DEFAULT_THRESHOLD = SpikeDetector.DEFAULT_THRESHOLD;
+  public static final int DEFAULT_MIN_COUNT = SpikeDetector.DEFAULT_MIN_COUNT;
+  public static final int DEFAULT_MAX_KEYS = SpikeDetector.DEFAULT_CAPACITY;
+
+  private String endpoint = null;
+  private int baselineSeconds = DEFAULT_BASELINE_SECONDS;
+  private double threshold = DEFAULT_THRESHOLD;
+  private int minCount = DEFAULT_MIN_COUNT;
+  private int maxKeys = DEFAULT_MAX_KEYS;
+
+  /**
+   * @return Endpoint of the alerts on bursts of failures or null, if they should not be detected
+   */
+  @Nullable
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public int getBaselineSeconds() {
+    return baselineSeconds;
+  }
+
+  public double getThreshold() {
+    return threshold;
+  }
+
+  public int getMinCount() {
+    return minCount;
+  }
+
+  public int getMaxKeys() {
+    return maxKeys;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--spike-endpoint".equals(args[pos])) {
+      endpoint = stringArgValue(args, pos, "Spike Endpoint");
+    } else if ("--spike-baseline".equals(args[pos])) {
+      baselineSeconds = intArgValue(args, pos, "Spike Baseline");
+    } else if ("--spike-threshold".equals(args[pos])) {
+      threshold = doubleArgValue(args, pos, "Spike Threshold");
+    } else if ("--spike-min-count".equals(args[pos])) {
+      minCount = intArgValue(args, pos, "Spike Min Count");
+    } else if ("--spike-max-keys".equals(args[pos])) {
+      maxKeys = intArgValue(args, pos, "Spike Max Keys");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (baselineSeconds <= 0 || threshold <= 0.0 || minCount <= 0 || maxKeys <= 0) {
+      throw new IllegalArgumentException("Spike baseline, threshold and limits should be positive numbers");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--spike-endpoint {STRING}  Endpoint, that gets alerts on bursts of ERROR and WARN records and failed\n" +
+        "                           metrics per logger and op, failures are not tracked by default\n" +
+
+        "--spike-baseline {NUMBER}  Seconds, failure rates are averaged over to get their baselines,\n" +
+        "                           default value=" + DEFAULT_BASELINE_SECONDS + '\n' +
+
+        "--spike-threshold {NUMBER} Standard deviations above the baseline, at which alert is raised,\n" +
+        "                           default value=" + DEFAULT_THRESHOLD + '\n' +
+
+        "--spike-min-count {NUMBER} Minimum number of failures per second to raise alert,\n" +
+        "                           default value=" + DEFAULT_MIN_COUNT + '\n' +
+
+        "--spike-max-keys {NUMBER}  Maximum number of loggers and of operations tracked, the ones with\n" +
+        "                           the least failures are evicted, default value=" + DEFAULT_MAX_KEYS + '\n';
+  }
+}
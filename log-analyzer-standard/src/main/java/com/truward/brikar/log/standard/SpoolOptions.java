@@ -0,0 +1,109 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.standard.camel.SpoolingProcessor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Options of spooling records to disk while the endpoint is unhealthy.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SpoolOptions extends OptionGroup {
+  public static final int DEFAULT_MAX_MB = 1024;
+  public static final int DEFAULT_SEGMENT_MB = 16;
+  public static final long DEFAULT_LATENCY_MILLIS = SpoolingProcessor.DEFAULT_LATENCY_THRESHOLD_MILLIS;
+  public static final int DEFAULT_DRAIN_RATE = SpoolingProcessor.DEFAULT_DRAIN_RATE;
+  public static final long DEFAULT_RETRY_MILLIS = SpoolingProcessor.DEFAULT_RETRY_INTERVAL_MILLIS;
+
+  private String directory = null;
+  private int maxMegabytes = DEFAULT_MAX_MB;
+  private int segmentMegabytes = DEFAULT_SEGMENT_MB;
+  private long latencyMillis = DEFAULT_LATENCY_MILLIS;
+  private int drainRate = DEFAULT_DRAIN_RATE;
+  private long retryMillis = DEFAULT_RETRY_MILLIS;
+
+  /**
+   * @return Directory, where records are spooled while endpoint is unhealthy, or null if records are sent
+   * to the endpoint directly
+   */
+  @Nullable
+  public String getDirectory() {
+    return directory;
+  }
+
+  public int getMaxMegabytes() {
+    return maxMegabytes;
+  }
+
+  public int getSegmentMegabytes() {
+    return segmentMegabytes;
+  }
+
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public int getDrainRate() {
+    return drainRate;
+  }
+
+  public long getRetryMillis() {
+    return retryMillis;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--spool-dir".equals(args[pos])) {
+      directory = stringArgValue(args, pos, "Spool Directory");
+    } else if ("--spool-max-size".equals(args[pos])) {
+      maxMegabytes = intArgValue(args, pos, "Spool Max Size");
+    } else if ("--spool-segment-size".equals(args[pos])) {
+      segmentMegabytes = intArgValue(args, pos, "Spool Segment Size");
+    } else if ("--spool-latency".equals(args[pos])) {
+      latencyMillis = intArgValue(args, pos, "Spool Latency");
+    } else if ("--spool-drain-rate".equals(args[pos])) {
+      drainRate = intArgValue(args, pos, "Spool Drain Rate");
+    } else if ("--spool-retry".equals(args[pos])) {
+      retryMillis = intArgValue(args, pos, "Spool Retry");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (segmentMegabytes <= 0 || maxMegabytes < segmentMegabytes) {
+      throw new IllegalArgumentException("Spool segment size should be a positive number and spool size " +
+          "should not be less than that");
+    }
+
+    if (latencyMillis <= 0 || drainRate <= 0 || retryMillis <= 0) {
+      throw new IllegalArgumentException("Spool latency, drain rate and retry interval should be positive numbers");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--spool-dir {STRING}       Directory, where records are spooled while endpoint fails or is slow,\n" +
+        "                           spooled records are replayed once it recovers, not used by default\n" +
+
+        "--spool-max-size {NUMBER}  Megabytes of spooled records kept, the oldest ones are dropped,\n" +
+        "                           default value=" + DEFAULT_MAX_MB + '\n' +
+
+        "--spool-segment-size {NUMBER} Megabytes written to the spool segment file before the next one is\n" +
+        "                           started, default value=" + DEFAULT_SEGMENT_MB + '\n' +
+
+        "--spool-latency {NUMBER}   Time in milliseconds to send a record, after which endpoint is considered\n" +
+        "                           slow, default value=" + DEFAULT_LATENCY_MILLIS + '\n' +
+
+        "--spool-drain-rate {NUMBER} Spooled records replayed per second, default value=" +
+        DEFAULT_DRAIN_RATE + '\n' +
+
+        "--spool-retry {NUMBER}     Time in milliseconds between attempts to send spooled record to the failed\n" +
+        "                           endpoint, default value=" + DEFAULT_RETRY_MILLIS + '\n';
+  }
+}
@@ -0,0 +1,146 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.util.AsciiDateTimeParser;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Base parser for command line arguments of the sub-commands, such as <code>search</code>: first argument is
+ * expected to be the command itself, help switch overrides anything else, the rest of the arguments are parsed
+ * one by one. Errors are reported by throwing {@link IllegalStateException}, its message is printed along with help.
+ *
+ * @author Alexander Shabanov
+ */
+public abstract class SubCommandArgParser {
+  private final String command;
+
+  // state
+  protected final String[] args;
+
+  protected SubCommandArgParser(@Nonnull String command, @Nonnull String[] args) {
+    this.command = Objects.requireNonNull(command, "command");
+    this.args = Objects.requireNonNull(args, "args");
+  }
+
+  public static boolean isCommand(@Nonnull String command, @Nonnull String[] args) {
+    return args.length > 0 && command.equals(args[0]);
+  }
+
+  public final int parse() {
+    try {
+      return doParse();
+    } catch (IllegalStateException e) {
+      System.err.println("Error: " + e + "\n");
+      showHelp();
+      return -1;
+    }
+  }
+
+  /**
+   * @return Position of the last consumed argument
+   */
+  protected abstract int parseCurrentArg(int pos);
+
+  /**
+   * @return Help on the options of the command, one option per paragraph
+   */
+  @Nonnull
+  protected abstract String getOptionsHelp();
+
+  @Nonnull
+  protected final String stringArgValue(int pos, @Nonnull String valueName) {
+    final int nextPos = pos + 1;
+    if (nextPos < args.length) {
+      return args[nextPos];
+    }
+    throw new IllegalStateException("Extra argument expected for " + valueName);
+  }
+
+  protected final int intArgValue(int pos, @Nonnull String valueName) {
+    final String arg = stringArgValue(pos, valueName);
+    try {
+      return Integer.parseInt(arg);
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Unable to parse " + valueName, e);
+    }
+  }
+
+  protected final long timeArgValue(int pos, @Nonnull String valueName) {
+    final String arg = stringArgValue(pos, valueName);
+    final long result = AsciiDateTimeParser.parse(arg, 0);
+    if (result == AsciiDateTimeParser.MALFORMED || arg.length() != AsciiDateTimeParser.LENGTH) {
+      throw new IllegalStateException("Unable to parse " + valueName + ": " + arg);
+    }
+    return result;
+  }
+
+  /**
+   * @return Constant of the given enum, which name matches the argument regardless of case
+   */
+  @Nonnull
+  protected final <E extends Enum<E>> E enumArgValue(int pos, @Nonnull String valueName, @Nonnull Class<E> type) {
+    final String arg = stringArgValue(pos, valueName);
+    try {
+      return Enum.valueOf(type, arg.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalStateException("Unknown " + valueName.toLowerCase() + ": " + arg, e);
+    }
+  }
+
+  /**
+   * Adds comma separated severities of the argument to the given set.
+   */
+  protected final void severitiesArgValue(int pos, @Nonnull Set<Severity> severities) {
+    for (final String name : stringArgValue(pos, "Severity").split(",")) {
+      try {
+        severities.add(Severity.valueOf(name.trim().toUpperCase()));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException("Unknown severity: " + name, e);
+      }
+    }
+  }
+
+  /**
+   * Puts <code>key=value</code> attribute of the argument to the given map.
+   */
+  protected final void attributeArgValue(int pos, @Nonnull Map<String, String> attributes) {
+    final String arg = stringArgValue(pos, "Attribute");
+    final int separator = arg.indexOf('=');
+    if (separator <= 0) {
+      throw new IllegalStateException("Attribute should be given as key=value: " + arg);
+    }
+    attributes.put(arg.substring(0, separator), arg.substring(separator + 1));
+  }
+
+  //
+  // Private
+  //
+
+  private int doParse() {
+    // try find help switch (position doesn't matter, it overrides anything)
+    for (final String arg : args) {
+      if ("--help".equals(arg) || "-h".equals(arg)) {
+        showHelp();
+        return 0;
+      }
+    }
+
+    // parse arguments, skipping the command itself
+    for (int pos = 1; pos < args.length; ++pos) {
+      pos = parseCurrentArg(pos);
+    }
+
+    return 0;
+  }
+
+  private void showHelp() {
+    System.out.println("Usage: " + command + " [options]\n" +
+        "--help,-h                  Show help.\n" +
+        getOptionsHelp() +
+        "\n");
+  }
+}
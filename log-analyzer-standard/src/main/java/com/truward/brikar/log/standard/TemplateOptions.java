@@ -0,0 +1,76 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.template.TemplateMiner;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Options of matching messages against the mined templates.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TemplateOptions extends OptionGroup {
+  public static final int DEFAULT_MAX_TEMPLATES = TemplateMiner.DEFAULT_MAX_TEMPLATES;
+
+  private ArgParser.TemplateMode mode = ArgParser.TemplateMode.OFF;
+  private int maxTemplates = DEFAULT_MAX_TEMPLATES;
+  private String endpoint = null;
+
+  @Nonnull
+  public ArgParser.TemplateMode getMode() {
+    return mode;
+  }
+
+  public int getMaxTemplates() {
+    return maxTemplates;
+  }
+
+  /**
+   * @return Endpoint of the template definitions, that restore the messages of compact records, or null
+   */
+  @Nullable
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--templates".equals(args[pos])) {
+      mode = enumArgValue(args, pos, "Templates Mode", ArgParser.TemplateMode.class);
+    } else if ("--max-templates".equals(args[pos])) {
+      maxTemplates = intArgValue(args, pos, "Max Templates");
+    } else if ("--template-endpoint".equals(args[pos])) {
+      endpoint = stringArgValue(args, pos, "Template Endpoint");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (maxTemplates <= 0) {
+      throw new IllegalArgumentException("Max templates should be a positive number");
+    }
+
+    if (mode == ArgParser.TemplateMode.COMPACT && endpoint == null) {
+      throw new IllegalArgumentException("Compact templates mode requires template endpoint");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--templates {off|annotate|compact} Whether messages are matched against mined templates:\n" +
+        "                           annotate adds template ID, template and parameters to each record,\n" +
+        "                           compact sends template ID, version and parameters instead of message\n" +
+        "                           text and the templates to --template-endpoint, default value=off\n" +
+
+        "--max-templates {NUMBER}   Maximum number of templates kept, least recently used ones are evicted,\n" +
+        "                           default value=" + DEFAULT_MAX_TEMPLATES + '\n' +
+
+        "--template-endpoint {STRING} Endpoint, that gets each created or changed template with its ID\n" +
+        "                           and version, required by compact templates mode\n";
+  }
+}
@@ -0,0 +1,81 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.trace.TraceAssembler;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Options of grouping records by request into traces.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TraceOptions extends OptionGroup {
+  public static final long DEFAULT_TIMEOUT_MILLIS = TraceAssembler.DEFAULT_TIMEOUT_MILLIS;
+  public static final int DEFAULT_MAX_REQUESTS = TraceAssembler.DEFAULT_MAX_TRACES;
+  public static final int DEFAULT_MEMORY_MB = (int) (TraceAssembler.DEFAULT_MAX_BYTES / (1024 * 1024));
+
+  private String endpoint = null;
+  private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+  private int maxRequests = DEFAULT_MAX_REQUESTS;
+  private int memoryMegabytes = DEFAULT_MEMORY_MB;
+
+  /**
+   * @return Endpoint of the request traces or null, if records should not be grouped by request
+   */
+  @Nullable
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public int getMaxRequests() {
+    return maxRequests;
+  }
+
+  public int getMemoryMegabytes() {
+    return memoryMegabytes;
+  }
+
+  @Override
+  protected int parseArg(@Nonnull String[] args, int pos) {
+    if ("--trace-endpoint".equals(args[pos])) {
+      endpoint = stringArgValue(args, pos, "Trace Endpoint");
+    } else if ("--trace-timeout".equals(args[pos])) {
+      timeoutMillis = intArgValue(args, pos, "Trace Timeout");
+    } else if ("--trace-max-requests".equals(args[pos])) {
+      maxRequests = intArgValue(args, pos, "Trace Max Requests");
+    } else if ("--trace-memory".equals(args[pos])) {
+      memoryMegabytes = intArgValue(args, pos, "Trace Memory");
+    } else {
+      return -1;
+    }
+    return pos + 1;
+  }
+
+  @Override
+  protected void validate() {
+    if (timeoutMillis <= 0 || maxRequests <= 0 || memoryMegabytes <= 0) {
+      throw new IllegalArgumentException("Trace timeout and limits should be positive numbers");
+    }
+  }
+
+  @Nonnull
+  @Override
+  protected String getHelp() {
+    return "--trace-endpoint {STRING}  Endpoint, that gets records grouped by rid as one trace per request,\n" +
+        "                           traces are not assembled by default\n" +
+
+        "--trace-timeout {NUMBER}   Time in milliseconds since the last record of the request, after which\n" +
+        "                           its trace is complete, default value=" + DEFAULT_TIMEOUT_MILLIS + '\n' +
+
+        "--trace-max-requests {NUMBER} Maximum number of requests traced at once, idle ones are completed\n" +
+        "                           early, default value=" + DEFAULT_MAX_REQUESTS + '\n' +
+
+        "--trace-memory {NUMBER}    Megabytes of records kept by the open traces, idle ones are completed\n" +
+        "                           early, default value=" + DEFAULT_MEMORY_MB + '\n';
+  }
+}
@@ -0,0 +1,39 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.metric.FreshnessTracker;
+import com.truward.brikar.log.model.Severity;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * A processor that records freshness lag of the record, which has been accepted by the endpoint. It should follow
+ * the endpoint, record time and severity are taken from the properties set by {@link FreshnessStampProcessor}.
+ * Records without {@link FreshnessStampProcessor#SOURCE_HEADER} are counted as {@link #UNKNOWN_SOURCE}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FreshnessAckProcessor implements Processor {
+  public static final String UNKNOWN_SOURCE = "unknown";
+
+  private final FreshnessTracker tracker;
+
+  public FreshnessAckProcessor(@Nonnull FreshnessTracker tracker) {
+    this.tracker = Objects.requireNonNull(tracker, "tracker");
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final Long time = exchange.getProperty(FreshnessStampProcessor.TIME_PROPERTY, Long.class);
+    if (time == null || exchange.isFailed()) {
+      return;
+    }
+
+    final String source = exchange.getIn().getHeader(FreshnessStampProcessor.SOURCE_HEADER, String.class);
+    tracker.record(source != null ? source : UNKNOWN_SOURCE,
+        exchange.getProperty(FreshnessStampProcessor.SEVERITY_PROPERTY, Severity.class), time,
+        System.currentTimeMillis());
+  }
+}
@@ -0,0 +1,63 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.metric.FreshnessReport;
+import com.truward.brikar.log.metric.LatencyHistogram;
+import com.truward.brikar.log.model.Severity;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A processor that transforms freshness report to map, lags are reported as count, percentiles and maximum
+ * in milliseconds.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FreshnessReportToMapProcessor implements Processor {
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final FreshnessReport report = exchange.getIn().getBody(FreshnessReport.class);
+    exchange.getOut().setBody(toMap(report));
+  }
+
+  @Nonnull
+  public static Map<String, Object> toMap(@Nonnull FreshnessReport report) {
+    final Map<String, Object> map = new HashMap<>(8);
+
+    final Map<String, Object> sources = new HashMap<>();
+    for (final Map.Entry<String, LatencyHistogram> entry : report.getLagBySource().entrySet()) {
+      sources.put(entry.getKey(), toMap(entry.getValue()));
+    }
+
+    final Map<String, Object> severities = new HashMap<>();
+    for (final Map.Entry<Severity, LatencyHistogram> entry : report.getLagBySeverity().entrySet()) {
+      severities.put(entry.getKey().name(), toMap(entry.getValue()));
+    }
+
+    map.put("report", "freshness");
+    map.put("start", report.getStart());
+    map.put("end", report.getEnd());
+    map.put("lagBySource", sources);
+    map.put("lagBySeverity", severities);
+    map.put("readerLagBytes", new HashMap<>(report.getReaderLag()));
+
+    return map;
+  }
+
+  //
+  // Private
+  //
+
+  private static Map<String, Object> toMap(LatencyHistogram histogram) {
+    final Map<String, Object> map = new HashMap<>(8);
+    map.put("count", histogram.getCount());
+    map.put("p50", histogram.getPercentile(50.0));
+    map.put("p99", histogram.getPercentile(99.0));
+    map.put("max", histogram.getMax());
+    return map;
+  }
+}
@@ -0,0 +1,47 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import java.util.Map;
+
+/**
+ * A processor that keeps time and severity of the record in the exchange properties before it is sent
+ * to the endpoint, which may replace the body with its response, see {@link FreshnessAckProcessor}.
+ * Records are expected to be mapped by {@link LogMessageToMapProcessor}, parsed records are accepted as well.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FreshnessStampProcessor implements Processor {
+  /**
+   * Header, that keeps the source of the record, e.g. file name.
+   */
+  public static final String SOURCE_HEADER = "LogSource";
+
+  static final String TIME_PROPERTY = "LogRecordTime";
+  static final String SEVERITY_PROPERTY = "LogRecordSeverity";
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final Object body = exchange.getIn().getBody();
+    if (body instanceof LogMessage) {
+      final LogMessage logMessage = (LogMessage) body;
+      if (!logMessage.isNull()) {
+        exchange.setProperty(TIME_PROPERTY, logMessage.getUnixTime());
+        exchange.setProperty(SEVERITY_PROPERTY, logMessage.getSeverity());
+      }
+    } else if (body instanceof Map) {
+      final Map<?, ?> map = (Map<?, ?>) body;
+      final Object time = map.get("time");
+      if (time instanceof Number) {
+        exchange.setProperty(TIME_PROPERTY, ((Number) time).longValue());
+        final Object severity = map.get("severity");
+        if (severity != null) {
+          exchange.setProperty(SEVERITY_PROPERTY, Severity.fromString(severity.toString(), null));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.routing.RoutedRecord;
+import com.truward.brikar.log.routing.RoutingTable;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.util.MultiLineAssembler;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Processor that takes a batch of lines, produced by {@link com.truward.brikar.log.camel.LineBatchSplitter},
+ * and does in one pass what the per-line route does in separate steps: drops empty lines, parses the rest,
+ * folds multiline parts into records, drops malformed ones and converts complete records to maps.
+ * The resulting body is a list of maps, one per complete record. If routing table is given, each map is wrapped
+ * into {@link RoutedRecord} with the endpoints of the record, since they can not be found from the map.
+ * <p>
+ * Record may span several batches. Pending record is completed once the next one starts, once it reaches
+ * the max number of lines or once the given time has passed since it started, the latter is checked on each
+ * batch, including empty ones.
+ * <p>
+ * This class is not thread safe, batches should come in the same order as lines appear in the source log file.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FusedBatchProcessor implements Processor {
+  private final LogLineParser parser;
+  private final long maxPopulationTimeMillis;
+  private final MultiLineAssembler assembler;
+
+  private List<Object> records = new ArrayList<>();
+  private long pendingSince;
+
+  /**
+   * @param parser Line parser
+   * @param maxLines Maximum number of lines in record
+   * @param maxPopulationTimeMillis Time to wait for the rest of the pending record
+   * @param tap Sink, that gets each complete record before it is converted to map
+   * @param mapper Converter of the complete records to maps
+   * @param routingTable Routing rules, null if all the records go to the same endpoint
+   */
+  public FusedBatchProcessor(@Nonnull LogLineParser parser, int maxLines, long maxPopulationTimeMillis,
+                             @Nonnull final LogMessageSink tap, @Nonnull final LogMessageToMapProcessor mapper,
+                             @Nullable final RoutingTable routingTable) {
+    Objects.requireNonNull(tap, "tap");
+    Objects.requireNonNull(mapper, "mapper");
+    this.parser = Objects.requireNonNull(parser, "parser");
+    this.maxPopulationTimeMillis = maxPopulationTimeMillis;
+    this.assembler = new MultiLineAssembler(maxLines, new LogMessageSink() {
+      @Override
+      public void accept(@Nonnull LogMessage message) {
+        tap.accept(message);
+        final Map<String, Object> map = mapper.convert(message);
+        records.add(routingTable != null ? new RoutedRecord(map, routingTable.route(message)) : map);
+      }
+    });
+  }
+
+  public FusedBatchProcessor(@Nonnull LogLineParser parser, int maxLines, long maxPopulationTimeMillis,
+                             @Nonnull LogMessageSink tap, @Nonnull LogMessageToMapProcessor mapper) {
+    this(parser, maxLines, maxPopulationTimeMillis, tap, mapper, null);
+  }
+
+  public FusedBatchProcessor(@Nonnull LogLineParser parser, int maxLines, long maxPopulationTimeMillis) {
+    this(parser, maxLines, maxPopulationTimeMillis, new LogMessageSink() {
+      @Override
+      public void accept(@Nonnull LogMessage message) {
+        // no tap
+      }
+    }, new LogMessageToMapProcessor());
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final List<?> lines = exchange.getIn().getBody(List.class);
+    final long now = System.currentTimeMillis();
+
+    if (lines != null) {
+      for (final Object line : lines) {
+        final String value = line.toString();
+        if (value.isEmpty()) {
+          continue;
+        }
+
+        final LogMessage message = parser.parse(value);
+        if (!message.isNull() && !message.isMultiLinePart()) {
+          pendingSince = now;
+        }
+        assembler.accept(message);
+      }
+    }
+
+    if (assembler.hasPending() && now - pendingSince >= maxPopulationTimeMillis) {
+      assembler.flush();
+    }
+
+    exchange.getIn().setBody(records);
+    records = new ArrayList<>();
+  }
+}
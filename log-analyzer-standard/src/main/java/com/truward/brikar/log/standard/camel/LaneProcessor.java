@@ -0,0 +1,69 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.lane.Lane;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A processor that queues ERROR and WARN records to the priority lane and the rest of them to the bulk lane, so that
+ * failures are not delayed by the bulk of informational records on their way to the endpoint. Records are expected
+ * to be mapped by {@link LogMessageToMapProcessor}, parsed records are accepted as well. Messages are queued
+ * with their headers.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LaneProcessor implements Processor, AutoCloseable {
+  private final Lane<Message> priorityLane;
+  private final Lane<Message> bulkLane;
+
+  public LaneProcessor(@Nonnull Lane<Message> priorityLane, @Nonnull Lane<Message> bulkLane) {
+    this.priorityLane = Objects.requireNonNull(priorityLane, "priorityLane");
+    this.bulkLane = Objects.requireNonNull(bulkLane, "bulkLane");
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final Message message = exchange.getIn();
+    (isPriority(message.getBody()) ? priorityLane : bulkLane).put(message);
+  }
+
+  @Nonnull
+  public Lane<Message> getPriorityLane() {
+    return priorityLane;
+  }
+
+  @Nonnull
+  public Lane<Message> getBulkLane() {
+    return bulkLane;
+  }
+
+  /**
+   * Waits for the queued records to be sent.
+   */
+  @Override
+  public void close() throws Exception {
+    priorityLane.close();
+    bulkLane.close();
+  }
+
+  public static boolean isPriority(@Nullable Object record) {
+    final Severity severity;
+    if (record instanceof LogMessage) {
+      severity = ((LogMessage) record).getSeverity();
+    } else if (record instanceof Map) {
+      final Object value = ((Map<?, ?>) record).get("severity");
+      severity = value != null ? Severity.fromString(value.toString(), null) : null;
+    } else {
+      severity = null;
+    }
+    return severity == Severity.ERROR || severity == Severity.WARN;
+  }
+}
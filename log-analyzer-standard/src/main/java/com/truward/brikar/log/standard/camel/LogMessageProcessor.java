@@ -2,27 +2,28 @@ package com.truward.brikar.log.standard.camel;
 
 import com.truward.brikar.common.log.LogUtil;
 import com.truward.brikar.log.model.*;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.util.AsciiDateTimeParser;
 import com.truward.brikar.log.util.CommaSeparatedValueParser;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Message processor that converts a line into a message.
+ * Message processor that converts a line into a message. Parsing is stateless, so the same instance
+ * could be used from many threads. Use {@link com.truward.brikar.log.camel.RecordIdProcessor} to
+ * number the records for aggregation.
  *
  * @author Alexander Shabanov
  */
-public final class LogMessageProcessor implements Processor {
+public final class LogMessageProcessor implements Processor, LogLineParser {
 
   public static final Pattern RECORD_PATTERN = Pattern.compile(
       "^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2},\\d{3}) " + // date+time
@@ -35,33 +36,20 @@ public final class LogMessageProcessor implements Processor {
   );
 
   private static final String METRIC_MARKER = LogUtil.METRIC_ENTRY + ' ';
+  private static final byte[] METRIC_MARKER_BYTES = METRIC_MARKER.getBytes(StandardCharsets.UTF_8);
+  private static final Severity[] SEVERITIES = Severity.values();
 
   private final Logger log = LoggerFactory.getLogger(getClass());
-  private final DateFormat dateFormat;
-  private int count = 0;
-
-  public LogMessageProcessor() {
-    this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
-    this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-  }
 
   @Override
   public void process(Exchange exchange) throws Exception {
     final String line = exchange.getIn().getBody(String.class);
-    final LogMessage logMessage = parse(line);
-
-    exchange.getOut().setBody(logMessage);
-
-    // create header that will assign unique ID - this assumes message will come in the same order as they
-    // appear in the source log file - otherwise this code will not work
-    if (!logMessage.isMultiLinePart()) {
-      ++count;
-    }
-    exchange.getOut().setHeader("id", count);
+    exchange.getOut().setBody(parse(line));
   }
 
-  // visible for testing
-  public LogMessage parse(String line) {
+  @Nonnull
+  @Override
+  public LogMessage parse(@Nonnull String line) {
     final Matcher matcher = RECORD_PATTERN.matcher(line);
     if (!matcher.matches()) {
       return new MultiLinePartLogMessage(line);
@@ -72,17 +60,16 @@ public final class LogMessageProcessor implements Processor {
       return NullLogMessage.INSTANCE; // should not happen
     }
 
-    final Date date;
-    try {
-      date = dateFormat.parse(matcher.group(1));
-    } catch (ParseException e) {
-      log.error("Malformed date in line={}", line, e);
-      return NullLogMessage.INSTANCE; // should not happen
+    final long unixTime = AsciiDateTimeParser.parse(line, matcher.start(1));
+    if (unixTime == AsciiDateTimeParser.MALFORMED) {
+      log.error("Malformed date in line={}", line);
+      return NullLogMessage.INSTANCE; // byte parser returns the same for such lines
     }
 
     final Severity severity = Severity.fromString(matcher.group(2), Severity.WARN);
 
-    final MaterializedLogMessage logMessage = new MaterializedLogMessage(date.getTime(), severity, line);
+    final MaterializedLogMessage logMessage = new MaterializedLogMessage(unixTime, severity, matcher.group(3), line,
+        matcher.start(5));
     addAttributesFromVariables(logMessage, matcher.group(4));
 
     final String message = matcher.group(5);
@@ -96,21 +83,216 @@ public final class LogMessageProcessor implements Processor {
     return logMessage;
   }
 
+  /**
+   * Parses the line the same way {@link #RECORD_PATTERN} does, but right from the bytes. Only variables and metric
+   * body are decoded, the rest of the line is kept in the buffer until requested.
+   */
+  @Nonnull
+  @Override
+  public LogMessage parse(@Nonnull byte[] buffer, int offset, int length) {
+    final int end = offset + length;
+
+    // date+time, the one, that has the right shape, but is not a valid date, is only reported once the rest
+    // of the line is known to start a record, the same way pattern is matched before date is parsed
+    int pos = offset + AsciiDateTimeParser.LENGTH;
+    if (pos >= end || buffer[pos] != ' ' || !isDateShaped(buffer, offset)) {
+      return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+    }
+    final long unixTime = AsciiDateTimeParser.parse(buffer, offset, pos);
+    ++pos;
+
+    // severity
+    final int severityStart = pos;
+    while (pos < end && buffer[pos] >= 'A' && buffer[pos] <= 'Z') {
+      ++pos;
+    }
+    if (pos == severityStart || pos >= end || buffer[pos] != ' ') {
+      return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+    }
+    final Severity severity = severityFromBytes(buffer, severityStart, pos);
+    ++pos;
+
+    // class name
+    final int classStart = pos;
+    while (pos < end && isWordOrPunct(buffer[pos])) {
+      ++pos;
+    }
+    if (pos == classStart || pos >= end || buffer[pos] != ' ') {
+      return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+    }
+    final int classEnd = pos;
+    ++pos;
+
+    // variables
+    final int variablesStart = pos;
+    if (pos < end && buffer[pos] != ' ') {
+      pos = skipVariables(buffer, pos, end);
+      if (pos < 0) {
+        return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+      }
+    }
+    final int variablesEnd = pos;
+    if (pos >= end || buffer[pos] != ' ') {
+      return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+    }
+    ++pos;
+
+    // thread ID
+    if (pos >= end || buffer[pos] != '[') {
+      return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+    }
+    ++pos;
+    final int threadStart = pos;
+    while (pos < end && buffer[pos] != ']' && isWordOrPunct(buffer[pos])) {
+      ++pos;
+    }
+    if (pos == threadStart || pos + 1 >= end || buffer[pos] != ']' || buffer[pos + 1] != ' ') {
+      return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+    }
+    pos += 2;
+
+    // message
+    if (pos >= end) {
+      return ByteSliceLogMessage.multiLinePart(buffer, offset, length);
+    }
+
+    if (unixTime == AsciiDateTimeParser.MALFORMED) {
+      log.error("Malformed date in line={}", new String(buffer, offset, length, StandardCharsets.UTF_8));
+      return NullLogMessage.INSTANCE;
+    }
+
+    final ByteSliceLogMessage logMessage = ByteSliceLogMessage.record(unixTime, severity, buffer, offset, length,
+        classStart, classEnd - classStart, pos);
+    if (variablesEnd > variablesStart) {
+      addAttributesFromVariables(logMessage,
+          new String(buffer, variablesStart, variablesEnd - variablesStart, StandardCharsets.US_ASCII));
+    }
+
+    final int metricIndex = indexOf(buffer, pos, end, METRIC_MARKER_BYTES);
+    if (metricIndex >= 0) {
+      final int metricStart = metricIndex + METRIC_MARKER_BYTES.length;
+      addAttributesFromMetrics(logMessage,
+          new String(buffer, metricStart, end - metricStart, StandardCharsets.UTF_8));
+    }
+
+    return logMessage;
+  }
+
   //
   // Private
   //
 
-  private void addAttributesFromMetrics(MaterializedLogMessage logMessage, String metricBody) {
+  /**
+   * @return If the date has the digits and separators, {@link #RECORD_PATTERN} expects
+   */
+  private static boolean isDateShaped(byte[] buffer, int offset) {
+    for (int i = 0; i < AsciiDateTimeParser.LENGTH; ++i) {
+      final byte b = buffer[offset + i];
+      final boolean matches;
+      switch (i) {
+        case 4: case 7: matches = b == '-'; break;
+        case 10: matches = b == ' '; break;
+        case 13: case 16: matches = b == ':'; break;
+        case 19: matches = b == ','; break;
+        default: matches = b >= '0' && b <= '9';
+      }
+      if (!matches) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static Severity severityFromBytes(byte[] buffer, int start, int end) {
+    for (final Severity severity : SEVERITIES) {
+      final String name = severity.name();
+      if (name.length() != (end - start)) {
+        continue;
+      }
+
+      boolean matches = true;
+      for (int i = 0; i < name.length(); ++i) {
+        if (buffer[start + i] != name.charAt(i)) {
+          matches = false;
+          break;
+        }
+      }
+      if (matches) {
+        return severity;
+      }
+    }
+    return Severity.WARN;
+  }
+
+  /**
+   * Skips variables in the form of <code>key1=value1, key2=value2</code>.
+   *
+   * @return Position right after the variables or -1 if variables are malformed
+   */
+  private static int skipVariables(byte[] buffer, int pos, int end) {
+    for (;;) {
+      final int keyStart = pos;
+      while (pos < end && isWord(buffer[pos])) {
+        ++pos;
+      }
+      if (pos == keyStart || pos >= end || buffer[pos] != '=') {
+        return -1;
+      }
+      ++pos;
+
+      final int valueStart = pos;
+      while (pos < end && isVariableValue(buffer[pos])) {
+        ++pos;
+      }
+      if (pos == valueStart) {
+        return -1;
+      }
+
+      if (pos + 1 < end && buffer[pos] == ',' && buffer[pos + 1] == ' ') {
+        pos += 2;
+        continue;
+      }
+      return pos;
+    }
+  }
+
+  private static boolean isWord(byte b) {
+    return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+  }
+
+  private static boolean isWordOrPunct(byte b) {
+    return b > ' ' && b < 0x7f; // ASCII characters, that are either word or punctuation ones
+  }
+
+  private static boolean isVariableValue(byte b) {
+    return isWord(b) || b == '+' || b == '/' || b == '.' || b == '$';
+  }
+
+  private static int indexOf(byte[] buffer, int start, int end, byte[] pattern) {
+    final int last = end - pattern.length;
+    outer:
+    for (int i = start; i <= last; ++i) {
+      for (int j = 0; j < pattern.length; ++j) {
+        if (buffer[i + j] != pattern[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  private void addAttributesFromMetrics(LogMessage logMessage, String metricBody) {
     putAllAttributes(logMessage, new CommaSeparatedValueParser(metricBody).readAsMap());
   }
 
-  private void addAttributesFromVariables(MaterializedLogMessage logMessage, String variables) {
+  private void addAttributesFromVariables(LogMessage logMessage, String variables) {
     if (variables != null) {
       putAllAttributes(logMessage, new CommaSeparatedValueParser(variables).readAsMap());
     }
   }
 
-  private void putAllAttributes(MaterializedLogMessage logMessage, Map<String, String> vars) {
+  private void putAllAttributes(LogMessage logMessage, Map<String, String> vars) {
     for (final Map.Entry<String, String> entry : vars.entrySet()) {
       final String key = entry.getKey();
       final Object value;
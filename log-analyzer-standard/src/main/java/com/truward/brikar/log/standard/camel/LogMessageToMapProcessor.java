@@ -1,21 +1,103 @@
 package com.truward.brikar.log.standard.camel;
 
 import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.template.TemplateMatch;
+import com.truward.brikar.log.template.TemplateMiner;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
- * A processor that transforms
+ * A processor that transforms log message to map. If template miner is given, map also gets the template ID,
+ * version and the parameters of the message.
+ * <p>
+ * In compact mode the first line is replaced with its header, that precedes the message, and the template
+ * definition is not added at all. Instead, each created or changed definition is passed to the definition listener
+ * before the map is returned, so the message is restored as <code>header + LogTemplate.render(template,
+ * parameters)</code>, where template is the definition with the same ID and version. Endpoint and the receiver
+ * of the definitions may keep them in any order.
  *
  * @author Alexander Shabanov
  */
 public final class LogMessageToMapProcessor implements Processor {
+  private final TemplateMiner templateMiner;
+  private final boolean compact;
+  private final IntConsumer templateListener;
+  private final Consumer<TemplateMatch> definitionListener;
+
+  /**
+   * @param templateMiner Template miner, or null if records should not be matched against templates
+   * @param compact Whether message should be replaced by template ID and parameters
+   * @param templateListener Receiver of the IDs of the matched templates, such as sketches, or null
+   * @param definitionListener Receiver of the created and changed template definitions, or null,
+   *                           it is required in compact mode
+   */
+  public LogMessageToMapProcessor(@Nullable TemplateMiner templateMiner, boolean compact,
+                                  @Nullable IntConsumer templateListener,
+                                  @Nullable Consumer<TemplateMatch> definitionListener) {
+    if (compact && (templateMiner == null || definitionListener == null)) {
+      throw new IllegalArgumentException("Compact mode requires template miner and receiver of the definitions");
+    }
+    this.templateMiner = templateMiner;
+    this.compact = compact;
+    this.templateListener = templateListener;
+    this.definitionListener = definitionListener;
+  }
+
+  public LogMessageToMapProcessor(@Nullable TemplateMiner templateMiner) {
+    this(templateMiner, false, null, null);
+  }
+
+  public LogMessageToMapProcessor() {
+    this(null);
+  }
+
   @Override
   public void process(Exchange exchange) throws Exception {
     final LogMessage logMessage = exchange.getIn().getBody(LogMessage.class);
+    exchange.getIn().setBody(convert(logMessage)); // keeps the headers, such as source of the record
+  }
+
+  @Nonnull
+  public Map<String, Object> convert(@Nonnull LogMessage logMessage) {
+    final Map<String, Object> map = toMap(logMessage);
+    if (templateMiner == null) {
+      return map;
+    }
+
+    final String message = logMessage.getMessage();
+    final TemplateMatch match = templateMiner.match(message);
+    map.put("templateId", match.getTemplateId());
+    map.put("templateVersion", match.getTemplateVersion());
+    if (templateListener != null) {
+      templateListener.accept(match.getTemplateId());
+    }
+    map.put("parameters", match.getParameters());
+    if (!compact) {
+      map.put("template", match.getTemplate());
+    }
+    if (definitionListener != null && match.isTemplateChanged()) {
+      definitionListener.accept(match);
+    }
+
+    if (compact) {
+      final List<String> lines = logMessage.getLines();
+      final String logEntry = lines.get(0);
+      map.put("header", logEntry.substring(0, logEntry.length() - message.length()));
+      map.put("lines", lines.subList(1, lines.size()));
+    }
+    return map;
+  }
+
+  @Nonnull
+  public static Map<String, Object> toMap(@Nonnull LogMessage logMessage) {
     final Map<String, Object> map = new HashMap<>(30);
 
     map.put("lines", logMessage.getLines());
@@ -23,6 +105,6 @@ public final class LogMessageToMapProcessor implements Processor {
     map.put("time", logMessage.getUnixTime());
     map.put("attributes", logMessage.getAttributes());
 
-    exchange.getOut().setBody(map);
+    return map;
   }
 }
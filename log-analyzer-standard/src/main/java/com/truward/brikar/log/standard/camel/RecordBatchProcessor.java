@@ -0,0 +1,62 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.routing.RoutedRecord;
+import com.truward.brikar.log.routing.RoutingTable;
+import com.truward.brikar.log.sink.LogMessageSink;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Processor that takes a batch of records, assembled outside of Camel, passes each one to the tap and converts it
+ * to map. The resulting body is a list of maps, the same as produced by {@link FusedBatchProcessor}, so that
+ * the rest of the route splits it the same way. If routing table is given, each map is wrapped
+ * into {@link RoutedRecord} with the endpoints of the record.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecordBatchProcessor implements Processor {
+  private final LogMessageSink tap;
+  private final LogMessageToMapProcessor mapper;
+  private final RoutingTable routingTable;
+
+  /**
+   * @param tap Sink, that gets each record before it is converted to map
+   * @param mapper Converter of the records to maps
+   * @param routingTable Routing rules, null if all the records go to the same endpoint
+   */
+  public RecordBatchProcessor(@Nonnull LogMessageSink tap, @Nonnull LogMessageToMapProcessor mapper,
+                              @Nullable RoutingTable routingTable) {
+    this.tap = Objects.requireNonNull(tap, "tap");
+    this.mapper = Objects.requireNonNull(mapper, "mapper");
+    this.routingTable = routingTable;
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final List<?> messages = exchange.getIn().getBody(List.class);
+    final List<Object> records = new ArrayList<>(messages != null ? messages.size() : 0);
+
+    if (messages != null) {
+      for (final Object item : messages) {
+        final LogMessage message = (LogMessage) item;
+        if (message.isNull()) {
+          continue;
+        }
+
+        tap.accept(message);
+        final Map<String, Object> map = mapper.convert(message);
+        records.add(routingTable != null ? new RoutedRecord(map, routingTable.route(message)) : map);
+      }
+    }
+
+    exchange.getIn().setBody(records);
+  }
+}
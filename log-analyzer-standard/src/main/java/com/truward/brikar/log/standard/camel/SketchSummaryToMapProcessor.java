@@ -0,0 +1,63 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.sketch.HyperLogLog;
+import com.truward.brikar.log.sketch.SketchSummary;
+import com.truward.brikar.log.sketch.TopK;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A processor that transforms sketch summary to map. Estimators of the distinct values are added as base64
+ * encoded registers along with the estimates, so that the consumer could merge them.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SketchSummaryToMapProcessor implements Processor {
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final SketchSummary summary = exchange.getIn().getBody(SketchSummary.class);
+    exchange.getOut().setBody(toMap(summary));
+  }
+
+  @Nonnull
+  public static Map<String, Object> toMap(@Nonnull SketchSummary summary) {
+    final Map<String, Object> map = new HashMap<>(8);
+
+    final Map<String, Object> top = new HashMap<>();
+    for (final Map.Entry<String, List<TopK.Entry>> dimension : summary.getTop().entrySet()) {
+      final List<Map<String, Object>> entries = new ArrayList<>(dimension.getValue().size());
+      for (final TopK.Entry entry : dimension.getValue()) {
+        final Map<String, Object> entryMap = new HashMap<>(4);
+        entryMap.put("key", entry.getKey());
+        entryMap.put("count", entry.getCount());
+        entryMap.put("error", entry.getError());
+        entries.add(entryMap);
+      }
+      top.put(dimension.getKey(), entries);
+    }
+
+    final Map<String, Object> distinct = new HashMap<>();
+    final Map<String, Object> registers = new HashMap<>();
+    for (final Map.Entry<String, HyperLogLog> attribute : summary.getDistinct().entrySet()) {
+      distinct.put(attribute.getKey(), attribute.getValue().estimate());
+      registers.put(attribute.getKey(), Base64.getEncoder().encodeToString(attribute.getValue().toByteArray()));
+    }
+
+    map.put("start", summary.getStart());
+    map.put("end", summary.getEnd());
+    map.put("records", summary.getRecordCount());
+    map.put("top", top);
+    map.put("distinct", distinct);
+    map.put("distinctRegisters", registers);
+
+    return map;
+  }
+}
@@ -0,0 +1,38 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.alert.SpikeAlert;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A processor that transforms spike alert to map.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SpikeAlertToMapProcessor implements Processor {
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final SpikeAlert alert = exchange.getIn().getBody(SpikeAlert.class);
+    exchange.getOut().setBody(toMap(alert));
+  }
+
+  @Nonnull
+  public static Map<String, Object> toMap(@Nonnull SpikeAlert alert) {
+    final Map<String, Object> map = new HashMap<>(8);
+
+    map.put("alert", "spike");
+    map.put("dimension", alert.getDimension());
+    map.put("key", alert.getKey());
+    map.put("time", alert.getTime());
+    map.put("count", alert.getCount());
+    map.put("baseline", alert.getBaseline());
+    map.put("deviation", alert.getDeviation());
+
+    return map;
+  }
+}
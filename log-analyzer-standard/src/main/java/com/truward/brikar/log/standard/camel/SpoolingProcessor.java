@@ -0,0 +1,305 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.spool.DiskSpool;
+import com.truward.brikar.log.spool.ValueCodec;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.ProducerTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A processor that sends records to the endpoint while it is healthy and spools them to disk otherwise, so that
+ * slow or failing endpoint does not stop the reading of the source files. Endpoint is considered unhealthy once
+ * the record could not be sent to it or the send took longer than the latency threshold.
+ * <p>
+ * Spooled records are replayed by the separate thread: while endpoint is unhealthy, it is probed with the oldest
+ * spooled record once per retry interval. Once it has been sent, spooled records are sent oldest first at the given
+ * rate, in parallel with the live records, which are sent to the endpoint directly again.
+ * <p>
+ * Failure to send the spooled record, caused by {@link IOException}, means that endpoint is unavailable, any other
+ * failure means that endpoint has rejected the record. Record, that has been rejected the given number of times
+ * or that could not be decoded, is moved to the dead letter spool, so that it does not block the records after it.
+ * Replay thread survives the failures of the spool: they are logged and replay is retried after the retry interval.
+ * <p>
+ * Records are spooled along with their headers, except for the Camel ones. Spool is flushed once per retry interval
+ * while the endpoint is unhealthy, so the records, spooled within the last interval, are lost if the process crashes.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SpoolingProcessor implements Processor, AutoCloseable {
+  public static final long DEFAULT_LATENCY_THRESHOLD_MILLIS = 1000L;
+  public static final int DEFAULT_DRAIN_RATE = 5000;
+  public static final long DEFAULT_RETRY_INTERVAL_MILLIS = 5000L;
+  public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+  private static final long IDLE_POLL_MILLIS = 100L;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final ProducerTemplate template;
+  private final String endpoint;
+  private final DiskSpool spool;
+  private final DiskSpool deadLetters;
+  private final long latencyThresholdNanos;
+  private final long drainIntervalNanos;
+  private final long retryIntervalMillis;
+  private final int maxAttempts;
+  private final Thread drainer;
+
+  // accessed by the drainer only
+  private byte[] attemptedRecord;
+  private int attemptCount;
+
+  private volatile boolean healthy = true;
+  private volatile boolean closed;
+  private volatile long deadLetterCount;
+
+  /**
+   * @param template Template, records are sent with
+   * @param endpoint Target endpoint
+   * @param spool Spool of the records, that could not be sent
+   * @param deadLetters Spool of the records, that have been rejected by the endpoint or could not be decoded
+   * @param latencyThresholdMillis Send time, after which endpoint is considered unhealthy
+   * @param drainRate Maximum number of spooled records sent per second
+   * @param retryIntervalMillis Time between the attempts to send spooled record to the unhealthy endpoint
+   * @param maxAttempts Number of times the spooled record could be rejected before it is moved to dead letters
+   */
+  public SpoolingProcessor(@Nonnull ProducerTemplate template, @Nonnull String endpoint, @Nonnull DiskSpool spool,
+                           @Nonnull DiskSpool deadLetters, long latencyThresholdMillis, int drainRate,
+                           long retryIntervalMillis, int maxAttempts) {
+    if (latencyThresholdMillis <= 0 || drainRate <= 0 || retryIntervalMillis <= 0 || maxAttempts <= 0) {
+      throw new IllegalArgumentException("Latency threshold, drain rate, retry interval and maximum attempts " +
+          "should be positive numbers");
+    }
+
+    this.template = Objects.requireNonNull(template, "template");
+    this.endpoint = Objects.requireNonNull(endpoint, "endpoint");
+    this.spool = Objects.requireNonNull(spool, "spool");
+    this.deadLetters = Objects.requireNonNull(deadLetters, "deadLetters");
+    this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+    this.drainIntervalNanos = TimeUnit.SECONDS.toNanos(1) / drainRate;
+    this.retryIntervalMillis = retryIntervalMillis;
+    this.maxAttempts = maxAttempts;
+
+    this.drainer = new Thread(this::drain, "spool-drainer");
+    this.drainer.setDaemon(true);
+    this.drainer.start();
+  }
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final Object body = exchange.getIn().getBody();
+    final Map<String, Object> headers = getHeaders(exchange);
+    if (!healthy) {
+      spool.append(encode(headers, body));
+      return;
+    }
+
+    final long start = System.nanoTime();
+    try {
+      template.sendBodyAndHeaders(endpoint, body, headers);
+    } catch (RuntimeException e) {
+      spool.append(encode(headers, body));
+      markUnhealthy("Unable to send record to " + endpoint + ", spooling records", e);
+      return;
+    }
+
+    if (System.nanoTime() - start > latencyThresholdNanos) {
+      markUnhealthy("Endpoint " + endpoint + " is slow, spooling records", null); // this record has been sent
+    }
+  }
+
+  public boolean isHealthy() {
+    return healthy;
+  }
+
+  /**
+   * @return Number of records in the spool
+   */
+  public long getDepth() {
+    return spool.getDepth();
+  }
+
+  /**
+   * @return If spooled records are replayed, false means that replay thread has stopped
+   */
+  public boolean isDrainerAlive() {
+    return drainer.isAlive();
+  }
+
+  /**
+   * @return Number of records, moved to the dead letter spool
+   */
+  public long getDeadLetterCount() {
+    return deadLetterCount;
+  }
+
+  @Nonnull
+  public DiskSpool getSpool() {
+    return spool;
+  }
+
+  @Nonnull
+  public DiskSpool getDeadLetters() {
+    return deadLetters;
+  }
+
+  /**
+   * Stops replay and closes the spools, records, that have not been replayed, are kept for the next run.
+   */
+  @Override
+  public void close() throws Exception {
+    closed = true;
+    drainer.interrupt();
+    drainer.join();
+    try {
+      spool.close();
+    } finally {
+      deadLetters.close();
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static Map<String, Object> getHeaders(Exchange exchange) {
+    final Map<String, Object> result = new HashMap<>();
+    for (final Map.Entry<String, Object> header : exchange.getIn().getHeaders().entrySet()) {
+      if (!header.getKey().startsWith("Camel")) {
+        result.put(header.getKey(), header.getValue());
+      }
+    }
+    return result;
+  }
+
+  private static byte[] encode(Map<String, Object> headers, Object body) {
+    return ValueCodec.encode(Arrays.asList(headers, body));
+  }
+
+  private void markUnhealthy(String message, Exception e) {
+    if (healthy) {
+      healthy = false;
+      if (e != null) {
+        log.warn(message, e);
+      } else {
+        log.warn(message);
+      }
+    }
+  }
+
+  private void drain() {
+    long nextSend = System.nanoTime();
+    while (!closed) {
+      try {
+        if (!healthy) {
+          spool.flush();
+          Thread.sleep(retryIntervalMillis);
+          if (sendSpooled()) {
+            healthy = true;
+            log.info("Endpoint {} has recovered, replaying {} spooled record(s)", endpoint, spool.getDepth());
+          }
+          nextSend = System.nanoTime();
+          continue;
+        }
+
+        final long delay = nextSend - System.nanoTime();
+        if (delay > 0) {
+          TimeUnit.NANOSECONDS.sleep(delay);
+        }
+        if (spool.getDepth() == 0) {
+          Thread.sleep(IDLE_POLL_MILLIS);
+          nextSend = System.nanoTime();
+          continue;
+        }
+        if (!sendSpooled()) {
+          markUnhealthy("Unable to replay spooled records to " + endpoint, null);
+        }
+        nextSend += drainIntervalNanos;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (IOException | RuntimeException e) {
+        if (closed) {
+          return;
+        }
+        log.error("Unable to replay spooled records, retrying in {} ms", retryIntervalMillis, e);
+        try {
+          Thread.sleep(retryIntervalMillis);
+        } catch (InterruptedException ignored) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        nextSend = System.nanoTime();
+      }
+    }
+  }
+
+  // sends the oldest spooled record, returns false if endpoint is still unhealthy
+  private boolean sendSpooled() throws IOException {
+    final byte[] record = spool.peek();
+    if (record == null) {
+      return true;
+    }
+    if (record != attemptedRecord) {
+      attemptedRecord = record;
+      attemptCount = 0;
+    }
+
+    final List<?> decoded;
+    try {
+      decoded = (List<?>) ValueCodec.decode(record);
+    } catch (IOException | RuntimeException e) {
+      log.error("Unable to decode spooled record, moving it to dead letters", e);
+      moveToDeadLetters(record);
+      return true;
+    }
+    @SuppressWarnings("unchecked") final Map<String, Object> headers = (Map<String, Object>) decoded.get(0);
+
+    final long start = System.nanoTime();
+    try {
+      template.sendBodyAndHeaders(endpoint, decoded.get(1), headers);
+    } catch (RuntimeException e) {
+      if (isUnavailable(e)) {
+        log.debug("Unable to send spooled record to {}", endpoint, e);
+        return false;
+      }
+      if (++attemptCount < maxAttempts) {
+        log.warn("Spooled record has been rejected by {}, attempt {} of {}", endpoint, attemptCount, maxAttempts, e);
+        return false;
+      }
+      log.error("Spooled record has been rejected by {} {} time(s), moving it to dead letters", endpoint,
+          attemptCount, e);
+      moveToDeadLetters(record);
+      return true;
+    }
+    spool.remove();
+    return System.nanoTime() - start <= latencyThresholdNanos;
+  }
+
+  private void moveToDeadLetters(byte[] record) throws IOException {
+    deadLetters.append(record);
+    deadLetters.flush();
+    spool.remove();
+    ++deadLetterCount; // written by the drainer only
+  }
+
+  private static boolean isUnavailable(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof IOException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
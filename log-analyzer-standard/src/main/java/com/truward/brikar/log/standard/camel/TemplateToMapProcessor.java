@@ -0,0 +1,33 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.template.TemplateMatch;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A processor that transforms template definition, created or changed by the match, to map, that is used to restore
+ * the messages of compact records with the same template ID and version.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TemplateToMapProcessor implements Processor {
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final TemplateMatch match = exchange.getIn().getBody(TemplateMatch.class);
+    exchange.getOut().setBody(toMap(match));
+  }
+
+  @Nonnull
+  public static Map<String, Object> toMap(@Nonnull TemplateMatch match) {
+    final Map<String, Object> map = new HashMap<>(4);
+    map.put("templateId", match.getTemplateId());
+    map.put("templateVersion", match.getTemplateVersion());
+    map.put("template", match.getTemplate());
+    return map;
+  }
+}
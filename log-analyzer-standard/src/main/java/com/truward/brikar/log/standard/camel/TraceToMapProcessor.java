@@ -0,0 +1,47 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.trace.Trace;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A processor that transforms request trace to map, that has records of the request as maps in "events".
+ *
+ * @author Alexander Shabanov
+ */
+public final class TraceToMapProcessor implements Processor {
+
+  @Override
+  public void process(Exchange exchange) throws Exception {
+    final Trace trace = exchange.getIn().getBody(Trace.class);
+    exchange.getOut().setBody(toMap(trace));
+  }
+
+  @Nonnull
+  public static Map<String, Object> toMap(@Nonnull Trace trace) {
+    final Map<String, Object> map = new HashMap<>(16);
+
+    final List<Map<String, Object>> events = new ArrayList<>(trace.getEvents().size());
+    for (final LogMessage event : trace.getEvents()) {
+      events.add(LogMessageToMapProcessor.toMap(event));
+    }
+
+    map.put("rid", trace.getRequestId());
+    map.put("time", trace.getStartTime());
+    map.put("duration", trace.getDuration());
+    map.put("error", trace.isError());
+    map.put("metricDeltas", trace.getMetricDeltas());
+    map.put("events", events);
+    map.put("droppedEvents", trace.getDroppedEventCount());
+    map.put("completion", trace.getCompletion().toString());
+
+    return map;
+  }
+}
@@ -0,0 +1,90 @@
+package com.truward.brikar.log.standard.lookup;
+
+import com.truward.brikar.log.standard.SubCommandArgParser;
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parser for command line arguments of the lookup mode, first argument is expected to be <code>lookup</code>.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LookupArgParser extends SubCommandArgParser {
+
+  public static final String COMMAND = "lookup";
+
+  /**
+   * Argument parsing result.
+   */
+  public static final class Result {
+    private final String directory;
+    private final Map<String, String> attributes;
+
+    public Result(String directory, Map<String, String> attributes) {
+      if (directory == null) {
+        throw new IllegalArgumentException("Segment directory is missing");
+      }
+
+      if (attributes.isEmpty()) {
+        throw new IllegalArgumentException("At least one attribute should be given");
+      }
+
+      this.directory = directory;
+      this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+    }
+
+    @Nonnull
+    public String getDirectory() {
+      return directory;
+    }
+
+    /**
+     * @return Attributes, that matching records should have
+     */
+    @Nonnull
+    public Map<String, String> getAttributes() {
+      return attributes;
+    }
+  }
+
+  // parsed variables
+  private String directory = null;
+  private final Map<String, String> attributes = new LinkedHashMap<>();
+
+  public LookupArgParser(@Nonnull String[] args) {
+    super(COMMAND, args);
+  }
+
+  public static boolean isLookupCommand(@Nonnull String[] args) {
+    return isCommand(COMMAND, args);
+  }
+
+  @Nonnull
+  public final Result getParseResult() {
+    return new Result(directory, attributes);
+  }
+
+  @Override
+  protected int parseCurrentArg(int pos) {
+    if ("--dir".equals(args[pos])) {
+      directory = stringArgValue(pos, "Segment Directory");
+    } else if ("--attr".equals(args[pos])) {
+      attributeArgValue(pos, attributes);
+    } else {
+      throw new IllegalStateException("Unknown argument: " + args[pos]);
+    }
+
+    return pos + 1;
+  }
+
+  @Nonnull
+  @Override
+  protected String getOptionsHelp() {
+    return "--dir {STRING}             Segment directory, the one given to --ndjson-dir, required.\n" +
+
+        "--attr {KEY=VALUE}         Attribute, that matching records should have, may be repeated,\n" +
+        "                           at least one is required.\n";
+  }
+}
@@ -0,0 +1,208 @@
+package com.truward.brikar.log.standard.lookup;
+
+import com.truward.brikar.log.sink.RollingFileSink;
+import com.truward.brikar.log.sink.SegmentIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Finds the records with the given attribute values in the complete segments, written by {@link RollingFileSink},
+ * and prints them as they are stored, one JSON object per line, in the order of segment names.
+ * Segments, which index shows that they have no such records, are not read at all, so that looking up a single
+ * request in a large archive reads only a few segments. Segments without index are always scanned.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LookupCommand {
+  private static final String ATTRIBUTES_START = "\"attributes\":{";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final LookupArgParser.Result args;
+  private int segmentCount;
+  private int scannedSegmentCount;
+
+  public LookupCommand(@Nonnull LookupArgParser.Result args) {
+    this.args = Objects.requireNonNull(args, "args");
+  }
+
+  /**
+   * Runs the lookup.
+   *
+   * @param out Output, matching records are printed to
+   * @throws IOException On I/O error
+   */
+  public void run(@Nonnull PrintStream out) throws IOException {
+    final Path directory = Paths.get(args.getDirectory());
+    if (!Files.isDirectory(directory)) {
+      throw new NoSuchFileException(directory.toString());
+    }
+
+    final List<String[]> needles = new ArrayList<>();
+    for (final Map.Entry<String, String> attribute : args.getAttributes().entrySet()) {
+      needles.add(getNeedles(attribute.getKey(), attribute.getValue()));
+    }
+
+    long matchCount = 0;
+    for (final Path segment : listSegments(directory)) {
+      ++segmentCount;
+      final SegmentIndex index = SegmentIndex.read(segment);
+      if (index != null && !index.mightContain(args.getAttributes())) {
+        continue;
+      }
+
+      ++scannedSegmentCount;
+      matchCount += scan(segment, needles, out);
+    }
+    out.flush();
+
+    log.info("Found {} record(s), scanned {} of {} segment(s)", matchCount, scannedSegmentCount, segmentCount);
+  }
+
+  public int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * @return Number of segments, that have been read, i.e. have not been skipped by their index
+   */
+  public int getScannedSegmentCount() {
+    return scannedSegmentCount;
+  }
+
+  //
+  // Private
+  //
+
+  @Nonnull
+  private static List<Path> listSegments(@Nonnull Path directory) throws IOException {
+    final List<Path> result = new ArrayList<>();
+    try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (final Path path : stream) {
+        final String name = path.getFileName().toString();
+        if (name.endsWith(RollingFileSink.EXTENSION) ||
+            name.endsWith(RollingFileSink.EXTENSION + RollingFileSink.GZIP_EXTENSION)) {
+          result.add(path);
+        }
+      }
+    }
+    Collections.sort(result); // names start with the creation time
+    return result;
+  }
+
+  private static long scan(@Nonnull Path segment, @Nonnull List<String[]> needles, @Nonnull PrintStream out)
+      throws IOException {
+    InputStream in = Files.newInputStream(segment);
+    if (segment.getFileName().toString().endsWith(RollingFileSink.GZIP_EXTENSION)) {
+      in = new GZIPInputStream(in);
+    }
+
+    long matchCount = 0;
+    try (final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (matches(line, needles)) {
+          out.append(line).append('\n');
+          ++matchCount;
+        }
+      }
+    }
+    return matchCount;
+  }
+
+  private static boolean matches(@Nonnull String line, @Nonnull List<String[]> needles) {
+    // quotes within lines are escaped, so this is the start of the attributes object
+    final int start = line.lastIndexOf(ATTRIBUTES_START);
+    if (start < 0) {
+      return false;
+    }
+
+    for (final String[] alternatives : needles) {
+      if (!contains(line, start + ATTRIBUTES_START.length() - 1, alternatives)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean contains(@Nonnull String line, int start, @Nonnull String[] alternatives) {
+    for (final String needle : alternatives) {
+      for (int position = line.indexOf(needle, start); position >= 0; position = line.indexOf(needle, position + 1)) {
+        if (isKeyStart(line, position) && isValueEnd(line, position + needle.length())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isKeyStart(@Nonnull String line, int position) {
+    final char previous = line.charAt(position - 1);
+    return previous == '{' || previous == ',';
+  }
+
+  private static boolean isValueEnd(@Nonnull String line, int position) {
+    if (position >= line.length()) {
+      return false;
+    }
+    final char next = line.charAt(position);
+    return next == '}' || next == ',';
+  }
+
+  /**
+   * @return Attribute as it is written by the sink: with string value and with number or boolean one
+   */
+  @Nonnull
+  private static String[] getNeedles(@Nonnull String name, @Nonnull String value) {
+    final String key = quote(name) + ':';
+    return new String[] { key + quote(value), key + value };
+  }
+
+  @Nonnull
+  private static String quote(@Nonnull String value) {
+    final StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); ++i) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '"':
+        case '\\':
+          builder.append('\\').append(c);
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            builder.append(String.format("\\u%04x", (int) c));
+          } else {
+            builder.append(c);
+          }
+      }
+    }
+    return builder.append('"').toString();
+  }
+}
@@ -0,0 +1,154 @@
+package com.truward.brikar.log.standard.merge;
+
+import com.truward.brikar.log.merge.RecordMerger;
+import com.truward.brikar.log.standard.SubCommandArgParser;
+import com.truward.brikar.log.standard.search.SearchArgParser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Parser for command line arguments of the merge mode, first argument is expected to be <code>merge</code>.
+ *
+ * @author Alexander Shabanov
+ */
+public final class MergeArgParser extends SubCommandArgParser {
+
+  public static final String COMMAND = "merge";
+  public static final int DEFAULT_MAX_STACKTRACE_SIZE = 10000;
+
+  /**
+   * Argument parsing result.
+   */
+  public static final class Result {
+    private final List<String> sourceFileNames;
+    private final String sourceDirectory;
+    private final long toleranceMillis;
+    private final int maxBuffered;
+    private final int maxStacktraceSize;
+    private final SearchArgParser.OutputFormat outputFormat;
+
+    public Result(List<String> sourceFileNames,
+                  String sourceDirectory,
+                  long toleranceMillis,
+                  int maxBuffered,
+                  int maxStacktraceSize,
+                  SearchArgParser.OutputFormat outputFormat) {
+      if (sourceFileNames.isEmpty() && sourceDirectory == null) {
+        throw new IllegalArgumentException("Source file name is missing");
+      }
+
+      if (toleranceMillis < 0) {
+        throw new IllegalArgumentException("Tolerance should not be negative");
+      }
+
+      if (maxBuffered <= 0) {
+        throw new IllegalArgumentException("Max buffered records should be a positive number");
+      }
+
+      if (maxStacktraceSize <= 0) {
+        throw new IllegalArgumentException("Max stacktrace size should be a positive number");
+      }
+
+      this.sourceFileNames = Collections.unmodifiableList(new ArrayList<>(sourceFileNames));
+      this.sourceDirectory = sourceDirectory;
+      this.toleranceMillis = toleranceMillis;
+      this.maxBuffered = maxBuffered;
+      this.maxStacktraceSize = maxStacktraceSize;
+      this.outputFormat = Objects.requireNonNull(outputFormat, "outputFormat");
+    }
+
+    @Nonnull
+    public List<String> getSourceFileNames() {
+      return sourceFileNames;
+    }
+
+    @Nullable
+    public String getSourceDirectory() {
+      return sourceDirectory;
+    }
+
+    public long getToleranceMillis() {
+      return toleranceMillis;
+    }
+
+    public int getMaxBuffered() {
+      return maxBuffered;
+    }
+
+    public int getMaxStacktraceSize() {
+      return maxStacktraceSize;
+    }
+
+    @Nonnull
+    public SearchArgParser.OutputFormat getOutputFormat() {
+      return outputFormat;
+    }
+  }
+
+  // parsed variables
+  private final List<String> sourceFileNames = new ArrayList<>();
+  private String sourceDirectory = null;
+  private long toleranceMillis = RecordMerger.DEFAULT_TOLERANCE_MILLIS;
+  private int maxBuffered = RecordMerger.DEFAULT_MAX_BUFFERED;
+  private int maxStacktraceSize = DEFAULT_MAX_STACKTRACE_SIZE;
+  private SearchArgParser.OutputFormat outputFormat = SearchArgParser.OutputFormat.TEXT;
+
+  public MergeArgParser(@Nonnull String[] args) {
+    super(COMMAND, args);
+  }
+
+  public static boolean isMergeCommand(@Nonnull String[] args) {
+    return isCommand(COMMAND, args);
+  }
+
+  @Nonnull
+  public final Result getParseResult() {
+    return new Result(sourceFileNames, sourceDirectory, toleranceMillis, maxBuffered, maxStacktraceSize,
+        outputFormat);
+  }
+
+  @Override
+  protected int parseCurrentArg(int pos) {
+    if ("-f".equals(args[pos]) || "--file".equals(args[pos])) {
+      sourceFileNames.add(stringArgValue(pos, "Source File Name"));
+    } else if ("--dir".equals(args[pos])) {
+      sourceDirectory = stringArgValue(pos, "Source Directory");
+    } else if ("--tolerance".equals(args[pos])) {
+      toleranceMillis = intArgValue(pos, "Tolerance");
+    } else if ("--max-buffered".equals(args[pos])) {
+      maxBuffered = intArgValue(pos, "Max Buffered");
+    } else if ("--max-stacktrace-size".equals(args[pos])) {
+      maxStacktraceSize = intArgValue(pos, "Max Stacktrace Size");
+    } else if ("--format".equals(args[pos])) {
+      outputFormat = enumArgValue(pos, "Format", SearchArgParser.OutputFormat.class);
+    } else {
+      throw new IllegalStateException("Unknown argument: " + args[pos]);
+    }
+
+    return pos + 1;
+  }
+
+  @Nonnull
+  @Override
+  protected String getOptionsHelp() {
+    return "--file,-f {STRING}         File to merge, may be repeated. Files ending with .gz are decompressed.\n" +
+
+        "--dir {STRING}             Directory, all the files in it are merged.\n" +
+
+        "--tolerance {NUMBER}       Milliseconds, by which records of the same file could be out of order,\n" +
+        "                           default value=" + RecordMerger.DEFAULT_TOLERANCE_MILLIS + '\n' +
+
+        "--max-buffered {NUMBER}    Maximum number of records read ahead, the earliest one is written\n" +
+        "                           once it is reached, default value=" + RecordMerger.DEFAULT_MAX_BUFFERED + '\n' +
+
+        "--max-stacktrace-size {NUMBER} Maximum number of lines in record,\n" +
+        "                           default value=" + DEFAULT_MAX_STACKTRACE_SIZE + '\n' +
+
+        "--format {text|json}       Output format, default value=text\n";
+  }
+}
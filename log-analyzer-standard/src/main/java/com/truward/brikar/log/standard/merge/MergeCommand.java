@@ -0,0 +1,141 @@
+package com.truward.brikar.log.standard.merge;
+
+import com.truward.brikar.log.merge.RecordMerger;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.standard.camel.LogMessageProcessor;
+import com.truward.brikar.log.standard.search.SearchArgParser;
+import com.truward.brikar.log.stream.LogRecordReader;
+import com.truward.brikar.log.util.JsonLogMessageWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Merges the records of the given files into the single stream ordered by time and writes it to the output,
+ * see {@link RecordMerger}. Each file is read and parsed independently, gzipped files are decompressed on the fly.
+ *
+ * @author Alexander Shabanov
+ */
+public final class MergeCommand {
+  private static final String GZIP_EXTENSION = ".gz";
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final MergeArgParser.Result args;
+
+  public MergeCommand(@Nonnull MergeArgParser.Result args) {
+    this.args = Objects.requireNonNull(args, "args");
+  }
+
+  /**
+   * Runs the merge.
+   *
+   * @param out Output stream, merged records are written to, it is flushed but not closed
+   * @return Number of written records
+   * @throws IOException On I/O error
+   */
+  public long run(@Nonnull OutputStream out) throws IOException {
+    final OutputStream bufferedOut = new BufferedOutputStream(out, JsonLogMessageWriter.DEFAULT_BUFFER_SIZE);
+    final JsonLogMessageWriter writer = new JsonLogMessageWriter(bufferedOut);
+    final LogMessageSink sink = args.getOutputFormat() == SearchArgParser.OutputFormat.JSON ?
+        message -> write(writer, message) : message -> writeLines(bufferedOut, message);
+
+    final List<LogRecordReader> readers = new ArrayList<>();
+    try {
+      for (final Path file : getFiles()) {
+        readers.add(new LogRecordReader(open(file), new LogMessageProcessor(), args.getMaxStacktraceSize(),
+            READ_BUFFER_SIZE));
+      }
+
+      final RecordMerger merger = new RecordMerger(readers, args.getToleranceMillis(), args.getMaxBuffered());
+      final long count = merger.merge(sink);
+      if (merger.getLateCount() > 0) {
+        log.warn("{} record(s) out of order by more than {} ms have been written late", merger.getLateCount(),
+            args.getToleranceMillis());
+      }
+      return count;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      for (final LogRecordReader reader : readers) {
+        reader.close();
+      }
+      writer.flushBuffer();
+      bufferedOut.flush();
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private List<Path> getFiles() throws IOException {
+    final List<Path> files = new ArrayList<>();
+    for (final String fileName : args.getSourceFileNames()) {
+      files.add(Paths.get(fileName));
+    }
+
+    if (args.getSourceDirectory() != null) {
+      final List<Path> directoryFiles = new ArrayList<>();
+      try (final DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(args.getSourceDirectory()))) {
+        for (final Path path : stream) {
+          if (Files.isRegularFile(path)) {
+            directoryFiles.add(path);
+          }
+        }
+      }
+      Collections.sort(directoryFiles);
+      files.addAll(directoryFiles);
+    }
+    return files;
+  }
+
+  private static InputStream open(Path file) throws IOException {
+    final InputStream in = Files.newInputStream(file);
+    if (!file.getFileName().toString().endsWith(GZIP_EXTENSION)) {
+      return in;
+    }
+
+    try {
+      return new GZIPInputStream(in, READ_BUFFER_SIZE);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  private static void write(JsonLogMessageWriter writer, LogMessage message) {
+    try {
+      writer.write(message);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeLines(OutputStream out, LogMessage message) {
+    try {
+      message.forEachLineUtf8((bytes, offset, length) -> {
+        out.write(bytes, offset, length);
+        out.write('\n');
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package com.truward.brikar.log.standard.recent;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.recent.RecentRecordStore;
+import com.truward.brikar.log.util.AsciiDateTimeParser;
+import com.truward.brikar.log.util.JsonLogMessageWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local HTTP interface of {@link RecentRecordStore}, so that recent records could be looked at with curl during
+ * an incident. Server listens on the loopback address only.
+ * <p>
+ * <code>GET /records</code> returns matching records as JSON objects, one per line, the same way search command
+ * prints them. Query parameters, all optional:
+ * <ul>
+ *   <li><code>last</code> - minutes before now, records of which are returned, unless <code>from</code> is given</li>
+ *   <li><code>from</code>, <code>to</code> - time range as milliseconds since epoch, ISO-8601 or log timestamp</li>
+ *   <li><code>severity</code> - comma separated severities</li>
+ *   <li><code>rid</code> - request ID</li>
+ *   <li><code>limit</code> - maximum number of the most recent records returned</li>
+ * </ul>
+ * <code>GET /stats</code> returns the size of the store.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecentQueryServer implements AutoCloseable {
+  public static final int DEFAULT_LIMIT = 1000;
+
+  private static final Logger log = LoggerFactory.getLogger(RecentQueryServer.class);
+
+  private final RecentRecordStore store;
+  private final HttpServer server;
+  private final ExecutorService executor;
+
+  /**
+   * @param store Store to query
+   * @param port Port to listen on, 0 for any free port
+   * @throws IOException If server could not be started
+   */
+  public RecentQueryServer(@Nonnull RecentRecordStore store, int port) throws IOException {
+    this.store = Objects.requireNonNull(store, "store");
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "recent-query-server");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    server.setExecutor(executor);
+    server.createContext("/records", this::handleRecords);
+    server.createContext("/stats", this::handleStats);
+    server.start();
+    log.info("Recent records are served at http://{}:{}/records", server.getAddress().getHostString(), getPort());
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdown();
+  }
+
+  //
+  // Private
+  //
+
+  private void handleRecords(HttpExchange exchange) throws IOException {
+    try {
+      final Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+      final long now = System.currentTimeMillis();
+      final String last = parameters.get("last");
+      final long fromTime = parameters.containsKey("from") ? parseTime(parameters.get("from")) :
+          (last != null ? now - TimeUnit.MINUTES.toMillis(parseInt(last, "last")) : Long.MIN_VALUE);
+      final long toTime = parameters.containsKey("to") ? parseTime(parameters.get("to")) : Long.MAX_VALUE;
+      final int limit = parameters.containsKey("limit") ? parseInt(parameters.get("limit"), "limit") : DEFAULT_LIMIT;
+
+      final List<LogMessage> records = store.query(fromTime, toTime, parseSeverities(parameters.get("severity")),
+          parameters.get("rid"), limit);
+
+      final ByteArrayOutputStream body = new ByteArrayOutputStream();
+      final JsonLogMessageWriter writer = new JsonLogMessageWriter(body);
+      for (final LogMessage record : records) {
+        writer.write(record);
+      }
+      writer.flush();
+      respond(exchange, 200, "application/x-ndjson", body.toByteArray());
+    } catch (IllegalArgumentException e) {
+      respond(exchange, 400, "text/plain", (e.getMessage() + '\n').getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private void handleStats(HttpExchange exchange) throws IOException {
+    final Long oldestTime = store.getOldestTime();
+    final String body = "{\"records\":" + store.getRecordCount() +
+        ",\"usedBytes\":" + store.getUsedBytes() +
+        ",\"capacityBytes\":" + store.getCapacityBytes() +
+        ",\"oldestTime\":" + oldestTime +
+        ",\"evicted\":" + store.getEvictedCount() +
+        ",\"dropped\":" + store.getDroppedCount() + "}\n";
+    respond(exchange, 200, "application/json", body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, body.length > 0 ? body.length : -1);
+    try (final OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  @Nonnull
+  private static Map<String, String> parseQuery(@Nullable String query) throws UnsupportedEncodingException {
+    final Map<String, String> result = new HashMap<>();
+    if (query == null) {
+      return result;
+    }
+    for (final String parameter : query.split("&")) {
+      final int separator = parameter.indexOf('=');
+      if (separator > 0) {
+        result.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+            URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+      }
+    }
+    return result;
+  }
+
+  private static int parseInt(String value, String name) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Unable to parse " + name + ": " + value, e);
+    }
+  }
+
+  private static long parseTime(String value) {
+    if (value.chars().allMatch(Character::isDigit) && !value.isEmpty() && value.length() < 19) {
+      return Long.parseLong(value); // milliseconds
+    }
+
+    long result = AsciiDateTimeParser.MALFORMED;
+    if (value.length() == AsciiDateTimeParser.LENGTH) {
+      result = AsciiDateTimeParser.parse(value, 0);
+    }
+    if (result == AsciiDateTimeParser.MALFORMED) {
+      final byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+      result = AsciiDateTimeParser.parseIso8601(bytes, 0, bytes.length);
+    }
+    if (result == AsciiDateTimeParser.MALFORMED) {
+      throw new IllegalArgumentException("Unable to parse time: " + value);
+    }
+    return result;
+  }
+
+  @Nullable
+  private static Set<Severity> parseSeverities(@Nullable String value) {
+    if (value == null) {
+      return null;
+    }
+    final Set<Severity> result = EnumSet.noneOf(Severity.class);
+    for (final String name : value.split(",")) {
+      try {
+        result.add(Severity.valueOf(name.trim().toUpperCase()));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Unknown severity: " + name, e);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,205 @@
+package com.truward.brikar.log.standard.rollup;
+
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.standard.SubCommandArgParser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser for command line arguments of the rollup query mode, first argument is expected to be <code>rollup</code>.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollupArgParser extends SubCommandArgParser {
+
+  public static final String COMMAND = "rollup";
+
+  /**
+   * Defines step of the resulting time series.
+   */
+  public enum Step {
+    MINUTE(TimeUnit.MINUTES.toMillis(1)),
+    HOUR(TimeUnit.HOURS.toMillis(1)),
+    DAY(TimeUnit.DAYS.toMillis(1)),
+
+    /**
+     * Single total count for the whole time range.
+     */
+    TOTAL(0L);
+
+    private final long millis;
+
+    Step(long millis) {
+      this.millis = millis;
+    }
+
+    public long getMillis() {
+      return millis;
+    }
+  }
+
+  /**
+   * Argument parsing result.
+   */
+  public static final class Result {
+    private final String storeDirectory;
+    private final long fromTime;
+    private final long toTime;
+    private final Step step;
+    private final Set<Severity> severities;
+    private final String loggerPrefix;
+    private final Map<String, String> attributes;
+    private final List<String> groupBy;
+
+    public Result(String storeDirectory,
+                  long fromTime,
+                  long toTime,
+                  Step step,
+                  Set<Severity> severities,
+                  String loggerPrefix,
+                  Map<String, String> attributes,
+                  List<String> groupBy) {
+      if (storeDirectory == null) {
+        throw new IllegalArgumentException("Rollup store directory is missing");
+      }
+
+      if (fromTime >= toTime) {
+        throw new IllegalArgumentException("Time range is empty");
+      }
+
+      this.storeDirectory = storeDirectory;
+      this.fromTime = fromTime;
+      this.toTime = toTime;
+      this.step = Objects.requireNonNull(step, "step");
+      this.severities = Collections.unmodifiableSet(severities.isEmpty() ? EnumSet.noneOf(Severity.class) :
+          EnumSet.copyOf(severities));
+      this.loggerPrefix = loggerPrefix;
+      this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+      this.groupBy = Collections.unmodifiableList(new ArrayList<>(groupBy));
+    }
+
+    @Nonnull
+    public String getStoreDirectory() {
+      return storeDirectory;
+    }
+
+    public long getFromTime() {
+      return fromTime;
+    }
+
+    public long getToTime() {
+      return toTime;
+    }
+
+    @Nonnull
+    public Step getStep() {
+      return step;
+    }
+
+    /**
+     * @return Severities to count, empty set means any severity
+     */
+    @Nonnull
+    public Set<Severity> getSeverities() {
+      return severities;
+    }
+
+    @Nullable
+    public String getLoggerPrefix() {
+      return loggerPrefix;
+    }
+
+    @Nonnull
+    public Map<String, String> getAttributes() {
+      return attributes;
+    }
+
+    @Nonnull
+    public List<String> getGroupBy() {
+      return groupBy;
+    }
+  }
+
+  // parsed variables
+  private String storeDirectory = null;
+  private long fromTime = Long.MIN_VALUE;
+  private long toTime = Long.MAX_VALUE;
+  private Step step = Step.HOUR;
+  private final Set<Severity> severities = EnumSet.noneOf(Severity.class);
+  private String loggerPrefix = null;
+  private final Map<String, String> attributes = new LinkedHashMap<>();
+  private final List<String> groupBy = new ArrayList<>();
+
+  public RollupArgParser(@Nonnull String[] args) {
+    super(COMMAND, args);
+  }
+
+  public static boolean isRollupCommand(@Nonnull String[] args) {
+    return isCommand(COMMAND, args);
+  }
+
+  @Nonnull
+  public final Result getParseResult() {
+    return new Result(storeDirectory, fromTime, toTime, step, severities, loggerPrefix, attributes, groupBy);
+  }
+
+  @Override
+  protected int parseCurrentArg(int pos) {
+    if ("--store".equals(args[pos])) {
+      storeDirectory = stringArgValue(pos, "Store Directory");
+    } else if ("--from".equals(args[pos])) {
+      fromTime = timeArgValue(pos, "From Time");
+    } else if ("--to".equals(args[pos])) {
+      toTime = timeArgValue(pos, "To Time");
+    } else if ("--step".equals(args[pos])) {
+      step = enumArgValue(pos, "Step", Step.class);
+    } else if ("--severity".equals(args[pos])) {
+      severitiesArgValue(pos, severities);
+    } else if ("--logger".equals(args[pos])) {
+      loggerPrefix = stringArgValue(pos, "Logger");
+    } else if ("--attr".equals(args[pos])) {
+      attributeArgValue(pos, attributes);
+    } else if ("--group-by".equals(args[pos])) {
+      for (final String name : stringArgValue(pos, "Group By").split(",")) {
+        if (!name.trim().isEmpty()) {
+          groupBy.add(name.trim());
+        }
+      }
+    } else {
+      throw new IllegalStateException("Unknown argument: " + args[pos]);
+    }
+
+    return pos + 1;
+  }
+
+  @Nonnull
+  @Override
+  protected String getOptionsHelp() {
+    return "--store {STRING}           Rollup store directory, the one given to --rollup-dir, required.\n" +
+
+        "--from {TIME}              Minimum time, inclusive, e.g. '2015-07-24 00:00:00,000'.\n" +
+
+        "--to {TIME}                Maximum time, exclusive, same format as --from.\n" +
+
+        "--step {minute|hour|day|total} Step of the resulting time series, default value=hour\n" +
+
+        "--severity {LIST}          Comma separated severities to count, any severity by default.\n" +
+
+        "--logger {STRING}          Prefix of the logger names to count.\n" +
+
+        "--attr {KEY=VALUE}         Attribute, that counted records should have, may be repeated.\n" +
+
+        "--group-by {LIST}          Comma separated parts, counts are grouped by: severity, logger\n" +
+        "                           or rollup attribute names. Total count is shown by default.\n";
+  }
+}
@@ -0,0 +1,66 @@
+package com.truward.brikar.log.standard.rollup;
+
+import com.truward.brikar.log.rollup.RollupQuery;
+import com.truward.brikar.log.rollup.RollupStore;
+import com.truward.brikar.log.rollup.SeriesKey;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+
+/**
+ * Queries the rollup store and prints counts, one line per time and group: time, group key and count,
+ * separated by tabs.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollupCommand {
+  private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS")
+      .withZone(ZoneOffset.UTC);
+
+  private final RollupArgParser.Result args;
+
+  public RollupCommand(@Nonnull RollupArgParser.Result args) {
+    this.args = Objects.requireNonNull(args, "args");
+  }
+
+  /**
+   * Runs the query.
+   *
+   * @param out Output, counts are printed to
+   * @throws IOException On I/O error
+   */
+  public void run(@Nonnull PrintStream out) throws IOException {
+    final RollupQuery query = new RollupQuery(args.getFromTime(), args.getToTime(), args.getStep().getMillis(),
+        args.getSeverities(), args.getLoggerPrefix(), args.getAttributes(), args.getGroupBy());
+
+    final Path directory = Paths.get(args.getStoreDirectory());
+    if (!Files.isDirectory(directory)) {
+      throw new NoSuchFileException(directory.toString());
+    }
+
+    // store is only read here, nothing is accumulated, so there is nothing to flush on close
+    final RollupStore store = new RollupStore(directory, Collections.<String>emptyList(),
+        RollupStore.DEFAULT_RETENTION_MILLIS);
+    for (final Map.Entry<Long, SortedMap<SeriesKey, Long>> point : store.query(query).entrySet()) {
+      final String time = args.getStep() == RollupArgParser.Step.TOTAL ? "total" :
+          TIME_FORMAT.format(Instant.ofEpochMilli(point.getKey()));
+      for (final Map.Entry<SeriesKey, Long> group : point.getValue().entrySet()) {
+        out.append(time).append('\t').append(group.getKey().toString()).append('\t')
+            .append(group.getValue().toString()).append('\n');
+      }
+    }
+    out.flush();
+  }
+}
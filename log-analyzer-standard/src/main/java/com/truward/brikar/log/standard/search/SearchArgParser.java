@@ -0,0 +1,240 @@
+package com.truward.brikar.log.standard.search;
+
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.standard.SubCommandArgParser;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Parser for command line arguments of the search mode, first argument is expected to be <code>search</code>.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SearchArgParser extends SubCommandArgParser {
+
+  public static final String COMMAND = "search";
+  public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+  public static final int DEFAULT_MAX_STACKTRACE_SIZE = 10000;
+
+  /**
+   * Defines how found records are written.
+   */
+  public enum OutputFormat {
+    /**
+     * Record lines as they appear in the file.
+     */
+    TEXT,
+
+    /**
+     * JSON object per record, one per line.
+     */
+    JSON
+  }
+
+  /**
+   * Argument parsing result.
+   */
+  public static final class Result {
+    private final List<String> sourceFileNames;
+    private final String sourceDirectory;
+    private final String pattern;
+    private final boolean ignoreCase;
+    private final Set<Severity> severities;
+    private final long fromTime;
+    private final long toTime;
+    private final Map<String, String> attributes;
+    private final int threads;
+    private final int maxStacktraceSize;
+    private final OutputFormat outputFormat;
+
+    public Result(List<String> sourceFileNames,
+                  String sourceDirectory,
+                  String pattern,
+                  boolean ignoreCase,
+                  Set<Severity> severities,
+                  long fromTime,
+                  long toTime,
+                  Map<String, String> attributes,
+                  int threads,
+                  int maxStacktraceSize,
+                  OutputFormat outputFormat) {
+      if (sourceFileNames.isEmpty() && sourceDirectory == null) {
+        throw new IllegalArgumentException("Source file name is missing");
+      }
+
+      if (fromTime >= toTime) {
+        throw new IllegalArgumentException("Time range is empty");
+      }
+
+      if (threads <= 0) {
+        throw new IllegalArgumentException("Threads count should be a positive number");
+      }
+
+      if (maxStacktraceSize <= 0) {
+        throw new IllegalArgumentException("Max stacktrace size should be a positive number");
+      }
+
+      this.sourceFileNames = Collections.unmodifiableList(new ArrayList<>(sourceFileNames));
+      this.sourceDirectory = sourceDirectory;
+      this.pattern = pattern;
+      this.ignoreCase = ignoreCase;
+      this.severities = Collections.unmodifiableSet(severities.isEmpty() ? EnumSet.noneOf(Severity.class) :
+          EnumSet.copyOf(severities));
+      this.fromTime = fromTime;
+      this.toTime = toTime;
+      this.attributes = Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+      this.threads = threads;
+      this.maxStacktraceSize = maxStacktraceSize;
+      this.outputFormat = Objects.requireNonNull(outputFormat, "outputFormat");
+    }
+
+    @Nonnull
+    public List<String> getSourceFileNames() {
+      return sourceFileNames;
+    }
+
+    @Nullable
+    public String getSourceDirectory() {
+      return sourceDirectory;
+    }
+
+    @Nullable
+    public String getPattern() {
+      return pattern;
+    }
+
+    public boolean isIgnoreCase() {
+      return ignoreCase;
+    }
+
+    /**
+     * @return Severities to search for, empty set means any severity
+     */
+    @Nonnull
+    public Set<Severity> getSeverities() {
+      return severities;
+    }
+
+    public long getFromTime() {
+      return fromTime;
+    }
+
+    public long getToTime() {
+      return toTime;
+    }
+
+    @Nonnull
+    public Map<String, String> getAttributes() {
+      return attributes;
+    }
+
+    public int getThreads() {
+      return threads;
+    }
+
+    public int getMaxStacktraceSize() {
+      return maxStacktraceSize;
+    }
+
+    @Nonnull
+    public OutputFormat getOutputFormat() {
+      return outputFormat;
+    }
+  }
+
+  // parsed variables
+  private final List<String> sourceFileNames = new ArrayList<>();
+  private String sourceDirectory = null;
+  private String pattern = null;
+  private boolean ignoreCase = false;
+  private final Set<Severity> severities = EnumSet.noneOf(Severity.class);
+  private long fromTime = Long.MIN_VALUE;
+  private long toTime = Long.MAX_VALUE;
+  private final Map<String, String> attributes = new LinkedHashMap<>();
+  private int threads = DEFAULT_THREADS;
+  private int maxStacktraceSize = DEFAULT_MAX_STACKTRACE_SIZE;
+  private OutputFormat outputFormat = OutputFormat.TEXT;
+
+  public SearchArgParser(@Nonnull String[] args) {
+    super(COMMAND, args);
+  }
+
+  public static boolean isSearchCommand(@Nonnull String[] args) {
+    return isCommand(COMMAND, args);
+  }
+
+  @Nonnull
+  public final Result getParseResult() {
+    return new Result(sourceFileNames, sourceDirectory, pattern, ignoreCase, severities, fromTime, toTime,
+        attributes, threads, maxStacktraceSize, outputFormat);
+  }
+
+  @Override
+  protected int parseCurrentArg(int pos) {
+    if ("-f".equals(args[pos]) || "--file".equals(args[pos])) {
+      sourceFileNames.add(stringArgValue(pos, "Source File Name"));
+    } else if ("--dir".equals(args[pos])) {
+      sourceDirectory = stringArgValue(pos, "Source Directory");
+    } else if ("-p".equals(args[pos]) || "--pattern".equals(args[pos])) {
+      pattern = stringArgValue(pos, "Pattern");
+    } else if ("-i".equals(args[pos]) || "--ignore-case".equals(args[pos])) {
+      ignoreCase = true;
+      return pos;
+    } else if ("--severity".equals(args[pos])) {
+      severitiesArgValue(pos, severities);
+    } else if ("--from".equals(args[pos])) {
+      fromTime = timeArgValue(pos, "From Time");
+    } else if ("--to".equals(args[pos])) {
+      toTime = timeArgValue(pos, "To Time");
+    } else if ("--attr".equals(args[pos])) {
+      attributeArgValue(pos, attributes);
+    } else if ("--threads".equals(args[pos])) {
+      threads = intArgValue(pos, "Threads");
+    } else if ("--max-stacktrace-size".equals(args[pos])) {
+      maxStacktraceSize = intArgValue(pos, "Max Stacktrace Size");
+    } else if ("--format".equals(args[pos])) {
+      outputFormat = enumArgValue(pos, "Format", OutputFormat.class);
+    } else {
+      throw new IllegalStateException("Unknown argument: " + args[pos]);
+    }
+
+    return pos + 1;
+  }
+
+  @Nonnull
+  @Override
+  protected String getOptionsHelp() {
+    return "--file,-f {STRING}         File to search in, may be repeated.\n" +
+
+        "--dir {STRING}             Directory, all the files in it are searched.\n" +
+
+        "--pattern,-p {STRING}      Text, that should occur in any line of the record, '*' matches\n" +
+        "                           any characters within the line. All records are matched if omitted.\n" +
+
+        "--ignore-case,-i           Match ASCII letters in pattern regardless of case.\n" +
+
+        "--severity {LIST}          Comma separated severities, e.g. ERROR,WARN, any severity by default.\n" +
+
+        "--from {TIME}              Minimum record time, inclusive, e.g. '2015-07-24 23:21:16,942'.\n" +
+
+        "--to {TIME}                Maximum record time, exclusive, same format as --from.\n" +
+
+        "--attr {KEY=VALUE}         Attribute, that record should have, may be repeated.\n" +
+
+        "--threads {NUMBER}         Number of search threads, default value=" + DEFAULT_THREADS + '\n' +
+
+        "--max-stacktrace-size {NUMBER} Maximum number of lines in record,\n" +
+        "                           default value=" + DEFAULT_MAX_STACKTRACE_SIZE + '\n' +
+
+        "--format {text|json}       Output format, default value=text\n";
+  }
+}
@@ -0,0 +1,134 @@
+package com.truward.brikar.log.standard.search;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.Utf8LineConsumer;
+import com.truward.brikar.log.search.RecordSearcher;
+import com.truward.brikar.log.search.SearchQuery;
+import com.truward.brikar.log.sink.LogMessageSink;
+import com.truward.brikar.log.standard.camel.LogMessageProcessor;
+import com.truward.brikar.log.util.JsonLogMessageWriter;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Searches the given files for the records, that match the query, and writes them to the output.
+ * Files are searched one after another, each one by all the search threads.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SearchCommand {
+  private final SearchArgParser.Result args;
+
+  public SearchCommand(@Nonnull SearchArgParser.Result args) {
+    this.args = Objects.requireNonNull(args, "args");
+  }
+
+  /**
+   * Runs the search.
+   *
+   * @param out Output stream, found records are written to, it is flushed but not closed
+   * @return Number of found records
+   * @throws IOException On I/O error
+   * @throws InterruptedException If interrupted while searching
+   */
+  public long run(@Nonnull OutputStream out) throws IOException, InterruptedException {
+    final SearchQuery query = new SearchQuery(args.getPattern(), args.isIgnoreCase(), args.getSeverities(),
+        args.getFromTime(), args.getToTime(), args.getAttributes());
+    final OutputStream bufferedOut = new BufferedOutputStream(out, JsonLogMessageWriter.DEFAULT_BUFFER_SIZE);
+    final LogMessageSink sink = args.getOutputFormat() == SearchArgParser.OutputFormat.JSON ?
+        new JsonSink(bufferedOut) : new TextSink(bufferedOut);
+
+    long count = 0;
+    try (final RecordSearcher searcher = new RecordSearcher(new LogMessageProcessor(), args.getThreads(),
+        args.getMaxStacktraceSize(), RecordSearcher.DEFAULT_WINDOW_SIZE)) {
+      for (final Path file : getFiles()) {
+        count += searcher.search(file, query, sink);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      if (sink instanceof JsonSink) {
+        ((JsonSink) sink).writer.flushBuffer();
+      }
+      bufferedOut.flush();
+    }
+    return count;
+  }
+
+  //
+  // Private
+  //
+
+  private List<Path> getFiles() throws IOException {
+    final List<Path> files = new ArrayList<>();
+    for (final String fileName : args.getSourceFileNames()) {
+      files.add(Paths.get(fileName));
+    }
+
+    if (args.getSourceDirectory() != null) {
+      final List<Path> directoryFiles = new ArrayList<>();
+      try (final DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(args.getSourceDirectory()))) {
+        for (final Path path : stream) {
+          if (Files.isRegularFile(path)) {
+            directoryFiles.add(path);
+          }
+        }
+      }
+      Collections.sort(directoryFiles);
+      files.addAll(directoryFiles);
+    }
+    return files;
+  }
+
+  private static final class TextSink implements LogMessageSink, Utf8LineConsumer {
+    private final OutputStream out;
+
+    TextSink(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void accept(@Nonnull LogMessage message) {
+      try {
+        message.forEachLineUtf8(this);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public void accept(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      out.write('\n');
+    }
+  }
+
+  private static final class JsonSink implements LogMessageSink {
+    final JsonLogMessageWriter writer;
+
+    JsonSink(OutputStream out) {
+      this.writer = new JsonLogMessageWriter(out);
+    }
+
+    @Override
+    public void accept(@Nonnull LogMessage message) {
+      try {
+        writer.write(message);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
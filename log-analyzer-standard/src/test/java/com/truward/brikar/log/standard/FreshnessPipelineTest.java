@@ -0,0 +1,82 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.metric.LatencyHistogram;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests freshness lag, that is tracked by the pipeline for the records, accepted by the endpoint.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FreshnessPipelineTest {
+
+  private static final String RECORDS = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain rid=r1 " +
+      "[main] Request started\n" +
+      "2015-07-24 23:21:17,002 ERROR learn.LogProducerMain rid=r1 [main] Call failed\n" +
+      "java.lang.UnsupportedOperationException: This operation is not supported yet\n" +
+      "2015-07-24 23:21:17,142 INFO learn.LogProducerMain rid=r1 [main] Request finished\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldTrackLagBySourceForEachReader() throws Exception {
+    assertLagTrackedBySource("stream", "--reader", "camel", "--batch-size", "0");
+    assertLagTrackedBySource("batch", "--reader", "camel");
+    assertLagTrackedBySource("virtual", "--reader", "virtual");
+    assertLagTrackedBySource("ring", "--reader", "ring");
+  }
+
+  //
+  // Private
+  //
+
+  private void assertLagTrackedBySource(String name, String... readerOptions) throws Exception {
+    // Given:
+    final Path logFile = temporaryFolder.newFile(name + ".log").toPath();
+    Files.write(logFile, RECORDS.getBytes(StandardCharsets.UTF_8));
+    final List<String> options = new ArrayList<>(Arrays.asList("-f", logFile.toString(), "--scan-delay", "10",
+        "--max-stacktrace-population-time", "50", "-e", "mock:records"));
+    options.addAll(Arrays.asList(readerOptions));
+    final ArgParser argParser = new ArgParser(options.toArray(new String[options.size()]));
+    assertEquals(0, argParser.parse());
+
+    try (final Pipeline pipeline = new Pipeline(argParser.getParseResult())) {
+      final MockEndpoint records = pipeline.getContext().getEndpoint("mock:records", MockEndpoint.class);
+      records.expectedMessageCount(3);
+
+      // When:
+      pipeline.start();
+
+      // Then:
+      records.setResultWaitTime(10000L);
+      records.assertIsSatisfied();
+
+      Map<String, LatencyHistogram> lagBySource = Collections.emptyMap();
+      for (int i = 0; i < 100; ++i) { // records are acknowledged once the endpoint returns
+        lagBySource = pipeline.getFreshnessTracker().getLagBySource();
+        final LatencyHistogram lag = lagBySource.get(logFile.toString());
+        if (lag != null && lag.getCount() == 3) {
+          break;
+        }
+        Thread.sleep(50L);
+      }
+      assertEquals(name, Collections.singleton(logFile.toString()), lagBySource.keySet());
+      assertEquals(name, 3, lagBySource.get(logFile.toString()).getCount());
+    }
+  }
+}
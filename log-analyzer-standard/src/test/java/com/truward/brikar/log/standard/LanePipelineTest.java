@@ -0,0 +1,67 @@
+package com.truward.brikar.log.standard;
+
+import com.truward.brikar.log.standard.camel.FreshnessStampProcessor;
+import com.truward.brikar.log.standard.camel.LaneProcessor;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests records, that are sent to the endpoint by the priority lanes.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LanePipelineTest {
+
+  private static final String RECORDS = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain rid=r1 " +
+      "[main] First\n" +
+      "2015-07-24 23:21:17,002 INFO learn.LogProducerMain rid=r1 [main] Second\n" +
+      "2015-07-24 23:21:17,142 INFO learn.LogProducerMain rid=r1 [main] Third\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldSendTheRestOfBatchIfRecordIsRejected() throws Exception {
+    // Given:
+    final Path logFile = temporaryFolder.newFile("app.log").toPath();
+    Files.write(logFile, RECORDS.getBytes(StandardCharsets.UTF_8));
+    final ArgParser argParser = new ArgParser(new String[] {"-f", logFile.toString(), "--reader", "virtual",
+        "--scan-delay", "10", "--max-stacktrace-population-time", "50", "-e", "mock:records",
+        "--lanes", "severity", "--bulk-batch", "10", "--bulk-linger", "500"});
+    assertEquals(0, argParser.parse());
+
+    try (final Pipeline pipeline = new Pipeline(argParser.getParseResult())) {
+      final MockEndpoint records = pipeline.getContext().getEndpoint("mock:records", MockEndpoint.class);
+      records.expectedMessageCount(3);
+      records.whenExchangeReceived(2, exchange -> {
+        throw new IllegalStateException("Record is rejected");
+      });
+
+      // When:
+      pipeline.start();
+
+      // Then:
+      records.setResultWaitTime(10000L);
+      records.assertIsSatisfied();
+      final LaneProcessor lanes = pipeline.getLaneProcessor();
+      lanes.close(); // waits for the lane to account the batch
+      assertEquals(2, lanes.getBulkLane().getSentCount());
+      assertEquals(1, lanes.getBulkLane().getFailedCount());
+      final Map<?, ?> third = records.getExchanges().get(2).getIn().getBody(Map.class);
+      assertTrue(((List<?>) third.get("lines")).get(0).toString().endsWith("Third"));
+      assertEquals(logFile.toString(),
+          records.getExchanges().get(2).getIn().getHeader(FreshnessStampProcessor.SOURCE_HEADER));
+    }
+  }
+}
@@ -1,11 +1,20 @@
 package com.truward.brikar.log.standard;
 
+import com.truward.brikar.log.model.ByteSliceLogMessage;
 import com.truward.brikar.log.model.LogMessage;
 import com.truward.brikar.log.model.Severity;
 import com.truward.brikar.log.standard.camel.LogMessageProcessor;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -62,6 +71,7 @@ public final class LineParsingTest {
     assertFalse(logMessage.isNull());
     assertEquals(Severity.ERROR, logMessage.getSeverity());
     assertEquals(MSG3, logMessage.getLogEntry());
+    assertEquals("Disk full", logMessage.getMessage());
     assertEquals(null, logMessage.getAttributes().get("oid"));
     assertEquals("KhnHxNK/BbLbaiH4", logMessage.getAttributes().get("rid"));
   }
@@ -88,4 +98,121 @@ public final class LineParsingTest {
     assertEquals("545", logMessage.getAttributes().get("tDelta"));
     assertEquals("KhnHxNK/BbLbaiH4", logMessage.getAttributes().get("rid"));
   }
+
+  @Test
+  public void shouldParseBytesSameWayAsString() {
+    for (final String line : Arrays.asList(MSG1, MSG2, MSG3, MSG4, MSG5)) {
+      // Given:
+      final byte[] buffer = ("garbage\n" + line + "\ngarbage").getBytes(StandardCharsets.UTF_8);
+
+      // When:
+      final LogMessage expected = processor.parse(line);
+      final LogMessage actual = processor.parse(buffer, 8, line.length());
+
+      // Then:
+      assertTrue(actual instanceof ByteSliceLogMessage);
+      assertFalse(actual.isMultiLinePart());
+      assertEquals(expected.getUnixTime(), actual.getUnixTime());
+      assertEquals(expected.getSeverity(), actual.getSeverity());
+      assertEquals("learn.LogProducerMain", actual.getLoggerName());
+      assertEquals(expected.getLoggerName(), actual.getLoggerName());
+      assertEquals(expected.getMessage(), actual.getMessage());
+      assertEquals(expected.getLines(), actual.getLines());
+      assertEquals(expected.getAttributes(), actual.getAttributes());
+    }
+  }
+
+  @Test
+  public void shouldParseMultiLinePartBytes() {
+    for (final String line : Arrays.asList(
+        "java.lang.UnsupportedOperationException: This operation is not supported yet",
+        "\tat learn.LogProducerMain.main(LogProducerMain.java:32) [classes/:na]",
+        "2015-07-24 23:22:20,748 WARN learn.LogProducerMain [main] Single space before thread",
+        "2015-07-24 23:22:20,748 WARN learn.LogProducerMain a=1, b [main] Malformed variables",
+        "2015-07-24 23:22:20,748 WARN learn.LogProducerMain  [main] ",
+        "2015-07-24 23:22:20 WARN learn.LogProducerMain  [main] No millis")) {
+      // When:
+      final LogMessage expected = processor.parse(line);
+      final LogMessage actual = processor.parse(line.getBytes(StandardCharsets.UTF_8), 0, line.length());
+
+      // Then:
+      assertTrue(line, expected.isMultiLinePart());
+      assertTrue(line, actual.isMultiLinePart());
+      assertEquals(line, actual.getLogEntry());
+    }
+  }
+
+  @Test
+  public void shouldParseMalformedDateTheSameWay() {
+    for (final String line : Arrays.asList(
+        "2015-13-24 23:22:20,748 WARN learn.LogProducerMain  [main] No such month",
+        "2015-07-24 25:22:20,748 ERROR learn.LogProducerMain rid=1 [main] No such hour",
+        "2015-02-31 23:22:20,748 INFO learn.LogProducerMain  [main] No such day in February",
+        "2015-02-29 23:22:20,748 INFO learn.LogProducerMain  [main] Not a leap year",
+        "2015-06-31 23:22:20,748 INFO learn.LogProducerMain  [main] No such day in June")) {
+      // When:
+      final LogMessage expected = processor.parse(line);
+      final LogMessage actual = processor.parse(line.getBytes(StandardCharsets.UTF_8), 0, line.length());
+
+      // Then:
+      assertTrue(line, expected.isNull());
+      assertTrue(line, actual.isNull());
+    }
+
+    // line of the other shape is still a part of the preceding record
+    final String line = "2015-13-24 23:22:20,748 is not a record";
+    assertTrue(processor.parse(line).isMultiLinePart());
+    assertTrue(processor.parse(line.getBytes(StandardCharsets.UTF_8), 0, line.length()).isMultiLinePart());
+  }
+
+  @Test
+  public void shouldParseLeapDay() {
+    // Given:
+    final String line = "2016-02-29 23:22:20,748 INFO learn.LogProducerMain  [main] Leap day";
+
+    // When:
+    final LogMessage expected = processor.parse(line);
+    final LogMessage actual = processor.parse(line.getBytes(StandardCharsets.UTF_8), 0, line.length());
+
+    // Then:
+    assertEquals(1456788140748L, expected.getUnixTime());
+    assertEquals(1456788140748L, actual.getUnixTime());
+  }
+
+  @Test
+  public void shouldParseConcurrently() throws Exception {
+    // Given:
+    final List<Callable<Boolean>> tasks = new ArrayList<>();
+    for (int i = 0; i < 8; ++i) {
+      final int seconds = i;
+      tasks.add(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          final String line = "2015-07-24 23:21:0" + seconds + ",942 INFO learn.LogProducerMain rid=" + seconds +
+              " [main] Message";
+          for (int j = 0; j < 10000; ++j) {
+            final LogMessage message = processor.parse(line);
+            if (message.getUnixTime() != 1437780060942L + seconds * 1000L ||
+                !String.valueOf(seconds).equals(message.getAttributes().get("rid"))) {
+              return false;
+            }
+          }
+          return true;
+        }
+      });
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+
+    try {
+      // When:
+      final List<Future<Boolean>> results = executor.invokeAll(tasks);
+
+      // Then:
+      for (final Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
@@ -0,0 +1,77 @@
+package com.truward.brikar.log.standard;
+
+import org.apache.camel.component.mock.MockEndpoint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests request traces, that are assembled by the pipeline.
+ *
+ * @author Alexander Shabanov
+ */
+public final class TracePipelineTest {
+
+  private static final String RECORDS = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain rid=r1 " +
+      "[main] Request started\n" +
+      "2015-07-24 23:21:16,950 INFO learn.LogProducerMain oid=o1, rid=r2 [main] Other request started\n" +
+      "2015-07-24 23:21:17,002 ERROR learn.LogProducerMain rid=r1 [main] Call failed\n" +
+      "java.lang.UnsupportedOperationException: This operation is not supported yet\n" +
+      "2015-07-24 23:21:17,042 INFO learn.LogProducerMain rid=r1 [main] @metric tDelta=100, op=getUser\n" +
+      "2015-07-24 23:21:17,050 INFO learn.LogProducerMain  [main] Not a request\n" +
+      "2015-07-24 23:21:17,142 INFO learn.LogProducerMain rid=r1 [main] Request finished\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldSendTracePerRequest() throws Exception {
+    // Given:
+    final Path logFile = temporaryFolder.newFile("app.log").toPath();
+    Files.write(logFile, RECORDS.getBytes(StandardCharsets.UTF_8));
+    final ArgParser argParser = new ArgParser(new String[] {"-f", logFile.toString(), "--reader", "virtual",
+        "--scan-delay", "10", "--max-stacktrace-population-time", "50", "-e", "log:records?level=OFF",
+        "--trace-endpoint", "mock:traces", "--trace-timeout", "100"});
+    assertEquals(0, argParser.parse());
+
+    try (final Pipeline pipeline = new Pipeline(argParser.getParseResult())) {
+      final MockEndpoint traces = pipeline.getContext().getEndpoint("mock:traces", MockEndpoint.class);
+      traces.expectedMessageCount(2);
+
+      // When:
+      pipeline.start();
+
+      // Then:
+      traces.setResultWaitTime(10000L);
+      traces.assertIsSatisfied();
+
+      Map<?, ?> trace = traces.getExchanges().get(0).getIn().getBody(Map.class);
+      Map<?, ?> otherTrace = traces.getExchanges().get(1).getIn().getBody(Map.class);
+      if (!"r1".equals(trace.get("rid"))) {
+        final Map<?, ?> swap = trace;
+        trace = otherTrace;
+        otherTrace = swap;
+      }
+      assertEquals("r2", otherTrace.get("rid"));
+      assertEquals(false, otherTrace.get("error"));
+
+      assertEquals("r1", trace.get("rid"));
+      assertEquals(true, trace.get("error"));
+      assertEquals(200L, trace.get("duration"));
+      assertEquals(Arrays.asList(100L), trace.get("metricDeltas"));
+      assertEquals("TIMEOUT", trace.get("completion"));
+      final List<?> events = (List<?>) trace.get("events");
+      assertEquals(4, events.size());
+      assertEquals(2, ((List<?>) ((Map<?, ?>) events.get(1)).get("lines")).size());
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.truward.brikar.log.standard.camel;
 import com.truward.brikar.log.camel.MalformedLineFilter;
 import com.truward.brikar.log.camel.MalformedLogMessageFilter;
 import com.truward.brikar.log.camel.MultiLineAggregationStrategy;
+import com.truward.brikar.log.camel.RecordIdProcessor;
 import com.truward.brikar.log.model.LogMessage;
 import com.truward.brikar.log.model.MaterializedLogMessage;
 import com.truward.brikar.log.model.Severity;
@@ -79,7 +80,8 @@ public final class AggregatingMessageRouteTest extends CamelTestSupport {
             .split(body(String.class).regexTokenize("\n"))
             .filter(new MalformedLineFilter())
             .process(new LogMessageProcessor())
-            .aggregate(header("id"), new MultiLineAggregationStrategy()).completionInterval(200L)
+            .process(new RecordIdProcessor())
+            .aggregate(header(RecordIdProcessor.HEADER), new MultiLineAggregationStrategy()).completionInterval(200L)
             .filter(new MalformedLogMessageFilter())
             .process(new LogMessageToMapProcessor())
             .to("mock:result");
@@ -0,0 +1,77 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.camel.LineBatchSplitter;
+import org.apache.camel.EndpointInject;
+import org.apache.camel.Produce;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.test.junit4.CamelTestSupport;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests route, that processes batches of lines by the fused processor.
+ *
+ * @author Alexander Shabanov
+ */
+public final class FusedBatchProcessorTest extends CamelTestSupport {
+
+  @EndpointInject(uri = "mock:result")
+  protected MockEndpoint resultEndpoint;
+
+  @Produce(uri = "direct:start")
+  protected ProducerTemplate template;
+
+  private static final String RECORD_1 = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain  " +
+      "[learn.LogProducerMain.main()] Operation timed out\n";
+
+  private static final String RECORD_2 = "2015-07-24 23:39:55,002 WARN learn.LogProducerMain " +
+      "oid=pg/BBY//9YgCHcJn, rid=anCYuTwUWbtnuZp1 " +
+      "[learn.LogProducerMain.main()] Error operation #0 attempted\n" +
+      "java.lang.UnsupportedOperationException: This operation is not supported yet\n" +
+      "\tat learn.LogProducerMain.throwUnsupportedOperationException(LogProducerMain.java:149) [classes/:na]\n" +
+      "\tat learn.LogProducerMain.doErrorOperation(LogProducerMain.java:145) [classes/:na]\n";
+
+  private static final String RECORD_3 = "2015-07-25 00:03:08,356 ERROR learn.LogProducerMain " +
+      "rid=KhnHxNK/BbLbaiH4 " +
+      "[learn.LogProducerMain.main()] Disk full\n";
+
+  @Test
+  public void shouldAssembleRecordsAcrossBatches() throws InterruptedException {
+    // Given:
+    resultEndpoint.expectedMessageCount(3);
+
+    // When:
+    template.sendBody("stray line before any record\n" + RECORD_1 + RECORD_2 + RECORD_3);
+    Thread.sleep(150L);
+    template.sendBody(""); // idle poll completes pending record
+
+    // Then:
+    resultEndpoint.assertIsSatisfied();
+    final Map<?, ?> message1 = resultEndpoint.assertExchangeReceived(0).getIn().getBody(Map.class);
+    final Map<?, ?> message2 = resultEndpoint.assertExchangeReceived(1).getIn().getBody(Map.class);
+    final Map<?, ?> message3 = resultEndpoint.assertExchangeReceived(2).getIn().getBody(Map.class);
+
+    assertEquals("INFO", message1.get("severity"));
+    assertEquals("WARN", message2.get("severity"));
+    assertEquals(4, ((List<?>) message2.get("lines")).size());
+    assertEquals("anCYuTwUWbtnuZp1", ((Map<?, ?>) message2.get("attributes")).get("rid"));
+    assertEquals("ERROR", message3.get("severity"));
+  }
+
+  @Override
+  protected RouteBuilder createRouteBuilder() {
+    return new RouteBuilder() {
+      public void configure() {
+        from("direct:start")
+            .split(new LineBatchSplitter(3)).streaming()
+            .process(new FusedBatchProcessor(new LogMessageProcessor(), 100, 100L))
+            .split(body())
+            .to("mock:result");
+      }
+    };
+  }
+}
@@ -0,0 +1,83 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.template.LogTemplate;
+import com.truward.brikar.log.template.TemplateMiner;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests conversion of the log messages to maps with template mining.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LogMessageToMapProcessorTest {
+  private final LogMessageProcessor parser = new LogMessageProcessor();
+
+  private static final List<String> RECORDS = Arrays.asList(
+      "2015-07-24 23:21:16,942 INFO learn.LogProducerMain rid=1 [main] User 1001 logged in from 10.0.0.1",
+      "2015-07-24 23:21:17,100 INFO learn.LogProducerMain rid=2 [main] User 1002 logged in from 10.0.0.2",
+      "2015-07-24 23:21:18,200 WARN learn.LogProducerMain  [main] Cache miss for key users",
+      "2015-07-24 23:21:19,300 INFO learn.LogProducerMain rid=3 [main] User admin logged in from 10.0.0.3");
+
+  @Test
+  public void shouldAnnotateRecords() {
+    // Given:
+    final LogMessageToMapProcessor mapper = new LogMessageToMapProcessor(new TemplateMiner());
+
+    // When:
+    final Map<String, Object> first = mapper.convert(parser.parse(RECORDS.get(0)));
+    final Map<String, Object> second = mapper.convert(parser.parse(RECORDS.get(1)));
+
+    // Then:
+    assertEquals(first.get("templateId"), second.get("templateId"));
+    assertEquals("User <*> logged in from <*>", second.get("template"));
+    assertEquals(Arrays.asList("1002", "10.0.0.2"), second.get("parameters"));
+    assertEquals(Arrays.asList(RECORDS.get(1)), second.get("lines"));
+  }
+
+  @Test
+  public void shouldRestoreCompactRecordsInAnyOrder() {
+    // Given:
+    final Map<String, String> templates = new HashMap<>();
+    final LogMessageToMapProcessor mapper = new LogMessageToMapProcessor(new TemplateMiner(), true, null,
+        match -> templates.put(match.getTemplateId() + ":" + match.getTemplateVersion(), match.getTemplate()));
+
+    // When:
+    final List<Map<String, Object>> maps = new ArrayList<>();
+    for (final String record : RECORDS) {
+      maps.add(mapper.convert(parser.parse(record)));
+    }
+
+    // Then:
+    for (int i = RECORDS.size() - 1; i >= 0; --i) {
+      final Map<String, Object> map = maps.get(i);
+      assertNull(map.get("template"));
+      final String header = (String) map.get("header");
+      assertFalse(header.contains("logged in"));
+      assertTrue((((List<?>) map.get("lines")).isEmpty()));
+      @SuppressWarnings("unchecked") final List<String> parameters = (List<String>) map.get("parameters");
+      final String template = templates.get(map.get("templateId") + ":" + map.get("templateVersion"));
+      assertEquals(RECORDS.get(i), header + LogTemplate.render(template, parameters));
+    }
+  }
+
+  @Test
+  public void shouldNotAddTemplatesByDefault() {
+    // When:
+    final Map<String, Object> map = new LogMessageToMapProcessor().convert(parser.parse(RECORDS.get(0)));
+
+    // Then:
+    assertNull(map.get("templateId"));
+    assertEquals(Arrays.asList(RECORDS.get(0)), map.get("lines"));
+  }
+}
@@ -0,0 +1,75 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.camel.RoutingProcessor;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.routing.RoutingRule;
+import com.truward.brikar.log.routing.RoutingTable;
+import org.apache.camel.EndpointInject;
+import org.apache.camel.Produce;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.ExpressionBuilder;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.test.junit4.CamelTestSupport;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Tests route, that sends records to the endpoints of the matching routing rules.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RoutingRouteTest extends CamelTestSupport {
+
+  @EndpointInject(uri = "mock:errors")
+  protected MockEndpoint errorsEndpoint;
+
+  @EndpointInject(uri = "mock:archive")
+  protected MockEndpoint archiveEndpoint;
+
+  @EndpointInject(uri = "mock:cold")
+  protected MockEndpoint coldEndpoint;
+
+  @Produce(uri = "direct:start")
+  protected ProducerTemplate template;
+
+  private final LogMessageProcessor parser = new LogMessageProcessor();
+
+  @Test
+  public void shouldSendRecordsToMatchingEndpoints() throws InterruptedException {
+    // Given:
+    errorsEndpoint.expectedMessageCount(1);
+    archiveEndpoint.expectedMessageCount(1);
+    coldEndpoint.expectedMessageCount(1);
+
+    // When:
+    template.sendBody(parser.parse("2015-07-25 00:03:08,356 ERROR learn.LogProducerMain rid=KhnHxNK/BbLbaiH4 " +
+        "[learn.LogProducerMain.main()] Disk full"));
+    template.sendBody(parser.parse("2015-07-24 23:22:20,748 WARN learn.LogProducerMain  " +
+        "[learn.LogProducerMain.main()] Operation timed out"));
+
+    // Then:
+    assertMockEndpointsSatisfied();
+    assertEquals("ERROR", errorsEndpoint.assertExchangeReceived(0).getIn().getBody(Map.class).get("severity"));
+    assertEquals("WARN", coldEndpoint.assertExchangeReceived(0).getIn().getBody(Map.class).get("severity"));
+  }
+
+  @Override
+  protected RouteBuilder createRouteBuilder() {
+    final RoutingTable routingTable = new RoutingTable(Collections.singletonList(new RoutingRule("errors",
+        Collections.singleton(Severity.ERROR), Collections.<String>emptyList(), Collections.<String, String>emptyMap(),
+        null, Arrays.asList("mock:errors", "mock:archive"))), Collections.singletonList("mock:cold"));
+
+    return new RouteBuilder() {
+      public void configure() {
+        from("direct:start")
+            .process(new RoutingProcessor(routingTable))
+            .process(new LogMessageToMapProcessor())
+            .recipientList(ExpressionBuilder.exchangePropertyExpression(RoutingProcessor.ENDPOINTS_PROPERTY));
+      }
+    };
+  }
+}
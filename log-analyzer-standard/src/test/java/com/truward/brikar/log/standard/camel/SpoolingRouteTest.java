@@ -0,0 +1,177 @@
+package com.truward.brikar.log.standard.camel;
+
+import com.truward.brikar.log.spool.DiskSpool;
+import org.apache.camel.EndpointInject;
+import org.apache.camel.Produce;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.test.junit4.CamelTestSupport;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests route, that spools records while the endpoint fails and replays them once it recovers.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SpoolingRouteTest extends CamelTestSupport {
+
+  @EndpointInject(uri = "mock:target")
+  protected MockEndpoint targetEndpoint;
+
+  @Produce(uri = "direct:start")
+  protected ProducerTemplate template;
+
+  private volatile boolean failing;
+  private volatile long rejectedId = -1;
+  private Path spoolDirectory;
+  private SpoolingProcessor spoolingProcessor;
+
+  @After
+  public void cleanup() throws Exception {
+    spoolingProcessor.close();
+    delete(spoolDirectory);
+  }
+
+  @Test
+  public void shouldSendRecordsWhileEndpointIsHealthy() throws InterruptedException {
+    // Given:
+    targetEndpoint.expectedBodiesReceived(record(1), record(2));
+
+    // When:
+    template.sendBody(record(1));
+    template.sendBody(record(2));
+
+    // Then:
+    assertMockEndpointsSatisfied();
+    assertTrue(spoolingProcessor.isHealthy());
+    assertEquals(0, spoolingProcessor.getDepth());
+  }
+
+  @Test
+  public void shouldReplaySpooledRecordsOnceEndpointRecovers() throws InterruptedException {
+    // Given:
+    failing = true;
+    template.sendBody(record(1));
+    template.sendBody(record(2));
+    template.sendBody(record(3));
+    assertFalse(spoolingProcessor.isHealthy());
+    assertEquals(3, spoolingProcessor.getDepth());
+
+    // When:
+    targetEndpoint.expectedBodiesReceived(record(1), record(2), record(3));
+    failing = false;
+
+    // Then:
+    targetEndpoint.setResultWaitTime(5000L);
+    assertMockEndpointsSatisfied();
+    awaitReplayed();
+    assertTrue(spoolingProcessor.isHealthy());
+    assertEquals(0, spoolingProcessor.getDepth());
+  }
+
+  @Test
+  public void shouldMoveRejectedRecordToDeadLetters() throws Exception {
+    // Given:
+    rejectedId = 2;
+    targetEndpoint.expectedBodiesReceived(record(1), record(3));
+
+    // When:
+    template.sendBody(record(1));
+    template.sendBody(record(2));
+    template.sendBody(record(3));
+
+    // Then:
+    targetEndpoint.setResultWaitTime(5000L);
+    assertMockEndpointsSatisfied();
+    awaitReplayed();
+    assertTrue(spoolingProcessor.isHealthy());
+    assertTrue(spoolingProcessor.isDrainerAlive());
+    assertEquals(1, spoolingProcessor.getDeadLetterCount());
+    assertEquals(1, spoolingProcessor.getDeadLetters().getDepth());
+  }
+
+  @Test
+  public void shouldKeepReplayingAfterCorruptedRecord() throws Exception {
+    // Given:
+    failing = true;
+    template.sendBody(record(1));
+    spoolingProcessor.getSpool().append(new byte[] { 42, 1, 2, 3 });
+    template.sendBody(record(2));
+
+    // When:
+    targetEndpoint.expectedBodiesReceived(record(1), record(2));
+    failing = false;
+
+    // Then:
+    targetEndpoint.setResultWaitTime(5000L);
+    assertMockEndpointsSatisfied();
+    awaitReplayed();
+    assertTrue(spoolingProcessor.isDrainerAlive());
+    assertEquals(1, spoolingProcessor.getDeadLetterCount());
+  }
+
+  @Override
+  protected RouteBuilder createRouteBuilder() throws IOException {
+    spoolDirectory = Files.createTempDirectory("spool");
+    spoolingProcessor = new SpoolingProcessor(context().createProducerTemplate(), "direct:target",
+        new DiskSpool(spoolDirectory, 1024, 1024 * 1024),
+        new DiskSpool(spoolDirectory.resolve("dead-letter"), 1024, 1024 * 1024), 1000L, 1000, 50L, 3);
+
+    return new RouteBuilder() {
+      public void configure() {
+        from("direct:start")
+            .process(spoolingProcessor);
+
+        from("direct:target")
+            .process(exchange -> {
+              if (failing) {
+                throw new IOException("Endpoint is down");
+              }
+              if (exchange.getIn().getBody(Map.class).get("id").equals(rejectedId)) {
+                throw new IllegalArgumentException("Record is rejected");
+              }
+            })
+            .to("mock:target");
+      }
+    };
+  }
+
+  //
+  // Private
+  //
+
+  private void awaitReplayed() throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + 5000L;
+    while ((spoolingProcessor.getDepth() > 0 || !spoolingProcessor.isHealthy()) &&
+        System.currentTimeMillis() < deadline) {
+      Thread.sleep(10L); // replayed record is removed right after it has been sent
+    }
+  }
+
+  private static void delete(Path path) throws IOException {
+    if (Files.isDirectory(path)) {
+      try (final DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+        for (final Path child : stream) {
+          delete(child);
+        }
+      }
+    }
+    Files.delete(path);
+  }
+
+  private static Map<String, Object> record(int id) {
+    final Map<String, Object> result = new HashMap<>();
+    result.put("message", "message " + id);
+    result.put("id", (long) id);
+    return result;
+  }
+}
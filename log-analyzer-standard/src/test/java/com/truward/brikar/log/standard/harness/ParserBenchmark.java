@@ -0,0 +1,217 @@
+package com.truward.brikar.log.standard.harness;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.JsonLineParser;
+import com.truward.brikar.log.parser.LogLineParser;
+import com.truward.brikar.log.standard.camel.LogMessageProcessor;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Parsing benchmark: the same synthetic records are written both as text and as JSON lines, then each form
+ * is parsed line by line with its parser in the single thread, the way readers do it, and the best round
+ * is reported. Lines are found before the measurement, so that only parsing is measured. Throughput is given
+ * both per byte, as the two forms have different size, and per record.
+ * <p>
+ * Run it with <code>mvn exec:java -Dexec.classpathScope=test
+ * -Dlauncher.mainClass=com.truward.brikar.log.standard.harness.ParserBenchmark -Dexec.args="..."</code>.
+ *
+ * @author Alexander Shabanov
+ */
+public final class ParserBenchmark {
+  private final byte[] text;
+  private final int[] textLineEnds;
+  private final byte[] json;
+  private final int[] jsonLineEnds;
+  private final int recordCount;
+
+  /**
+   * @param generatorFactory Factory of the record generators, two generators with the same seed are expected
+   * @param recordCount Number of records in each form
+   */
+  public ParserBenchmark(@Nonnull GeneratorFactory generatorFactory, int recordCount) {
+    if (recordCount <= 0) {
+      throw new IllegalArgumentException("Record count should be positive");
+    }
+    Objects.requireNonNull(generatorFactory, "generatorFactory");
+
+    final SyntheticLogGenerator textGenerator = generatorFactory.create();
+    final SyntheticLogGenerator jsonGenerator = generatorFactory.create();
+    final StringBuilder textBuilder = new StringBuilder();
+    final StringBuilder jsonBuilder = new StringBuilder();
+    final long unixTime = System.currentTimeMillis();
+    for (int i = 0; i < recordCount; ++i) {
+      textGenerator.appendRecord(i, unixTime + i, textBuilder);
+      jsonGenerator.appendJsonRecord(i, unixTime + i, jsonBuilder);
+    }
+
+    this.text = textBuilder.toString().getBytes(StandardCharsets.UTF_8);
+    this.textLineEnds = findLineEnds(text);
+    this.json = jsonBuilder.toString().getBytes(StandardCharsets.UTF_8);
+    this.jsonLineEnds = findLineEnds(json);
+    this.recordCount = recordCount;
+  }
+
+  /**
+   * Factory of the generators, so that both forms get the same sequence of records.
+   */
+  public interface GeneratorFactory {
+    @Nonnull
+    SyntheticLogGenerator create();
+  }
+
+  /**
+   * @param rounds Number of rounds for each parser, the first ones warm up the code
+   * @return Best results of each parser
+   */
+  @Nonnull
+  public Report run(int rounds) {
+    if (rounds <= 0) {
+      throw new IllegalArgumentException("Number of rounds should be positive");
+    }
+
+    final LogLineParser textParser = new LogMessageProcessor();
+    final LogLineParser jsonParser = new JsonLineParser();
+    long textNanos = Long.MAX_VALUE;
+    long jsonNanos = Long.MAX_VALUE;
+    int textRecords = 0;
+    int jsonRecords = 0;
+    for (int i = 0; i < rounds; ++i) {
+      long start = System.nanoTime();
+      textRecords = parseAll(textParser, text, textLineEnds);
+      textNanos = Math.min(textNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      jsonRecords = parseAll(jsonParser, json, jsonLineEnds);
+      jsonNanos = Math.min(jsonNanos, System.nanoTime() - start);
+    }
+
+    if (textRecords != recordCount || jsonRecords != recordCount) {
+      throw new IllegalStateException("Unexpected number of records: text=" + textRecords + ", json=" + jsonRecords +
+          ", expected=" + recordCount);
+    }
+    return new Report(recordCount, text.length, textNanos, json.length, jsonNanos);
+  }
+
+  public static void main(String[] args) {
+    int recordCount = 200000;
+    int rounds = 20;
+    long seed = 1L;
+    double errorRatio = 0.05;
+    int stackDepth = 20;
+    int attributeCount = 2;
+    double metricRatio = 0.2;
+
+    for (int pos = 0; pos < args.length; ++pos) {
+      final String arg = args[pos];
+      if ("--records".equals(arg)) {
+        recordCount = Integer.parseInt(args[++pos]);
+      } else if ("--rounds".equals(arg)) {
+        rounds = Integer.parseInt(args[++pos]);
+      } else if ("--seed".equals(arg)) {
+        seed = Long.parseLong(args[++pos]);
+      } else if ("--error-ratio".equals(arg)) {
+        errorRatio = Double.parseDouble(args[++pos]);
+      } else if ("--stack-depth".equals(arg)) {
+        stackDepth = Integer.parseInt(args[++pos]);
+      } else if ("--attributes".equals(arg)) {
+        attributeCount = Integer.parseInt(args[++pos]);
+      } else if ("--metric-ratio".equals(arg)) {
+        metricRatio = Double.parseDouble(args[++pos]);
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+
+    final long generatorSeed = seed;
+    final double generatorErrorRatio = errorRatio;
+    final int generatorStackDepth = stackDepth;
+    final int generatorAttributeCount = attributeCount;
+    final double generatorMetricRatio = metricRatio;
+    final ParserBenchmark benchmark = new ParserBenchmark(() -> new SyntheticLogGenerator(generatorSeed,
+        generatorErrorRatio, generatorStackDepth, generatorAttributeCount, generatorMetricRatio), recordCount);
+    System.out.println(benchmark.run(rounds));
+  }
+
+  /**
+   * Best results of the parsers.
+   */
+  public static final class Report {
+    private final int recordCount;
+    private final long textBytes;
+    private final long textNanos;
+    private final long jsonBytes;
+    private final long jsonNanos;
+
+    Report(int recordCount, long textBytes, long textNanos, long jsonBytes, long jsonNanos) {
+      this.recordCount = recordCount;
+      this.textBytes = textBytes;
+      this.textNanos = textNanos;
+      this.jsonBytes = jsonBytes;
+      this.jsonNanos = jsonNanos;
+    }
+
+    public double getTextMegabytesPerSecond() {
+      return textBytes * 1e9 / textNanos / (1024 * 1024);
+    }
+
+    public double getJsonMegabytesPerSecond() {
+      return jsonBytes * 1e9 / jsonNanos / (1024 * 1024);
+    }
+
+    /**
+     * @return Ratio of JSON and text throughput per byte, one or more means that JSON is parsed as fast as text
+     */
+    public double getJsonToTextRatio() {
+      return getJsonMegabytesPerSecond() / getTextMegabytesPerSecond();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("text: %.1f MB/s, %.0f records/s, %d bytes%n" +
+              "json: %.1f MB/s, %.0f records/s, %d bytes%n" +
+              "json/text per byte: %.2f",
+          getTextMegabytesPerSecond(), recordCount * 1e9 / textNanos, textBytes,
+          getJsonMegabytesPerSecond(), recordCount * 1e9 / jsonNanos, jsonBytes,
+          getJsonToTextRatio());
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private static int[] findLineEnds(byte[] buffer) {
+    int count = 0;
+    for (final byte b : buffer) {
+      if (b == '\n') {
+        ++count;
+      }
+    }
+
+    final int[] result = new int[count];
+    count = 0;
+    for (int i = 0; i < buffer.length; ++i) {
+      if (buffer[i] == '\n') {
+        result[count++] = i;
+      }
+    }
+    return result;
+  }
+
+  // parses each line of the buffer, returns number of records
+  private static int parseAll(LogLineParser parser, byte[] buffer, int[] lineEnds) {
+    int records = 0;
+    int start = 0;
+    for (final int end : lineEnds) {
+      final LogMessage message = parser.parse(buffer, start, end - start);
+      if (!message.isMultiLinePart() && !message.isNull()) {
+        ++records;
+      }
+      start = end + 1;
+    }
+    return records;
+  }
+}
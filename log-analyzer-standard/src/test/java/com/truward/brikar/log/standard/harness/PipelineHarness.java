@@ -0,0 +1,309 @@
+package com.truward.brikar.log.standard.harness;
+
+import com.truward.brikar.log.metric.LatencyHistogram;
+import com.truward.brikar.log.standard.ArgParser;
+import com.truward.brikar.log.standard.Pipeline;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.builder.RouteBuilder;
+
+import javax.annotation.Nonnull;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end harness: writes synthetic records to the real file at the target rate, runs the complete pipeline
+ * against that file into the counting sink and measures throughput and latency between the moment record is
+ * written and the moment it reaches the sink.
+ * <p>
+ * Run it with <code>mvn exec:java -Dexec.classpathScope=test
+ * -Dlauncher.mainClass=com.truward.brikar.log.standard.harness.PipelineHarness -Dexec.args="..."</code>,
+ * arguments, not recognized by the harness, are passed to the pipeline.
+ *
+ * @author Alexander Shabanov
+ */
+public final class PipelineHarness {
+  public static final String SINK_URI = "direct:harness-sink";
+
+  private static final int UNLIMITED_RATE_BATCH_SIZE = 1000;
+  private static final long SEQ_RECEIVED = -1L;
+
+  private final Path logFile;
+  private final List<String> pipelineOptions;
+  private final SyntheticLogGenerator generator;
+  private final int recordCount;
+  private final int recordsPerSecond;
+
+  // sink state
+  private final AtomicLongArray writeNanos;
+  private final LatencyHistogram latencyMicros = new LatencyHistogram();
+  private final AtomicLong lineCount = new AtomicLong();
+  private final AtomicLong duplicateCount = new AtomicLong();
+  private final AtomicLong lastReceivedNanos = new AtomicLong();
+  private final CountDownLatch received;
+
+  /**
+   * @param logFile File to write records to, it should exist
+   * @param pipelineOptions Pipeline options, except for the source files and endpoint
+   * @param generator Record generator
+   * @param recordCount Number of records to write
+   * @param recordsPerSecond Target rate, zero or negative value means as fast as possible
+   */
+  public PipelineHarness(@Nonnull Path logFile, @Nonnull List<String> pipelineOptions,
+                         @Nonnull SyntheticLogGenerator generator, int recordCount, int recordsPerSecond) {
+    if (recordCount <= 0) {
+      throw new IllegalArgumentException("Record count should be positive");
+    }
+
+    this.logFile = Objects.requireNonNull(logFile, "logFile");
+    this.pipelineOptions = new ArrayList<>(Objects.requireNonNull(pipelineOptions, "pipelineOptions"));
+    this.generator = Objects.requireNonNull(generator, "generator");
+    this.recordCount = recordCount;
+    this.recordsPerSecond = recordsPerSecond;
+    this.writeNanos = new AtomicLongArray(recordCount);
+    this.received = new CountDownLatch(recordCount);
+  }
+
+  /**
+   * Runs the pipeline, writes all the records and waits until they are received by the sink.
+   *
+   * @param drainTimeoutMillis Time to wait for the records after all of them have been written
+   * @return Measurement results
+   * @throws Exception On pipeline or I/O error
+   */
+  @Nonnull
+  public Report run(long drainTimeoutMillis) throws Exception {
+    final List<String> args = new ArrayList<>(pipelineOptions);
+    args.add("-f");
+    args.add(logFile.toString());
+    args.add("-e");
+    args.add(SINK_URI);
+    final ArgParser argParser = new ArgParser(args.toArray(new String[args.size()]));
+    if (argParser.parse() != 0) {
+      throw new IllegalArgumentException("Invalid pipeline options: " + pipelineOptions);
+    }
+
+    try (final Pipeline pipeline = new Pipeline(argParser.getParseResult())) {
+      pipeline.getContext().addRoutes(new RouteBuilder() {
+        @Override
+        public void configure() throws Exception {
+          from(SINK_URI).process(new CountingProcessor());
+        }
+      });
+      pipeline.start();
+
+      final long gcTimeBefore = getGcTimeMillis();
+      final long gcCountBefore = getGcCount();
+      final long startNanos = System.nanoTime();
+
+      writeRecords(startNanos);
+      received.await(drainTimeoutMillis, TimeUnit.MILLISECONDS);
+
+      final long endNanos = received.getCount() == 0 ? lastReceivedNanos.get() : System.nanoTime();
+      return new Report(recordCount, recordCount - received.getCount(), duplicateCount.get(), lineCount.get(),
+          endNanos - startNanos, latencyMicros, getGcTimeMillis() - gcTimeBefore, getGcCount() - gcCountBefore);
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int recordCount = 1000000;
+    int rate = 100000;
+    long seed = 1L;
+    double errorRatio = 0.05;
+    int stackDepth = 20;
+    int attributeCount = 2;
+    double metricRatio = 0.2;
+    long drainTimeoutMillis = 30000L;
+    final List<String> pipelineOptions = new ArrayList<>();
+
+    for (int pos = 0; pos < args.length; ++pos) {
+      final String arg = args[pos];
+      if ("--records".equals(arg)) {
+        recordCount = Integer.parseInt(args[++pos]);
+      } else if ("--rate".equals(arg)) {
+        rate = Integer.parseInt(args[++pos]);
+      } else if ("--seed".equals(arg)) {
+        seed = Long.parseLong(args[++pos]);
+      } else if ("--error-ratio".equals(arg)) {
+        errorRatio = Double.parseDouble(args[++pos]);
+      } else if ("--stack-depth".equals(arg)) {
+        stackDepth = Integer.parseInt(args[++pos]);
+      } else if ("--attributes".equals(arg)) {
+        attributeCount = Integer.parseInt(args[++pos]);
+      } else if ("--metric-ratio".equals(arg)) {
+        metricRatio = Double.parseDouble(args[++pos]);
+      } else if ("--drain-timeout".equals(arg)) {
+        drainTimeoutMillis = Long.parseLong(args[++pos]);
+      } else {
+        pipelineOptions.add(arg);
+      }
+    }
+
+    final Path logFile = Files.createTempFile("harness", ".log");
+    try {
+      final PipelineHarness harness = new PipelineHarness(logFile, pipelineOptions,
+          new SyntheticLogGenerator(seed, errorRatio, stackDepth, attributeCount, metricRatio), recordCount, rate);
+      System.out.println(harness.run(drainTimeoutMillis));
+    } finally {
+      Files.deleteIfExists(logFile);
+    }
+  }
+
+  /**
+   * Measurement results.
+   */
+  public static final class Report {
+    private final long writtenRecords;
+    private final long receivedRecords;
+    private final long duplicateRecords;
+    private final long receivedLines;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencyMicros;
+    private final long gcTimeMillis;
+    private final long gcCount;
+
+    Report(long writtenRecords, long receivedRecords, long duplicateRecords, long receivedLines, long elapsedNanos,
+           LatencyHistogram latencyMicros, long gcTimeMillis, long gcCount) {
+      this.writtenRecords = writtenRecords;
+      this.receivedRecords = receivedRecords;
+      this.duplicateRecords = duplicateRecords;
+      this.receivedLines = receivedLines;
+      this.elapsedNanos = elapsedNanos;
+      this.latencyMicros = latencyMicros;
+      this.gcTimeMillis = gcTimeMillis;
+      this.gcCount = gcCount;
+    }
+
+    public long getWrittenRecords() {
+      return writtenRecords;
+    }
+
+    public long getReceivedRecords() {
+      return receivedRecords;
+    }
+
+    public long getDuplicateRecords() {
+      return duplicateRecords;
+    }
+
+    public long getReceivedLines() {
+      return receivedLines;
+    }
+
+    public double getRecordsPerSecond() {
+      return receivedRecords * 1e9 / elapsedNanos;
+    }
+
+    public double getLinesPerSecond() {
+      return receivedLines * 1e9 / elapsedNanos;
+    }
+
+    @Nonnull
+    public LatencyHistogram getLatencyMicros() {
+      return latencyMicros;
+    }
+
+    public long getGcTimeMillis() {
+      return gcTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("records: written=%d, received=%d, duplicates=%d%n" +
+              "throughput: %.0f records/s, %.0f lines/s over %.2f s%n" +
+              "latency, us: p50=%d, p99=%d, p999=%d, max=%d%n" +
+              "gc: %d collections, %d ms",
+          writtenRecords, receivedRecords, duplicateRecords,
+          getRecordsPerSecond(), getLinesPerSecond(), elapsedNanos / 1e9,
+          latencyMicros.getPercentile(50.0), latencyMicros.getPercentile(99.0),
+          latencyMicros.getPercentile(99.9), latencyMicros.getMax(),
+          gcCount, gcTimeMillis);
+    }
+  }
+
+  //
+  // Private
+  //
+
+  private void writeRecords(long startNanos) throws IOException {
+    final StringBuilder batch = new StringBuilder(64 * 1024);
+    try (final OutputStream out = new FileOutputStream(logFile.toFile(), true)) {
+      int seq = 0;
+      while (seq < recordCount) {
+        final int target;
+        if (recordsPerSecond > 0) {
+          final long due = (System.nanoTime() - startNanos) * recordsPerSecond / 1000000000L + 1;
+          target = (int) Math.min(recordCount, due);
+          if (target <= seq) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            continue;
+          }
+        } else {
+          target = Math.min(recordCount, seq + UNLIMITED_RATE_BATCH_SIZE);
+        }
+
+        batch.setLength(0);
+        final long unixTime = System.currentTimeMillis();
+        final long nanos = System.nanoTime();
+        for (int i = seq; i < target; ++i) {
+          generator.appendRecord(i, unixTime, batch);
+          writeNanos.set(i, nanos);
+        }
+        out.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+        seq = target;
+      }
+    }
+  }
+
+  private final class CountingProcessor implements Processor {
+    @Override
+    public void process(Exchange exchange) throws Exception {
+      final long nanos = System.nanoTime();
+      final Map<?, ?> body = exchange.getIn().getBody(Map.class);
+      final Map<?, ?> attributes = (Map<?, ?>) body.get("attributes");
+      final int seq = Integer.parseInt(String.valueOf(attributes.get(SyntheticLogGenerator.SEQ_ATTRIBUTE)));
+
+      final long written = writeNanos.getAndSet(seq, SEQ_RECEIVED);
+      if (written == SEQ_RECEIVED) {
+        duplicateCount.incrementAndGet();
+        return;
+      }
+
+      latencyMicros.record(TimeUnit.NANOSECONDS.toMicros(nanos - written));
+      lineCount.addAndGet(((List<?>) body.get("lines")).size());
+      lastReceivedNanos.set(nanos);
+      received.countDown();
+    }
+  }
+
+  private static long getGcTimeMillis() {
+    long result = 0;
+    for (final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      result += Math.max(0L, bean.getCollectionTime());
+    }
+    return result;
+  }
+
+  private static long getGcCount() {
+    long result = 0;
+    for (final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      result += Math.max(0L, bean.getCollectionCount());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,108 @@
+package com.truward.brikar.log.standard.harness;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.parser.JsonLineParser;
+import com.truward.brikar.log.standard.camel.LogMessageProcessor;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Smoke tests for the end-to-end harness.
+ *
+ * @author Alexander Shabanov
+ */
+public final class PipelineHarnessTest {
+
+  @Test
+  public void shouldGenerateParseableRecords() {
+    // Given:
+    final SyntheticLogGenerator generator = new SyntheticLogGenerator(1L, 1.0, 3, 2, 0.0);
+    final StringBuilder builder = new StringBuilder();
+
+    // When:
+    final int lineCount = generator.appendRecord(42L, 1437780076942L, builder);
+
+    // Then:
+    final String[] lines = builder.toString().split("\n");
+    assertEquals(5, lineCount);
+    assertEquals(5, lines.length);
+
+    final LogMessage record = new LogMessageProcessor().parse(lines[0]);
+    assertFalse(record.isMultiLinePart());
+    assertEquals(1437780076942L, record.getUnixTime());
+    assertEquals("42", record.getAttributes().get(SyntheticLogGenerator.SEQ_ATTRIBUTE));
+    assertEquals(3, record.getAttributes().size());
+    for (int i = 1; i < lines.length; ++i) {
+      assertTrue(new LogMessageProcessor().parse(lines[i]).isMultiLinePart());
+    }
+  }
+
+  @Test
+  public void shouldGenerateSameRecordsAsJson() {
+    // Given:
+    final StringBuilder text = new StringBuilder();
+    final StringBuilder json = new StringBuilder();
+
+    // When:
+    new SyntheticLogGenerator(1L, 1.0, 3, 2, 0.0).appendRecord(42L, 1437780076942L, text);
+    new SyntheticLogGenerator(1L, 1.0, 3, 2, 0.0).appendJsonRecord(42L, 1437780076942L, json);
+
+    // Then:
+    final String[] textLines = text.toString().split("\n");
+    final LogMessage textRecord = new LogMessageProcessor().parse(textLines[0]);
+    for (int i = 1; i < textLines.length; ++i) {
+      textRecord.addLine(textLines[i]);
+    }
+    assertTrue(json.toString().endsWith("}\n"));
+    final LogMessage jsonRecord = new JsonLineParser().parse(json.substring(0, json.length() - 1));
+    assertEquals(textRecord.getUnixTime(), jsonRecord.getUnixTime());
+    assertEquals(textRecord.getSeverity(), jsonRecord.getSeverity());
+    assertEquals(textRecord.getLoggerName(), jsonRecord.getLoggerName());
+    assertEquals(textRecord.getMessage(), jsonRecord.getMessage());
+    assertEquals(textRecord.getLines().subList(1, textRecord.getLineCount()),
+        jsonRecord.getLines().subList(1, jsonRecord.getLineCount()));
+    assertEquals(textRecord.getAttributes(), jsonRecord.getAttributes());
+  }
+
+  @Test
+  public void shouldRunParserBenchmark() {
+    // Given:
+    final ParserBenchmark benchmark = new ParserBenchmark(() -> new SyntheticLogGenerator(1L, 0.1, 5, 2, 0.2), 1000);
+
+    // When:
+    final ParserBenchmark.Report report = benchmark.run(2);
+
+    // Then:
+    assertTrue(report.getTextMegabytesPerSecond() > 0.0);
+    assertTrue(report.getJsonMegabytesPerSecond() > 0.0);
+  }
+
+  @Test
+  public void shouldReceiveAllWrittenRecords() throws Exception {
+    // Given:
+    final Path logFile = Files.createTempFile("harness", ".log");
+    try {
+      final PipelineHarness harness = new PipelineHarness(logFile,
+          Arrays.asList("--reader", "ring", "--scan-delay", "10", "--max-stacktrace-population-time", "100"),
+          new SyntheticLogGenerator(1L, 0.1, 5, 2, 0.2), 2000, 20000);
+
+      // When:
+      final PipelineHarness.Report report = harness.run(10000L);
+
+      // Then:
+      assertEquals(2000L, report.getReceivedRecords());
+      assertEquals(0L, report.getDuplicateRecords());
+      assertEquals(2000L, report.getLatencyMicros().getCount());
+      assertTrue(report.getReceivedLines() > 2000L);
+    } finally {
+      Files.deleteIfExists(logFile);
+    }
+  }
+}
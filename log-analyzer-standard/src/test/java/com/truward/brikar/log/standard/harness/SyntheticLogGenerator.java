@@ -0,0 +1,181 @@
+package com.truward.brikar.log.standard.harness;
+
+import javax.annotation.Nonnull;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Generates log records in the format the standard parser understands. Each record carries
+ * <code>seq</code> variable with its sequence number, so that the record could be matched once it is emitted
+ * by the pipeline. Error records are followed by the stacktrace lines.
+ * <p>
+ * The same records could be generated as JSON lines in the default format of {@code JsonLineParser}: variables
+ * become members of the MDC object and stacktrace becomes the stack trace field. Given the same seed, text and JSON
+ * generators produce the same sequence of records.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SyntheticLogGenerator {
+  public static final String SEQ_ATTRIBUTE = "seq";
+
+  private static final String ID_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+  private static final String[] OPERATIONS = {
+      "UserService.getUserById", "UserService.saveUser", "OrderService.placeOrder", "SearchService.find"
+  };
+
+  private final Random random;
+  private final double errorRatio;
+  private final int stackDepth;
+  private final int attributeCount;
+  private final double metricRatio;
+  private final DateFormat dateFormat;
+  private final DateFormat isoDateFormat;
+  private final String[] ids;
+
+  /**
+   * @param seed Random seed, so that the same sequence of records could be reproduced
+   * @param errorRatio Ratio of error records, that are followed by the stacktrace, from 0 to 1
+   * @param stackDepth Number of stacktrace lines after the exception line
+   * @param attributeCount Number of variables in each record, besides sequence number
+   * @param metricRatio Ratio of records, that contain <code>@metric</code> entry, from 0 to 1
+   */
+  public SyntheticLogGenerator(long seed, double errorRatio, int stackDepth, int attributeCount, double metricRatio) {
+    if (errorRatio < 0.0 || errorRatio > 1.0 || metricRatio < 0.0 || metricRatio > 1.0) {
+      throw new IllegalArgumentException("Ratio should be in range [0, 1]");
+    }
+    if (stackDepth < 0 || attributeCount < 0) {
+      throw new IllegalArgumentException("Stack depth and attribute count should not be negative");
+    }
+
+    this.random = new Random(seed);
+    this.errorRatio = errorRatio;
+    this.stackDepth = stackDepth;
+    this.attributeCount = attributeCount;
+    this.metricRatio = metricRatio;
+    this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+    this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    this.isoDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    this.isoDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    this.ids = new String[attributeCount];
+  }
+
+  /**
+   * Appends record with its continuation lines, if any, each line is terminated by the new line character.
+   *
+   * @param seq Sequence number of the record
+   * @param unixTime Record time
+   * @param out Target builder
+   * @return Number of lines appended
+   */
+  public int appendRecord(long seq, long unixTime, @Nonnull StringBuilder out) {
+    final boolean error = random.nextDouble() < errorRatio;
+    final boolean metric = !error && random.nextDouble() < metricRatio;
+    final String level = error ? "ERROR" : (metric ? "INFO" : (random.nextInt(4) == 0 ? "WARN" : "INFO"));
+    nextIds();
+
+    out.append(dateFormat.format(new Date(unixTime))).append(' ').append(level).append(' ')
+        .append("learn.LogProducerMain ")
+        .append(SEQ_ATTRIBUTE).append('=').append(seq);
+    for (int i = 0; i < attributeCount; ++i) {
+      out.append(", ").append(getAttributeName(i)).append('=').append(ids[i]);
+    }
+    out.append(" [learn.LogProducerMain.main()] ");
+
+    if (metric) {
+      appendMetric(out);
+      out.append('\n');
+      return 1;
+    }
+
+    if (!error) {
+      out.append("Operation #").append(seq).append(" completed\n");
+      return 1;
+    }
+
+    out.append("Error operation #").append(seq).append(" attempted\n");
+    appendStackTrace(out, "\n", "\t");
+    return stackDepth + 2;
+  }
+
+  /**
+   * Appends the same record as {@link #appendRecord(long, long, StringBuilder)} does, but as a single JSON line,
+   * terminated by the new line character.
+   *
+   * @param seq Sequence number of the record
+   * @param unixTime Record time
+   * @param out Target builder
+   */
+  public void appendJsonRecord(long seq, long unixTime, @Nonnull StringBuilder out) {
+    final boolean error = random.nextDouble() < errorRatio;
+    final boolean metric = !error && random.nextDouble() < metricRatio;
+    final String level = error ? "ERROR" : (metric ? "INFO" : (random.nextInt(4) == 0 ? "WARN" : "INFO"));
+    nextIds();
+
+    out.append("{\"@timestamp\":\"").append(isoDateFormat.format(new Date(unixTime)))
+        .append("\",\"level\":\"").append(level)
+        .append("\",\"logger_name\":\"learn.LogProducerMain\",\"thread_name\":\"learn.LogProducerMain.main()\"")
+        .append(",\"message\":\"");
+    if (metric) {
+      appendMetric(out);
+    } else {
+      out.append(error ? "Error operation #" : "Operation #").append(seq).append(error ? " attempted" : " completed");
+    }
+    out.append("\",\"mdc\":{\"").append(SEQ_ATTRIBUTE).append("\":\"").append(seq).append('"');
+    for (int i = 0; i < attributeCount; ++i) {
+      out.append(",\"").append(getAttributeName(i)).append("\":\"").append(ids[i]).append('"');
+    }
+    out.append('}');
+
+    if (error) {
+      out.append(",\"stack_trace\":\"");
+      appendStackTrace(out, "\\n", "\\t");
+      out.setLength(out.length() - 2); // trailing new line
+      out.append('"');
+    }
+    out.append("}\n");
+  }
+
+  //
+  // Private
+  //
+
+  private static String getAttributeName(int index) {
+    switch (index) {
+      case 0:
+        return "rid";
+      case 1:
+        return "oid";
+      default:
+        return "v" + index;
+    }
+  }
+
+  private void nextIds() {
+    final StringBuilder id = new StringBuilder(16);
+    for (int i = 0; i < attributeCount; ++i) {
+      id.setLength(0);
+      for (int j = 0; j < 16; ++j) {
+        id.append(ID_CHARS.charAt(random.nextInt(ID_CHARS.length())));
+      }
+      ids[i] = id.toString();
+    }
+  }
+
+  private void appendMetric(StringBuilder out) {
+    out.append("@metric tDelta=").append(random.nextInt(1000))
+        .append(", op=").append(OPERATIONS[random.nextInt(OPERATIONS.length)]);
+  }
+
+  private void appendStackTrace(StringBuilder out, String newLine, String tab) {
+    out.append("java.lang.UnsupportedOperationException: This operation is not supported yet").append(newLine);
+    for (int i = 0; i < stackDepth; ++i) {
+      out.append(tab).append("at learn.LogProducerMain.doOperation").append(i)
+          .append("(LogProducerMain.java:").append(100 + i).append(") [classes/:na]").append(newLine);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.truward.brikar.log.standard.lookup;
+
+import com.truward.brikar.log.model.LogMessage;
+import com.truward.brikar.log.model.MaterializedLogMessage;
+import com.truward.brikar.log.model.Severity;
+import com.truward.brikar.log.sink.RollingFileSink;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests lookup of the records in the indexed segments.
+ *
+ * @author Alexander Shabanov
+ */
+public final class LookupCommandTest {
+  private static final int REQUEST_COUNT = 10000;
+  private static final long START = 1437780076942L; // 2015-07-24 23:21:16,942
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldSkipSegmentsWithoutRecords() throws Exception {
+    // Given:
+    final Path directory = temporaryFolder.getRoot().toPath();
+    final RollingFileSink sink = new RollingFileSink(directory, "records", RollingFileSink.Compression.NONE,
+        16 * 1024, RollingFileSink.DEFAULT_MAX_SEGMENT_MILLIS, 10L, 128, Arrays.asList("rid", "oid"), 0.01);
+    for (int i = 0; i < REQUEST_COUNT; ++i) {
+      for (int j = 0; j < 3; ++j) {
+        final LogMessage message = new MaterializedLogMessage(START + i, Severity.INFO,
+            "2015-07-24 23:21:16,942 INFO learn.LogProducerMain [main] Step " + j);
+        message.putAttribute("rid", "r" + i);
+        message.putAttribute("oid", "o" + (i % 2));
+        sink.accept(message);
+      }
+    }
+    sink.close();
+
+    // When:
+    final LookupCommand command = lookup("--attr", "rid=r500", "--attr", "oid=o0");
+    final String output = run(command);
+
+    // Then:
+    assertEquals(3, output.split("\n").length);
+    for (final String line : output.split("\n")) {
+      assertTrue(line, line.contains("\"rid\":\"r500\"") && line.contains("\"oid\":\"o0\""));
+    }
+    assertTrue(command.getSegmentCount() > 20);
+    assertTrue(command.getScannedSegmentCount() < command.getSegmentCount() / 4);
+
+    assertEquals("", run(lookup("--attr", "rid=r500", "--attr", "oid=o1")));
+    assertEquals("", run(lookup("--attr", "rid=r50000")));
+  }
+
+  //
+  // Private
+  //
+
+  private LookupCommand lookup(String... options) {
+    final String[] args = new String[options.length + 3];
+    args[0] = LookupArgParser.COMMAND;
+    args[1] = "--dir";
+    args[2] = temporaryFolder.getRoot().toString();
+    System.arraycopy(options, 0, args, 3, options.length);
+
+    final LookupArgParser argParser = new LookupArgParser(args);
+    assertEquals(0, argParser.parse());
+    return new LookupCommand(argParser.getParseResult());
+  }
+
+  private static String run(LookupCommand command) throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    command.run(new PrintStream(out, true, "UTF-8"));
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
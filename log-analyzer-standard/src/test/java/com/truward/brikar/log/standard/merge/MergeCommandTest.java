@@ -0,0 +1,88 @@
+package com.truward.brikar.log.standard.merge;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link MergeCommand}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class MergeCommandTest {
+
+  private static final String API_1 = "2015-07-24 23:21:16,942 INFO learn.ApiMain  " +
+      "[learn.ApiMain.main()] Request accepted\n";
+
+  private static final String API_2 = "2015-07-24 23:21:17,500 WARN learn.ApiMain " +
+      "rid=anCYuTwUWbtnuZp1 [learn.ApiMain.main()] Storage call failed\n" +
+      "java.lang.IllegalStateException: Storage is not available\n" +
+      "\tat learn.ApiMain.callStorage(ApiMain.java:149) [classes/:na]\n";
+
+  private static final String STORAGE_1 = "2015-07-24 23:21:17,000 ERROR learn.StorageMain " +
+      "rid=anCYuTwUWbtnuZp1 [learn.StorageMain.main()] Disk full\n";
+
+  private static final String STORAGE_2 = "2015-07-24 23:21:18,000 INFO learn.StorageMain  " +
+      "[learn.StorageMain.main()] Disk cleaned up\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldInterleaveFilesAndArchivesByTime() throws Exception {
+    // Given:
+    final Path api = temporaryFolder.newFile("api.log").toPath();
+    Files.write(api, (API_1 + API_2).getBytes(StandardCharsets.UTF_8));
+    final Path storage = temporaryFolder.newFile("storage.log.gz").toPath();
+    try (final OutputStream out = new GZIPOutputStream(Files.newOutputStream(storage))) {
+      out.write((STORAGE_1 + STORAGE_2).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // When:
+    final String output = merge("merge", "-f", api.toString(), "-f", storage.toString(), "--tolerance", "0");
+
+    // Then:
+    assertEquals(API_1 + STORAGE_1 + API_2 + STORAGE_2, output);
+  }
+
+  @Test
+  public void shouldWriteJson() throws Exception {
+    // Given:
+    final Path api = temporaryFolder.newFile("api.log").toPath();
+    Files.write(api, API_2.getBytes(StandardCharsets.UTF_8));
+    final Path storage = temporaryFolder.newFile("storage.log").toPath();
+    Files.write(storage, STORAGE_1.getBytes(StandardCharsets.UTF_8));
+
+    // When:
+    final String output = merge("merge", "--dir", temporaryFolder.getRoot().toString(), "--format", "json");
+
+    // Then:
+    final String[] lines = output.split("\n");
+    assertEquals(2, lines.length);
+    assertTrue(lines[0], lines[0].startsWith("{\"lines\":[\"2015-07-24 23:21:17,000 ERROR"));
+    assertTrue(lines[1], lines[1].startsWith("{\"lines\":[\"2015-07-24 23:21:17,500 WARN"));
+  }
+
+  //
+  // Private
+  //
+
+  private static String merge(String... args) throws Exception {
+    final MergeArgParser parser = new MergeArgParser(args);
+    assertEquals(0, parser.parse());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new MergeCommand(parser.getParseResult()).run(out);
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,91 @@
+package com.truward.brikar.log.standard.recent;
+
+import com.truward.brikar.log.recent.RecentRecordStore;
+import com.truward.brikar.log.standard.camel.LogMessageProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RecentQueryServer}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RecentQueryServerTest {
+  private final LogMessageProcessor parser = new LogMessageProcessor();
+  private final RecentRecordStore store = new RecentRecordStore(64 * 1024);
+  private RecentQueryServer server;
+
+  @Before
+  public void init() throws IOException {
+    store.accept(parser.parse("2015-07-24 23:21:16,942 INFO learn.ApiMain rid=r1 [main] Request accepted"));
+    store.accept(parser.parse("2015-07-24 23:21:17,500 ERROR learn.ApiMain rid=r1 [main] Storage call failed"));
+    store.accept(parser.parse("2015-07-24 23:21:18,000 ERROR learn.ApiMain rid=r2 [main] Disk full"));
+    server = new RecentQueryServer(store, 0);
+  }
+
+  @After
+  public void close() {
+    server.close();
+  }
+
+  @Test
+  public void shouldReturnMatchingRecords() throws IOException {
+    // When:
+    final String errors = get("/records?severity=error&rid=r1");
+    final String range = get("/records?from=2015-07-24T23:21:17.000Z&to=1437780078000");
+    final String latest = get("/records?limit=1");
+
+    // Then:
+    final String[] lines = errors.split("\n");
+    assertEquals(1, lines.length);
+    assertTrue(lines[0], lines[0].contains("Storage call failed"));
+    assertTrue(lines[0], lines[0].contains("\"rid\":\"r1\""));
+    assertEquals(errors, range);
+    assertTrue(latest, latest.contains("Disk full") && latest.split("\n").length == 1);
+    assertEquals("", get("/records?last=5"));
+  }
+
+  @Test
+  public void shouldReportStatsAndErrors() throws IOException {
+    // When:
+    final String stats = get("/stats");
+
+    // Then:
+    assertTrue(stats, stats.startsWith("{\"records\":3,"));
+    assertTrue(stats, stats.contains("\"oldestTime\":1437780076942"));
+    final HttpURLConnection connection = open("/records?severity=LOUD");
+    assertEquals(400, connection.getResponseCode());
+  }
+
+  //
+  // Private
+  //
+
+  private HttpURLConnection open(String path) throws IOException {
+    return (HttpURLConnection) URI.create("http://127.0.0.1:" + server.getPort() + path).toURL().openConnection();
+  }
+
+  private String get(String path) throws IOException {
+    final HttpURLConnection connection = open(path);
+    assertEquals(200, connection.getResponseCode());
+    try (final InputStream in = connection.getInputStream()) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[4096];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+}
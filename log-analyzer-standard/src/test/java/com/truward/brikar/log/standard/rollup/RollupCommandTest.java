@@ -0,0 +1,87 @@
+package com.truward.brikar.log.standard.rollup;
+
+import com.truward.brikar.log.standard.ArgParser;
+import com.truward.brikar.log.standard.Pipeline;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests rollups, that are kept by the pipeline, and the command, that queries them.
+ *
+ * @author Alexander Shabanov
+ */
+public final class RollupCommandTest {
+
+  private static final String RECORDS = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain oid=o1 " +
+      "[main] Operation timed out\n" +
+      "2015-07-24 23:21:17,002 WARN learn.LogProducerMain oid=o1, rid=r1 [main] Error operation attempted\n" +
+      "java.lang.UnsupportedOperationException: This operation is not supported yet\n" +
+      "\tat learn.LogProducerMain.doErrorOperation(LogProducerMain.java:145) [classes/:na]\n" +
+      "2015-07-24 23:22:08,356 ERROR learn.DiskMonitor oid=o2 [main] Disk full\n" +
+      "2015-07-24 23:22:09,356 ERROR learn.DiskMonitor oid=o2 [main] Disk full\n" +
+      "2015-07-25 00:03:08,356 INFO learn.LogProducerMain oid=o1 [main] Operation completed\n" +
+      "2015-07-25 00:03:09,356 INFO learn.LogProducerMain  [main] Last record\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldQueryRollupsKeptByPipeline() throws Exception {
+    // Given:
+    final Path logFile = temporaryFolder.newFile("app.log").toPath();
+    Files.write(logFile, RECORDS.getBytes(StandardCharsets.UTF_8));
+    final Path storeDirectory = temporaryFolder.getRoot().toPath().resolve("rollups");
+
+    // When:
+    final ArgParser argParser = new ArgParser(new String[] {"-f", logFile.toString(), "--reader", "virtual",
+        "--scan-delay", "10", "--max-stacktrace-population-time", "50", "-e", "log:records?level=OFF",
+        "--rollup-dir", storeDirectory.toString(), "--rollup-attributes", "oid", "--rollup-flush-period", "20",
+        "--rollup-retention", "100000"}); // records are old, they would be downsampled to hours otherwise
+    assertEquals(0, argParser.parse());
+    try (final Pipeline pipeline = new Pipeline(argParser.getParseResult())) {
+      pipeline.start();
+      final long deadline = System.currentTimeMillis() + 10000L;
+      while (!query("--step", "total").equals("total\t* *\t6\n") && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20L);
+      }
+    }
+
+    // Then:
+    assertEquals("total\t* *\t6\n", query("--step", "total"));
+    assertEquals("2015-07-24 23:00:00,000\tERROR *\t2\n" +
+            "2015-07-24 23:00:00,000\tINFO *\t1\n" +
+            "2015-07-24 23:00:00,000\tWARN *\t1\n" +
+            "2015-07-25 00:00:00,000\tINFO *\t2\n",
+        query("--group-by", "severity"));
+    assertEquals("2015-07-24 23:21:00,000\t* learn.LogProducerMain oid=o1\t2\n",
+        query("--step", "minute", "--logger", "learn.Log", "--attr", "oid=o1", "--group-by", "logger,oid",
+            "--to", "2015-07-25 00:00:00,000"));
+  }
+
+  //
+  // Private
+  //
+
+  private String query(String... options) throws Exception {
+    final String[] args = new String[options.length + 3];
+    args[0] = RollupArgParser.COMMAND;
+    args[1] = "--store";
+    args[2] = temporaryFolder.getRoot().toPath().resolve("rollups").toString();
+    System.arraycopy(options, 0, args, 3, options.length);
+
+    final RollupArgParser argParser = new RollupArgParser(args);
+    assertEquals(0, argParser.parse());
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new RollupCommand(argParser.getParseResult()).run(new PrintStream(out, true, "UTF-8"));
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
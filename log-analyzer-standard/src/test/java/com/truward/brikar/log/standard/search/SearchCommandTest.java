@@ -0,0 +1,84 @@
+package com.truward.brikar.log.standard.search;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SearchCommand}.
+ *
+ * @author Alexander Shabanov
+ */
+public final class SearchCommandTest {
+
+  private static final String RECORD_1 = "2015-07-24 23:21:16,942 INFO learn.LogProducerMain  " +
+      "[learn.LogProducerMain.main()] Operation timed out\n";
+
+  private static final String RECORD_2 = "2015-07-24 23:39:55,002 WARN learn.LogProducerMain " +
+      "oid=pg/BBY//9YgCHcJn, rid=anCYuTwUWbtnuZp1 " +
+      "[learn.LogProducerMain.main()] Error operation #0 attempted\n" +
+      "java.lang.UnsupportedOperationException: This operation is not supported yet\n" +
+      "\tat learn.LogProducerMain.throwUnsupportedOperationException(LogProducerMain.java:149) [classes/:na]\n" +
+      "\tat learn.LogProducerMain.doErrorOperation(LogProducerMain.java:145) [classes/:na]\n";
+
+  private static final String RECORD_3 = "2015-07-25 00:03:08,356 ERROR learn.LogProducerMain " +
+      "rid=KhnHxNK/BbLbaiH4 " +
+      "[learn.LogProducerMain.main()] Disk full\n";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldWriteCompleteRecordsMatchingPattern() throws Exception {
+    // Given:
+    final Path file = writeLog();
+
+    // When:
+    final String output = search("search", "-f", file.toString(), "-p", "doerroroperation", "-i");
+
+    // Then:
+    assertEquals(RECORD_2, output);
+  }
+
+  @Test
+  public void shouldApplyFiltersAndWriteJson() throws Exception {
+    // Given:
+    final Path file = writeLog();
+
+    // When:
+    final String output = search("search", "--dir", file.getParent().toString(), "--severity", "warn,error",
+        "--from", "2015-07-24 23:30:00,000", "--attr", "rid=KhnHxNK/BbLbaiH4", "--format", "json");
+
+    // Then:
+    assertTrue(output, output.startsWith("{\"lines\":[\"2015-07-25 00:03:08,356 ERROR"));
+    assertTrue(output, output.endsWith("\"severity\":\"ERROR\",\"time\":1437782588356," +
+        "\"attributes\":{\"rid\":\"KhnHxNK/BbLbaiH4\"}}\n"));
+  }
+
+  //
+  // Private
+  //
+
+  private Path writeLog() throws Exception {
+    final Path file = temporaryFolder.newFile("app.log").toPath();
+    Files.write(file, (RECORD_1 + RECORD_2 + RECORD_3).getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static String search(String... args) throws Exception {
+    final SearchArgParser parser = new SearchArgParser(args);
+    assertEquals(0, parser.parse());
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new SearchCommand(parser.getParseResult()).run(out);
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}